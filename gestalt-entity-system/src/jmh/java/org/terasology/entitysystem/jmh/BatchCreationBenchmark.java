@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import com.google.common.collect.Lists;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.EntityBatch;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.ArchetypeEntityStore;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.EntityStore;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares creating a wave of entities one at a time against creating them as a single batch.
+ */
+public class BatchCreationBenchmark {
+
+    @State(Scope.Thread)
+    public static class EntitySystem {
+        @Param({"ComponentTable", "ArchetypeEntityStore"})
+        public String storeType;
+
+        @Param({"10000"})
+        public int entityCount;
+
+        public ComponentManager componentManager;
+        public List<PositionComponent> positions;
+        public List<VelocityComponent> velocities;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            componentManager = new CodeGenComponentManager(typeLibrary);
+            positions = Lists.newArrayListWithCapacity(entityCount);
+            velocities = Lists.newArrayListWithCapacity(entityCount);
+            for (int i = 0; i < entityCount; ++i) {
+                PositionComponent position = componentManager.create(PositionComponent.class);
+                position.setX((float) i);
+                position.setY(0f);
+                position.setZ(0f);
+                positions.add(position);
+                VelocityComponent velocity = componentManager.create(VelocityComponent.class);
+                velocity.setX(1f);
+                velocity.setY(0f);
+                velocity.setZ(0f);
+                velocities.add(velocity);
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void createEntityManager() {
+            EntityStore entityStore;
+            switch (storeType) {
+                case "ArchetypeEntityStore":
+                    entityStore = new ArchetypeEntityStore(componentManager, 1);
+                    break;
+                default:
+                    entityStore = new ComponentTable(componentManager, 1);
+                    break;
+            }
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(componentManager, transactionManager, entityStore);
+        }
+    }
+
+    @Benchmark
+    public EntityRef createIndividually(EntitySystem entitySystem) {
+        entitySystem.transactionManager.begin();
+        EntityRef last = null;
+        for (int i = 0; i < entitySystem.entityCount; ++i) {
+            last = entitySystem.entityManager.createEntity();
+            last.addComponent(PositionComponent.class).setX(entitySystem.positions.get(i).getX());
+            last.addComponent(VelocityComponent.class).setX(entitySystem.velocities.get(i).getX());
+        }
+        entitySystem.transactionManager.commit();
+        return last;
+    }
+
+    @Benchmark
+    public EntityBatch createBatch(EntitySystem entitySystem) {
+        entitySystem.transactionManager.begin();
+        EntityBatch batch = entitySystem.entityManager.createEntityBatch(Arrays.asList(entitySystem.positions, entitySystem.velocities));
+        entitySystem.transactionManager.commit();
+        return batch;
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.CommitMode;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.exception.RollbackException;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures commit throughput under contention for each commit mode. Each transaction updates two entities - one owned by the committing thread, and one that is
+ * shared between all threads with a probability of overlapPercent, or otherwise owned by the thread. Conflicting transactions are retried until they succeed,
+ * and the number of retries is reported.
+ */
+public class CommitContentionBenchmark {
+
+    private static final int SHARED_ENTITIES = 4;
+
+    @State(Scope.Benchmark)
+    public static class EntitySystem {
+        @Param({"LOCKING", "OPTIMISTIC"})
+        public CommitMode commitMode;
+
+        @Param({"0", "10", "50"})
+        public int overlapPercent;
+
+        @Param({"256"})
+        public int entitiesPerThread;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+        public EntityRef[] sharedEntities;
+        public final AtomicInteger threadIndexSource = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            ComponentManager componentManager = new CodeGenComponentManager(typeLibrary);
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(componentManager, transactionManager, new ComponentTable(componentManager, 1), commitMode);
+            sharedEntities = createEntities(this, SHARED_ENTITIES, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadEntities {
+        public EntityRef[] entities;
+        public Random random;
+        public int next;
+
+        @Setup
+        public void setup(EntitySystem entitySystem) {
+            int threadIndex = entitySystem.threadIndexSource.incrementAndGet();
+            entities = createEntities(entitySystem, entitySystem.entitiesPerThread, threadIndex * entitySystem.entitiesPerThread);
+            random = new Random(threadIndex);
+        }
+
+        public EntityRef nextEntity() {
+            EntityRef result = entities[next];
+            next = (next + 1) % entities.length;
+            return result;
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Retries {
+        public int retries;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            retries = 0;
+        }
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void commit2Threads(EntitySystem entitySystem, ThreadEntities entities, Retries retries) {
+        commit(entitySystem, entities, retries);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void commit4Threads(EntitySystem entitySystem, ThreadEntities entities, Retries retries) {
+        commit(entitySystem, entities, retries);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void commit8Threads(EntitySystem entitySystem, ThreadEntities entities, Retries retries) {
+        commit(entitySystem, entities, retries);
+    }
+
+    private void commit(EntitySystem entitySystem, ThreadEntities entities, Retries retries) {
+        EntityRef first = entities.nextEntity();
+        EntityRef second;
+        if (entities.random.nextInt(100) < entitySystem.overlapPercent) {
+            second = entitySystem.sharedEntities[entities.random.nextInt(SHARED_ENTITIES)];
+        } else {
+            second = entities.nextEntity();
+        }
+        while (true) {
+            entitySystem.transactionManager.begin();
+            move(first);
+            move(second);
+            try {
+                entitySystem.transactionManager.commit();
+                return;
+            } catch (RollbackException e) {
+                retries.retries++;
+            }
+        }
+    }
+
+    private void move(EntityRef entity) {
+        PositionComponent position = entity.getComponent(PositionComponent.class).get();
+        position.setY(position.getY() + 1f);
+    }
+
+    private static EntityRef[] createEntities(EntitySystem entitySystem, int count, int offset) {
+        EntityRef[] result = new EntityRef[count];
+        entitySystem.transactionManager.begin();
+        for (int i = 0; i < count; ++i) {
+            result[i] = entitySystem.entityManager.createEntity();
+            PositionComponent position = result[i].addComponent(PositionComponent.class);
+            position.setX((float) (offset + i));
+            position.setY(0f);
+            position.setZ(0f);
+        }
+        entitySystem.transactionManager.commit();
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.ArchetypeEntityStore;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.EntityStore;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures commit throughput as the number of threads committing increases. Each thread updates its own set of entities, so commits do not conflict and throughput
+ * should scale with the number of cores.
+ */
+public class ConcurrentCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class EntitySystem {
+        @Param({"ComponentTable", "ArchetypeEntityStore"})
+        public String storeType;
+
+        @Param({"1024"})
+        public int entitiesPerThread;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+        public final AtomicInteger threadIndexSource = new AtomicInteger();
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            ComponentManager componentManager = new CodeGenComponentManager(typeLibrary);
+            EntityStore entityStore;
+            switch (storeType) {
+                case "ArchetypeEntityStore":
+                    entityStore = new ArchetypeEntityStore(componentManager, 1);
+                    break;
+                default:
+                    entityStore = new ComponentTable(componentManager, 1);
+                    break;
+            }
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(componentManager, transactionManager, entityStore);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadEntities {
+        public EntityRef[] entities;
+        public int next;
+
+        @Setup
+        public void setup(EntitySystem entitySystem) {
+            entities = new EntityRef[entitySystem.entitiesPerThread];
+            float offset = entitySystem.threadIndexSource.getAndIncrement() * entities.length;
+            entitySystem.transactionManager.begin();
+            for (int i = 0; i < entities.length; ++i) {
+                entities[i] = entitySystem.entityManager.createEntity();
+                PositionComponent position = entities[i].addComponent(PositionComponent.class);
+                position.setX(offset + i);
+                position.setY(0f);
+                position.setZ(0f);
+            }
+            entitySystem.transactionManager.commit();
+        }
+
+        public EntityRef nextEntity() {
+            EntityRef result = entities[next];
+            next = (next + 1) % entities.length;
+            return result;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void commitUpdate1Thread(EntitySystem entitySystem, ThreadEntities entities) {
+        commitUpdate(entitySystem, entities);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public void commitUpdate2Threads(EntitySystem entitySystem, ThreadEntities entities) {
+        commitUpdate(entitySystem, entities);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void commitUpdate4Threads(EntitySystem entitySystem, ThreadEntities entities) {
+        commitUpdate(entitySystem, entities);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void commitUpdate8Threads(EntitySystem entitySystem, ThreadEntities entities) {
+        commitUpdate(entitySystem, entities);
+    }
+
+    private void commitUpdate(EntitySystem entitySystem, ThreadEntities entities) {
+        entitySystem.transactionManager.begin();
+        PositionComponent position = entities.nextEntity().getComponent(PositionComponent.class).get();
+        position.setY(position.getY() + 1f);
+        entitySystem.transactionManager.commit();
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.entity.inmemory.ArchetypeEntityStore;
+import org.terasology.entitysystem.entity.inmemory.ComponentStorage;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.EntityStore;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Compares the entity store implementations, and the component storage options of the archetype store, for iteration and per-entity access.
+ */
+public class EntityStoreBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Store {
+        @Param({"ComponentTable", "ArchetypeEntityStore", "ArchetypeEntityStoreArrays", "ArchetypeEntityStoreOffHeap"})
+        public String storeType;
+
+        @Param({"100000"})
+        public int entityCount;
+
+        public ComponentManager componentManager;
+        public EntityStore entityStore;
+        public long nextEntity = 1;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            componentManager = new CodeGenComponentManager(typeLibrary);
+            switch (storeType) {
+                case "ArchetypeEntityStore":
+                    entityStore = new ArchetypeEntityStore(componentManager, 1);
+                    break;
+                case "ArchetypeEntityStoreArrays":
+                    entityStore = new ArchetypeEntityStore(componentManager, 1, ComponentStorage.ARRAYS);
+                    break;
+                case "ArchetypeEntityStoreOffHeap":
+                    entityStore = new ArchetypeEntityStore(componentManager, 1, ComponentStorage.OFF_HEAP);
+                    break;
+                default:
+                    entityStore = new ComponentTable(componentManager, 1);
+                    break;
+            }
+            for (int i = 0; i < entityCount; ++i) {
+                long id = entityStore.createEntityId();
+                PositionComponent position = componentManager.create(PositionComponent.class);
+                position.setX((float) i);
+                position.setY(0f);
+                position.setZ(0f);
+                entityStore.add(id, position);
+                if (i % 2 == 0) {
+                    VelocityComponent velocity = componentManager.create(VelocityComponent.class);
+                    velocity.setX(1f);
+                    entityStore.add(id, velocity);
+                }
+            }
+        }
+
+        public long nextEntity() {
+            long result = nextEntity;
+            nextEntity = nextEntity % entityCount + 1;
+            return result;
+        }
+    }
+
+    @Benchmark
+    public float iterateComponents(Store store) {
+        float total = 0;
+        TLongObjectIterator<PositionComponent> iterator = store.entityStore.componentIterator(PositionComponent.class);
+        while (iterator.hasNext()) {
+            iterator.advance();
+            total += iterator.value().getX();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void getComponent(Store store, Blackhole blackhole) {
+        blackhole.consume(store.entityStore.get(store.nextEntity(), PositionComponent.class));
+    }
+
+    @Benchmark
+    public void getEntityState(Store store, Blackhole blackhole) {
+        blackhole.consume(store.entityStore.getEntityState(store.nextEntity()));
+    }
+
+    @Benchmark
+    public boolean updateComponent(Store store) {
+        long id = store.nextEntity();
+        PositionComponent position = store.entityStore.get(id, PositionComponent.class);
+        position.setY(position.getY() + 1f);
+        return store.entityStore.update(id, position);
+    }
+
+    @Benchmark
+    public void addRemoveComponent(Store store, Blackhole blackhole) {
+        long id = store.nextEntity();
+        if (!store.entityStore.add(id, store.componentManager.create(VelocityComponent.class))) {
+            blackhole.consume(store.entityStore.remove(id, VelocityComponent.class));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.event.EventHandler;
+import org.terasology.entitysystem.event.EventResult;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.event.impl.EventProcessorBuilder;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Measures sending an event through an {@link EventProcessor} with many handlers registered for the event type. Half of the handlers require a component the
+ * target entity has, and the other half a component it lacks, so the cost of selecting handlers is measured along with invoking them.
+ */
+public class EventDispatchBenchmark {
+
+    @State(Scope.Thread)
+    public static class EntitySystem {
+        @Param({"8", "64"})
+        public int handlerCount;
+
+        public TransactionManager transactionManager;
+        public EventProcessor eventProcessor;
+        public EntityRef entity;
+        public GroupCommitBenchmark.MoveEvent event = new GroupCommitBenchmark.MoveEvent();
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            transactionManager = new TransactionManager();
+            EntityManager entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+            EventProcessorBuilder builder = EventProcessor.newBuilder();
+            for (int i = 0; i < handlerCount; ++i) {
+                if (i % 2 == 0) {
+                    builder.addHandler(new NoOpHandler(), GroupCommitBenchmark.MoveEvent.class, PositionComponent.class);
+                } else {
+                    builder.addHandler(new NoOpHandler(), GroupCommitBenchmark.MoveEvent.class, VelocityComponent.class);
+                }
+            }
+            eventProcessor = builder.build();
+
+            transactionManager.begin();
+            entity = entityManager.createEntity();
+            entity.addComponent(PositionComponent.class);
+            transactionManager.commit();
+            transactionManager.begin();
+        }
+
+        @TearDown
+        public void teardown() {
+            transactionManager.rollback();
+        }
+    }
+
+    @Benchmark
+    public void send(EntitySystem entitySystem, Blackhole blackhole) {
+        blackhole.consume(entitySystem.eventProcessor.send(entitySystem.event, entitySystem.entity));
+    }
+
+    private static class NoOpHandler implements EventHandler<GroupCommitBenchmark.MoveEvent> {
+        @Override
+        public EventResult onEvent(GroupCommitBenchmark.MoveEvent event, EntityRef entity) {
+            return EventResult.CONTINUE;
+        }
+    }
+}
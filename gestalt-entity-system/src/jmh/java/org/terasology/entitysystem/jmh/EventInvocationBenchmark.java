@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.event.EventResult;
+import org.terasology.entitysystem.event.ReceiveEvent;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.event.impl.EventProcessorBuilder;
+import org.terasology.entitysystem.event.impl.EventReceiverMethodSupport;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Measures sending an event to a single no-op {@link ReceiveEvent} method, for each way of invoking the method. Covers methods with no component parameters and
+ * with two component parameters.
+ */
+public class EventInvocationBenchmark {
+
+    @State(Scope.Thread)
+    public static class EntitySystem {
+        @Param({"REFLECTION", "BYTE_CODE", "GENERATED"})
+        public EventReceiverMethodSupport.Invocation invocation;
+
+        public TransactionManager transactionManager;
+        public EventProcessor noComponentProcessor;
+        public EventProcessor twoComponentProcessor;
+        public EntityRef entity;
+        public GroupCommitBenchmark.MoveEvent event = new GroupCommitBenchmark.MoveEvent();
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            transactionManager = new TransactionManager();
+            EntityManager entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+
+            EventProcessorBuilder builder = EventProcessor.newBuilder();
+            EventReceiverMethodSupport.register(new NoComponentReceiver(), builder, invocation);
+            noComponentProcessor = builder.build();
+            builder = EventProcessor.newBuilder();
+            EventReceiverMethodSupport.register(new TwoComponentReceiver(), builder, invocation);
+            twoComponentProcessor = builder.build();
+
+            transactionManager.begin();
+            entity = entityManager.createEntity();
+            entity.addComponent(PositionComponent.class);
+            entity.addComponent(VelocityComponent.class);
+            transactionManager.commit();
+            transactionManager.begin();
+        }
+
+        @TearDown
+        public void teardown() {
+            transactionManager.rollback();
+        }
+    }
+
+    @Benchmark
+    public void noComponents(EntitySystem entitySystem, Blackhole blackhole) {
+        blackhole.consume(entitySystem.noComponentProcessor.send(entitySystem.event, entitySystem.entity));
+    }
+
+    @Benchmark
+    public void twoComponents(EntitySystem entitySystem, Blackhole blackhole) {
+        blackhole.consume(entitySystem.twoComponentProcessor.send(entitySystem.event, entitySystem.entity));
+    }
+
+    public static class NoComponentReceiver {
+        @ReceiveEvent
+        public EventResult onMove(GroupCommitBenchmark.MoveEvent event, EntityRef entity) {
+            return EventResult.CONTINUE;
+        }
+    }
+
+    public static class TwoComponentReceiver {
+        @ReceiveEvent
+        public EventResult onMove(GroupCommitBenchmark.MoveEvent event, EntityRef entity, PositionComponent position, VelocityComponent velocity) {
+            return EventResult.CONTINUE;
+        }
+    }
+}
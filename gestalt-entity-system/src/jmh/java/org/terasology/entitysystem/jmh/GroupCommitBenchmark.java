@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.event.Event;
+import org.terasology.entitysystem.event.EventResult;
+import org.terasology.entitysystem.event.EventSystem;
+import org.terasology.entitysystem.event.impl.DelayedEventSystem;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Measures processing a batch of pending events with the {@link DelayedEventSystem}, where each event updates one component of a different entity. A group size of
+ * 1 commits each event separately, larger group sizes commit that many events together.
+ */
+public class GroupCommitBenchmark {
+
+    @State(Scope.Thread)
+    public static class EntitySystem {
+        @Param({"1", "8", "64"})
+        public int groupSize;
+
+        @Param({"256"})
+        public int eventsPerBatch;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+        public EventSystem eventSystem;
+        public EntityRef[] entities;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+            EventProcessor eventProcessor = EventProcessor.newBuilder().addHandler(GroupCommitBenchmark::move, MoveEvent.class, PositionComponent.class).build();
+            eventSystem = new DelayedEventSystem(transactionManager, eventProcessor, groupSize);
+            entities = new EntityRef[eventsPerBatch];
+            transactionManager.begin();
+            for (int i = 0; i < entities.length; ++i) {
+                entities[i] = entityManager.createEntity();
+                PositionComponent position = entities[i].addComponent(PositionComponent.class);
+                position.setX((float) i);
+                position.setY(0f);
+                position.setZ(0f);
+            }
+            transactionManager.commit();
+        }
+    }
+
+    @Benchmark
+    public void processEvents(EntitySystem entitySystem) throws InterruptedException {
+        MoveEvent event = new MoveEvent();
+        for (EntityRef entity : entitySystem.entities) {
+            entitySystem.eventSystem.send(event, entity);
+        }
+        entitySystem.eventSystem.processEvents();
+    }
+
+    private static EventResult move(MoveEvent event, EntityRef entity) {
+        PositionComponent position = entity.getComponent(PositionComponent.class).get();
+        position.setY(position.getY() + 1f);
+        return EventResult.CONTINUE;
+    }
+
+    public static class MoveEvent implements Event {
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.entity.inmemory.ArchetypeEntityStore;
+import org.terasology.entitysystem.entity.inmemory.ComponentStorage;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.EntityStore;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Measures the heap used to hold a population of entities in each entity store and component storage option. Each invocation fills a new store, and the heap used
+ * after a full garbage collection is reported while the store is still reachable. Off-heap storage is expected to use the least heap, as only the store's indexes and
+ * the side values of components remain on the heap.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+public class HeapFootprintBenchmark {
+
+    @State(Scope.Thread)
+    public static class Population {
+        @Param({"ComponentTable", "ArchetypeEntityStore", "ArchetypeEntityStoreArrays", "ArchetypeEntityStoreOffHeap"})
+        public String storeType;
+
+        @Param({"100000"})
+        public int entityCount;
+
+        public ComponentManager componentManager;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            componentManager = new CodeGenComponentManager(typeLibrary);
+        }
+
+        public EntityStore createStore() {
+            switch (storeType) {
+                case "ArchetypeEntityStore":
+                    return new ArchetypeEntityStore(componentManager, 1);
+                case "ArchetypeEntityStoreArrays":
+                    return new ArchetypeEntityStore(componentManager, 1, ComponentStorage.ARRAYS);
+                case "ArchetypeEntityStoreOffHeap":
+                    return new ArchetypeEntityStore(componentManager, 1, ComponentStorage.OFF_HEAP);
+                default:
+                    return new ComponentTable(componentManager, 1);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class HeapUsage {
+        public long heapBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            heapBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public EntityStore populate(Population population, HeapUsage heapUsage) {
+        long baseline = usedHeap();
+        EntityStore entityStore = population.createStore();
+        for (int i = 0; i < population.entityCount; ++i) {
+            long id = entityStore.createEntityId();
+            PositionComponent position = population.componentManager.create(PositionComponent.class);
+            position.setX((float) i);
+            position.setY(0f);
+            position.setZ(0f);
+            entityStore.add(id, position);
+            VelocityComponent velocity = population.componentManager.create(VelocityComponent.class);
+            velocity.setX(1f);
+            entityStore.add(id, velocity);
+        }
+        heapUsage.heapBytes += usedHeap() - baseline;
+        return entityStore;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; ++i) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.index.ComponentIndexes;
+import org.terasology.entitysystem.index.Index;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Measures commit throughput with a number of component indexes registered, where each transaction adds and removes an indexed component on an entity owned by
+ * the committing thread.
+ */
+public class IndexedCommitBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class EntitySystem {
+        @Param({"0", "10", "50"})
+        public int indexCount;
+
+        @Param({"256"})
+        public int entitiesPerThread;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+        public Index[] indexes;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            ComponentManager componentManager = new CodeGenComponentManager(typeLibrary);
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(componentManager, transactionManager);
+            indexes = new Index[indexCount];
+            for (int i = 0; i < indexCount; ++i) {
+                indexes[i] = ComponentIndexes.createComponentIndex(transactionManager, entityManager, (i % 2 == 0) ? VelocityComponent.class : PositionComponent.class);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadEntities {
+        public EntityRef[] entities;
+        public int next;
+
+        @Setup
+        public void setup(EntitySystem entitySystem) {
+            entities = new EntityRef[entitySystem.entitiesPerThread];
+            entitySystem.transactionManager.begin();
+            for (int i = 0; i < entities.length; ++i) {
+                entities[i] = entitySystem.entityManager.createEntity();
+                entities[i].addComponent(PositionComponent.class);
+            }
+            entitySystem.transactionManager.commit();
+        }
+
+        public EntityRef nextEntity() {
+            EntityRef result = entities[next];
+            next = (next + 1) % entities.length;
+            return result;
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void commit1Thread(EntitySystem entitySystem, ThreadEntities entities) {
+        commit(entitySystem, entities);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void commit8Threads(EntitySystem entitySystem, ThreadEntities entities) {
+        commit(entitySystem, entities);
+    }
+
+    private void commit(EntitySystem entitySystem, ThreadEntities entities) {
+        EntityRef entity = entities.nextEntity();
+        entitySystem.transactionManager.begin();
+        if (entity.getComponent(VelocityComponent.class).isPresent()) {
+            entity.removeComponent(VelocityComponent.class);
+        } else {
+            entity.addComponent(VelocityComponent.class);
+        }
+        entitySystem.transactionManager.commit();
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.jmh;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Queues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.terasology.entitysystem.event.impl.MpscRingBuffer;
+
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+
+/**
+ * Measures the throughput of queueing pending events from 8 producer threads while a single consumer drains them, comparing the linked blocking deque previously
+ * used by DelayedEventSystem with the ring buffer it now uses. As with DelayedEventSystem's default overflow policy, the ring buffer grows when the consumer
+ * falls behind.
+ */
+public class PendingEventQueueBenchmark {
+
+    public enum QueueType {
+        LINKED_DEQUE {
+            @Override
+            PendingQueue create(int capacity) {
+                BlockingDeque<Object> deque = Queues.newLinkedBlockingDeque();
+                return new PendingQueue() {
+                    @Override
+                    public void add(Object item) {
+                        deque.addLast(item);
+                    }
+
+                    @Override
+                    public void drainTo(List<Object> target) {
+                        deque.drainTo(target);
+                    }
+                };
+            }
+        },
+        RING_BUFFER {
+            @Override
+            PendingQueue create(int capacity) {
+                MpscRingBuffer<Object> ringBuffer = MpscRingBuffer.unbounded(capacity);
+                return new PendingQueue() {
+                    @Override
+                    public void add(Object item) {
+                        ringBuffer.offer(item);
+                    }
+
+                    @Override
+                    public void drainTo(List<Object> target) {
+                        ringBuffer.drainTo(target);
+                    }
+                };
+            }
+        };
+
+        abstract PendingQueue create(int capacity);
+    }
+
+    interface PendingQueue {
+        void add(Object item);
+
+        void drainTo(List<Object> target);
+    }
+
+    @State(Scope.Group)
+    public static class QueueState {
+        @Param({"LINKED_DEQUE", "RING_BUFFER"})
+        public QueueType queueType;
+
+        @Param({"4096"})
+        public int capacity;
+
+        public PendingQueue queue;
+
+        @Setup
+        public void setup() {
+            queue = queueType.create(capacity);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ConsumerState {
+        public final List<Object> drained = Lists.newArrayList();
+    }
+
+    private static final Object EVENT = new Object();
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(8)
+    public void produce(QueueState state) {
+        state.queue.add(EVENT);
+    }
+
+    @Benchmark
+    @Group("queue")
+    @GroupThreads(1)
+    public void consume(QueueState state, ConsumerState consumer, Blackhole blackhole) {
+        state.queue.drainTo(consumer.drained);
+        blackhole.consume(consumer.drained.size());
+        consumer.drained.clear();
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import org.terasology.entitysystem.core.Component;
+
+/**
+ *
+ */
+public interface PositionComponent extends Component {
+    float getX();
+    void setX(float x);
+
+    float getY();
+    void setY(float y);
+
+    float getZ();
+    void setZ(float z);
+}
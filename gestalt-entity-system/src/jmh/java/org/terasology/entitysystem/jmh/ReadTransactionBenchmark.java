@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+/**
+ * Compares reading components in a normal transaction, which copies each entity involved, against a read-only transaction using component views.
+ */
+public class ReadTransactionBenchmark {
+
+    @State(Scope.Thread)
+    public static class EntitySystem {
+        @Param({"100"})
+        public int entitiesPerTransaction;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+        public EntityRef[] entities;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+            entities = new EntityRef[entitiesPerTransaction];
+            transactionManager.begin();
+            for (int i = 0; i < entities.length; ++i) {
+                entities[i] = entityManager.createEntity();
+                PositionComponent position = entities[i].addComponent(PositionComponent.class);
+                position.setX((float) i);
+                VelocityComponent velocity = entities[i].addComponent(VelocityComponent.class);
+                velocity.setX(1f);
+            }
+            transactionManager.commit();
+        }
+    }
+
+    @Benchmark
+    public float readInTransaction(EntitySystem entitySystem) {
+        entitySystem.transactionManager.begin();
+        float total = sumPositions(entitySystem);
+        entitySystem.transactionManager.commit();
+        return total;
+    }
+
+    @Benchmark
+    public float readInReadOnlyTransaction(EntitySystem entitySystem) {
+        entitySystem.transactionManager.beginReadOnly();
+        float total = sumPositions(entitySystem);
+        entitySystem.transactionManager.commit();
+        return total;
+    }
+
+    private float sumPositions(EntitySystem entitySystem) {
+        float total = 0;
+        for (EntityRef entity : entitySystem.entities) {
+            total += entity.getComponent(PositionComponent.class).get().getX();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.jmh;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.index.SortedValueIndex;
+import org.terasology.entitysystem.index.ValueIndex;
+import org.terasology.entitysystem.index.ValueIndexes;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Compares finding entities by the value of a component property through value indexes against a full scan of all entities. Each entity has a position whose x
+ * is one of 1000 values, so an equality query on x finds 0.1% of entities, and whose y is unique, with range queries on y finding 0.1% of entities.
+ */
+public class ValueIndexBenchmark {
+
+    private static final int DISTINCT_X = 1000;
+
+    @State(Scope.Benchmark)
+    public static class EntitySystem {
+        @Param({"1000000"})
+        public int entityCount;
+
+        public TransactionManager transactionManager;
+        public EntityManager entityManager;
+        public ValueIndex<Float> xIndex;
+        public SortedValueIndex<Float> yIndex;
+        public Range<Float> yRange;
+
+        @Setup
+        public void setup() {
+            TypeLibrary typeLibrary = new TypeLibrary();
+            typeLibrary.addHandler(new TypeHandler<>(Float.class, ImmutableCopy.create()));
+            ComponentManager componentManager = new CodeGenComponentManager(typeLibrary);
+            transactionManager = new TransactionManager();
+            entityManager = new InMemoryEntityManager(componentManager, transactionManager);
+            xIndex = ValueIndexes.createHashIndex(transactionManager, componentManager, PositionComponent.class, "x", Float.class);
+            yIndex = ValueIndexes.createSortedIndex(transactionManager, componentManager, PositionComponent.class, "y", Float.class);
+            yRange = Range.closedOpen(entityCount / 2f, entityCount / 2f + entityCount / DISTINCT_X);
+
+            List<PositionComponent> positions = Lists.newArrayListWithCapacity(entityCount);
+            for (int i = 0; i < entityCount; ++i) {
+                PositionComponent position = componentManager.create(PositionComponent.class);
+                position.setX(i % DISTINCT_X);
+                position.setY(i);
+                positions.add(position);
+            }
+            transactionManager.begin();
+            entityManager.createEntityBatch(Collections.singletonList(positions));
+            transactionManager.commit();
+        }
+    }
+
+    @Benchmark
+    public TLongList equalityIndexed(EntitySystem entitySystem) {
+        return entitySystem.xIndex.findEqual(DISTINCT_X / 2f);
+    }
+
+    @Benchmark
+    public TLongList equalityFullScan(EntitySystem entitySystem) {
+        TLongList result = new TLongArrayList();
+        entitySystem.transactionManager.beginReadOnly();
+        Iterator<EntityRef> entities = entitySystem.entityManager.allEntities();
+        while (entities.hasNext()) {
+            EntityRef entity = entities.next();
+            entity.getComponent(PositionComponent.class).ifPresent((position) -> {
+                if (position.getX() == DISTINCT_X / 2f) {
+                    result.add(entity.getId());
+                }
+            });
+        }
+        entitySystem.transactionManager.rollback();
+        return result;
+    }
+
+    @Benchmark
+    public TLongList rangeIndexed(EntitySystem entitySystem) {
+        return entitySystem.yIndex.findInRange(entitySystem.yRange);
+    }
+
+    @Benchmark
+    public TLongList rangeFullScan(EntitySystem entitySystem) {
+        TLongList result = new TLongArrayList();
+        entitySystem.transactionManager.beginReadOnly();
+        Iterator<EntityRef> entities = entitySystem.entityManager.allEntities();
+        while (entities.hasNext()) {
+            EntityRef entity = entities.next();
+            entity.getComponent(PositionComponent.class).ifPresent((position) -> {
+                if (entitySystem.yRange.contains(position.getY())) {
+                    result.add(entity.getId());
+                }
+            });
+        }
+        entitySystem.transactionManager.rollback();
+        return result;
+    }
+}
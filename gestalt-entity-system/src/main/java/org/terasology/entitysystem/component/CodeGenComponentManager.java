@@ -23,6 +23,7 @@
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
+import com.google.common.primitives.Primitives;
 import javassist.CannotCompileException;
 import javassist.ClassPool;
 import javassist.CtClass;
@@ -35,8 +36,11 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitysystem.core.Component;
+import org.terasology.valuetype.TypeHandler;
 import org.terasology.valuetype.TypeLibrary;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -46,6 +50,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -86,7 +91,7 @@ public <T extends Component> ComponentType<T> getType(Class<T> type) {
     @Override
     @SuppressWarnings("unchecked")
     public <T extends Component> ComponentType<T> getType(T instance) {
-        return (ComponentType<T>) getType(instance.getClass());
+        return (ComponentType<T>) getType(instance.getType());
     }
 
     @Override
@@ -109,11 +114,20 @@ public <T extends Component> T copy(T instance) {
     public <T extends Component> T copy(T from, T to) {
         Preconditions.checkNotNull(from);
         Preconditions.checkNotNull(to);
-        Preconditions.checkArgument(from.getClass().equals(to.getClass()), "Components from and to must be of the same type");
+        Preconditions.checkArgument(from.getType().equals(to.getType()), "Components from and to must be of the same type");
         ComponentType<T> metadata = (ComponentType<T>) getType(from.getType());
         return metadata.copy(from, to);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Component> T createView(T instance) {
+        if (instance != null) {
+            return ((ComponentType<T>) getType(instance.getType())).createView(instance);
+        }
+        return null;
+    }
+
     /**
      * Generates a component type, constructing an implementation class for the component.
      * <p>
@@ -142,14 +156,23 @@ private <T extends Component> ComponentType<T> createComponentType(Class<T> type
 
             Class<? extends T> implementationClass = componentClass.toClass(targetLoader, type.getProtectionDomain());
             Supplier<T> supplier;
+            BiFunction<T, ComponentType<T>, T> viewConstructor;
+            ComponentArrayCodec<T> arrayCodec = null;
+            ComponentBufferCodec<T> bufferCodec = null;
             if (accessorList.isEmpty()) {
                 try {
                     T componentInstance = implementationClass.newInstance();
                     supplier = () -> componentInstance;
+                    viewConstructor = (source, componentType) -> source;
                 } catch (InstantiationException|IllegalAccessException e) {
                     throw new RuntimeException("Error generating singleton component '" + type.getName() + "'", e);
                 }
             } else {
+                viewConstructor = createViewConstructor(type, componentInterface, accessorList);
+                if (supportsArrayStorage(accessorList)) {
+                    arrayCodec = createArrayCodec(type, componentClass, accessorList);
+                }
+                bufferCodec = createBufferCodec(type, componentClass, accessorList);
                 supplier = () -> {
                     try {
                         return implementationClass.newInstance();
@@ -159,7 +182,7 @@ private <T extends Component> ComponentType<T> createComponentType(Class<T> type
                 };
             }
             ComponentPropertyInfo<T> propertyInfo = new ComponentPropertyInfo<>(accessorList);
-            return new ComponentType<>(supplier, type, propertyInfo, new ComponentCopyFunction<>(propertyInfo, typeLibrary));
+            return new ComponentType<>(supplier, type, propertyInfo, new ComponentCopyFunction<>(propertyInfo, typeLibrary), viewConstructor, arrayCodec, bufferCodec);
 
         } catch (CannotCompileException e) {
             throw new RuntimeException("Error compiling component implementation '" + type.getName() + "'", e);
@@ -168,6 +191,193 @@ private <T extends Component> ComponentType<T> createComponentType(Class<T> type
         }
     }
 
+    /**
+     * Generates a copy-on-write view class for a component, extending {@link ComponentView}. Getters read from the viewed component (or its copy once written),
+     * and setters write to a copy. Getters of properties with mutable values (such as lists and maps) also make the copy first, as the caller may modify the
+     * returned value - so the viewed component's values are never exposed.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Component> BiFunction<T, ComponentType<T>, T> createViewConstructor(Class<T> type, CtClass componentInterface,
+                                                                                          Collection<PropertyAccessor<T, ?>> accessorList)
+            throws NotFoundException, CannotCompileException {
+        CtClass viewClass = pool.makeClass(type.getName() + "View", pool.get(ComponentView.class.getName()));
+        viewClass.setInterfaces(new CtClass[]{componentInterface});
+        viewClass.addConstructor(CtNewConstructor.make("public " + viewClass.getSimpleName() + "(" + Component.class.getName() + " source, "
+                + ComponentType.class.getName() + " componentType) { super($1, $2); }", viewClass));
+        for (PropertyAccessor<T, ?> accessor : accessorList) {
+            String typeName = getTypeName(accessor);
+            String propertyName = TO_UPPER_CAMEL.convert(accessor.getName());
+            String getterName = getGetterName(accessor);
+            String source = hasMutableValues(accessor) ? "write()" : "read()";
+            viewClass.addMethod(CtNewMethod.make("public " + typeName + " " + getterName + "() { return ((" + type.getName() + ") " + source + ")." + getterName + "(); }",
+                    viewClass));
+            viewClass.addMethod(CtNewMethod.make("public void set" + propertyName + "(" + typeName + " value) { ((" + type.getName() + ") write()).set" + propertyName
+                    + "(value); }", viewClass));
+        }
+
+        Class<?> implementationClass = viewClass.toClass(targetLoader, type.getProtectionDomain());
+        try {
+            Constructor<?> constructor = implementationClass.getConstructor(Component.class, ComponentType.class);
+            return (source, componentType) -> {
+                try {
+                    return (T) constructor.newInstance(source, componentType);
+                } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                    throw new RuntimeException("Failed to instantiate component view " + type.getName(), e);
+                }
+            };
+        } catch (NoSuchMethodException e) {
+            throw new RuntimeException("Error generating component view '" + type.getName() + "'", e);
+        }
+    }
+
+    /**
+     * @return Whether the values of a property can be modified, so must not be shared between a view and the component it views. Properties without a type handler
+     * are not copied along with a component, so there is no copy to return for them.
+     */
+    private boolean hasMutableValues(PropertyAccessor<?, ?> accessor) {
+        return !accessor.getPropertyClass().isPrimitive() && typeLibrary.getHandlerFor(accessor.getPropertyType()).map((handler) -> !handler.isImmutable()).orElse(false);
+    }
+
+    /**
+     * Components can be stored as arrays if all their properties are primitives or immutable values, as the values can then be shared between the arrays and any
+     * components read from them.
+     */
+    private <T extends Component> boolean supportsArrayStorage(Collection<PropertyAccessor<T, ?>> accessorList) {
+        for (PropertyAccessor<T, ?> accessor : accessorList) {
+            if (!accessor.getPropertyClass().isPrimitive()
+                    && !typeLibrary.getHandlerFor(accessor.getPropertyType()).map(TypeHandler::isImmutable).orElse(false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Generates a {@link ComponentArrayCodec} for a component type. Each property is stored in an array of its type if primitive, otherwise in an Object array.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Component> ComponentArrayCodec<T> createArrayCodec(Class<T> type, CtClass componentClass, Collection<PropertyAccessor<T, ?>> accessorList)
+            throws NotFoundException, CannotCompileException {
+        CtClass codecClass = pool.makeClass(type.getName() + "ArrayCodec");
+        codecClass.setInterfaces(new CtClass[]{pool.get(ComponentArrayCodec.class.getName())});
+        codecClass.addConstructor(CtNewConstructor.defaultConstructor(codecClass));
+
+        List<String> arrays = Lists.newArrayList();
+        StringBuilder write = new StringBuilder();
+        write.append("public void write(").append(Component.class.getName()).append(" component, Object[] arrays, int index) {")
+                .append(type.getName()).append(" source = (").append(type.getName()).append(") component;");
+        StringBuilder read = new StringBuilder();
+        read.append("public ").append(Component.class.getName()).append(" read(Object[] arrays, int index) {")
+                .append(componentClass.getName()).append(" result = new ").append(componentClass.getName()).append("();");
+        int arrayIndex = 0;
+        for (PropertyAccessor<T, ?> accessor : accessorList) {
+            Class<?> propertyClass = accessor.getPropertyClass();
+            String arrayType = (propertyClass.isPrimitive()) ? propertyClass.getName() : "Object";
+            String array = "((" + arrayType + "[]) arrays[" + arrayIndex + "])";
+            arrays.add("new " + arrayType + "[capacity]");
+            write.append(array).append("[index] = source.").append(getGetterName(accessor)).append("();");
+            String value = array + "[index]";
+            if (!propertyClass.isPrimitive()) {
+                value = "(" + getTypeName(accessor) + ") " + value;
+            }
+            read.append("result.set").append(TO_UPPER_CAMEL.convert(accessor.getName())).append("(").append(value).append(");");
+            arrayIndex++;
+        }
+        write.append("}");
+        read.append("return result; }");
+        StringBuilder create = new StringBuilder();
+        create.append("public Object[] createArrays(int capacity) { return new Object[]{");
+        COMMA_JOINER.appendTo(create, arrays);
+        create.append("}; }");
+
+        codecClass.addMethod(CtNewMethod.make(create.toString(), codecClass));
+        codecClass.addMethod(CtNewMethod.make(write.toString(), codecClass));
+        codecClass.addMethod(CtNewMethod.make(read.toString(), codecClass));
+
+        Class<?> implementationClass = codecClass.toClass(targetLoader, type.getProtectionDomain());
+        try {
+            return (ComponentArrayCodec<T>) implementationClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Error generating array codec for component '" + type.getName() + "'", e);
+        }
+    }
+
+    /**
+     * Generates a {@link ComponentBufferCodec} for a component type. Primitive properties are laid out in the buffer largest first, so each is aligned to its size
+     * relative to the start of the component. All other properties go in side arrays.
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends Component> ComponentBufferCodec<T> createBufferCodec(Class<T> type, CtClass componentClass, Collection<PropertyAccessor<T, ?>> accessorList)
+            throws NotFoundException, CannotCompileException {
+        CtClass codecClass = pool.makeClass(type.getName() + "BufferCodec");
+        codecClass.setInterfaces(new CtClass[]{pool.get(ComponentBufferCodec.class.getName())});
+        codecClass.addConstructor(CtNewConstructor.defaultConstructor(codecClass));
+
+        List<PropertyAccessor<T, ?>> primitiveAccessors = accessorList.stream().filter((x) -> x.getPropertyClass().isPrimitive())
+                .sorted((a, b) -> Integer.compare(getPrimitiveSize(b.getPropertyClass()), getPrimitiveSize(a.getPropertyClass())))
+                .collect(Collectors.toList());
+        List<PropertyAccessor<T, ?>> sideAccessors = accessorList.stream().filter((x) -> !x.getPropertyClass().isPrimitive()).collect(Collectors.toList());
+
+        StringBuilder write = new StringBuilder();
+        write.append("public void write(").append(Component.class.getName()).append(" component, java.nio.ByteBuffer buffer, int offset, Object[] side, int index) {")
+                .append(type.getName()).append(" source = (").append(type.getName()).append(") component;");
+        StringBuilder read = new StringBuilder();
+        read.append("public ").append(Component.class.getName()).append(" read(java.nio.ByteBuffer buffer, int offset, Object[] side, int index) {")
+                .append(componentClass.getName()).append(" result = new ").append(componentClass.getName()).append("();");
+        int size = 0;
+        for (PropertyAccessor<T, ?> accessor : primitiveAccessors) {
+            Class<?> propertyClass = accessor.getPropertyClass();
+            String position = "offset + " + size;
+            String value = "source." + getGetterName(accessor) + "()";
+            String setter = "result.set" + TO_UPPER_CAMEL.convert(accessor.getName());
+            if (propertyClass == Boolean.TYPE) {
+                write.append("buffer.put(").append(position).append(", (byte) (").append(value).append(" ? 1 : 0));");
+                read.append(setter).append("(buffer.get(").append(position).append(") != 0);");
+            } else {
+                String bufferType = (propertyClass == Byte.TYPE) ? "" : TO_UPPER_CAMEL.convert(propertyClass.getName());
+                write.append("buffer.put").append(bufferType).append("(").append(position).append(", ").append(value).append(");");
+                read.append(setter).append("(buffer.get").append(bufferType).append("(").append(position).append("));");
+            }
+            size += getPrimitiveSize(propertyClass);
+        }
+        List<String> sideArrays = Lists.newArrayList();
+        for (PropertyAccessor<T, ?> accessor : sideAccessors) {
+            String array = "((Object[]) side[" + sideArrays.size() + "])[index]";
+            write.append(array).append(" = source.").append(getGetterName(accessor)).append("();");
+            read.append("result.set").append(TO_UPPER_CAMEL.convert(accessor.getName())).append("((").append(getTypeName(accessor)).append(") ").append(array).append(");");
+            sideArrays.add("new Object[capacity]");
+        }
+        write.append("}");
+        read.append("return result; }");
+        StringBuilder create = new StringBuilder();
+        create.append("public Object[] createSideArrays(int capacity) { return new Object[]{");
+        COMMA_JOINER.appendTo(create, sideArrays);
+        create.append("}; }");
+
+        codecClass.addMethod(CtNewMethod.make("public int getSize() { return " + size + "; }", codecClass));
+        codecClass.addMethod(CtNewMethod.make(create.toString(), codecClass));
+        codecClass.addMethod(CtNewMethod.make(write.toString(), codecClass));
+        codecClass.addMethod(CtNewMethod.make(read.toString(), codecClass));
+
+        Class<?> implementationClass = codecClass.toClass(targetLoader, type.getProtectionDomain());
+        try {
+            return (ComponentBufferCodec<T>) implementationClass.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Error generating buffer codec for component '" + type.getName() + "'", e);
+        }
+    }
+
+    private static int getPrimitiveSize(Class<?> primitiveType) {
+        if (primitiveType == Long.TYPE || primitiveType == Double.TYPE) {
+            return Long.BYTES;
+        } else if (primitiveType == Integer.TYPE || primitiveType == Float.TYPE) {
+            return Integer.BYTES;
+        } else if (primitiveType == Short.TYPE || primitiveType == Character.TYPE) {
+            return Short.BYTES;
+        }
+        return Byte.BYTES;
+    }
+
     private <T extends Component> void generateEmptyComponent(Class<T> type, CtClass componentClass) throws CannotCompileException {
         generateConstructor(componentClass);
         generateGetType(componentClass, type);
@@ -193,10 +403,11 @@ private <T extends Component> void generateEquals(CtClass componentClass, Collec
         StringBuilder builder = new StringBuilder();
         builder.append("public boolean equals(Object obj) {")
                 .append("if (obj == this) { return true; }")
+                .append("if (obj instanceof ").append(ComponentView.class.getName()).append(") { return obj.equals(this); }")
                 .append("if (obj instanceof ").append(componentClass.getName()).append(") {")
                 .append(componentClass.getName()).append(" other = (").append(componentClass.getName()).append(") obj;")
                 .append("return ");
-        BOOLEAN_AND_JOINER.appendTo(builder, accessorList.stream().map((t) -> Objects.class.getCanonicalName() + ".equals(" + t.getName() + ", other." + t.getName() + ")").collect(Collectors.toList()));
+        BOOLEAN_AND_JOINER.appendTo(builder, accessorList.stream().map(this::generatePropertyEquals).collect(Collectors.toList()));
         builder.append("; } return false; }");
         CtMethod equals = CtNewMethod.make(builder.toString(), componentClass);
         componentClass.addMethod(equals);
@@ -206,31 +417,45 @@ private <T extends Component> void generateHashCode(CtClass componentClass, Coll
         StringBuilder builder = new StringBuilder();
         builder.append("public int hashCode() {")
                 .append("return ").append(Objects.class.getCanonicalName()).append(".hash(new Object[]{");
-        COMMA_JOINER.appendTo(builder, accessorList.stream().map(PropertyAccessor::getName).collect(Collectors.toList()));
+        COMMA_JOINER.appendTo(builder, accessorList.stream().map(this::generateBoxedProperty).collect(Collectors.toList()));
         builder.append("}); }");
         CtMethod equals = CtNewMethod.make(builder.toString(), componentClass);
         componentClass.addMethod(equals);
     }
 
+    /**
+     * Javassist does not autobox, so primitive properties are compared directly. Floating point properties are compared as their boxed equivalents would be.
+     */
+    private String generatePropertyEquals(PropertyAccessor<?, ?> accessor) {
+        String name = accessor.getName();
+        Class<?> propertyClass = accessor.getPropertyClass();
+        if (propertyClass == Float.TYPE || propertyClass == Double.TYPE) {
+            return Primitives.wrap(propertyClass).getName() + ".compare(" + name + ", other." + name + ") == 0";
+        } else if (propertyClass.isPrimitive()) {
+            return name + " == other." + name;
+        }
+        return Objects.class.getCanonicalName() + ".equals(" + name + ", other." + name + ")";
+    }
+
+    private String generateBoxedProperty(PropertyAccessor<?, ?> accessor) {
+        Class<?> propertyClass = accessor.getPropertyClass();
+        if (propertyClass.isPrimitive()) {
+            return Primitives.wrap(propertyClass).getName() + ".valueOf(" + accessor.getName() + ")";
+        }
+        return accessor.getName();
+    }
+
     private <T extends Component> void generateGetType(CtClass componentClass, Class<? extends Component> interfaceType) throws CannotCompileException {
         CtMethod getType = CtNewMethod.make("public Class getType() { return " + interfaceType.getCanonicalName() + ".class; }", componentClass);
         componentClass.addMethod(getType);
     }
 
     private <T extends Component> void generateGettersAndSetters(CtClass componentClass, PropertyAccessor<T, ?> accessor) throws CannotCompileException {
-        String typeName = accessor.getPropertyClass().getCanonicalName();
-        if (accessor.getPropertyType() instanceof ParameterizedType) {
-            typeName = ((ParameterizedType) accessor.getPropertyType()).getRawType().getTypeName();
-        }
+        String typeName = getTypeName(accessor);
         CtField ctField = CtField.make("private " + typeName + " " + accessor.getName() + ";", componentClass);
         componentClass.addField(ctField);
 
-        String getterName;
-        if (Boolean.TYPE.equals(accessor.getPropertyType())) {
-            getterName = "is" + TO_UPPER_CAMEL.convert(accessor.getName());
-        } else {
-            getterName = "get" + TO_UPPER_CAMEL.convert(accessor.getName());
-        }
+        String getterName = getGetterName(accessor);
 
         CtMethod getter = CtNewMethod.make("public " + typeName + " " + getterName + "() { return " + accessor.getName() + "; }", componentClass);
         componentClass.addMethod(getter);
@@ -238,6 +463,21 @@ private <T extends Component> void generateGettersAndSetters(CtClass componentCl
         componentClass.addMethod(setter);
     }
 
+    private String getTypeName(PropertyAccessor<?, ?> accessor) {
+        if (accessor.getPropertyType() instanceof ParameterizedType) {
+            return ((ParameterizedType) accessor.getPropertyType()).getRawType().getTypeName();
+        }
+        return accessor.getPropertyClass().getCanonicalName();
+    }
+
+    private String getGetterName(PropertyAccessor<?, ?> accessor) {
+        if (Boolean.TYPE.equals(accessor.getPropertyType())) {
+            return "is" + TO_UPPER_CAMEL.convert(accessor.getName());
+        } else {
+            return "get" + TO_UPPER_CAMEL.convert(accessor.getName());
+        }
+    }
+
     /**
      * Scans a component interface, discovering the properties it declares and creating a property accessor for the component.
      *
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.component;
+
+import org.terasology.entitysystem.core.Component;
+
+/**
+ * Stores components in struct-of-arrays form - with an array per property of the component, and each component occupying the same index in every array. Primitive
+ * properties are held in primitive arrays, so components stored this way have no object header or boxing overhead per component.
+ * <p>
+ * Codecs are only available for component types whose properties are all primitives or immutable values, as the values are shared between the stored and
+ * read components. Implementations are generated by {@link CodeGenComponentManager}, and access the arrays directly.
+ *
+ * @param <T> The type of component
+ */
+public interface ComponentArrayCodec<T extends Component> {
+
+    /**
+     * @param capacity The number of components the arrays should hold
+     * @return A new set of arrays, one for each property of the component
+     */
+    Object[] createArrays(int capacity);
+
+    /**
+     * Writes the properties of a component into the arrays.
+     *
+     * @param component The component to write
+     * @param arrays    The arrays to write to, as created by {@link #createArrays(int)}
+     * @param index     The index to write the component at
+     */
+    void write(T component, Object[] arrays, int index);
+
+    /**
+     * @param arrays The arrays to read from, as created by {@link #createArrays(int)}
+     * @param index  The index of the component to read
+     * @return A new component with the properties at the given index
+     */
+    T read(Object[] arrays, int index);
+}
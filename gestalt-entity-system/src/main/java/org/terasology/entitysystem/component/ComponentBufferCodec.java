@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.component;
+
+import org.terasology.entitysystem.core.Component;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Stores components in a fixed-size layout within a byte buffer, such as a direct buffer outside of the java heap. Primitive properties are laid out in the buffer,
+ * while all other properties are held in on-heap side arrays - one per property, with each component occupying the same index in every side array.
+ * <p>
+ * Values held in the side arrays are shared with the components written and read, so they must be copied by the caller if they are mutable. Implementations are
+ * generated by {@link CodeGenComponentManager}.
+ *
+ * @param <T> The type of component
+ */
+public interface ComponentBufferCodec<T extends Component> {
+
+    /**
+     * @return The number of bytes each component occupies in the buffer
+     */
+    int getSize();
+
+    /**
+     * @param capacity The number of components the side arrays should hold
+     * @return A new set of side arrays, one for each property not stored in the buffer
+     */
+    Object[] createSideArrays(int capacity);
+
+    /**
+     * Writes the properties of a component.
+     *
+     * @param component The component to write
+     * @param buffer    The buffer to write primitive properties to
+     * @param offset    The offset in the buffer to write at
+     * @param side      The side arrays to write other properties to, as created by {@link #createSideArrays(int)}
+     * @param index     The index in the side arrays to write at
+     */
+    void write(T component, ByteBuffer buffer, int offset, Object[] side, int index);
+
+    /**
+     * @param buffer The buffer to read primitive properties from
+     * @param offset The offset in the buffer of the component
+     * @param side   The side arrays to read other properties from
+     * @param index  The index in the side arrays of the component
+     * @return A new component with the stored properties
+     */
+    T read(ByteBuffer buffer, int offset, Object[] side, int index);
+}
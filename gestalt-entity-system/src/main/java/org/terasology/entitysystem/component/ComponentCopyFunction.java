@@ -42,7 +42,9 @@ public ComponentCopyFunction(ComponentPropertyInfo<T> typeInfo, TypeLibrary type
         this.propertyCopiers = Lists.newArrayListWithCapacity(typeInfo.getProperties().size());
         for (PropertyAccessor accessor : typeInfo.getProperties().values()) {
             Optional<TypeHandler<?>> handler = typeLibrary.getHandlerFor(accessor.getPropertyType());
-            if (handler.isPresent()) {
+            if (accessor.getPropertyClass().isPrimitive()) {
+                propertyCopiers.add(createPrimitivePropertyCopy(accessor));
+            } else if (handler.isPresent()) {
                 propertyCopiers.add(createPropertyCopy(accessor, handler.get()));
             } else {
                 logger.error("No type handler available for {}, property {}::{} will not be supported", accessor.getPropertyType(), accessor.getOwningClass().getTypeName(), accessor.getName());
@@ -54,6 +56,10 @@ private static <T extends Component, U> BiConsumer<T, T> createPropertyCopy(Prop
         return (from, to) -> accessor.set(to, handler.copy(accessor.get(from)));
     }
 
+    private static <T extends Component, U> BiConsumer<T, T> createPrimitivePropertyCopy(PropertyAccessor<T, U> accessor) {
+        return (from, to) -> accessor.set(to, accessor.get(from));
+    }
+
     @Override
     public T apply(T from, T to) {
         for (BiConsumer<T, T> propertyCopier : propertyCopiers) {
@@ -49,6 +49,15 @@ public interface ComponentManager {
      */
     <T extends Component> T copy(T from, T to);
 
+    /**
+     * Creates a copy-on-write view over a component. The view reads through to the given component until a setter is called, at which point a copy is made. The given
+     * component is never modified through the view.
+     * @param instance The component to view
+     * @param <T> The type of the component
+     * @return A view over the component
+     */
+    <T extends Component> T createView(T instance);
+
     /**
      * Provides a ComponentType, allowing for reflection like operations.
      * @param type The type of component
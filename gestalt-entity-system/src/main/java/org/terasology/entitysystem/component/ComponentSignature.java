@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.component;
+
+import com.google.common.collect.ImmutableSet;
+import org.terasology.entitysystem.core.Component;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * An immutable set of component types, held as a bitset of their ids (see {@link ComponentTypeIds}). Testing whether a signature contains a type, or another
+ * signature, costs a few word operations rather than hash lookups.
+ */
+@Immutable
+public final class ComponentSignature {
+
+    public static final ComponentSignature EMPTY = new ComponentSignature(new long[0]);
+
+    private final long[] words;
+    private final int hash;
+    private final int size;
+
+    private ComponentSignature(long[] words) {
+        this.words = words;
+        this.hash = Arrays.hashCode(words);
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        this.size = count;
+    }
+
+    @SafeVarargs
+    public static ComponentSignature of(Class<? extends Component>... types) {
+        Builder builder = new Builder();
+        for (Class<? extends Component> type : types) {
+            builder.add(type);
+        }
+        return builder.build();
+    }
+
+    public static ComponentSignature of(Collection<? extends Class<? extends Component>> types) {
+        if (types.isEmpty()) {
+            return EMPTY;
+        }
+        Builder builder = new Builder();
+        for (Class<? extends Component> type : types) {
+            builder.add(type);
+        }
+        return builder.build();
+    }
+
+    public boolean contains(Class<? extends Component> type) {
+        return contains(ComponentTypeIds.idOf(type));
+    }
+
+    /**
+     * @param id The id of a component type
+     * @return Whether this signature contains the component type with the given id
+     */
+    public boolean contains(int id) {
+        int word = id >>> 6;
+        return word < words.length && (words[word] & (1L << id)) != 0;
+    }
+
+    /**
+     * @return Whether this signature contains every type in the other signature
+     */
+    public boolean containsAll(ComponentSignature other) {
+        if (other.words.length > words.length) {
+            return false;
+        }
+        for (int i = 0; i < other.words.length; ++i) {
+            if ((other.words[i] & ~words[i]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Whether this signature contains any type in the other signature
+     */
+    public boolean intersects(ComponentSignature other) {
+        int length = Math.min(words.length, other.words.length);
+        for (int i = 0; i < length; ++i) {
+            if ((words[i] & other.words[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param types A collection of component types
+     * @return Whether this signature contains exactly the given types, without building a signature for them
+     */
+    public boolean matches(Collection<? extends Class<? extends Component>> types) {
+        if (types.size() != size()) {
+            return false;
+        }
+        for (Class<? extends Component> type : types) {
+            if (!contains(type)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param type A component type
+     * @return A signature with the types of this signature and the given type
+     */
+    public ComponentSignature with(Class<? extends Component> type) {
+        int id = ComponentTypeIds.idOf(type);
+        if (contains(id)) {
+            return this;
+        }
+        long[] result = Arrays.copyOf(words, Math.max(words.length, (id >>> 6) + 1));
+        result[id >>> 6] |= 1L << id;
+        return new ComponentSignature(result);
+    }
+
+    /**
+     * @param type A component type
+     * @return A signature with the types of this signature other than the given type
+     */
+    public ComponentSignature without(Class<? extends Component> type) {
+        int id = ComponentTypeIds.idOf(type);
+        if (!contains(id)) {
+            return this;
+        }
+        long[] result = Arrays.copyOf(words, words.length);
+        result[id >>> 6] &= ~(1L << id);
+        int length = result.length;
+        while (length > 0 && result[length - 1] == 0) {
+            length--;
+        }
+        return (length == 0) ? EMPTY : new ComponentSignature(Arrays.copyOf(result, length));
+    }
+
+    public ComponentSignature union(ComponentSignature other) {
+        if (containsAll(other)) {
+            return this;
+        } else if (other.containsAll(this)) {
+            return other;
+        }
+        long[] result = Arrays.copyOf(words, Math.max(words.length, other.words.length));
+        for (int i = 0; i < other.words.length; ++i) {
+            result[i] |= other.words[i];
+        }
+        return new ComponentSignature(result);
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Used to iterate over the ids in the signature: {@code for (int id = signature.nextId(0); id >= 0; id = signature.nextId(id + 1))}
+     *
+     * @param fromId The id to start from
+     * @return The first id in the signature that is not less than fromId, or -1 if there is none
+     */
+    public int nextId(int fromId) {
+        int word = fromId >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long remaining = words[word] & (-1L << fromId);
+        while (true) {
+            if (remaining != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(remaining);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            remaining = words[word];
+        }
+    }
+
+    /**
+     * @return The component types in this signature
+     */
+    public Set<Class<? extends Component>> toSet() {
+        ImmutableSet.Builder<Class<? extends Component>> builder = ImmutableSet.builder();
+        for (int id = nextId(0); id >= 0; id = nextId(id + 1)) {
+            builder.add(ComponentTypeIds.typeOf(id));
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof ComponentSignature) {
+            ComponentSignature other = (ComponentSignature) obj;
+            return hash == other.hash && Arrays.equals(words, other.words);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toSet().toString();
+    }
+
+    /**
+     * Builds a signature one type at a time.
+     */
+    public static final class Builder {
+        private long[] words = new long[1];
+
+        public Builder add(Class<? extends Component> type) {
+            return add(ComponentTypeIds.idOf(type));
+        }
+
+        /**
+         * @param id The id of a component type
+         * @return The builder for call chaining
+         */
+        public Builder add(int id) {
+            int word = id >>> 6;
+            if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(word + 1, words.length * 2));
+            }
+            words[word] |= 1L << id;
+            return this;
+        }
+
+        public ComponentSignature build() {
+            int length = words.length;
+            while (length > 0 && words[length - 1] == 0) {
+                length--;
+            }
+            return (length == 0) ? EMPTY : new ComponentSignature(Arrays.copyOf(words, length));
+        }
+    }
+}
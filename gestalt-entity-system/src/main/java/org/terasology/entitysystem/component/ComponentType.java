@@ -18,6 +18,8 @@
 
 import org.terasology.entitysystem.core.Component;
 
+import java.util.Optional;
+import java.util.function.BiFunction;
 import java.util.function.Supplier;
 
 /**
@@ -28,6 +30,9 @@
     private final Supplier<T> constructor;
     private final ComponentPropertyInfo<T> type;
     private final ComponentCopyFunction<T> copyStrategy;
+    private final BiFunction<T, ComponentType<T>, T> viewConstructor;
+    private final ComponentArrayCodec<T> arrayCodec;
+    private final ComponentBufferCodec<T> bufferCodec;
 
     /**
      * Creates a component type
@@ -38,10 +43,43 @@
      * @param copyStrategy  The function for copying a component
      */
     public ComponentType(Supplier<T> constructor, Class<T> interfaceType, ComponentPropertyInfo<T> propertyInfo, ComponentCopyFunction<T> copyStrategy) {
+        this(constructor, interfaceType, propertyInfo, copyStrategy, null);
+    }
+
+    /**
+     * Creates a component type
+     *
+     * @param constructor     A supplier that will construct an instance of this component type
+     * @param interfaceType   The type of the interface of this component
+     * @param propertyInfo    The property info for this type
+     * @param copyStrategy    The function for copying a component
+     * @param viewConstructor A function that will construct a copy-on-write view over a component of this type, or null if views are not supported
+     */
+    public ComponentType(Supplier<T> constructor, Class<T> interfaceType, ComponentPropertyInfo<T> propertyInfo, ComponentCopyFunction<T> copyStrategy,
+                         BiFunction<T, ComponentType<T>, T> viewConstructor) {
+        this(constructor, interfaceType, propertyInfo, copyStrategy, viewConstructor, null, null);
+    }
+
+    /**
+     * Creates a component type
+     *
+     * @param constructor     A supplier that will construct an instance of this component type
+     * @param interfaceType   The type of the interface of this component
+     * @param propertyInfo    The property info for this type
+     * @param copyStrategy    The function for copying a component
+     * @param viewConstructor A function that will construct a copy-on-write view over a component of this type, or null if views are not supported
+     * @param arrayCodec      A codec for storing components of this type in struct-of-arrays form, or null if not supported
+     * @param bufferCodec     A codec for storing components of this type in byte buffers, or null if not supported
+     */
+    public ComponentType(Supplier<T> constructor, Class<T> interfaceType, ComponentPropertyInfo<T> propertyInfo, ComponentCopyFunction<T> copyStrategy,
+                         BiFunction<T, ComponentType<T>, T> viewConstructor, ComponentArrayCodec<T> arrayCodec, ComponentBufferCodec<T> bufferCodec) {
         this.constructor = constructor;
         this.interfaceType = interfaceType;
         this.type = propertyInfo;
         this.copyStrategy = copyStrategy;
+        this.viewConstructor = viewConstructor;
+        this.arrayCodec = arrayCodec;
+        this.bufferCodec = bufferCodec;
     }
 
     /**
@@ -61,6 +99,32 @@ public T copy(T from, T to) {
         return copyStrategy.apply(from, to);
     }
 
+    /**
+     * Creates a view over a component, that reads through to the component until modified. If views are not supported for this type, a copy is returned instead.
+     * @param source The component to view
+     * @return A view over the source component
+     */
+    public T createView(T source) {
+        if (viewConstructor == null) {
+            return copy(source, create());
+        }
+        return viewConstructor.apply(source, this);
+    }
+
+    /**
+     * @return A codec for storing components of this type in struct-of-arrays form, if this type supports it
+     */
+    public Optional<ComponentArrayCodec<T>> getArrayCodec() {
+        return Optional.ofNullable(arrayCodec);
+    }
+
+    /**
+     * @return A codec for storing components of this type in byte buffers, if this type supports it
+     */
+    public Optional<ComponentBufferCodec<T>> getBufferCodec() {
+        return Optional.ofNullable(bufferCodec);
+    }
+
     /**
      * @return The type of component this the ComponentType is for
      */
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.component;
+
+import org.terasology.entitysystem.core.Component;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Assigns each component type a dense integer id, so that sets of component types can be held as bitsets (see {@link ComponentSignature}). An id is assigned the
+ * first time a type is looked up, and is shared by all entity systems.
+ * <p>
+ * Component types are only weakly referenced, so the registry does not prevent the classloader of a module from being unloaded. The id of a type that has been
+ * unloaded is reused by the next type assigned an id, keeping ids dense across module reloads. Signatures are therefore only meaningful while the types they
+ * contain are loaded.
+ */
+@ThreadSafe
+public final class ComponentTypeIds {
+
+    private static final Object LOCK = new Object();
+    private static final ReferenceQueue<Class<?>> UNLOADED_TYPES = new ReferenceQueue<>();
+    private static final BitSet FREE_IDS = new BitSet();
+    private static volatile AtomicReferenceArray<TypeReference> types = new AtomicReferenceArray<>(64);
+    private static volatile int count;
+
+    private static final ClassValue<Integer> IDS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            synchronized (LOCK) {
+                releaseUnloadedTypes();
+                for (int i = 0; i < count; ++i) {
+                    TypeReference reference = types.get(i);
+                    if (reference != null && reference.get() == type) {
+                        return i;
+                    }
+                }
+                int id = FREE_IDS.nextSetBit(0);
+                if (id == -1) {
+                    if (count == types.length()) {
+                        types = grow(types);
+                    }
+                    id = count++;
+                } else {
+                    FREE_IDS.clear(id);
+                }
+                types.set(id, new TypeReference(type, id));
+                return id;
+            }
+        }
+    };
+
+    private ComponentTypeIds() {
+    }
+
+    /**
+     * @param type The type of component
+     * @return The id of the component type
+     */
+    public static int idOf(Class<? extends Component> type) {
+        return IDS.get(type);
+    }
+
+    /**
+     * @param id The id of a component type
+     * @return The component type with the given id
+     * @throws IndexOutOfBoundsException If no loaded component type has the given id
+     */
+    @SuppressWarnings("unchecked")
+    public static Class<? extends Component> typeOf(int id) {
+        TypeReference reference = (id >= 0 && id < count) ? types.get(id) : null;
+        Class<?> type = (reference != null) ? reference.get() : null;
+        if (type == null) {
+            throw new IndexOutOfBoundsException("No component type with id " + id);
+        }
+        return (Class<? extends Component>) type;
+    }
+
+    /**
+     * @return One more than the highest id assigned so far
+     */
+    public static int count() {
+        return count;
+    }
+
+    /**
+     * Frees the ids of types that have been unloaded since last called. Must be called while holding the lock.
+     */
+    private static void releaseUnloadedTypes() {
+        Reference<? extends Class<?>> reference;
+        while ((reference = UNLOADED_TYPES.poll()) != null) {
+            int id = ((TypeReference) reference).id;
+            if (types.compareAndSet(id, (TypeReference) reference, null)) {
+                FREE_IDS.set(id);
+            }
+        }
+    }
+
+    private static AtomicReferenceArray<TypeReference> grow(AtomicReferenceArray<TypeReference> array) {
+        AtomicReferenceArray<TypeReference> result = new AtomicReferenceArray<>(array.length() * 2);
+        for (int i = 0; i < array.length(); ++i) {
+            result.set(i, array.get(i));
+        }
+        return result;
+    }
+
+    private static final class TypeReference extends WeakReference<Class<?>> {
+        private final int id;
+
+        TypeReference(Class<?> type, int id) {
+            super(type, UNLOADED_TYPES);
+            this.id = id;
+        }
+    }
+}
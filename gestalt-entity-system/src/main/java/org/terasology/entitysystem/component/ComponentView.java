@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.component;
+
+import org.terasology.entitysystem.core.Component;
+
+/**
+ * Base class for copy-on-write views over a component. A view reads through to its source component until a setter is called, at which point a private copy of the
+ * source is made and all further reads and writes go to the copy. Reading a property with mutable values (such as a list) also makes the copy, so the source
+ * component is never modified, whether through a setter or through a value returned by a getter.
+ * <p>
+ * Implementations of views for each component type are generated by {@link CodeGenComponentManager}.
+ *
+ * @param <T> The type of component being viewed
+ */
+public abstract class ComponentView<T extends Component> implements Component {
+
+    private final T source;
+    private final ComponentType<T> componentType;
+    private T copy;
+
+    protected ComponentView(T source, ComponentType<T> componentType) {
+        this.source = source;
+        this.componentType = componentType;
+    }
+
+    /**
+     * @return The component reads should be made from
+     */
+    protected T read() {
+        return (copy != null) ? copy : source;
+    }
+
+    /**
+     * @return The component writes should be made to, making a copy of the source if one has not been made yet
+     */
+    protected T write() {
+        if (copy == null) {
+            copy = componentType.copy(source, componentType.create());
+        }
+        return copy;
+    }
+
+    /**
+     * @return Whether this view has been written to
+     */
+    public boolean isCopied() {
+        return copy != null;
+    }
+
+    @Override
+    public Class<T> getType() {
+        return componentType.getComponentClass();
+    }
+
+    /**
+     * @return The component this view currently reads from. If this is a view over another view, this is the component that view reads from.
+     */
+    private Component target() {
+        Component target = read();
+        while (target instanceof ComponentView) {
+            target = ((ComponentView<?>) target).read();
+        }
+        return target;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        }
+        if (obj instanceof ComponentView) {
+            return target().equals(((ComponentView<?>) obj).target());
+        }
+        return target().equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return target().hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return target().toString();
+    }
+}
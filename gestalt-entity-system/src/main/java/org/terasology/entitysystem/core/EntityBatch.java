@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.core;
+
+import java.util.Set;
+
+/**
+ * A batch of entities created together, all with the same component types. The ids of the entities in a batch are allocated as a contiguous block when the transaction
+ * creating the batch is committed.
+ */
+public interface EntityBatch {
+
+    /**
+     * @return The number of entities in the batch
+     */
+    int size();
+
+    /**
+     * @return The component types every entity in the batch has
+     */
+    Set<Class<? extends Component>> getComponentTypes();
+
+    /**
+     * @return Whether the batch has been committed, and so has ids
+     */
+    boolean isCommitted();
+
+    /**
+     * @param index The index of the entity within the batch
+     * @return The id of the entity
+     * @throws IllegalStateException If the batch has not been committed
+     */
+    long getId(int index);
+
+    /**
+     * @param index The index of the entity within the batch
+     * @return The entity ref for the entity
+     * @throws IllegalStateException If the batch has not been committed
+     */
+    EntityRef getEntity(int index);
+}
@@ -17,11 +17,15 @@
 package org.terasology.entitysystem.core;
 
 import gnu.trove.TLongCollection;
+import gnu.trove.list.TLongList;
 import org.terasology.entitysystem.prefab.Prefab;
 import org.terasology.naming.Name;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.Spliterator;
 
 /**
  * EntityManager is the core of the entity system.
@@ -48,6 +52,21 @@ public interface EntityManager {
      */
     Iterable<EntityRef> getEntities(TLongCollection ids);
 
+    /**
+     * Creates a batch of entities that all have the same component types. The components are provided as columns, and are stored in bulk when the transaction is
+     * committed - the ids of the whole batch are allocated as a single contiguous block, and each component column is added in one pass. This is far cheaper than
+     * creating each entity individually when creating many entities at once.
+     * <p>
+     * The components are copied when the transaction is committed, so should not be modified after being provided.
+     *
+     * @param columns The components of the new entities, with one list per component type. Element i of each list is a component of entity i, so all lists must be the
+     *                same size.
+     * @return The batch of new entities. The ids of the entities are available once the transaction is committed.
+     * @throws IllegalStateException    If no transaction is active
+     * @throws IllegalArgumentException If the columns are empty, differ in size, or do not each contain a single distinct component type
+     */
+    EntityBatch createEntityBatch(List<? extends List<? extends Component>> columns);
+
     /**
      * Creates an instance of each entity in a prefab, and returns the root entity
      *
@@ -69,9 +88,27 @@ public interface EntityManager {
      */
     Iterator<EntityRef> allEntities();
 
+    /**
+     * Finds all entities that have all of the given component types. Only the ids of the entities are produced, so no entity refs are created - use
+     * {@link #getEntity(long)} to obtain a ref where needed. The spliterator can be split to process the entities in parallel, such as through
+     * {@link java.util.stream.StreamSupport#longStream(Spliterator.OfLong, boolean)}.
+     * <p>
+     * Like {@link #allEntities()}, entities could be deleted or changed between when they are found and when they are accessed, and changes made in the current
+     * transaction are not reflected. Can be used outside of a transaction.
+     *
+     * @param componentTypes The component types entities must have. Must not be empty.
+     * @return A spliterator over the ids of all matching entities
+     */
+    Spliterator.OfLong query(Set<Class<? extends Component>> componentTypes);
+
     // TODO: Remove?
     /**
      * @return The value of the next entity id
      */
     long getNextId();
+
+    /**
+     * @return The ids of deleted entities that are waiting to be reused by new entities, with their generation advanced. These are used before {@link #getNextId()}.
+     */
+    TLongList getFreeIds();
 }
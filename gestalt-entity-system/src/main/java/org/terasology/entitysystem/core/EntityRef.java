@@ -16,6 +16,7 @@
 
 package org.terasology.entitysystem.core;
 
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.transaction.exception.ComponentAlreadyExistsException;
 import org.terasology.entitysystem.transaction.exception.ComponentDoesNotExistException;
 import org.terasology.util.collection.TypeKeyedMap;
@@ -62,6 +63,13 @@ public interface EntityRef {
      */
     Set<Class<? extends Component>> getComponentTypes();
 
+    /**
+     * @return The types of components that the EntityRef has, as a signature. Where possible this is determined without reading the components themselves.
+     */
+    default ComponentSignature getComponentSignature() {
+        return ComponentSignature.of(getComponentTypes());
+    }
+
     /**
      * @return The components composing this entity
      */
@@ -16,6 +16,7 @@
 
 package org.terasology.entitysystem.core;
 
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.util.collection.TypeKeyedMap;
 
 import java.util.Collections;
@@ -63,6 +64,11 @@ public Set<Class<? extends Component>> getComponentTypes() {
         return Collections.emptySet();
     }
 
+    @Override
+    public ComponentSignature getComponentSignature() {
+        return ComponentSignature.EMPTY;
+    }
+
     @Override
     public TypeKeyedMap<Component> getComponents() {
         return new TypeKeyedMap<>();
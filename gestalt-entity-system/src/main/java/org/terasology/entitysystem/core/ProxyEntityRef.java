@@ -17,6 +17,7 @@
 package org.terasology.entitysystem.core;
 
 import com.google.common.base.Preconditions;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.util.collection.TypeKeyedMap;
 
 import java.util.Optional;
@@ -82,6 +83,11 @@ public Set<Class<? extends Component>> getComponentTypes() {
         return ref.getComponentTypes();
     }
 
+    @Override
+    public ComponentSignature getComponentSignature() {
+        return ref.getComponentSignature();
+    }
+
     @Override
     public TypeKeyedMap<Component> getComponents() {
         return ref.getComponents();
@@ -0,0 +1,310 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.core.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * An archetype holds all the entities with exactly the same set of component types (the signature of the archetype). Entities are stored densely in fixed size chunks,
+ * with a column per component type, so iterating over the entities of an archetype walks contiguous arrays. Each entity occupies a slot in the archetype - removing an
+ * entity moves the last entity of the archetype into its slot.
+ * <p>
+ * Reading from an archetype requires holding its read lock, and changing the layout of an archetype (adding or removing entities) requires holding its write lock.
+ */
+final class Archetype {
+
+    /**
+     * Used to order archetypes, so that multiple archetypes can be locked without deadlock.
+     */
+    static final Ordering<Archetype> LOCK_ORDER = Ordering.from((a, b) -> Integer.compare(a.index, b.index));
+
+    private final int index;
+    private final ComponentSignature signature;
+    private final List<Class<? extends Component>> columnTypes;
+    private final Map<Class<? extends Component>, Integer> columnIndices;
+    private final ComponentColumn.Factory[] columnFactories;
+
+    private final int chunkShift;
+    private final int chunkMask;
+    private final List<Chunk> chunks = Lists.newArrayList();
+    private volatile int size;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Class<? extends Component>, Archetype> addTransitions = Maps.newConcurrentMap();
+    private final Map<Class<? extends Component>, Archetype> removeTransitions = Maps.newConcurrentMap();
+
+    /**
+     * @param index           A unique index for the archetype, used for lock ordering
+     * @param signature       The component types of all entities in this archetype. Columns are ordered by component type id.
+     * @param chunkSize       The number of entities stored per chunk. Must be a power of two.
+     * @param columnFactories Provides the factory for the columns of each component type
+     */
+    Archetype(int index, ComponentSignature signature, int chunkSize, Function<Class<? extends Component>, ComponentColumn.Factory> columnFactories) {
+        Preconditions.checkArgument(Integer.bitCount(chunkSize) == 1, "Chunk size must be a power of two");
+        this.index = index;
+        this.signature = signature;
+        this.columnTypes = ImmutableList.copyOf(signature.toSet());
+        ImmutableMap.Builder<Class<? extends Component>, Integer> columnIndexBuilder = ImmutableMap.builder();
+        for (int i = 0; i < columnTypes.size(); ++i) {
+            columnIndexBuilder.put(columnTypes.get(i), i);
+        }
+        this.columnIndices = columnIndexBuilder.build();
+        this.columnFactories = new ComponentColumn.Factory[columnTypes.size()];
+        for (int i = 0; i < columnTypes.size(); ++i) {
+            this.columnFactories[i] = columnFactories.apply(columnTypes.get(i));
+        }
+        this.chunkShift = Integer.numberOfTrailingZeros(chunkSize);
+        this.chunkMask = chunkSize - 1;
+    }
+
+    /**
+     * @return The component types of all entities in this archetype
+     */
+    ComponentSignature getSignature() {
+        return signature;
+    }
+
+    /**
+     * @return The component types of each column, in column order
+     */
+    List<Class<? extends Component>> getColumnTypes() {
+        return columnTypes;
+    }
+
+    /**
+     * @param type A component type
+     * @return The column holding the given component type, or -1 if this archetype does not contain that component type
+     */
+    int getColumn(Class<? extends Component> type) {
+        Integer column = columnIndices.get(type);
+        return (column == null) ? -1 : column;
+    }
+
+    /**
+     * @return The number of entities in this archetype. May be read without holding the lock.
+     */
+    int size() {
+        return size;
+    }
+
+    ReadWriteLock getLock() {
+        return lock;
+    }
+
+    /**
+     * @param type        The component type to add
+     * @param archetypes  Provides the archetype for a signature
+     * @return The archetype for entities of this archetype with the given component type added
+     */
+    Archetype withComponent(Class<? extends Component> type, Function<ComponentSignature, Archetype> archetypes) {
+        return addTransitions.computeIfAbsent(type, (t) -> archetypes.apply(signature.with(t)));
+    }
+
+    /**
+     * @param type        The component type to remove
+     * @param archetypes  Provides the archetype for a signature
+     * @return The archetype for entities of this archetype with the given component type removed
+     */
+    Archetype withoutComponent(Class<? extends Component> type, Function<ComponentSignature, Archetype> archetypes) {
+        return removeTransitions.computeIfAbsent(type, (t) -> archetypes.apply(signature.without(t)));
+    }
+
+    /**
+     * Appends an entity to the archetype. Requires the write lock.
+     *
+     * @param entityId The id of the entity
+     * @return The slot the entity was added in
+     */
+    int add(long entityId) {
+        int slot = size;
+        int chunkIndex = slot >>> chunkShift;
+        if (chunkIndex == chunks.size()) {
+            chunks.add(new Chunk(chunkMask + 1, columnFactories));
+        }
+        chunks.get(chunkIndex).ids[slot & chunkMask] = entityId;
+        size = slot + 1;
+        return slot;
+    }
+
+    /**
+     * Removes the entity in a slot, moving the last entity of the archetype into the slot. Requires the write lock.
+     *
+     * @param slot The slot to remove
+     * @return The id of the entity moved into the slot, or 0 if no entity was moved
+     */
+    long remove(int slot) {
+        int last = size - 1;
+        Chunk target = chunks.get(slot >>> chunkShift);
+        Chunk source = chunks.get(last >>> chunkShift);
+        int targetIndex = slot & chunkMask;
+        int sourceIndex = last & chunkMask;
+        long movedId = 0;
+        if (slot != last) {
+            movedId = source.ids[sourceIndex];
+            target.ids[targetIndex] = movedId;
+            for (int column = 0; column < columnTypes.size(); ++column) {
+                source.columns[column].copyTo(sourceIndex, target.columns[column], targetIndex);
+            }
+        }
+        source.ids[sourceIndex] = 0;
+        for (int column = 0; column < columnTypes.size(); ++column) {
+            source.columns[column].clear(sourceIndex);
+        }
+        size = last;
+        if (sourceIndex == 0 && chunks.size() > 1) {
+            chunks.remove(chunks.size() - 1);
+        }
+        return movedId;
+    }
+
+    /**
+     * Removes all entities. Requires the write lock.
+     */
+    void clear() {
+        chunks.clear();
+        size = 0;
+    }
+
+    long getId(int slot) {
+        return chunks.get(slot >>> chunkShift).ids[slot & chunkMask];
+    }
+
+    /**
+     * @return The component in the given slot and column, which must not be modified. Requires the read lock.
+     */
+    Component get(int slot, int column) {
+        return chunks.get(slot >>> chunkShift).columns[column].get(slot & chunkMask);
+    }
+
+    /**
+     * @return A copy of the component in the given slot and column. Requires the read lock.
+     */
+    Component getCopy(int slot, int column) {
+        return chunks.get(slot >>> chunkShift).columns[column].getCopy(slot & chunkMask);
+    }
+
+    /**
+     * Stores a component, which may be kept by the archetype so must not be modified afterwards. Requires the write lock.
+     */
+    void set(int slot, int column, Component component) {
+        chunks.get(slot >>> chunkShift).columns[column].set(slot & chunkMask, component);
+    }
+
+    /**
+     * Stores a copy of a component. Requires the write lock.
+     */
+    void setCopy(int slot, int column, Component component) {
+        chunks.get(slot >>> chunkShift).columns[column].setCopy(slot & chunkMask, component);
+    }
+
+    /**
+     * Copies a component into another archetype with the same component type. Requires the write lock of both archetypes.
+     *
+     * @param slot         The slot of the component in this archetype
+     * @param column       The column of the component in this archetype
+     * @param target       The archetype to copy to
+     * @param targetSlot   The slot to copy the component to
+     * @param targetColumn The column to copy the component to
+     */
+    void copyTo(int slot, int column, Archetype target, int targetSlot, int targetColumn) {
+        ComponentColumn targetComponents = target.chunks.get(targetSlot >>> target.chunkShift).columns[targetColumn];
+        chunks.get(slot >>> chunkShift).columns[column].copyTo(slot & chunkMask, targetComponents, targetSlot & target.chunkMask);
+    }
+
+    /**
+     * @return The number of chunks currently allocated
+     */
+    int getChunkCount() {
+        return chunks.size();
+    }
+
+    /**
+     * Copies the ids of the entities in a chunk. Requires the read lock.
+     *
+     * @param chunkIndex The index of the chunk
+     * @return The ids of the entities in the chunk
+     */
+    long[] copyChunkIds(int chunkIndex) {
+        int count = chunkEntityCount(chunkIndex);
+        long[] result = new long[count];
+        if (count > 0) {
+            System.arraycopy(chunks.get(chunkIndex).ids, 0, result, 0, count);
+        }
+        return result;
+    }
+
+    /**
+     * Copies the components of a column in a chunk. The components must not be modified. Requires the read lock.
+     *
+     * @param chunkIndex The index of the chunk
+     * @param column     The column to copy
+     * @return The components in the column of the chunk
+     */
+    Component[] copyChunkColumn(int chunkIndex, int column) {
+        int count = chunkEntityCount(chunkIndex);
+        Component[] result = new Component[count];
+        if (count > 0) {
+            ComponentColumn components = chunks.get(chunkIndex).columns[column];
+            for (int i = 0; i < count; ++i) {
+                result[i] = components.get(i);
+            }
+        }
+        return result;
+    }
+
+    private int chunkEntityCount(int chunkIndex) {
+        if (chunkIndex >= chunks.size()) {
+            return 0;
+        }
+        return Math.min(chunkMask + 1, size - (chunkIndex << chunkShift));
+    }
+
+    @Override
+    public String toString() {
+        return "Archetype" + columnTypes;
+    }
+
+    /**
+     * A fixed size block of entities, with a column of components for each component type of the archetype.
+     */
+    private static final class Chunk {
+        private final long[] ids;
+        private final ComponentColumn[] columns;
+
+        Chunk(int chunkSize, ComponentColumn.Factory[] columnFactories) {
+            this.ids = new long[chunkSize];
+            this.columns = new ComponentColumn[columnFactories.length];
+            for (int i = 0; i < columnFactories.length; ++i) {
+                this.columns[i] = columnFactories[i].create(chunkSize);
+            }
+        }
+    }
+}
@@ -0,0 +1,827 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import gnu.trove.TCollections;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import org.terasology.entitysystem.component.ComponentArrayCodec;
+import org.terasology.entitysystem.component.ComponentBufferCodec;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.component.ComponentType;
+import org.terasology.entitysystem.core.Component;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * An entity store that groups entities by the set of component types they have (their archetype). The entities of each archetype are stored densely in chunked
+ * columns, so retrieving all the components of an entity is a single lookup, and iterating over entities walks contiguous arrays rather than hash maps.
+ * <p>
+ * Adding or removing a component moves the entity to a different archetype, so this store favours workloads where entity composition changes less often than the values
+ * of components.
+ * <p>
+ * Stored components are never modified once stored - updates replace the stored component with a new copy, so views can be handed out without copying.
+ */
+public class ArchetypeEntityStore implements EntityStore {
+    public static final int DEFAULT_CHUNK_SIZE = 256;
+
+    private static final ClosableLock NO_COMMIT_LOCK = () -> {
+    };
+
+    private final Map<ComponentSignature, Archetype> archetypes = Maps.newConcurrentMap();
+    private final List<Archetype> archetypeList = Lists.newCopyOnWriteArrayList();
+    private final AtomicInteger archetypeIndexSource = new AtomicInteger();
+    private final TLongObjectMap<EntityLocation> locations = TCollections.synchronizedMap(new TLongObjectHashMap<>());
+
+    private final LockStore locks;
+    private final ComponentManager componentManager;
+    private final EntityIdAllocator idAllocator;
+    private final int chunkSize;
+    private final ComponentStorage storage;
+
+    public ArchetypeEntityStore(ComponentManager componentManager, long nextEntityId) {
+        this(componentManager, nextEntityId, LockStore.DEFAULT_CONCURRENCY_LEVEL, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param componentManager The component manager
+     * @param nextEntityId     The id to give the next created entity
+     * @param storage          How components should be held in memory
+     */
+    public ArchetypeEntityStore(ComponentManager componentManager, long nextEntityId, ComponentStorage storage) {
+        this(componentManager, nextEntityId, LockStore.DEFAULT_CONCURRENCY_LEVEL, DEFAULT_CHUNK_SIZE, storage);
+    }
+
+    /**
+     * @param componentManager The component manager
+     * @param nextEntityId     The id to give the next created entity
+     * @param concurrencyLevel The number of lock stripes for entities
+     * @param chunkSize        The number of entities stored in each chunk of an archetype. Must be a power of two.
+     */
+    public ArchetypeEntityStore(ComponentManager componentManager, long nextEntityId, int concurrencyLevel, int chunkSize) {
+        this(componentManager, nextEntityId, concurrencyLevel, chunkSize, ComponentStorage.OBJECTS);
+    }
+
+    /**
+     * @param componentManager The component manager
+     * @param nextEntityId     The id to give the next created entity
+     * @param concurrencyLevel The number of lock stripes for entities
+     * @param chunkSize        The number of entities stored in each chunk of an archetype. Must be a power of two.
+     * @param storage          How components should be held in memory
+     */
+    public ArchetypeEntityStore(ComponentManager componentManager, long nextEntityId, int concurrencyLevel, int chunkSize, ComponentStorage storage) {
+        this(componentManager, new EntityIdAllocator(nextEntityId), concurrencyLevel, chunkSize, storage);
+    }
+
+    /**
+     * @param componentManager The component manager
+     * @param idAllocator      The allocator of entity ids, such as one restored from a saved store
+     * @param concurrencyLevel The number of lock stripes for entities
+     * @param chunkSize        The number of entities stored in each chunk of an archetype. Must be a power of two.
+     * @param storage          How components should be held in memory
+     */
+    public ArchetypeEntityStore(ComponentManager componentManager, EntityIdAllocator idAllocator, int concurrencyLevel, int chunkSize, ComponentStorage storage) {
+        this.componentManager = componentManager;
+        this.storage = storage;
+        this.idAllocator = idAllocator;
+        this.locks = new LockStore(concurrencyLevel);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public long createEntityId() {
+        return idAllocator.allocate();
+    }
+
+    @Override
+    public long createEntityIds(int count) {
+        return idAllocator.allocateBlock(count);
+    }
+
+    @Override
+    public long getNextEntityId() {
+        return idAllocator.getNextIndex();
+    }
+
+    @Override
+    public EntityIdAllocator getIdAllocator() {
+        return idAllocator;
+    }
+
+    @Override
+    public int getEntityRevision(long entityId) {
+        EntityLocation location = locations.get(entityId);
+        return (location == null) ? 0 : location.revision;
+    }
+
+    @Override
+    public boolean exists(long entityId) {
+        return locations.containsKey(entityId);
+    }
+
+    @Override
+    public ClosableLock lock(Set<Long> entityIds) {
+        return locks.lock(entityIds);
+    }
+
+    @Override
+    public ClosableLock lockEntityCreation() {
+        return locks.lockEntityCreation();
+    }
+
+    @Override
+    public ClosableLock beginCommit() {
+        return NO_COMMIT_LOCK;
+    }
+
+    /**
+     * Snapshots are not supported - components held in arrays or off-heap are overwritten in place, so replaced values cannot be retained.
+     */
+    @Override
+    public Optional<EntityStoreSnapshot> openSnapshot() {
+        return Optional.empty();
+    }
+
+    @Override
+    public <T extends Component> T get(long entityId, Class<T> componentClass) {
+        EntityLocation location = lockForRead(entityId);
+        if (location == null) {
+            return null;
+        }
+        Archetype archetype = location.archetype;
+        try {
+            int column = archetype.getColumn(componentClass);
+            if (column == -1) {
+                return null;
+            }
+            return componentClass.cast(archetype.getCopy(location.slot, column));
+        } finally {
+            archetype.getLock().readLock().unlock();
+        }
+    }
+
+    @Override
+    public <T extends Component> T getView(long entityId, Class<T> componentClass) {
+        EntityLocation location = lockForRead(entityId);
+        if (location == null) {
+            return null;
+        }
+        Archetype archetype = location.archetype;
+        try {
+            int column = archetype.getColumn(componentClass);
+            if (column == -1) {
+                return null;
+            }
+            return componentManager.createView(componentClass.cast(archetype.get(location.slot, column)));
+        } finally {
+            archetype.getLock().readLock().unlock();
+        }
+    }
+
+    @Override
+    public <T extends Component> boolean add(long entityId, T component) {
+        ReentrantLock lock = locks.getLock(entityId);
+        lock.lock();
+        try {
+            Class<? extends Component> type = component.getType();
+            EntityLocation location = locations.get(entityId);
+            if (location == null) {
+                Archetype archetype = getArchetype(ComponentSignature.of(type));
+                location = new EntityLocation();
+                Lock archetypeLock = archetype.getLock().writeLock();
+                archetypeLock.lock();
+                try {
+                    location.slot = archetype.add(entityId);
+                    archetype.setCopy(location.slot, 0, component);
+                    location.revision = 1;
+                    location.archetype = archetype;
+                    // Registered under the archetype lock, so that removals from the archetype can find this entity if they move it
+                    locations.put(entityId, location);
+                } finally {
+                    archetypeLock.unlock();
+                }
+                return true;
+            }
+            Archetype source = location.archetype;
+            if (source.getColumn(type) != -1) {
+                return false;
+            }
+            moveEntity(entityId, location, source.withComponent(type, this::getArchetype), component);
+            location.revision = location.revision + 1;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a batch of new entities. All the entities go into the same archetype, so the archetype's write lock is obtained once for the whole batch, and the entities
+     * are appended to its chunks in order.
+     */
+    @Override
+    public void addBatch(long firstEntityId, List<? extends List<? extends Component>> columns) {
+        int size = columns.get(0).size();
+        ComponentSignature.Builder signatureBuilder = new ComponentSignature.Builder();
+        for (List<? extends Component> column : columns) {
+            signatureBuilder.add(column.get(0).getType());
+        }
+        Archetype archetype = getArchetype(signatureBuilder.build());
+        int[] targetColumns = new int[columns.size()];
+        for (int column = 0; column < columns.size(); ++column) {
+            targetColumns[column] = archetype.getColumn(columns.get(column).get(0).getType());
+        }
+
+        Lock archetypeLock = archetype.getLock().writeLock();
+        archetypeLock.lock();
+        try {
+            // Locations are registered under the archetype lock, so that removals from the archetype can find any of these entities they move. Synchronized trove
+            // maps use themselves as their mutex, so this holds the map's lock once for the whole batch.
+            synchronized (locations) {
+                for (int i = 0; i < size; ++i) {
+                    EntityLocation location = new EntityLocation();
+                    location.slot = archetype.add(firstEntityId + i);
+                    for (int column = 0; column < targetColumns.length; ++column) {
+                        archetype.setCopy(location.slot, targetColumns[column], columns.get(column).get(i));
+                    }
+                    location.revision = 1;
+                    location.archetype = archetype;
+                    locations.put(firstEntityId + i, location);
+                }
+            }
+        } finally {
+            archetypeLock.unlock();
+        }
+    }
+
+    @Override
+    public <T extends Component> boolean update(long entityId, T component) {
+        ReentrantLock lock = locks.getLock(entityId);
+        lock.lock();
+        try {
+            EntityLocation location = locations.get(entityId);
+            if (location == null) {
+                return false;
+            }
+            Archetype archetype = location.archetype;
+            int column = archetype.getColumn(component.getType());
+            if (column == -1) {
+                return false;
+            }
+            Lock archetypeLock = archetype.getLock().writeLock();
+            archetypeLock.lock();
+            try {
+                archetype.setCopy(location.slot, column, component);
+            } finally {
+                archetypeLock.unlock();
+            }
+            location.revision = location.revision + 1;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return removes the component with the specified class from the entity and returns it.
+     * Returns null if no component could be removed.
+     */
+    @Override
+    public <T extends Component> Component remove(long entityId, Class<T> componentClass) {
+        ReentrantLock lock = locks.getLock(entityId);
+        lock.lock();
+        try {
+            EntityLocation location = locations.get(entityId);
+            if (location == null) {
+                return null;
+            }
+            Archetype source = location.archetype;
+            int column = source.getColumn(componentClass);
+            if (column == -1) {
+                return null;
+            }
+            if (source.getSignature().size() == 1) {
+                Lock archetypeLock = source.getLock().writeLock();
+                archetypeLock.lock();
+                try {
+                    Component removed = source.get(location.slot, column);
+                    removeFromArchetype(source, location.slot);
+                    location.archetype = null;
+                    location.revision = 0;
+                    locations.remove(entityId);
+                    return removed;
+                } finally {
+                    archetypeLock.unlock();
+                }
+            }
+            Component removed = moveEntity(entityId, location, source.withoutComponent(componentClass, this::getArchetype), null);
+            location.revision = location.revision + 1;
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Archetype archetype : archetypeList) {
+            Lock archetypeLock = archetype.getLock().writeLock();
+            archetypeLock.lock();
+            try {
+                archetype.clear();
+            } finally {
+                archetypeLock.unlock();
+            }
+        }
+        locations.clear();
+        idAllocator.reset(1);
+    }
+
+    @Override
+    public int getComponentCount(Class<? extends Component> componentClass) {
+        int count = 0;
+        for (Archetype archetype : archetypeList) {
+            if (archetype.getColumn(componentClass) != -1) {
+                count += archetype.size();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public Collection<Component> getComponents(long entityId) {
+        EntityLocation location = lockForRead(entityId);
+        if (location == null) {
+            return Collections.emptyList();
+        }
+        Archetype archetype = location.archetype;
+        try {
+            return copyComponents(archetype, location.slot);
+        } finally {
+            archetype.getLock().readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<Component> getComponentViews(long entityId) {
+        EntityLocation location = lockForRead(entityId);
+        if (location == null) {
+            return Collections.emptyList();
+        }
+        Archetype archetype = location.archetype;
+        try {
+            List<Component> components = Lists.newArrayListWithCapacity(archetype.getColumnTypes().size());
+            for (int column = 0; column < archetype.getColumnTypes().size(); ++column) {
+                components.add(componentManager.createView(archetype.get(location.slot, column)));
+            }
+            return components;
+        } finally {
+            archetype.getLock().readLock().unlock();
+        }
+    }
+
+    @Override
+    public ComponentSignature getComponentSignature(long entityId) {
+        EntityLocation location = lockForRead(entityId);
+        if (location == null) {
+            return ComponentSignature.EMPTY;
+        }
+        location.archetype.getLock().readLock().unlock();
+        return location.archetype.getSignature();
+    }
+
+    /**
+     * Iterates over the components of the given type. The components provided are those stored by the entity store, so must not be modified.
+     * <p>
+     * This iterator is weakly consistent - it iterates a copy of each chunk as it reaches it, so may not reflect changes made during iteration.
+     *
+     * @param componentClass The type of component to iterate over
+     * @param <T>            The type of component to iterate over
+     * @return An iterator over the ids and components of all entities with the given component type
+     */
+    @Override
+    public <T extends Component> TLongObjectIterator<T> componentIterator(Class<T> componentClass) {
+        return new ArchetypeComponentIterator<>(componentClass);
+    }
+
+    /**
+     * Produces an iterator for iterating over all entities. The iterator walks the chunks of each archetype in turn, and is weakly consistent.
+     *
+     * @return An iterator over all entity ids.
+     */
+    @Override
+    public TLongIterator entityIdIterator() {
+        return new ArchetypeEntityIterator();
+    }
+
+    /**
+     * Finds the entities with all of the given component types. Only archetypes containing all of the component types are visited, so no entity is checked that
+     * cannot match - each archetype is matched with a test of its signature's bits. The chunks of matching archetypes are determined when the query is made, and
+     * each chunk's ids are copied as it is reached.
+     */
+    @Override
+    public Spliterator.OfLong query(Set<Class<? extends Component>> componentTypes) {
+        Preconditions.checkArgument(!componentTypes.isEmpty(), "At least one component type is required");
+        ComponentSignature required = ComponentSignature.of(componentTypes);
+        List<ArchetypeChunk> chunks = Lists.newArrayList();
+        for (Archetype archetype : archetypeList) {
+            if (archetype.getSignature().containsAll(required)) {
+                int chunkCount = (archetype.size() + chunkSize - 1) / chunkSize;
+                for (int chunk = 0; chunk < chunkCount; ++chunk) {
+                    chunks.add(new ArchetypeChunk(archetype, chunk));
+                }
+            }
+        }
+        return new ArchetypeQuerySpliterator(chunks, 0, chunks.size());
+    }
+
+    @Override
+    public int entityCount() {
+        return locations.size();
+    }
+
+    @Override
+    public boolean isAvailable(long entityId) {
+        return locations.containsKey(entityId);
+    }
+
+    @Override
+    public EntityState getEntityState(long id) {
+        return new EntityState(id, getEntityRevision(id), this, componentManager);
+    }
+
+    /**
+     * @return The number of archetypes that have been created
+     */
+    public int getArchetypeCount() {
+        return archetypeList.size();
+    }
+
+    private Archetype getArchetype(ComponentSignature signature) {
+        return archetypes.computeIfAbsent(signature, (s) -> {
+            Archetype archetype = new Archetype(archetypeIndexSource.getAndIncrement(), s, chunkSize, this::getColumnFactory);
+            archetypeList.add(archetype);
+            return archetype;
+        });
+    }
+
+    private ComponentColumn.Factory getColumnFactory(Class<? extends Component> componentClass) {
+        if (storage == ComponentStorage.OFF_HEAP) {
+            ComponentType<?> type = componentManager.getType(componentClass);
+            Optional<? extends ComponentBufferCodec<?>> codec = type.getBufferCodec();
+            if (codec.isPresent()) {
+                ComponentBufferCodec<?> bufferCodec = codec.get();
+                boolean copySideValues = !type.getArrayCodec().isPresent();
+                return (capacity) -> new OffHeapComponentColumn(capacity, bufferCodec, componentManager, copySideValues);
+            }
+        } else if (storage == ComponentStorage.ARRAYS) {
+            Optional<? extends ComponentArrayCodec<?>> codec = componentManager.getType(componentClass).getArrayCodec();
+            if (codec.isPresent()) {
+                ComponentArrayCodec<?> arrayCodec = codec.get();
+                return (capacity) -> new ArrayComponentColumn(capacity, arrayCodec);
+            }
+        }
+        return (capacity) -> new ObjectComponentColumn(capacity, componentManager);
+    }
+
+    private List<Component> copyComponents(Archetype archetype, int slot) {
+        List<Component> components = Lists.newArrayListWithCapacity(archetype.getColumnTypes().size());
+        for (int column = 0; column < archetype.getColumnTypes().size(); ++column) {
+            components.add(archetype.getCopy(slot, column));
+        }
+        return components;
+    }
+
+    /**
+     * Finds the location of an entity, and obtains the read lock of its archetype. The archetype may change between looking up the location and obtaining the lock,
+     * so this is repeated until the lock held is for the entity's current archetype.
+     *
+     * @param entityId The id of the entity
+     * @return The location of the entity, with the read lock of its archetype held, or null if the entity does not exist.
+     */
+    private EntityLocation lockForRead(long entityId) {
+        while (true) {
+            EntityLocation location = locations.get(entityId);
+            if (location == null) {
+                return null;
+            }
+            Archetype archetype = location.archetype;
+            if (archetype != null) {
+                archetype.getLock().readLock().lock();
+                if (location.archetype == archetype) {
+                    return location;
+                }
+                archetype.getLock().readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Moves an entity to a new archetype, copying across all components shared by both archetypes.
+     *
+     * @param entityId     The id of the entity to move
+     * @param location     The location of the entity
+     * @param target       The archetype to move the entity to
+     * @param addComponent A component to add a copy of to the entity, or null
+     * @return The component that was in the old archetype but not the new one, if any
+     */
+    private Component moveEntity(long entityId, EntityLocation location, Archetype target, Component addComponent) {
+        Archetype source = location.archetype;
+        List<Archetype> toLock = Archetype.LOCK_ORDER.sortedCopy(ImmutableList.of(source, target));
+        toLock.forEach(x -> x.getLock().writeLock().lock());
+        try {
+            int sourceSlot = location.slot;
+            int targetSlot = target.add(entityId);
+            Component removed = null;
+            for (int column = 0; column < source.getColumnTypes().size(); ++column) {
+                int targetColumn = target.getColumn(source.getColumnTypes().get(column));
+                if (targetColumn != -1) {
+                    source.copyTo(sourceSlot, column, target, targetSlot, targetColumn);
+                } else {
+                    removed = source.get(sourceSlot, column);
+                }
+            }
+            if (addComponent != null) {
+                target.setCopy(targetSlot, target.getColumn(addComponent.getType()), addComponent);
+            }
+            removeFromArchetype(source, sourceSlot);
+            location.slot = targetSlot;
+            location.archetype = target;
+            return removed;
+        } finally {
+            Lists.reverse(toLock).forEach(x -> x.getLock().writeLock().unlock());
+        }
+    }
+
+    /**
+     * Removes a slot from an archetype, updating the location of the entity moved into that slot. Requires the write lock of the archetype.
+     */
+    private void removeFromArchetype(Archetype archetype, int slot) {
+        long movedId = archetype.remove(slot);
+        if (movedId != 0) {
+            EntityLocation movedLocation = locations.get(movedId);
+            if (movedLocation != null) {
+                movedLocation.slot = slot;
+            }
+        }
+    }
+
+    /**
+     * The location of an entity within the store, along with its revision. The archetype and slot of an entity are only changed while holding the write lock of the
+     * archetype, and the revision only while holding the entity's lock.
+     */
+    private static final class EntityLocation {
+        private volatile Archetype archetype;
+        private int slot;
+        private volatile int revision;
+    }
+
+    /**
+     * Iterates over entities in all archetypes, a chunk at a time.
+     */
+    private abstract class ArchetypeChunkIterator {
+        private final List<Archetype> archetypeSnapshot = ImmutableList.copyOf(archetypeList);
+        private int archetypeIndex = -1;
+        private int chunkIndex;
+        private int index;
+        private long[] ids = new long[0];
+
+        protected abstract boolean include(Archetype archetype);
+
+        protected abstract void copyChunk(Archetype archetype, int chunk);
+
+        public boolean hasNext() {
+            while (index >= ids.length) {
+                if (!nextChunk()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        protected int nextIndex() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return index++;
+        }
+
+        protected long idAt(int i) {
+            return ids[i];
+        }
+
+        private boolean nextChunk() {
+            while (archetypeIndex < archetypeSnapshot.size()) {
+                if (archetypeIndex >= 0) {
+                    Archetype archetype = archetypeSnapshot.get(archetypeIndex);
+                    Lock readLock = archetype.getLock().readLock();
+                    readLock.lock();
+                    try {
+                        if (chunkIndex < archetype.getChunkCount()) {
+                            ids = archetype.copyChunkIds(chunkIndex);
+                            copyChunk(archetype, chunkIndex);
+                            chunkIndex++;
+                            index = 0;
+                            return true;
+                        }
+                    } finally {
+                        readLock.unlock();
+                    }
+                }
+                do {
+                    archetypeIndex++;
+                } while (archetypeIndex < archetypeSnapshot.size() && !include(archetypeSnapshot.get(archetypeIndex)));
+                chunkIndex = 0;
+            }
+            return false;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private class ArchetypeEntityIterator extends ArchetypeChunkIterator implements TLongIterator {
+
+        @Override
+        protected boolean include(Archetype archetype) {
+            return true;
+        }
+
+        @Override
+        protected void copyChunk(Archetype archetype, int chunk) {
+        }
+
+        @Override
+        public long next() {
+            return idAt(nextIndex());
+        }
+    }
+
+    private static final class ArchetypeChunk {
+        private final Archetype archetype;
+        private final int chunk;
+
+        ArchetypeChunk(Archetype archetype, int chunk) {
+            this.archetype = archetype;
+            this.chunk = chunk;
+        }
+
+        long[] copyIds() {
+            Lock readLock = archetype.getLock().readLock();
+            readLock.lock();
+            try {
+                return archetype.copyChunkIds(chunk);
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Spliterator over the ids in a range of archetype chunks. Splits by chunk while there are multiple chunks remaining, and then within the ids of the last chunk.
+     */
+    private final class ArchetypeQuerySpliterator implements Spliterator.OfLong {
+        private final List<ArchetypeChunk> chunks;
+        private final int chunkFence;
+        private int chunkIndex;
+        private long[] ids = new long[0];
+        private int index;
+
+        ArchetypeQuerySpliterator(List<ArchetypeChunk> chunks, int chunkIndex, int chunkFence) {
+            this.chunks = chunks;
+            this.chunkIndex = chunkIndex;
+            this.chunkFence = chunkFence;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            while (index >= ids.length) {
+                if (chunkIndex >= chunkFence) {
+                    return false;
+                }
+                ids = chunks.get(chunkIndex++).copyIds();
+                index = 0;
+            }
+            action.accept(ids[index++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            while (true) {
+                for (; index < ids.length; ++index) {
+                    action.accept(ids[index]);
+                }
+                if (chunkIndex >= chunkFence) {
+                    return;
+                }
+                ids = chunks.get(chunkIndex++).copyIds();
+                index = 0;
+            }
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            if (chunkFence - chunkIndex > 1) {
+                int mid = (chunkIndex + chunkFence) >>> 1;
+                ArchetypeQuerySpliterator prefix = new ArchetypeQuerySpliterator(chunks, chunkIndex, mid);
+                chunkIndex = mid;
+                return prefix;
+            }
+            if (index >= ids.length && chunkIndex < chunkFence) {
+                ids = chunks.get(chunkIndex++).copyIds();
+                index = 0;
+            }
+            int mid = (index + ids.length) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            Spliterator.OfLong prefix = Spliterators.spliterator(ids, index, mid, Spliterator.NONNULL);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return (ids.length - index) + (long) (chunkFence - chunkIndex) * chunkSize;
+        }
+
+        @Override
+        public int characteristics() {
+            return NONNULL;
+        }
+    }
+
+    private class ArchetypeComponentIterator<T extends Component> extends ArchetypeChunkIterator implements TLongObjectIterator<T> {
+        private final Class<T> componentClass;
+        private Component[] components;
+        private int current = -1;
+
+        ArchetypeComponentIterator(Class<T> componentClass) {
+            this.componentClass = componentClass;
+        }
+
+        @Override
+        protected boolean include(Archetype archetype) {
+            return archetype.getColumn(componentClass) != -1;
+        }
+
+        @Override
+        protected void copyChunk(Archetype archetype, int chunk) {
+            components = archetype.copyChunkColumn(chunk, archetype.getColumn(componentClass));
+        }
+
+        @Override
+        public void advance() {
+            current = nextIndex();
+        }
+
+        @Override
+        public long key() {
+            return idAt(current);
+        }
+
+        @Override
+        public T value() {
+            return componentClass.cast(components[current]);
+        }
+
+        @Override
+        public T setValue(T val) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
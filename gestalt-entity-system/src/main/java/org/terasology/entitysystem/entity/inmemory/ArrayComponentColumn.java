@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import org.terasology.entitysystem.component.ComponentArrayCodec;
+import org.terasology.entitysystem.core.Component;
+
+/**
+ * A column that stores components in struct-of-arrays form through a {@link ComponentArrayCodec}. No component objects are held - components are created when read.
+ * Only occupied indices may be read.
+ */
+final class ArrayComponentColumn implements ComponentColumn {
+    private final ComponentArrayCodec<Component> codec;
+    private final Object[] arrays;
+
+    @SuppressWarnings("unchecked")
+    ArrayComponentColumn(int capacity, ComponentArrayCodec<?> codec) {
+        this.codec = (ComponentArrayCodec<Component>) codec;
+        this.arrays = codec.createArrays(capacity);
+    }
+
+    @Override
+    public Component get(int index) {
+        return codec.read(arrays, index);
+    }
+
+    @Override
+    public Component getCopy(int index) {
+        return get(index);
+    }
+
+    @Override
+    public void set(int index, Component component) {
+        setCopy(index, component);
+    }
+
+    @Override
+    public void setCopy(int index, Component component) {
+        codec.write(component, arrays, index);
+    }
+
+    @Override
+    public void copyTo(int index, ComponentColumn target, int targetIndex) {
+        if (target instanceof ArrayComponentColumn && ((ArrayComponentColumn) target).codec == codec) {
+            ArrayComponentColumn arrayTarget = (ArrayComponentColumn) target;
+            for (int i = 0; i < arrays.length; ++i) {
+                System.arraycopy(arrays[i], index, arrayTarget.arrays[i], targetIndex, 1);
+            }
+        } else {
+            target.set(targetIndex, get(index));
+        }
+    }
+
+    @Override
+    public void clear(int index) {
+        for (Object array : arrays) {
+            if (array instanceof Object[]) {
+                ((Object[]) array)[index] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+/**
+ * How an {@link InMemoryEntityManager} prevents concurrent transactions from committing conflicting changes to the same entities.
+ */
+public enum CommitMode {
+    /**
+     * Committing transactions lock all the entities involved. Entities share a fixed number of striped locks, so transactions involving different entities may still
+     * block each other.
+     */
+    LOCKING,
+    /**
+     * Committing transactions claim each entity involved with a compare-and-swap, and validate its revision while it is claimed. Transactions involving different
+     * entities never block each other. A transaction that finds an entity claimed by another commit retries briefly, and fails with a
+     * {@link java.util.ConcurrentModificationException} if the claim is not released.
+     */
+    OPTIMISTIC
+}
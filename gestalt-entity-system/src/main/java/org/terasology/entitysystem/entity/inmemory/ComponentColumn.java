@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import org.terasology.entitysystem.core.Component;
+
+/**
+ * A fixed size column of components of a single type, within a chunk of an archetype. A column may hold the component objects themselves, or store them in some other
+ * form - so a component read from a column may be the stored instance or a newly created one. Either way it must not be modified. Only indices holding a component
+ * may be read.
+ */
+interface ComponentColumn {
+
+    /**
+     * @param index The index of the component
+     * @return The component at the index, which must not be modified
+     */
+    Component get(int index);
+
+    /**
+     * @param index The index of the component
+     * @return A copy of the component at the index, which may be modified
+     */
+    Component getCopy(int index);
+
+    /**
+     * Stores a component. The column may keep the provided component, so it must not be modified afterwards.
+     *
+     * @param index     The index to store the component at
+     * @param component The component to store
+     */
+    void set(int index, Component component);
+
+    /**
+     * Stores a copy of a component. The provided component is not kept by the column.
+     *
+     * @param index     The index to store the component at
+     * @param component The component to store a copy of
+     */
+    void setCopy(int index, Component component);
+
+    /**
+     * Copies a component to another column of the same component type.
+     *
+     * @param index       The index of the component to copy
+     * @param target      The column to copy to
+     * @param targetIndex The index to copy the component to
+     */
+    void copyTo(int index, ComponentColumn target, int targetIndex);
+
+    /**
+     * Empties an index, releasing any references held for it.
+     *
+     * @param index The index to clear
+     */
+    void clear(int index);
+
+    /**
+     * Creates the columns for a component type.
+     */
+    @FunctionalInterface
+    interface Factory {
+        /**
+         * @param capacity The number of components the column should hold
+         * @return A new, empty column
+         */
+        ComponentColumn create(int capacity);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+/**
+ * How an {@link ArchetypeEntityStore} holds components in memory.
+ */
+public enum ComponentStorage {
+    /**
+     * Each component is held as an object.
+     */
+    OBJECTS,
+    /**
+     * Components whose properties are all primitives or immutable values are held in struct-of-arrays form, with an array per property. This avoids an object per
+     * component, at the cost of creating a component each time one is read. Other components are held as objects.
+     */
+    ARRAYS,
+    /**
+     * The primitive properties of components are held in direct buffers outside of the java heap, with other properties held in side arrays. This keeps large
+     * populations of simple components out of the heap and away from the garbage collector, at the cost of creating a component each time one is read.
+     */
+    OFF_HEAP
+}
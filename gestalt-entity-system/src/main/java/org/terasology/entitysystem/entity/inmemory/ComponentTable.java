@@ -16,95 +16,121 @@
 package org.terasology.entitysystem.entity.inmemory;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import gnu.trove.TCollections;
-import gnu.trove.iterator.TIntIterator;
 import gnu.trove.iterator.TLongIterator;
 import gnu.trove.iterator.TLongObjectIterator;
-import gnu.trove.list.TIntList;
-import gnu.trove.list.array.TIntArrayList;
-import gnu.trove.map.TLongIntMap;
 import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongIntHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
-import gnu.trove.set.TIntSet;
-import gnu.trove.set.hash.TIntHashSet;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
 import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
 
 /**
  * A table for storing entities and components. Focused on allowing iteration across a components of a given type
+ * <p>
+ * Writes only take the lock of the entity being written, so writes to entities in different lock stripes run in parallel. Entity revisions are tracked lock-free.
+ * <p>
+ * Stored components are never modified once stored - updates replace the stored component with a new copy. This allows views to be handed out over stored components
+ * without copying them.
+ * <p>
+ * Snapshots are supported through multi-version storage - while a snapshot is open, each committed change records the component it replaces (see
+ * {@link VersionHistory}), so the snapshot can read the table as it was when opened while commits continue. Only changes made through
+ * {@link #beginCommit()} are isolated from snapshots.
  *
  * @author Immortius
  */
 public class ComponentTable implements EntityStore {
-    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
     private final Map<Class, TLongObjectMap<Component>> store = Maps.newConcurrentMap();
-    private final TLongIntMap revisions = TCollections.synchronizedMap(new TLongIntHashMap());
-    private final TLongIntMap numComponents = TCollections.synchronizedMap(new TLongIntHashMap());
+    private final EntityRecordTable records = new EntityRecordTable();
+    private final VersionHistory versionHistory = new VersionHistory();
 
-    private final int concurrencyLevel;
-    private final ReentrantLock[] locks;
-    private final ReentrantLock creationLock;
+    private final LockStore locks;
 
     private final ComponentManager componentManager;
-    private final AtomicLong idSource;
+    private final EntityIdAllocator idAllocator;
 
     public ComponentTable(ComponentManager componentManager, long nextEntityId) {
-        this(componentManager, nextEntityId, DEFAULT_CONCURRENCY_LEVEL);
+        this(componentManager, nextEntityId, LockStore.DEFAULT_CONCURRENCY_LEVEL);
     }
 
     public ComponentTable(ComponentManager componentManager, long nextEntityId, int concurrencyLevel) {
-        Preconditions.checkArgument(concurrencyLevel > 0, "Concurrency level must be > 0");
+        this(componentManager, new EntityIdAllocator(nextEntityId), concurrencyLevel);
+    }
+
+    /**
+     * @param componentManager The component manager
+     * @param idAllocator      The allocator of entity ids, such as one restored from a saved store
+     * @param concurrencyLevel The number of lock stripes for entities
+     */
+    public ComponentTable(ComponentManager componentManager, EntityIdAllocator idAllocator, int concurrencyLevel) {
         this.componentManager = componentManager;
-        this.concurrencyLevel = concurrencyLevel;
-        this.idSource = new AtomicLong(nextEntityId);
-        this.locks = new ReentrantLock[concurrencyLevel];
-        for (int i = 0; i < concurrencyLevel; i++) {
-            locks[i] = new ReentrantLock();
-        }
-        this.creationLock = new ReentrantLock();
+        this.idAllocator = idAllocator;
+        this.locks = new LockStore(concurrencyLevel);
     }
 
     @Override
     public long createEntityId() {
-        return idSource.getAndIncrement();
+        return idAllocator.allocate();
+    }
+
+    @Override
+    public long createEntityIds(int count) {
+        return idAllocator.allocateBlock(count);
     }
 
 
     @Override
     public long getNextEntityId() {
-        return idSource.get();
+        return idAllocator.getNextIndex();
+    }
+
+    @Override
+    public EntityIdAllocator getIdAllocator() {
+        return idAllocator;
     }
 
     @Override
     public int getEntityRevision(long entityId) {
-        return revisions.get(entityId);
+        return records.getRevision(entityId);
     }
 
     @Override
     public boolean exists(long entityId) {
-        return revisions.containsKey(entityId);
+        return records.exists(entityId);
     }
 
     @Override
     public ClosableLock lock(Set<Long> entityIds) {
-        return new CompositeLock(entityIds);
+        return locks.lock(entityIds);
     }
 
     @Override
     public ClosableLock lockEntityCreation() {
-        creationLock.lock();
-        return creationLock::unlock;
+        return locks.lockEntityCreation();
+    }
+
+    @Override
+    public ClosableLock beginCommit() {
+        return versionHistory.beginCommit();
+    }
+
+    @Override
+    public Optional<EntityStoreSnapshot> openSnapshot() {
+        return Optional.of(new Snapshot(versionHistory.openSnapshot()));
     }
 
     @Override
@@ -117,19 +143,27 @@ public <T extends Component> T get(long entityId, Class<T> componentClass) {
     }
 
     @Override
-    public synchronized <T extends Component> boolean add(long entityId, T component) {
-        ReentrantLock lock = locks[selectLock(entityId)];
+    public <T extends Component> T getView(long entityId, Class<T> componentClass) {
+        TLongObjectMap<Component> entityMap = store.get(componentClass);
+        if (entityMap != null) {
+            return componentManager.createView(componentClass.cast(entityMap.get(entityId)));
+        }
+        return null;
+    }
+
+    @Override
+    public <T extends Component> boolean add(long entityId, T component) {
+        ReentrantLock lock = locks.getLock(entityId);
         lock.lock();
         try {
-            TLongObjectMap<Component> entityMap = store.get(component.getType());
-            if (entityMap == null) {
-                entityMap = TCollections.synchronizedMap(new TLongObjectHashMap<>());
-                store.put(component.getType(), entityMap);
+            TLongObjectMap<Component> entityMap = store.computeIfAbsent(component.getType(), (type) -> TCollections.synchronizedMap(new TLongObjectHashMap<>()));
+            if (versionHistory.isRecording()) {
+                versionHistory.record(entityId, component.getType(), entityMap.get(entityId), records.getRevision(entityId));
             }
-            revisions.adjustOrPutValue(entityId, 1, 1);
+            records.incrementRevision(entityId);
             boolean added = entityMap.putIfAbsent(entityId, componentManager.copy(component)) == null;
             if (added) {
-                numComponents.adjustOrPutValue(entityId, 1, 1);
+                records.adjustComponentCount(entityId, 1);
             }
             return added;
         } finally {
@@ -138,18 +172,21 @@ public synchronized <T extends Component> boolean add(long entityId, T component
     }
 
     @Override
-    public synchronized <T extends Component> boolean update(long entityId, T component) {
-        ReentrantLock lock = locks[selectLock(entityId)];
+    public <T extends Component> boolean update(long entityId, T component) {
+        ReentrantLock lock = locks.getLock(entityId);
         lock.lock();
         try {
             TLongObjectMap<Component> entityMap = store.get(component.getType());
             if (entityMap == null) {
                 return false;
             }
-            Component existingComponent = entityMap.get(entityId);
-            if (existingComponent != null) {
-                componentManager.copy(component, existingComponent);
-                revisions.increment(entityId);
+            Component existing = entityMap.get(entityId);
+            if (existing != null) {
+                if (versionHistory.isRecording()) {
+                    versionHistory.record(entityId, component.getType(), existing, records.getRevision(entityId));
+                }
+                entityMap.put(entityId, componentManager.copy(component));
+                records.incrementRevision(entityId);
                 return true;
             }
             return false;
@@ -158,25 +195,58 @@ public synchronized <T extends Component> boolean update(long entityId, T compon
         }
     }
 
+    @Override
+    public void addBatch(long firstEntityId, List<? extends List<? extends Component>> columns) {
+        int size = columns.get(0).size();
+        if (versionHistory.isRecording()) {
+            for (int i = 0; i < size; ++i) {
+                for (List<? extends Component> column : columns) {
+                    versionHistory.record(firstEntityId + i, column.get(0).getType(), null, 0);
+                }
+            }
+        }
+        for (List<? extends Component> column : columns) {
+            Component[] copies = new Component[size];
+            for (int i = 0; i < size; ++i) {
+                copies[i] = componentManager.copy(column.get(i));
+            }
+            TLongObjectMap<Component> entityMap = store.computeIfAbsent(column.get(0).getType(), (type) -> TCollections.synchronizedMap(new TLongObjectHashMap<>()));
+            // Synchronized trove maps use themselves as their mutex, so this holds the map's lock once for the whole column
+            synchronized (entityMap) {
+                for (int i = 0; i < size; ++i) {
+                    entityMap.put(firstEntityId + i, copies[i]);
+                }
+            }
+        }
+        for (int i = 0; i < size; ++i) {
+            records.create(firstEntityId + i, columns.size());
+        }
+    }
+
     /**
      * @return removes the component with the specified class from the entity and returns it.
      * Returns null if no component could be removed.
      */
     @Override
     public <T extends Component> Component remove(long entityId, Class<T> componentClass) {
-        ReentrantLock lock = locks[selectLock(entityId)];
+        ReentrantLock lock = locks.getLock(entityId);
         lock.lock();
         try {
             TLongObjectMap<Component> entityMap = store.get(componentClass);
             if (entityMap != null) {
+                if (versionHistory.isRecording()) {
+                    Component existing = entityMap.get(entityId);
+                    if (existing != null) {
+                        versionHistory.record(entityId, componentClass, existing, records.getRevision(entityId));
+                    }
+                }
                 Component removed = entityMap.remove(entityId);
                 if (removed != null) {
-                    int remainingComps = numComponents.adjustOrPutValue(entityId, -1, 0);;
+                    int remainingComps = records.adjustComponentCount(entityId, -1);
                     if (remainingComps == 0) {
-                        numComponents.remove(entityId);
-                        revisions.remove(entityId);
+                        records.remove(entityId);
                     } else {
-                        revisions.increment(entityId);
+                        records.incrementRevision(entityId);
                     }
                 }
                 return removed;
@@ -190,9 +260,9 @@ public <T extends Component> Component remove(long entityId, Class<T> componentC
     @Override
     public void clear() {
         store.clear();
-        revisions.clear();
-        numComponents.clear();
-        idSource.set(1);
+        records.clear();
+        versionHistory.clear();
+        idAllocator.reset(1);
 
     }
 
@@ -218,6 +288,29 @@ public Collection<Component> getComponents(long entityId) {
         return components;
     }
 
+    @Override
+    public Collection<Component> getComponentViews(long entityId) {
+        List<Component> components = Lists.newArrayList();
+        for (TLongObjectMap<Component> componentMap : store.values()) {
+            Component comp = componentMap.get(entityId);
+            if (comp != null) {
+                components.add(componentManager.createView(comp));
+            }
+        }
+        return components;
+    }
+
+    @Override
+    public ComponentSignature getComponentSignature(long entityId) {
+        ComponentSignature.Builder builder = new ComponentSignature.Builder();
+        for (Map.Entry<Class, TLongObjectMap<Component>> entry : store.entrySet()) {
+            if (entry.getValue().containsKey(entityId)) {
+                builder.add(entry.getKey());
+            }
+        }
+        return builder.build();
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T extends Component> TLongObjectIterator<T> componentIterator(Class<T> componentClass) {
@@ -237,108 +330,234 @@ public <T extends Component> TLongObjectIterator<T> componentIterator(Class<T> c
      */
     @Override
     public TLongIterator entityIdIterator() {
-        return revisions.keySet().iterator();
+        return records.entityIdIterator();
+    }
+
+    /**
+     * Finds the entities with all of the given component types. The ids of the smallest component map are snapshot and used to drive the query, with each checked
+     * against the remaining component maps as it is reached. If the query is split for parallel traversal, the ids of the remaining component maps are snapshot
+     * too.
+     */
+    @Override
+    public Spliterator.OfLong query(Set<Class<? extends Component>> componentTypes) {
+        Preconditions.checkArgument(!componentTypes.isEmpty(), "At least one component type is required");
+        TLongObjectMap<Component> driver = null;
+        List<TLongObjectMap<Component>> filters = Lists.newArrayListWithCapacity(componentTypes.size() - 1);
+        for (Class<? extends Component> componentType : componentTypes) {
+            TLongObjectMap<Component> entityMap = store.get(componentType);
+            if (entityMap == null || entityMap.isEmpty()) {
+                return Spliterators.emptyLongSpliterator();
+            }
+            if (driver == null) {
+                driver = entityMap;
+            } else if (entityMap.size() < driver.size()) {
+                filters.add(driver);
+                driver = entityMap;
+            } else {
+                filters.add(entityMap);
+            }
+        }
+        long[] ids = driver.keys();
+        TLongSet[] filterIds = new TLongSet[filters.size()];
+        for (int i = 0; i < filterIds.length; ++i) {
+            filterIds[i] = filters.get(i).keySet();
+        }
+        return new QuerySpliterator(ids, 0, ids.length, filterIds, false);
     }
 
     @Override
     public int entityCount() {
-        return revisions.size();
+        return records.size();
     }
 
     @Override
     public boolean isAvailable(long entityId) {
-        return revisions.keySet().contains(entityId);
+        return records.exists(entityId);
     }
 
     @Override
     public EntityState getEntityState(long id) {
-        int entityRevision = getEntityRevision(id);
-        EntityState state = new EntityState(id, entityRevision, getComponents(id), getComponents(id));
-        return state;
+        return new EntityState(id, getEntityRevision(id), this, componentManager);
     }
 
-    private int selectLock(long id) {
-        int h = Long.hashCode(id);
-        h ^= (h >>> 20) ^ (h >>> 12);
-        return (h ^ (h >>> 7) ^ (h >>> 4)) % concurrencyLevel;
-    }
+    /**
+     * A snapshot of the table. Each read takes the stored value and then checks for changes recorded since the snapshot was opened - the stored value is only correct if
+     * there are none, otherwise the value replaced by the earliest change is used.
+     */
+    private final class Snapshot implements EntityStoreSnapshot {
+        private final long epoch;
+        private boolean closed;
 
-    private class EntityWithComponentsIterator implements TLongIterator {
-        private List<Class<? extends Component>> componentClasses;
-        private TLongIterator primeEntityIterator;
+        Snapshot(long epoch) {
+            this.epoch = epoch;
+        }
 
-        private boolean hasNext;
-        private long next;
+        @Override
+        public int getEntityRevision(long entityId) {
+            int revision = records.getRevision(entityId);
+            VersionHistory.Change change = versionHistory.getChangeAfter(entityId, epoch, null);
+            return (change != null) ? change.getOldRevision() : revision;
+        }
 
-        public EntityWithComponentsIterator(Set<Class<? extends Component>> componentTypes) {
-            componentClasses = ImmutableList.copyOf(componentTypes);
-            primeEntityIterator = store.get(componentClasses.get(0)).keySet().iterator();
-            findNext();
+        @Override
+        public boolean exists(long entityId) {
+            return getEntityRevision(entityId) != 0;
         }
 
-        private void findNext() {
-            hasNext = false;
-            while (!hasNext && primeEntityIterator.hasNext()) {
-                long entityId = primeEntityIterator.next();
-                boolean missingComponent = false;
-                for (int i = 1; i < componentClasses.size(); ++i) {
-                    if (!store.get(componentClasses.get(i)).containsKey(entityId)) {
-                        missingComponent = true;
-                        break;
-                    }
+        @Override
+        public <T extends Component> T getView(long entityId, Class<T> componentClass) {
+            TLongObjectMap<Component> entityMap = store.get(componentClass);
+            Component component = (entityMap != null) ? entityMap.get(entityId) : null;
+            VersionHistory.Change change = versionHistory.getChangeAfter(entityId, epoch, componentClass);
+            if (change != null) {
+                component = change.getOldComponent();
+            }
+            return (component != null) ? componentManager.createView(componentClass.cast(component)) : null;
+        }
+
+        @Override
+        public Collection<Component> getComponentViews(long entityId) {
+            Map<Class<? extends Component>, Component> components = Maps.newLinkedHashMap();
+            for (TLongObjectMap<Component> componentMap : store.values()) {
+                Component comp = componentMap.get(entityId);
+                if (comp != null) {
+                    components.put(comp.getType(), comp);
                 }
-                if (!missingComponent) {
-                    hasNext = true;
-                    next = entityId;
+            }
+            for (VersionHistory.Change change : versionHistory.getChangesAfter(entityId, epoch)) {
+                if (change.getOldComponent() != null) {
+                    components.put(change.getType(), change.getOldComponent());
+                } else {
+                    components.remove(change.getType());
                 }
             }
+            List<Component> views = Lists.newArrayListWithCapacity(components.size());
+            for (Component component : components.values()) {
+                views.add(componentManager.createView(component));
+            }
+            return views;
         }
 
         @Override
-        public long next() {
-            long result = next;
-            findNext();
-            return result;
+        public ComponentSignature getComponentSignature(long entityId) {
+            ComponentSignature signature = ComponentTable.this.getComponentSignature(entityId);
+            for (VersionHistory.Change change : versionHistory.getChangesAfter(entityId, epoch)) {
+                if (change.getOldComponent() != null) {
+                    signature = signature.with(change.getType());
+                } else {
+                    signature = signature.without(change.getType());
+                }
+            }
+            return signature;
         }
 
+        /**
+         * Entities that existed when the snapshot was opened either still have a record, or have been deleted since and so have recorded changes.
+         */
         @Override
-        public boolean hasNext() {
-            return hasNext;
+        public TLongIterator entityIdIterator() {
+            TLongSet ids = new TLongHashSet(records.size());
+            TLongIterator iterator = records.entityIdIterator();
+            while (iterator.hasNext()) {
+                long entityId = iterator.next();
+                if (exists(entityId)) {
+                    ids.add(entityId);
+                }
+            }
+            for (long entityId : versionHistory.getChangedEntityIds()) {
+                if (!ids.contains(entityId) && exists(entityId)) {
+                    ids.add(entityId);
+                }
+            }
+            return ids.iterator();
         }
 
         @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        public void close() {
+            if (!closed) {
+                closed = true;
+                versionHistory.closeSnapshot(epoch);
+            }
         }
     }
 
     /**
-     * A lock across multiple entity locks. Locking is sorted to prevent dead lock.
+     * Spliterator over a snapshot of the ids in the smallest of the component maps being queried, filtered by the presence of the other components. The component
+     * maps are synchronized, so rather than have parallel traversals contend for their locks, the ids of the other component maps are also snapshot the first
+     * time the spliterator is split. Sequential traversals check the component maps directly, as the snapshot would cost more than it saves.
      */
-    private class CompositeLock implements ClosableLock {
+    private static final class QuerySpliterator implements Spliterator.OfLong {
+        private final long[] ids;
+        private TLongSet[] filters;
+        private boolean filtersSnapshot;
+        private final int fence;
+        private int index;
+
+        QuerySpliterator(long[] ids, int index, int fence, TLongSet[] filters, boolean filtersSnapshot) {
+            this.ids = ids;
+            this.index = index;
+            this.fence = fence;
+            this.filters = filters;
+            this.filtersSnapshot = filtersSnapshot;
+        }
 
-        private TIntList lockList;
+        private boolean matches(long entityId) {
+            for (TLongSet filter : filters) {
+                if (!filter.contains(entityId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
 
-        public CompositeLock(Set<Long> entityIds) {
-            TIntSet lockIds = new TIntHashSet(entityIds.size());
-            for (long id : entityIds) {
-                lockIds.add(selectLock(id));
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            while (index < fence) {
+                long entityId = ids[index++];
+                if (matches(entityId)) {
+                    action.accept(entityId);
+                    return true;
+                }
             }
+            return false;
+        }
 
-            lockList = new TIntArrayList(lockIds);
-            lockList.sort();
-            TIntIterator lockIterator = lockList.iterator();
-            while (lockIterator.hasNext()) {
-                locks[lockIterator.next()].lock();
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            for (; index < fence; ++index) {
+                if (matches(ids[index])) {
+                    action.accept(ids[index]);
+                }
             }
         }
 
         @Override
-        public void close() {
-            TIntIterator lockIterator = lockList.iterator();
-            while (lockIterator.hasNext()) {
-                locks[lockIterator.next()].unlock();
+        public Spliterator.OfLong trySplit() {
+            int mid = (index + fence) >>> 1;
+            if (mid <= index) {
+                return null;
+            }
+            if (!filtersSnapshot) {
+                TLongSet[] snapshot = new TLongSet[filters.length];
+                for (int i = 0; i < filters.length; ++i) {
+                    snapshot[i] = new TLongHashSet(filters[i].toArray());
+                }
+                filters = snapshot;
+                filtersSnapshot = true;
             }
+            QuerySpliterator prefix = new QuerySpliterator(ids, index, mid, filters, true);
+            index = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fence - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return DISTINCT | NONNULL;
         }
     }
 }
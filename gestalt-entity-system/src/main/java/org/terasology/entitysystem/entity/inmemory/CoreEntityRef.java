@@ -16,6 +16,8 @@
 
 package org.terasology.entitysystem.entity.inmemory;
 
+import com.google.common.collect.ImmutableList;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
@@ -71,7 +73,12 @@ public <T extends Component> Optional<T> getComponent(Class<T> componentType) {
 
     @Override
     public Set<Class<? extends Component>> getComponentTypes() {
-        return referenceAdaptor.getEntityComposition(id).keySet();
+        return referenceAdaptor.getEntitySignature(id).toSet();
+    }
+
+    @Override
+    public ComponentSignature getComponentSignature() {
+        return referenceAdaptor.getEntitySignature(id);
     }
 
     @Override
@@ -91,7 +98,7 @@ public <T extends Component> void removeComponent(Class<T> componentType) {
 
     @Override
     public void delete() {
-        getComponentTypes().forEach(this::removeComponent);
+        ImmutableList.copyOf(getComponentTypes()).forEach(this::removeComponent);
     }
 
     @Override
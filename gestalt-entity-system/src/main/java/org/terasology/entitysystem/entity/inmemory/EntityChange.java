@@ -0,0 +1,233 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.component.ComponentTypeIds;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.util.collection.TypeKeyedMap;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A compact record of the changes a committed transaction made to a single entity - the types of component added, removed and updated. The components before and
+ * after the change can be obtained from the record, loading components that were not involved in the transaction from the entity store as needed.
+ * <p>
+ * Records are only valid while the transaction is being committed, see {@link EntityChanges}.
+ */
+public abstract class EntityChange {
+
+    private final long id;
+    private final ComponentSignature added;
+    private final ComponentSignature removed;
+    private final ComponentSignature updated;
+    private final ComponentSignature changed;
+
+    EntityChange(long id, ComponentSignature added, ComponentSignature removed, ComponentSignature updated) {
+        this.id = id;
+        this.added = added;
+        this.removed = removed;
+        this.updated = updated;
+        this.changed = added.union(removed).union(updated);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return The types of component added to the entity. For a new entity, these are all its components.
+     */
+    public ComponentSignature getAdded() {
+        return added;
+    }
+
+    /**
+     * @return The types of component removed from the entity. For a deleted entity, these are all the components it had.
+     */
+    public ComponentSignature getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return The types of component that the entity had both before and after the change, and that were changed
+     */
+    public ComponentSignature getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return The types of component that were added, removed or updated
+     */
+    public ComponentSignature getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return The types of component that were added, removed or updated
+     */
+    public Set<Class<? extends Component>> getChangedTypes() {
+        return changed.toSet();
+    }
+
+    /**
+     * @return The component of the given type the entity has after the change, or null if it has none
+     */
+    public abstract <T extends Component> T getComponent(Class<T> type);
+
+    /**
+     * @return The component of the given type the entity had before the change, or null if it had none
+     */
+    public abstract <T extends Component> T getOriginalComponent(Class<T> type);
+
+    /**
+     * @return All the components the entity has after the change. This loads all components of the entity, so is best avoided.
+     */
+    public abstract TypeKeyedMap<Component> getComponents();
+
+    /**
+     * @return Whether the entity has every type of component in the signature after the change
+     */
+    public boolean hasComponents(ComponentSignature signature) {
+        for (int typeId = signature.nextId(0); typeId >= 0; typeId = signature.nextId(typeId + 1)) {
+            if (!added.contains(typeId) && (removed.contains(typeId) || getComponent(ComponentTypeIds.typeOf(typeId)) == null)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static EntityChange of(EntityState state) {
+        ComponentSignature.Builder added = new ComponentSignature.Builder();
+        ComponentSignature.Builder removed = new ComponentSignature.Builder();
+        ComponentSignature.Builder updated = new ComponentSignature.Builder();
+        boolean changed = false;
+        for (Class<? extends Component> type : state.getInvolvedComponents()) {
+            switch (state.getUpdateAction(type)) {
+                case ADD:
+                    added.add(type);
+                    changed = true;
+                    break;
+                case REMOVE:
+                    removed.add(type);
+                    changed = true;
+                    break;
+                case UPDATE:
+                    updated.add(type);
+                    changed = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return changed ? new StateChange(state, added.build(), removed.build(), updated.build()) : null;
+    }
+
+    static EntityChange of(NewEntityState state, ComponentSignature added) {
+        return new NewEntityChange(state.getId(), state.getComponents(), added);
+    }
+
+    static EntityChange of(NewEntityBatch batch, int index, ComponentSignature added) {
+        return new BatchEntityChange(batch, index, added);
+    }
+
+    private static final class StateChange extends EntityChange {
+        private final EntityState state;
+
+        StateChange(EntityState state, ComponentSignature added, ComponentSignature removed, ComponentSignature updated) {
+            super(state.getId(), added, removed, updated);
+            this.state = state;
+        }
+
+        @Override
+        public <T extends Component> T getComponent(Class<T> type) {
+            return state.getComponent(type).orElse(null);
+        }
+
+        @Override
+        public <T extends Component> T getOriginalComponent(Class<T> type) {
+            return state.getOriginalComponent(type).orElse(null);
+        }
+
+        @Override
+        public TypeKeyedMap<Component> getComponents() {
+            return state.getComponents();
+        }
+    }
+
+    private static final class NewEntityChange extends EntityChange {
+        private final TypeKeyedMap<Component> components;
+
+        NewEntityChange(long id, TypeKeyedMap<Component> components, ComponentSignature added) {
+            super(id, added, ComponentSignature.EMPTY, ComponentSignature.EMPTY);
+            this.components = components;
+        }
+
+        @Override
+        public <T extends Component> T getComponent(Class<T> type) {
+            return components.get(type);
+        }
+
+        @Override
+        public <T extends Component> T getOriginalComponent(Class<T> type) {
+            return null;
+        }
+
+        @Override
+        public TypeKeyedMap<Component> getComponents() {
+            return components;
+        }
+    }
+
+    private static final class BatchEntityChange extends EntityChange {
+        private final NewEntityBatch batch;
+        private final int index;
+
+        BatchEntityChange(NewEntityBatch batch, int index, ComponentSignature added) {
+            super(batch.getId(index), added, ComponentSignature.EMPTY, ComponentSignature.EMPTY);
+            this.batch = batch;
+            this.index = index;
+        }
+
+        @Override
+        public <T extends Component> T getComponent(Class<T> type) {
+            for (List<? extends Component> column : batch.getColumns()) {
+                Component component = column.get(index);
+                if (component.getType() == type) {
+                    return type.cast(component);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public <T extends Component> T getOriginalComponent(Class<T> type) {
+            return null;
+        }
+
+        @Override
+        public TypeKeyedMap<Component> getComponents() {
+            TypeKeyedMap<Component> components = new TypeKeyedMap<>();
+            for (List<? extends Component> column : batch.getColumns()) {
+                Component component = column.get(index);
+                components.getInner().put(component.getType(), component);
+            }
+            return components;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Lists;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The changes a transaction made to entities, as one {@link EntityChange} per changed entity. The changes are computed once per commit, the first time they are
+ * requested, and shared by everything that maintains state derived from entities - so each index only visits the changes to the types of component it depends on,
+ * rather than every entity involved in the transaction.
+ * <p>
+ * Changes are only available during the PROCESS_COMMIT stage, after the entity manager has committed the transaction's entities, while the entities are still
+ * locked.
+ */
+public final class EntityChanges {
+
+    private final List<EntityChange> changes = Lists.newArrayList();
+    // The changes to each type of component, indexed by component type id, with null for types that have no changes
+    private final List<List<EntityChange>> changesByComponent = Lists.newArrayList();
+    private ComponentSignature changedComponents = ComponentSignature.EMPTY;
+
+    private EntityChanges() {
+    }
+
+    /**
+     * Obtains the changes of a transaction, computing them if this is the first time they are requested.
+     *
+     * @param context The context of the transaction being committed
+     * @return The changes made by the transaction
+     */
+    public static EntityChanges of(TransactionContext context) {
+        EntityChanges result = context.getAttachmentIfPresent(EntityChanges.class);
+        if (result == null) {
+            result = new EntityChanges();
+            EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+            if (state != null) {
+                result.compute(state);
+            }
+            context.attach(EntityChanges.class, result);
+        }
+        return result;
+    }
+
+    private void compute(EntitySystemState state) {
+        for (NewEntityState newEntity : state.getNewEntities()) {
+            if (newEntity.getId() != 0) {
+                add(EntityChange.of(newEntity, ComponentSignature.of(newEntity.getComponents().keySet())));
+            }
+        }
+        for (NewEntityBatch batch : state.getNewEntityBatches()) {
+            if (batch.isCommitted()) {
+                ComponentSignature signature = ComponentSignature.of(batch.getComponentTypes());
+                for (int i = 0; i < batch.size(); ++i) {
+                    add(EntityChange.of(batch, i, signature));
+                }
+            }
+        }
+        for (EntityState entityState : state.getEntityStates()) {
+            EntityChange change = EntityChange.of(entityState);
+            if (change != null) {
+                add(change);
+            }
+        }
+    }
+
+    private void add(EntityChange change) {
+        changes.add(change);
+        ComponentSignature changed = change.getChanged();
+        changedComponents = changedComponents.union(changed);
+        for (int typeId = changed.nextId(0); typeId >= 0; typeId = changed.nextId(typeId + 1)) {
+            while (typeId >= changesByComponent.size()) {
+                changesByComponent.add(null);
+            }
+            List<EntityChange> componentChanges = changesByComponent.get(typeId);
+            if (componentChanges == null) {
+                componentChanges = Lists.newArrayList();
+                changesByComponent.set(typeId, componentChanges);
+            }
+            componentChanges.add(change);
+        }
+    }
+
+    /**
+     * @return All the changes made by the transaction
+     */
+    public List<EntityChange> getChanges() {
+        return Collections.unmodifiableList(changes);
+    }
+
+    /**
+     * @return The types of component changed on any entity
+     */
+    public ComponentSignature getChangedComponents() {
+        return changedComponents;
+    }
+
+    /**
+     * Visits each change that added, removed or updated any of the given types of component, once.
+     *
+     * @param components The types of component of interest
+     * @param action     The action to apply to each relevant change
+     */
+    public void forEachChange(ComponentSignature components, Consumer<EntityChange> action) {
+        if (!changedComponents.intersects(components)) {
+            return;
+        }
+        ComponentSignature.Builder visitedTypes = null;
+        ComponentSignature visited = ComponentSignature.EMPTY;
+        for (int typeId = components.nextId(0); typeId >= 0 && typeId < changesByComponent.size(); typeId = components.nextId(typeId + 1)) {
+            List<EntityChange> relevantChanges = changesByComponent.get(typeId);
+            if (relevantChanges != null) {
+                for (EntityChange change : relevantChanges) {
+                    if (visited.isEmpty() || !change.getChanged().intersects(visited)) {
+                        action.accept(change);
+                    }
+                }
+                if (visitedTypes == null) {
+                    visitedTypes = new ComponentSignature.Builder();
+                }
+                visited = visitedTypes.add(typeId).build();
+            }
+        }
+    }
+}
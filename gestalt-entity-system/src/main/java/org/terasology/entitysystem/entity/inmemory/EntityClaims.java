@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Exclusive, non-blocking claims on entities. A claim is made with a single compare-and-swap on the entity's claim slot, so claiming different entities never
+ * contends.
+ */
+public class EntityClaims {
+
+    private final ConcurrentMap<Long, Object> claims = Maps.newConcurrentMap();
+
+    /**
+     * Attempts to claim an entity.
+     *
+     * @param entityId The id of the entity to claim
+     * @param owner    The owner of the claim
+     * @return Whether the entity was claimed. Also true if the owner already held the claim.
+     */
+    public boolean tryClaim(long entityId, Object owner) {
+        Object existing = claims.putIfAbsent(entityId, owner);
+        return existing == null || existing == owner;
+    }
+
+    /**
+     * Releases a claim on an entity, if held by the given owner
+     *
+     * @param entityId The id of the entity to release
+     * @param owner    The owner of the claim
+     */
+    public void release(long entityId, Object owner) {
+        claims.remove(entityId, owner);
+    }
+
+    /**
+     * @param entityId The id of an entity
+     * @return Whether the entity is currently claimed
+     */
+    public boolean isClaimed(long entityId) {
+        return claims.containsKey(entityId);
+    }
+}
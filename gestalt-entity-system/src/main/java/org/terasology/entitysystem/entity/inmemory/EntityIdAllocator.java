@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.base.Preconditions;
+import gnu.trove.TLongCollection;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+/**
+ * Allocates entity ids, recycling the ids of deleted entities. An entity id is made up of a slot index in the low {@link #INDEX_BITS} bits, and a generation above
+ * that. A freshly allocated slot has generation 0, so its id is just the slot index. When an entity is deleted its id is freed, and the slot is later reused with the
+ * next generation - so an id held onto after its entity was deleted never matches a later entity, and can be recognised as retired. This keeps the range of slots in
+ * use compact, so stores can index arrays by slot.
+ * <p>
+ * Freed slots are reused most recently freed first. A slot whose generation is exhausted is not reused.
+ */
+public final class EntityIdAllocator {
+    public static final int INDEX_BITS = 40;
+    public static final int GENERATION_BITS = 23;
+
+    private static final long INDEX_MASK = (1L << INDEX_BITS) - 1;
+    private static final int MAX_GENERATION = (1 << GENERATION_BITS) - 1;
+
+    private final TLongList freeIds = new TLongArrayList();
+    private final TLongIntMap generations = new TLongIntHashMap();
+    private long nextIndex;
+
+    /**
+     * @param nextIndex The next unused slot index
+     */
+    public EntityIdAllocator(long nextIndex) {
+        this.nextIndex = nextIndex;
+    }
+
+    /**
+     * Restores an allocator, such as from a saved entity store.
+     *
+     * @param nextIndex The next unused slot index
+     * @param freeIds   The free ids, as given by {@link #getFreeIds()}
+     */
+    public EntityIdAllocator(long nextIndex, TLongCollection freeIds) {
+        this(nextIndex);
+        restore(nextIndex, freeIds);
+    }
+
+    /**
+     * @param entityId An entity id
+     * @return The slot index of the id
+     */
+    public static long index(long entityId) {
+        return entityId & INDEX_MASK;
+    }
+
+    /**
+     * @param entityId An entity id
+     * @return The generation of the id
+     */
+    public static int generation(long entityId) {
+        return (int) (entityId >>> INDEX_BITS);
+    }
+
+    /**
+     * @param index      The slot index
+     * @param generation The generation
+     * @return The entity id for the given slot and generation
+     */
+    public static long id(long index, int generation) {
+        return ((long) generation << INDEX_BITS) | index;
+    }
+
+    /**
+     * @return A new entity id, reusing a free slot if there is one
+     */
+    public synchronized long allocate() {
+        if (!freeIds.isEmpty()) {
+            return freeIds.removeAt(freeIds.size() - 1);
+        }
+        return nextIndex++;
+    }
+
+    /**
+     * Allocates a block of ids with consecutive slots. Free slots are not used, so the block is always taken from unused slots.
+     *
+     * @param count The number of ids to allocate
+     * @return The first id of the block
+     */
+    public synchronized long allocateBlock(int count) {
+        Preconditions.checkArgument(count >= 0, "Count must be >= 0");
+        long result = nextIndex;
+        nextIndex += count;
+        return result;
+    }
+
+    /**
+     * Frees the id of a deleted entity, so its slot can be reused with the next generation. From this point the id is retired. Freeing an id that is already retired
+     * has no effect.
+     *
+     * @param entityId The id of the deleted entity
+     */
+    public synchronized void free(long entityId) {
+        long index = index(entityId);
+        int generation = generation(entityId);
+        if (generation < generations.get(index) || generation == MAX_GENERATION) {
+            return;
+        }
+        generations.put(index, generation + 1);
+        freeIds.add(id(index, generation + 1));
+    }
+
+    /**
+     * Records that an id restored from storage is in use, so that earlier ids of its slot are known to be retired.
+     *
+     * @param entityId The id of an existing entity
+     */
+    public synchronized void markAllocated(long entityId) {
+        int generation = generation(entityId);
+        if (generation > 0) {
+            long index = index(entityId);
+            if (generation > generations.get(index)) {
+                generations.put(index, generation);
+            }
+        }
+    }
+
+    /**
+     * Restores the state of an allocator after it was created, such as when the state is only reached at the end of a saved entity store. Ids already allocated
+     * are kept, and the free ids are added after any ids already free.
+     *
+     * @param nextIndex The next unused slot index. The allocator's next index is only ever moved forward.
+     * @param freeIds   The free ids, as given by {@link #getFreeIds()}
+     */
+    public synchronized void restore(long nextIndex, TLongCollection freeIds) {
+        this.nextIndex = Math.max(this.nextIndex, nextIndex);
+        TLongIterator iterator = freeIds.iterator();
+        while (iterator.hasNext()) {
+            long id = iterator.next();
+            this.freeIds.add(id);
+            generations.put(index(id), generation(id));
+        }
+    }
+
+    /**
+     * @param entityId An entity id
+     * @return Whether the id belongs to an earlier generation of its slot, so will never be used again
+     */
+    public synchronized boolean isRetired(long entityId) {
+        return generation(entityId) < generations.get(index(entityId));
+    }
+
+    /**
+     * @return The next unused slot index. Ids for this slot and beyond have not been allocated.
+     */
+    public synchronized long getNextIndex() {
+        return nextIndex;
+    }
+
+    /**
+     * @return The ids waiting to be reused, in the order they were freed
+     */
+    public synchronized TLongList getFreeIds() {
+        return new TLongArrayList(freeIds);
+    }
+
+    /**
+     * Forgets all allocated and free ids.
+     *
+     * @param firstIndex The slot index to start allocating from
+     */
+    public synchronized void reset(long firstIndex) {
+        freeIds.clear();
+        generations.clear();
+        nextIndex = firstIndex;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Maps;
+import gnu.trove.iterator.TLongIterator;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Tracks the revision and component count of each entity without a global lock. Records are indexed by the slot of each entity id (see {@link EntityIdAllocator}),
+ * which are allocated compactly, so records are kept in pages of consecutive slots, with each page an atomic array. Each record also holds the generation of the
+ * entity occupying the slot, so an id from another generation is treated as not existing. Reads are lock-free. Writes to a given entity must be made while holding that entity's lock, so a record never has concurrent
+ * writers - only page creation is contended, and that is handled by the concurrent map of pages.
+ * <p>
+ * An entity with a revision of 0 does not exist.
+ */
+final class EntityRecordTable {
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final int REVISION = 0;
+    private static final int COMPONENT_COUNT = 1;
+    private static final int GENERATION = 2;
+    private static final int RECORD_SIZE = 3;
+
+    private final ConcurrentMap<Long, AtomicIntegerArray> pages = Maps.newConcurrentMap();
+    private final AtomicInteger entityCount = new AtomicInteger();
+
+    /**
+     * @param entityId The id of the entity
+     * @return The revision of the entity, or 0 if it does not exist
+     */
+    int getRevision(long entityId) {
+        AtomicIntegerArray page = pages.get(pageId(entityId));
+        if (page == null) {
+            return 0;
+        }
+        int revision = page.get(offset(entityId, REVISION));
+        return (page.get(offset(entityId, GENERATION)) == EntityIdAllocator.generation(entityId)) ? revision : 0;
+    }
+
+    boolean exists(long entityId) {
+        return getRevision(entityId) != 0;
+    }
+
+    int getComponentCount(long entityId) {
+        AtomicIntegerArray page = pages.get(pageId(entityId));
+        if (page == null || page.get(offset(entityId, GENERATION)) != EntityIdAllocator.generation(entityId)) {
+            return 0;
+        }
+        return page.get(offset(entityId, COMPONENT_COUNT));
+    }
+
+    /**
+     * Increments the revision of an entity, creating it if it does not exist. Requires the entity's lock.
+     *
+     * @param entityId The id of the entity
+     * @return The new revision
+     */
+    int incrementRevision(long entityId) {
+        AtomicIntegerArray page = getOrCreatePage(entityId);
+        if (page.get(offset(entityId, REVISION)) == 0) {
+            page.set(offset(entityId, GENERATION), EntityIdAllocator.generation(entityId));
+        }
+        int revision = page.incrementAndGet(offset(entityId, REVISION));
+        if (revision == 1) {
+            entityCount.incrementAndGet();
+        }
+        return revision;
+    }
+
+    /**
+     * Creates the record of a new entity, with a revision of 1. Requires the entity's lock, or that the id has only just been allocated.
+     *
+     * @param entityId       The id of the entity
+     * @param componentCount The number of components the entity has
+     */
+    void create(long entityId, int componentCount) {
+        AtomicIntegerArray page = getOrCreatePage(entityId);
+        page.set(offset(entityId, GENERATION), EntityIdAllocator.generation(entityId));
+        page.set(offset(entityId, COMPONENT_COUNT), componentCount);
+        if (page.getAndSet(offset(entityId, REVISION), 1) == 0) {
+            entityCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adjusts the component count of an entity. Requires the entity's lock.
+     *
+     * @param entityId The id of the entity
+     * @param delta    The amount to adjust the component count by
+     * @return The new component count
+     */
+    int adjustComponentCount(long entityId, int delta) {
+        return getOrCreatePage(entityId).addAndGet(offset(entityId, COMPONENT_COUNT), delta);
+    }
+
+    /**
+     * Removes the record of an entity. Requires the entity's lock.
+     *
+     * @param entityId The id of the entity
+     */
+    void remove(long entityId) {
+        AtomicIntegerArray page = pages.get(pageId(entityId));
+        if (page != null) {
+            page.set(offset(entityId, COMPONENT_COUNT), 0);
+            if (page.getAndSet(offset(entityId, REVISION), 0) != 0) {
+                entityCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Removes all records. Not safe to call concurrently with writes.
+     */
+    void clear() {
+        pages.clear();
+        entityCount.set(0);
+    }
+
+    int size() {
+        return entityCount.get();
+    }
+
+    /**
+     * @return A weakly consistent iterator over the ids of all existing entities
+     */
+    TLongIterator entityIdIterator() {
+        return new EntityIdIterator();
+    }
+
+    private AtomicIntegerArray getOrCreatePage(long entityId) {
+        long pageId = pageId(entityId);
+        AtomicIntegerArray page = pages.get(pageId);
+        if (page == null) {
+            page = pages.computeIfAbsent(pageId, (k) -> new AtomicIntegerArray(PAGE_SIZE * RECORD_SIZE));
+        }
+        return page;
+    }
+
+    private static long pageId(long entityId) {
+        return EntityIdAllocator.index(entityId) >>> PAGE_SHIFT;
+    }
+
+    private static int offset(long entityId, int field) {
+        return ((int) (entityId & PAGE_MASK)) * RECORD_SIZE + field;
+    }
+
+    private class EntityIdIterator implements TLongIterator {
+        private final Iterator<Map.Entry<Long, AtomicIntegerArray>> pageIterator = pages.entrySet().iterator();
+        private long pageBase;
+        private AtomicIntegerArray page;
+        private int index = PAGE_SIZE;
+        private boolean hasNext;
+        private long next;
+
+        EntityIdIterator() {
+            findNext();
+        }
+
+        private void findNext() {
+            hasNext = false;
+            while (!hasNext) {
+                while (index < PAGE_SIZE && page.get(index * RECORD_SIZE + REVISION) == 0) {
+                    index++;
+                }
+                if (index < PAGE_SIZE) {
+                    hasNext = true;
+                    next = EntityIdAllocator.id(pageBase + index, page.get(index * RECORD_SIZE + GENERATION));
+                    index++;
+                } else if (pageIterator.hasNext()) {
+                    Map.Entry<Long, AtomicIntegerArray> entry = pageIterator.next();
+                    pageBase = entry.getKey() << PAGE_SHIFT;
+                    page = entry.getValue();
+                    index = 0;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public long next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            long result = next;
+            findNext();
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -17,22 +17,25 @@
 package org.terasology.entitysystem.entity.inmemory;
 
 import com.google.common.collect.Sets;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.component.ComponentView;
 import org.terasology.entitysystem.core.Component;
-import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.transaction.pipeline.UpdateAction;
 import org.terasology.util.collection.TypeKeyedMap;
 
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Information on the state of an entity as part of a transaction.
- * <p>When an entity is brought into a transaction, the current revision of the entity is noted and a copy is made of all its components. When the transaction
- * is committed, the </p>
+ * <p>When an entity is brought into a transaction, the current revision of the entity is noted. Components are then loaded from the entity store as each type of
+ * component is first accessed - the original is a view of the stored component, and the working component is a copy-on-write view over the original, so no copy is
+ * made unless the component is changed. When the transaction is committed the revision is checked, so a component loaded after the entity has been changed by
+ * another transaction causes the commit to fail.</p>
  */
 public class EntityState {
 
@@ -42,6 +45,15 @@ public class EntityState {
     private TypeKeyedMap<Component> originalComponents;
     private TypeKeyedMap<Component> workingComponents;
 
+    private final EntityStore entityStore;
+    private final ComponentManager componentManager;
+    private final Set<Class<? extends Component>> loadedComponents;
+    private boolean fullyLoaded;
+    private ComponentSignature componentSignature;
+
+    /**
+     * Creates an entity state with all components already loaded.
+     */
     public EntityState(long id, int revision, Collection<Component> originalComponents, Collection<Component> workingComponents) {
         this.id = id;
         this.revision = revision;
@@ -49,6 +61,30 @@ public EntityState(long id, int revision, Collection<Component> originalComponen
         this.workingComponents = new TypeKeyedMap<>(workingComponents.stream().collect(Collectors.toMap(Component::getType, (x) -> x)));
         this.involvedComponents = Sets.newLinkedHashSetWithExpectedSize(originalComponents.size());
         this.involvedComponents.addAll(this.originalComponents.keySet());
+        this.entityStore = null;
+        this.componentManager = null;
+        this.loadedComponents = Collections.emptySet();
+        this.fullyLoaded = true;
+    }
+
+    /**
+     * Creates an entity state that loads components from the entity store as they are accessed.
+     *
+     * @param id               The id of the entity
+     * @param revision         The revision of the entity when it entered the transaction
+     * @param entityStore      The entity store to load components from
+     * @param componentManager The component manager, used to create working views of components
+     */
+    public EntityState(long id, int revision, EntityStore entityStore, ComponentManager componentManager) {
+        this.id = id;
+        this.revision = revision;
+        this.originalComponents = new TypeKeyedMap<>();
+        this.workingComponents = new TypeKeyedMap<>();
+        this.involvedComponents = Sets.newLinkedHashSet();
+        this.entityStore = entityStore;
+        this.componentManager = componentManager;
+        this.loadedComponents = Sets.newHashSet();
+        this.fullyLoaded = revision == 0;
     }
 
     public long getId() {
@@ -60,32 +96,55 @@ public int getRevision() {
     }
 
     public <T extends Component> Optional<T> getOriginalComponent(Class<T> type) {
+        load(type);
         return Optional.ofNullable(originalComponents.get(type));
     }
 
     public <T extends Component> Optional<T> getComponent(Class<T> type) {
+        load(type);
         return Optional.ofNullable(workingComponents.get(type));
     }
 
     public TypeKeyedMap<Component> getComponents() {
+        loadAll();
         return new TypeKeyedMap<>(Collections.unmodifiableMap(workingComponents.getInner()));
     }
 
+    /**
+     * @return The types of component the entity has. Components that have not been accessed are not loaded to determine this, so are not involved in the
+     * transaction.
+     */
+    public ComponentSignature getComponentSignature() {
+        if (componentSignature == null) {
+            componentSignature = determineComponentSignature();
+        }
+        return componentSignature;
+    }
+
+    /**
+     * @return The types of component that have been accessed or changed during the transaction. Components that have not been accessed cannot have changed.
+     */
     public Set<Class<? extends Component>> getInvolvedComponents() {
         return Collections.unmodifiableSet(involvedComponents);
     }
 
     public void addComponent(Component component) {
+        load(component.getType());
         workingComponents.getInner().put(component.getType(), component);
         involvedComponents.add(component.getType());
+        componentSignature = null;
     }
 
     public <T extends Component> T removeComponent(Class<T> type) {
+        load(type);
+        componentSignature = null;
         return workingComponents.remove(type);
     }
 
     public void delete() {
+        loadAll();
         workingComponents.clear();
+        componentSignature = null;
     }
 
     public UpdateAction getUpdateAction(Class<? extends Component> type) {
@@ -99,7 +158,7 @@ public UpdateAction getUpdateAction(Class<? extends Component> type) {
             }
         } else if (working == null) {
             return UpdateAction.REMOVE;
-        } else if (Objects.equals(original, working)) {
+        } else if (working instanceof ComponentView && !((ComponentView) working).isCopied() || working.equals(original)) {
             return UpdateAction.NONE;
         } else {
             return UpdateAction.UPDATE;
@@ -109,4 +168,50 @@ public UpdateAction getUpdateAction(Class<? extends Component> type) {
     public void setRevision(int revision) {
         this.revision = revision;
     }
+
+    private void load(Class<? extends Component> type) {
+        if (fullyLoaded || !loadedComponents.add(type)) {
+            return;
+        }
+        Component original = entityStore.getView(id, type);
+        if (original != null) {
+            addLoadedComponent(original);
+        }
+    }
+
+    /**
+     * The stored types of component are adjusted by those loaded, as they may have been added or removed since.
+     */
+    private ComponentSignature determineComponentSignature() {
+        if (fullyLoaded) {
+            return ComponentSignature.of(workingComponents.keySet());
+        }
+        ComponentSignature signature = entityStore.getComponentSignature(id);
+        for (Class<? extends Component> type : loadedComponents) {
+            signature = workingComponents.containsKey(type) ? signature.with(type) : signature.without(type);
+        }
+        return signature;
+    }
+
+    private void loadAll() {
+        if (fullyLoaded) {
+            return;
+        }
+        for (Component original : entityStore.getComponentViews(id)) {
+            if (loadedComponents.add(original.getType())) {
+                addLoadedComponent(original);
+            }
+        }
+        fullyLoaded = true;
+    }
+
+    /**
+     * The working component is a copy-on-write view over the original, so components that are only read are never copied. Views copy before a setter is called or
+     * a property with mutable values is read, so changes made through the working component never reach the stored component, and can be detected and rolled back.
+     */
+    private void addLoadedComponent(Component original) {
+        originalComponents.getInner().put(original.getType(), original);
+        workingComponents.getInner().put(original.getType(), componentManager.createView(original));
+        involvedComponents.add(original.getType());
+    }
 }
@@ -18,10 +18,14 @@
 
 import gnu.trove.iterator.TLongIterator;
 import gnu.trove.iterator.TLongObjectIterator;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.Set;
+import java.util.Spliterator;
 
 /**
  *
@@ -30,8 +34,21 @@ public interface EntityStore {
 
     long createEntityId();
 
+    /**
+     * Allocates a contiguous block of entity ids.
+     *
+     * @param count The number of ids to allocate
+     * @return The first id of the block
+     */
+    long createEntityIds(int count);
+
     long getNextEntityId();
 
+    /**
+     * @return The allocator of entity ids for this store. Ids of deleted entities should be freed through it once their deletion is committed, so they can be reused.
+     */
+    EntityIdAllocator getIdAllocator();
+
     int getEntityRevision(long entityId);
 
     boolean exists(long entityId);
@@ -40,12 +57,41 @@ public interface EntityStore {
 
     ClosableLock lockEntityCreation();
 
+    /**
+     * Begins applying the changes of a committed transaction. All of the transaction's changes should be made before the returned lock is closed, so they are applied
+     * atomically with respect to snapshots.
+     *
+     * @return A lock to close once the transaction's changes have been applied
+     */
+    ClosableLock beginCommit();
+
+    /**
+     * Opens a consistent snapshot of the store, if supported. The snapshot must be closed once no longer needed.
+     *
+     * @return A snapshot of the store, or empty if this store does not support snapshots
+     */
+    Optional<EntityStoreSnapshot> openSnapshot();
+
     <T extends Component> T get(long entityId, Class<T> componentClass);
 
+    /**
+     * @return A copy-on-write view of the component, or null if the entity does not have the component. No copy is made unless the view is modified.
+     */
+    <T extends Component> T getView(long entityId, Class<T> componentClass);
+
     <T extends Component> boolean add(long entityId, T component);
 
     <T extends Component> boolean update(long entityId, T component);
 
+    /**
+     * Adds a batch of new entities with consecutive ids, all with the same component types. This avoids the per-component locking of {@link #add(long, Component)}, as
+     * no other transaction can be referencing entities that are being created.
+     *
+     * @param firstEntityId The id of the first entity. The ids must have been allocated by {@link #createEntityIds(int)} and not yet used.
+     * @param columns       The components of the entities, one list per component type. Element i of each list is a component of entity firstEntityId + i.
+     */
+    void addBatch(long firstEntityId, List<? extends List<? extends Component>> columns);
+
     <T extends Component> Component remove(long entityId, Class<T> componentClass);
 
     void clear();
@@ -54,10 +100,29 @@ public interface EntityStore {
 
     Collection<Component> getComponents(long entityId);
 
+    /**
+     * @return Copy-on-write views of all the components of an entity
+     */
+    Collection<Component> getComponentViews(long entityId);
+
+    /**
+     * @return The types of component an entity has, determined without reading the components themselves
+     */
+    ComponentSignature getComponentSignature(long entityId);
+
     <T extends Component> TLongObjectIterator<T> componentIterator(Class<T> componentClass);
 
     TLongIterator entityIdIterator();
 
+    /**
+     * Finds the entities that have all of the given component types. The spliterator is weakly consistent - it may not reflect changes made after it was created -
+     * and can be split to process the entities in parallel.
+     *
+     * @param componentTypes The component types entities must have. Must not be empty.
+     * @return A spliterator over the ids of all entities with all of the given component types
+     */
+    Spliterator.OfLong query(Set<Class<? extends Component>> componentTypes);
+
     int entityCount();
 
     boolean isAvailable(long entityId);
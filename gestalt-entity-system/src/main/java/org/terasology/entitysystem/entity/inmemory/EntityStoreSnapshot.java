@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import gnu.trove.iterator.TLongIterator;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.core.Component;
+
+import java.util.Collection;
+
+/**
+ * A consistent view of an entity store as it was when the snapshot was opened. Changes committed after the snapshot was opened are not visible through it, and a
+ * transaction's changes are either all visible or none are. Reading from a snapshot never blocks commits.
+ * <p>
+ * A snapshot must be closed once it is no longer needed, as the store retains the values it replaces for as long as an open snapshot may need them.
+ */
+public interface EntityStoreSnapshot extends AutoCloseable {
+
+    /**
+     * @param entityId The id of the entity
+     * @return The revision of the entity when the snapshot was opened, or 0 if it did not exist
+     */
+    int getEntityRevision(long entityId);
+
+    boolean exists(long entityId);
+
+    /**
+     * @return A copy-on-write view of the component as it was when the snapshot was opened, or null if the entity did not have the component
+     */
+    <T extends Component> T getView(long entityId, Class<T> componentClass);
+
+    /**
+     * @return Copy-on-write views of all the components the entity had when the snapshot was opened
+     */
+    Collection<Component> getComponentViews(long entityId);
+
+    /**
+     * @return The types of component the entity had when the snapshot was opened
+     */
+    ComponentSignature getComponentSignature(long entityId);
+
+    /**
+     * @return An iterator over the ids of all the entities that existed when the snapshot was opened
+     */
+    TLongIterator entityIdIterator();
+
+    /**
+     * Closes the snapshot, allowing the values it needed to be discarded.
+     */
+    @Override
+    void close();
+}
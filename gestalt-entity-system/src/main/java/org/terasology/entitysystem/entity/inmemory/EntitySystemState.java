@@ -18,6 +18,8 @@
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import org.terasology.entitysystem.transaction.pipeline.MergeableAttachment;
+import org.terasology.entitysystem.transaction.pipeline.ReusableAttachment;
 
 import java.util.Collection;
 import java.util.Collections;
@@ -27,11 +29,14 @@
 import java.util.Set;
 
 /**
- *
+ * The state of the entity system within a transaction. This is reused by later transactions on the same thread, so is reset rather than recreated.
+ * <p>
+ * The states of two transactions can be merged if they involve no entities in common - even if both only read an entity, as each holds its own copy.
  */
-public class EntitySystemState {
+public class EntitySystemState implements ReusableAttachment, MergeableAttachment<EntitySystemState> {
     private Map<Long, EntityState> existingEntityState = Maps.newLinkedHashMap();
     private List<NewEntityState> newEntities = Lists.newArrayList();
+    private List<NewEntityBatch> newEntityBatches = Lists.newArrayList();
     private ClosableLock lock;
 
     public Collection<EntityState> getEntityStates() {
@@ -54,6 +59,10 @@ public List<NewEntityState> getNewEntities() {
         return newEntities;
     }
 
+    public List<NewEntityBatch> getNewEntityBatches() {
+        return newEntityBatches;
+    }
+
     public ClosableLock getLock() {
         return lock;
     }
@@ -61,4 +70,34 @@ public ClosableLock getLock() {
     public void setLock(ClosableLock lock) {
         this.lock = lock;
     }
+
+    @Override
+    public boolean conflictsWith(EntitySystemState other) {
+        if (lock != null || other.lock != null) {
+            return true;
+        }
+        Map<Long, EntityState> smaller = (existingEntityState.size() <= other.existingEntityState.size()) ? existingEntityState : other.existingEntityState;
+        Map<Long, EntityState> larger = (smaller == existingEntityState) ? other.existingEntityState : existingEntityState;
+        for (Long entityId : smaller.keySet()) {
+            if (larger.containsKey(entityId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void merge(EntitySystemState other) {
+        existingEntityState.putAll(other.existingEntityState);
+        newEntities.addAll(other.newEntities);
+        newEntityBatches.addAll(other.newEntityBatches);
+    }
+
+    @Override
+    public void reset() {
+        existingEntityState.clear();
+        newEntities.clear();
+        newEntityBatches.clear();
+        lock = null;
+    }
 }
@@ -20,16 +20,20 @@
 import com.google.common.collect.Maps;
 import gnu.trove.TLongCollection;
 import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.TLongList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.assets.ResourceUrn;
 import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.component.ComponentType;
 import org.terasology.entitysystem.component.PropertyAccessor;
 import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityBatch;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.core.NullEntityRef;
+import org.terasology.entitysystem.entity.inmemory.pipeline.ClaimEntitiesInterceptor;
 import org.terasology.entitysystem.entity.inmemory.pipeline.CommitEntityInterceptor;
 import org.terasology.entitysystem.entity.inmemory.pipeline.LockEntitiesInterceptor;
 import org.terasology.entitysystem.entity.inmemory.pipeline.UnlockEntitiesInterceptor;
@@ -42,13 +46,18 @@
 import org.terasology.entitysystem.transaction.TransactionManager;
 import org.terasology.entitysystem.transaction.exception.ComponentAlreadyExistsException;
 import org.terasology.entitysystem.transaction.exception.ComponentDoesNotExistException;
+import org.terasology.entitysystem.transaction.exception.ReadOnlyTransactionException;
 import org.terasology.entitysystem.transaction.pipeline.TransactionStage;
 import org.terasology.naming.Name;
 import org.terasology.util.collection.TypeKeyedMap;
 
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
 
 /**
  *
@@ -66,13 +75,56 @@ public InMemoryEntityManager(ComponentManager library, TransactionManager transa
     }
 
     public InMemoryEntityManager(ComponentManager library, TransactionManager transactionManager, long nextEntityId) {
+        this(library, transactionManager, new ComponentTable(library, nextEntityId));
+    }
+
+    /**
+     * @param library            The component manager
+     * @param transactionManager The transaction manager
+     * @param entityStore        The store to hold entities in, such as a {@link ComponentTable} or {@link ArchetypeEntityStore}
+     */
+    public InMemoryEntityManager(ComponentManager library, TransactionManager transactionManager, EntityStore entityStore) {
+        this(library, transactionManager, entityStore, CommitMode.LOCKING);
+    }
+
+    /**
+     * @param library            The component manager
+     * @param transactionManager The transaction manager
+     * @param entityStore        The store to hold entities in, such as a {@link ComponentTable} or {@link ArchetypeEntityStore}
+     * @param commitMode         How concurrent commits to the same entities are prevented
+     */
+    public InMemoryEntityManager(ComponentManager library, TransactionManager transactionManager, EntityStore entityStore, CommitMode commitMode) {
         Preconditions.checkNotNull(library);
         Preconditions.checkNotNull(transactionManager);
+        Preconditions.checkNotNull(entityStore);
+        Preconditions.checkNotNull(commitMode);
         this.componentManager = library;
-        this.entityStore = new ComponentTable(library, nextEntityId);
+        this.entityStore = entityStore;
         this.transactionManager = transactionManager;
-        transactionManager.getPipeline().registerInterceptor(TransactionStage.PRE_TRANSACTION, context -> context.attach(EntitySystemState.class, new EntitySystemState()));
-        transactionManager.getPipeline().registerInterceptor(TransactionStage.OBTAIN_LOCKS, new LockEntitiesInterceptor(entityStore));
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.PRE_TRANSACTION, context -> {
+            if (!context.isReadOnly()) {
+                context.getOrAttach(EntitySystemState.class, EntitySystemState::new);
+            } else {
+                Optional<EntityStoreSnapshot> snapshot = entityStore.openSnapshot();
+                if (snapshot.isPresent()) {
+                    context.attach(EntityStoreSnapshot.class, snapshot.get());
+                }
+            }
+        });
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.POST_TRANSACTION, context -> {
+            EntityStoreSnapshot snapshot = context.getAttachmentIfPresent(EntityStoreSnapshot.class);
+            if (snapshot != null) {
+                snapshot.close();
+            }
+        });
+        switch (commitMode) {
+            case OPTIMISTIC:
+                transactionManager.getPipeline().registerInterceptor(TransactionStage.OBTAIN_LOCKS, new ClaimEntitiesInterceptor(entityStore, new EntityClaims()));
+                break;
+            default:
+                transactionManager.getPipeline().registerInterceptor(TransactionStage.OBTAIN_LOCKS, new LockEntitiesInterceptor(entityStore));
+                break;
+        }
         transactionManager.getPipeline().registerInterceptor(TransactionStage.VERIFY_COMMIT, new VerifyCommitInterceptor(entityStore));
         transactionManager.getPipeline().registerInterceptor(TransactionStage.PROCESS_COMMIT, new CommitEntityInterceptor(entityStore, this, componentManager));
         transactionManager.getPipeline().registerInterceptor(TransactionStage.RELEASE_LOCKS, new UnlockEntitiesInterceptor());
@@ -81,12 +133,22 @@ public InMemoryEntityManager(ComponentManager library, TransactionManager transa
 
     @Override
     public EntityRef createEntity() {
+        checkWritable();
         EntitySystemState state = getState();
         NewEntityState newEntityState = new NewEntityState(componentManager);
         state.getNewEntities().add(newEntityState);
         return newEntityState.getProxyEntityRef();
     }
 
+    @Override
+    public EntityBatch createEntityBatch(List<? extends List<? extends Component>> columns) {
+        checkWritable();
+        EntitySystemState state = getState();
+        NewEntityBatch batch = new NewEntityBatch(this, columns);
+        state.getNewEntityBatches().add(batch);
+        return batch;
+    }
+
     @Override
     public EntityRef getEntity(long id) {
         return new CoreEntityRef(this, id);
@@ -104,42 +166,91 @@ public EntityRef createEntity(Prefab prefab) {
         return entities.get(prefab.getRootEntityUrn().getFragmentName());
     }
 
+    /**
+     * Within a read-only transaction over a store that supports snapshots, iterates over the entities that existed when the transaction began.
+     */
     @Override
     public Iterator<EntityRef> allEntities() {
+        if (transactionManager.isActive()) {
+            EntityStoreSnapshot snapshot = getSnapshot();
+            if (snapshot != null) {
+                return new EntityRefIterator(snapshot.entityIdIterator(), this);
+            }
+        }
         return new EntityRefIterator(entityStore.entityIdIterator(), this);
     }
 
+    @Override
+    public Spliterator.OfLong query(Set<Class<? extends Component>> componentTypes) {
+        return entityStore.query(componentTypes);
+    }
+
     @Override
     public long getNextId() {
         return entityStore.getNextEntityId();
     }
 
+    @Override
+    public TLongList getFreeIds() {
+        return entityStore.getIdAllocator().getFreeIds();
+    }
+
     @Override
     public boolean exists(long id) {
+        if (isReadOnly()) {
+            EntityStoreSnapshot snapshot = getSnapshot();
+            return (snapshot != null) ? snapshot.exists(id) : entityStore.exists(id);
+        }
         EntityState entityState = getEntityState(id);
         return entityState.getRevision() != 0;
     }
 
     @Override
     public int getRevision(long id) {
+        if (isReadOnly()) {
+            EntityStoreSnapshot snapshot = getSnapshot();
+            return (snapshot != null) ? snapshot.getEntityRevision(id) : entityStore.getEntityRevision(id);
+        }
         EntityState entityState = getEntityState(id);
         return entityState.getRevision();
     }
 
     @Override
     public <T extends Component> Optional<T> getComponent(long entityId, Class<T> componentType) {
+        if (isReadOnly()) {
+            EntityStoreSnapshot snapshot = getSnapshot();
+            return Optional.ofNullable((snapshot != null) ? snapshot.getView(entityId, componentType) : entityStore.getView(entityId, componentType));
+        }
         EntityState entityState = getEntityState(entityId);
         return entityState.getComponent(componentType);
     }
 
     @Override
     public TypeKeyedMap<Component> getEntityComposition(long entityId) {
+        if (isReadOnly()) {
+            EntityStoreSnapshot snapshot = getSnapshot();
+            Map<Class<? extends Component>, Component> components = Maps.newLinkedHashMap();
+            for (Component component : (snapshot != null) ? snapshot.getComponentViews(entityId) : entityStore.getComponentViews(entityId)) {
+                components.put(component.getType(), component);
+            }
+            return new TypeKeyedMap<>(Collections.unmodifiableMap(components));
+        }
         EntityState entityState = getEntityState(entityId);
         return entityState.getComponents();
     }
 
+    @Override
+    public ComponentSignature getEntitySignature(long entityId) {
+        if (isReadOnly()) {
+            EntityStoreSnapshot snapshot = getSnapshot();
+            return (snapshot != null) ? snapshot.getComponentSignature(entityId) : entityStore.getComponentSignature(entityId);
+        }
+        return getEntityState(entityId).getComponentSignature();
+    }
+
     @Override
     public <T extends Component> T addComponent(long entityId, Class<T> componentType) {
+        checkWritable();
         EntityState entityState = getEntityState(entityId);
         if (entityState.getComponent(componentType).isPresent()) {
             throw new ComponentAlreadyExistsException("Entity " + entityId + " already has a component of type " + componentType.getSimpleName());
@@ -151,6 +262,7 @@ public <T extends Component> T addComponent(long entityId, Class<T> componentTyp
 
     @Override
     public <T extends Component> void removeComponent(long entityId, Class<T> componentType) {
+        checkWritable();
         EntityState entityState = getEntityState(entityId);
         if (!entityState.getComponent(componentType).isPresent()) {
             throw new ComponentDoesNotExistException("Entity " + entityId + " does not have a component of type " + componentType.getSimpleName());
@@ -211,9 +323,31 @@ private Map<Name, EntityRef> createEntityStubs(Prefab prefab) {
         return result;
     }
 
+    private boolean isReadOnly() {
+        Preconditions.checkState(transactionManager.isActive(), "No active transaction");
+        return transactionManager.getContext().isReadOnly();
+    }
+
+    private void checkWritable() {
+        if (isReadOnly()) {
+            throw new ReadOnlyTransactionException("Entities cannot be created or changed in a read-only transaction");
+        }
+    }
+
+    /**
+     * @return The snapshot read-only transactions read from, or null if the entity store does not support snapshots
+     */
+    private EntityStoreSnapshot getSnapshot() {
+        return transactionManager.getContext().getAttachmentIfPresent(EntityStoreSnapshot.class);
+    }
+
     private EntitySystemState getState() {
         Preconditions.checkState(transactionManager.isActive(), "No active transaction");
-        return transactionManager.getContext().getAttachment(EntitySystemState.class).orElseThrow(IllegalStateException::new);
+        EntitySystemState state = transactionManager.getContext().getAttachmentIfPresent(EntitySystemState.class);
+        if (state == null) {
+            throw new IllegalStateException();
+        }
+        return state;
     }
 
     private EntityState getEntityState(long id) {
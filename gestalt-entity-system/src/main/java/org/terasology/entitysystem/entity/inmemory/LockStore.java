@@ -16,8 +16,117 @@
 
 package org.terasology.entitysystem.entity.inmemory;
 
+import com.google.common.base.Preconditions;
+import gnu.trove.iterator.TIntIterator;
+import gnu.trove.list.TIntList;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.TIntSet;
+import gnu.trove.set.hash.TIntHashSet;
+
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
- *
+ * A set of striped locks for entities, shared by entity stores. Each entity id maps to one of a fixed number of locks, plus there is a single lock for entity creation.
  */
 public class LockStore {
+    public static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static final ClosableLock NO_LOCK = () -> {
+    };
+
+    private final int concurrencyLevel;
+    private final ReentrantLock[] locks;
+    private final ReentrantLock creationLock = new ReentrantLock();
+
+    public LockStore() {
+        this(DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public LockStore(int concurrencyLevel) {
+        Preconditions.checkArgument(concurrencyLevel > 0, "Concurrency level must be > 0");
+        this.concurrencyLevel = concurrencyLevel;
+        this.locks = new ReentrantLock[concurrencyLevel];
+        for (int i = 0; i < concurrencyLevel; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @return The number of stripes
+     */
+    public int getConcurrencyLevel() {
+        return concurrencyLevel;
+    }
+
+    /**
+     * @param entityId The id of an entity
+     * @return The lock for the stripe the entity belongs to
+     */
+    public ReentrantLock getLock(long entityId) {
+        return locks[selectLock(entityId)];
+    }
+
+    /**
+     * Locks all of the given entities. Locking is sorted to prevent dead lock.
+     *
+     * @param entityIds The ids of the entities to lock
+     * @return A lock that releases all the locked stripes when closed
+     */
+    public ClosableLock lock(Set<Long> entityIds) {
+        if (entityIds.isEmpty()) {
+            return NO_LOCK;
+        }
+        return new CompositeLock(entityIds);
+    }
+
+    /**
+     * Obtains the entity creation lock
+     *
+     * @return A lock that releases the entity creation lock when closed
+     */
+    public ClosableLock lockEntityCreation() {
+        creationLock.lock();
+        return creationLock::unlock;
+    }
+
+    /**
+     * @param id The id of an entity
+     * @return The index of the stripe the entity belongs to
+     */
+    public int selectLock(long id) {
+        int h = Long.hashCode(id);
+        h ^= (h >>> 20) ^ (h >>> 12);
+        return ((h ^ (h >>> 7) ^ (h >>> 4)) & Integer.MAX_VALUE) % concurrencyLevel;
+    }
+
+    /**
+     * A lock across multiple entity locks. Locking is sorted to prevent dead lock.
+     */
+    private class CompositeLock implements ClosableLock {
+
+        private TIntList lockList;
+
+        public CompositeLock(Set<Long> entityIds) {
+            TIntSet lockIds = new TIntHashSet(entityIds.size());
+            for (long id : entityIds) {
+                lockIds.add(selectLock(id));
+            }
+
+            lockList = new TIntArrayList(lockIds);
+            lockList.sort();
+            TIntIterator lockIterator = lockList.iterator();
+            while (lockIterator.hasNext()) {
+                locks[lockIterator.next()].lock();
+            }
+        }
+
+        @Override
+        public void close() {
+            TIntIterator lockIterator = lockList.iterator();
+            while (lockIterator.hasNext()) {
+                locks[lockIterator.next()].unlock();
+            }
+        }
+    }
 }
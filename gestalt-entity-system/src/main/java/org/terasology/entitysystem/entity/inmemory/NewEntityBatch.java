@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityBatch;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A batch of entities being created by a transaction. The components are held as columns - one list per component type - until commit, when a block of ids is
+ * allocated for the batch and the columns are added to the entity store in bulk.
+ */
+public class NewEntityBatch implements EntityBatch {
+    private final EntityManager entityManager;
+    private final List<List<? extends Component>> columns;
+    private final Set<Class<? extends Component>> componentTypes;
+    private final int size;
+    private long firstId;
+
+    /**
+     * @param entityManager The entity manager the batch is being created in
+     * @param columns       The components of the entities, one list per component type. Element i of each list is a component of entity i.
+     * @throws IllegalArgumentException If there are no columns, the columns differ in size, or a column does not contain exactly one component type
+     */
+    public NewEntityBatch(EntityManager entityManager, List<? extends List<? extends Component>> columns) {
+        Preconditions.checkArgument(!columns.isEmpty(), "At least one column of components is required");
+        this.entityManager = entityManager;
+        this.columns = ImmutableList.copyOf(columns);
+        this.size = columns.get(0).size();
+        Preconditions.checkArgument(size > 0, "Batches must contain at least one entity");
+        ImmutableSet.Builder<Class<? extends Component>> typesBuilder = ImmutableSet.builder();
+        for (List<? extends Component> column : columns) {
+            Preconditions.checkArgument(column.size() == size, "All columns must have the same number of components");
+            Class<? extends Component> type = column.get(0).getType();
+            for (Component component : column) {
+                Preconditions.checkArgument(component.getType() == type, "Each column must contain a single component type");
+            }
+            typesBuilder.add(type);
+        }
+        this.componentTypes = typesBuilder.build();
+        Preconditions.checkArgument(componentTypes.size() == columns.size(), "Each column must have a different component type");
+    }
+
+    /**
+     * @return The components of the batch, one list per component type
+     */
+    public List<List<? extends Component>> getColumns() {
+        return columns;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Class<? extends Component>> getComponentTypes() {
+        return componentTypes;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return firstId != 0;
+    }
+
+    /**
+     * @return The id of the first entity in the batch, or 0 if ids have not been allocated
+     */
+    public long getFirstId() {
+        return firstId;
+    }
+
+    /**
+     * @param firstId The id of the first entity in the batch. The entities of the batch have consecutive ids.
+     */
+    public void setFirstId(long firstId) {
+        this.firstId = firstId;
+    }
+
+    @Override
+    public long getId(int index) {
+        Preconditions.checkState(isCommitted(), "Batch has not been committed");
+        Preconditions.checkElementIndex(index, size);
+        return firstId + index;
+    }
+
+    @Override
+    public EntityRef getEntity(int index) {
+        return entityManager.getEntity(getId(index));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.Component;
+
+/**
+ * A column that holds component objects.
+ */
+final class ObjectComponentColumn implements ComponentColumn {
+    private final Component[] components;
+    private final ComponentManager componentManager;
+
+    ObjectComponentColumn(int capacity, ComponentManager componentManager) {
+        this.components = new Component[capacity];
+        this.componentManager = componentManager;
+    }
+
+    @Override
+    public Component get(int index) {
+        return components[index];
+    }
+
+    @Override
+    public Component getCopy(int index) {
+        return componentManager.copy(components[index]);
+    }
+
+    @Override
+    public void set(int index, Component component) {
+        components[index] = component;
+    }
+
+    @Override
+    public void setCopy(int index, Component component) {
+        components[index] = componentManager.copy(component);
+    }
+
+    @Override
+    public void copyTo(int index, ComponentColumn target, int targetIndex) {
+        target.set(targetIndex, components[index]);
+    }
+
+    @Override
+    public void clear(int index) {
+        components[index] = null;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import org.terasology.entitysystem.component.ComponentBufferCodec;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.core.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A column that stores the primitive properties of components in a direct buffer, outside of the java heap, through a {@link ComponentBufferCodec}. Other properties
+ * are held in on-heap side arrays. No component objects are held - components are created when read. Only occupied indices may be read.
+ */
+final class OffHeapComponentColumn implements ComponentColumn {
+    private final ComponentBufferCodec<Component> codec;
+    private final ComponentManager componentManager;
+    private final boolean copySideValues;
+    private final int stride;
+    private final ByteBuffer buffer;
+    private final Object[] sideArrays;
+
+    /**
+     * @param capacity         The number of components the column should hold
+     * @param codec            The codec for the component type
+     * @param componentManager The component manager, used to copy components with mutable side values
+     * @param copySideValues   Whether side values may be mutable, so components must be copied when stored or read for modification
+     */
+    @SuppressWarnings("unchecked")
+    OffHeapComponentColumn(int capacity, ComponentBufferCodec<?> codec, ComponentManager componentManager, boolean copySideValues) {
+        this.codec = (ComponentBufferCodec<Component>) codec;
+        this.componentManager = componentManager;
+        this.copySideValues = copySideValues;
+        this.stride = codec.getSize();
+        this.buffer = ByteBuffer.allocateDirect(Math.max(1, capacity * stride)).order(ByteOrder.nativeOrder());
+        this.sideArrays = codec.createSideArrays(capacity);
+    }
+
+    @Override
+    public Component get(int index) {
+        return codec.read(buffer, index * stride, sideArrays, index);
+    }
+
+    @Override
+    public Component getCopy(int index) {
+        Component component = get(index);
+        return (copySideValues) ? componentManager.copy(component) : component;
+    }
+
+    @Override
+    public void set(int index, Component component) {
+        codec.write(component, buffer, index * stride, sideArrays, index);
+    }
+
+    @Override
+    public void setCopy(int index, Component component) {
+        set(index, (copySideValues) ? componentManager.copy(component) : component);
+    }
+
+    @Override
+    public void copyTo(int index, ComponentColumn target, int targetIndex) {
+        if (target instanceof OffHeapComponentColumn && ((OffHeapComponentColumn) target).codec == codec) {
+            OffHeapComponentColumn offHeapTarget = (OffHeapComponentColumn) target;
+            for (int i = 0; i < stride; ++i) {
+                offHeapTarget.buffer.put(targetIndex * stride + i, buffer.get(index * stride + i));
+            }
+            for (int i = 0; i < sideArrays.length; ++i) {
+                System.arraycopy(sideArrays[i], index, offHeapTarget.sideArrays[i], targetIndex, 1);
+            }
+        } else {
+            target.set(targetIndex, get(index));
+        }
+    }
+
+    @Override
+    public void clear(int index) {
+        for (Object array : sideArrays) {
+            ((Object[]) array)[index] = null;
+        }
+    }
+}
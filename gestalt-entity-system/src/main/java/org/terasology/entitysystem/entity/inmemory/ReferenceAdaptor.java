@@ -16,6 +16,7 @@
 
 package org.terasology.entitysystem.entity.inmemory;
 
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
@@ -76,6 +77,13 @@ interface ReferenceAdaptor {
      */
     TypeKeyedMap<Component> getEntityComposition(long entityId);
 
+    /**
+     * @param entityId The id of the entity
+     * @return The types of component the entity has. Unlike {@link #getEntityComposition(long)}, this does not bring the components into the transaction.
+     * @throws IllegalStateException If no transaction is active
+     */
+    ComponentSignature getEntitySignature(long entityId);
+
     /**
      * Adds a component to an entity, returning it.
      * <p>
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import org.terasology.entitysystem.core.Component;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the values replaced by commits while snapshots are open, so that each snapshot can read the entity store as it was when the snapshot was opened.
+ * <p>
+ * Time is divided into epochs. Each commit applies its changes within the epoch it began in. Opening a snapshot ends the current epoch and waits for every commit
+ * begun in it to finish, so the snapshot sees all changes from that epoch and earlier. While any snapshot is open, each change records the value it replaces,
+ * stamped with the epoch of its commit - a snapshot of epoch e reads a stored value unless there is a recorded change after epoch e, in which case the value
+ * replaced by the earliest such change is what was stored when the snapshot was opened. Stored components are never modified, so a replaced component can be
+ * recorded without copying it.
+ * <p>
+ * Commits never wait on snapshots - a snapshot waits only for the commits in progress when it is opened. Changes are recorded before they are applied to the
+ * store, and snapshots read the store before the recorded changes, so a snapshot read never misses a change made concurrently. Recorded changes are discarded once
+ * no open snapshot needs them.
+ */
+final class VersionHistory {
+
+    private final ConcurrentMap<Long, EntityHistory> history = Maps.newConcurrentMap();
+    // The number of commits in progress begun in even and odd epochs. Each is a single atomic counter, so a snapshot that reads 0 knows that no commit of its epoch
+    // is still applying changes
+    private final AtomicLongArray commitsInProgress = new AtomicLongArray(2);
+    private final ThreadLocal<CommitScope> commitScopes = ThreadLocal.withInitial(CommitScope::new);
+    private final TLongList openSnapshots = new TLongArrayList();
+    private volatile long epoch;
+    private volatile int snapshotCount;
+
+    /**
+     * Begins applying the changes of a commit on the current thread.
+     *
+     * @return A lock to close once all the changes of the commit are applied
+     */
+    ClosableLock beginCommit() {
+        CommitScope scope = commitScopes.get();
+        scope.begin();
+        return scope;
+    }
+
+    /**
+     * @return Whether changes should currently be recorded, as snapshots are open
+     */
+    boolean isRecording() {
+        return snapshotCount != 0;
+    }
+
+    /**
+     * Records a change about to be made to an entity by the commit in progress on the current thread. Changes made outside of a commit are not recorded.
+     *
+     * @param entityId      The id of the entity being changed
+     * @param type          The type of component being changed
+     * @param oldComponent  The stored component being replaced or removed, or null if the component is being added
+     * @param oldRevision   The revision of the entity before the change
+     */
+    void record(long entityId, Class<? extends Component> type, Component oldComponent, int oldRevision) {
+        CommitScope scope = commitScopes.get();
+        if (scope.depth == 0) {
+            return;
+        }
+        Change change = new Change(scope.epoch, type, oldComponent, oldRevision);
+        while (!history.computeIfAbsent(entityId, (k) -> new EntityHistory()).add(change)) {
+            // The history was discarded between being obtained and added to, so try again with a new one
+        }
+    }
+
+    /**
+     * Opens a snapshot at the end of the current epoch, waiting for the commits begun within it to finish. As each snapshot ends an epoch, each has a distinct epoch.
+     *
+     * @return The epoch of the snapshot
+     */
+    synchronized long openSnapshot() {
+        snapshotCount++;
+        long snapshotEpoch = epoch;
+        epoch = snapshotEpoch + 1;
+        int parity = (int) (snapshotEpoch & 1);
+        while (commitsInProgress.get(parity) != 0) {
+            Thread.yield();
+        }
+        openSnapshots.add(snapshotEpoch);
+        return snapshotEpoch;
+    }
+
+    /**
+     * Closes a snapshot, discarding any recorded changes no longer needed by the remaining snapshots.
+     *
+     * @param snapshotEpoch The epoch of the snapshot
+     */
+    synchronized void closeSnapshot(long snapshotEpoch) {
+        openSnapshots.remove(snapshotEpoch);
+        snapshotCount--;
+        if (history.isEmpty()) {
+            return;
+        }
+        if (openSnapshots.isEmpty()) {
+            discardAll();
+        } else {
+            // Snapshots are added in order of epoch, so the oldest is first
+            long oldestEpoch = openSnapshots.get(0);
+            for (Map.Entry<Long, EntityHistory> entry : history.entrySet()) {
+                if (entry.getValue().discardUpTo(oldestEpoch)) {
+                    history.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the earliest change to an entity after an epoch.
+     *
+     * @param entityId      The id of the entity
+     * @param snapshotEpoch The epoch of the snapshot
+     * @param type          The type of component to find a change to, or null for a change to any type
+     * @return The earliest change after the snapshot's epoch, or null if there is none
+     */
+    Change getChangeAfter(long entityId, long snapshotEpoch, Class<? extends Component> type) {
+        EntityHistory entityHistory = history.get(entityId);
+        return (entityHistory != null) ? entityHistory.getChangeAfter(snapshotEpoch, type) : null;
+    }
+
+    /**
+     * @param entityId      The id of the entity
+     * @param snapshotEpoch The epoch of the snapshot
+     * @return The earliest change to each type of component of the entity after the snapshot's epoch
+     */
+    List<Change> getChangesAfter(long entityId, long snapshotEpoch) {
+        EntityHistory entityHistory = history.get(entityId);
+        return (entityHistory != null) ? entityHistory.getChangesAfter(snapshotEpoch) : Collections.emptyList();
+    }
+
+    /**
+     * @return The ids of the entities with recorded changes
+     */
+    Set<Long> getChangedEntityIds() {
+        return history.keySet();
+    }
+
+    /**
+     * Discards all recorded changes.
+     */
+    synchronized void clear() {
+        discardAll();
+    }
+
+    private void discardAll() {
+        for (Map.Entry<Long, EntityHistory> entry : history.entrySet()) {
+            entry.getValue().discardUpTo(Long.MAX_VALUE);
+            history.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * A change made to a component of an entity.
+     */
+    static final class Change {
+        private final long epoch;
+        private final Class<? extends Component> type;
+        private final Component oldComponent;
+        private final int oldRevision;
+
+        Change(long epoch, Class<? extends Component> type, Component oldComponent, int oldRevision) {
+            this.epoch = epoch;
+            this.type = type;
+            this.oldComponent = oldComponent;
+            this.oldRevision = oldRevision;
+        }
+
+        Class<? extends Component> getType() {
+            return type;
+        }
+
+        /**
+         * @return The stored component before the change, or null if there was none
+         */
+        Component getOldComponent() {
+            return oldComponent;
+        }
+
+        /**
+         * @return The revision of the entity before the change
+         */
+        int getOldRevision() {
+            return oldRevision;
+        }
+    }
+
+    /**
+     * The changes recorded for a single entity, in the order they were made. Once discarded it no longer accepts changes, so a change is never added to a
+     * history that has been removed from the map.
+     */
+    private static final class EntityHistory {
+        private final List<Change> changes = Lists.newArrayListWithCapacity(2);
+        private boolean discarded;
+
+        synchronized boolean add(Change change) {
+            if (discarded) {
+                return false;
+            }
+            changes.add(change);
+            return true;
+        }
+
+        synchronized Change getChangeAfter(long snapshotEpoch, Class<? extends Component> type) {
+            for (Change change : changes) {
+                if (change.epoch > snapshotEpoch && (type == null || change.type == type)) {
+                    return change;
+                }
+            }
+            return null;
+        }
+
+        synchronized List<Change> getChangesAfter(long snapshotEpoch) {
+            List<Change> result = Lists.newArrayListWithCapacity(changes.size());
+            for (Change change : changes) {
+                if (change.epoch > snapshotEpoch && !containsType(result, change.type)) {
+                    result.add(change);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Discards the changes made up to and including an epoch.
+         *
+         * @return Whether no changes remain, in which case the history is discarded
+         */
+        synchronized boolean discardUpTo(long discardEpoch) {
+            changes.removeIf((change) -> change.epoch <= discardEpoch);
+            discarded = changes.isEmpty();
+            return discarded;
+        }
+
+        private static boolean containsType(List<Change> changes, Class<? extends Component> type) {
+            for (Change change : changes) {
+                if (change.type == type) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The commit in progress on a thread. Each thread reuses a single scope.
+     */
+    private final class CommitScope implements ClosableLock {
+        private long epoch;
+        private int parity;
+        private int depth;
+
+        void begin() {
+            if (depth++ > 0) {
+                return;
+            }
+            while (true) {
+                long currentEpoch = VersionHistory.this.epoch;
+                int currentParity = (int) (currentEpoch & 1);
+                commitsInProgress.incrementAndGet(currentParity);
+                if (VersionHistory.this.epoch == currentEpoch) {
+                    this.epoch = currentEpoch;
+                    this.parity = currentParity;
+                    return;
+                }
+                // A snapshot ended the epoch before the commit was counted, so count it in the new epoch instead
+                commitsInProgress.decrementAndGet(currentParity);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (--depth == 0) {
+                commitsInProgress.decrementAndGet(parity);
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory.pipeline;
+
+import org.terasology.entitysystem.entity.inmemory.ClosableLock;
+import org.terasology.entitysystem.entity.inmemory.EntityClaims;
+import org.terasology.entitysystem.entity.inmemory.EntityState;
+import org.terasology.entitysystem.entity.inmemory.EntityStore;
+import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
+import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
+import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+
+/**
+ * This transaction interceptor claims all the entities involved in a transaction, as an optimistic alternative to {@link LockEntitiesInterceptor}. Each entity is
+ * claimed with a compare-and-swap and its revision is validated while claimed, so a conflicting change is detected without waiting. If an entity is claimed by
+ * another committing transaction, the claim is retried a limited number of times before the commit fails.
+ * <p>
+ * The claims are released by {@link UnlockEntitiesInterceptor}.
+ */
+public class ClaimEntitiesInterceptor implements TransactionInterceptor {
+
+    private static final int DEFAULT_MAX_ATTEMPTS = 1000;
+
+    private final EntityStore entityStore;
+    private final EntityClaims claims;
+    private final int maxAttempts;
+
+    public ClaimEntitiesInterceptor(EntityStore entityStore, EntityClaims claims) {
+        this(entityStore, claims, DEFAULT_MAX_ATTEMPTS);
+    }
+
+    /**
+     * @param entityStore The entity store
+     * @param claims      The claims shared by all transactions
+     * @param maxAttempts The number of times to attempt to claim an entity claimed by another transaction before failing
+     */
+    public ClaimEntitiesInterceptor(EntityStore entityStore, EntityClaims claims, int maxAttempts) {
+        this.entityStore = entityStore;
+        this.claims = claims;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void handle(TransactionContext context) {
+        EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (state != null) {
+            long[] entityIds = new long[state.getInvolvedEntityIds().size()];
+            int count = 0;
+            for (long id : state.getInvolvedEntityIds()) {
+                entityIds[count++] = id;
+            }
+            // Claims are made in id order, so two transactions waiting on each other's claims cannot happen
+            Arrays.sort(entityIds);
+
+            ClaimSet claimSet = new ClaimSet(context, entityIds);
+            state.setLock(claimSet);
+            for (long id : entityIds) {
+                EntityState entityState = state.getStateFor(id).orElseThrow(IllegalStateException::new);
+                claim(id, entityState.getRevision(), context);
+                claimSet.claimed++;
+            }
+        }
+    }
+
+    private void claim(long entityId, int expectedRevision, Object owner) {
+        for (int attempt = 0; attempt < maxAttempts; ++attempt) {
+            if (entityStore.getEntityRevision(entityId) != expectedRevision) {
+                throw new ConcurrentModificationException("Entity " + entityId + " modified outside of transaction");
+            }
+            if (claims.tryClaim(entityId, owner)) {
+                if (entityStore.getEntityRevision(entityId) != expectedRevision) {
+                    claims.release(entityId, owner);
+                    throw new ConcurrentModificationException("Entity " + entityId + " modified outside of transaction");
+                }
+                return;
+            }
+            Thread.yield();
+        }
+        throw new ConcurrentModificationException("Entity " + entityId + " remained claimed by another transaction");
+    }
+
+    /**
+     * The claims held by a transaction, released when closed.
+     */
+    private class ClaimSet implements ClosableLock {
+        private final Object owner;
+        private final long[] entityIds;
+        private int claimed;
+
+        ClaimSet(Object owner, long[] entityIds) {
+            this.owner = owner;
+            this.entityIds = entityIds;
+        }
+
+        @Override
+        public void close() {
+            for (int i = 0; i < claimed; ++i) {
+                claims.release(entityIds[i], owner);
+            }
+        }
+    }
+}
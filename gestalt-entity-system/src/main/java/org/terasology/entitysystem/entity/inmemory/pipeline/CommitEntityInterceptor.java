@@ -28,10 +28,14 @@
 import org.terasology.entitysystem.entity.inmemory.EntityState;
 import org.terasology.entitysystem.entity.inmemory.EntityStore;
 import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
+import org.terasology.entitysystem.entity.inmemory.NewEntityBatch;
 import org.terasology.entitysystem.entity.inmemory.NewEntityState;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * This TransactionInterceptor handles the committing of entity changes into an entity store.
  */
@@ -54,18 +58,25 @@ public CommitEntityInterceptor(EntityStore entityStore, EntityManager entityMana
 
     @Override
     public void handle(TransactionContext context) {
-        context.getAttachment(EntitySystemState.class).ifPresent((state) -> {
-            createNewEntities(context);
-            applyEntityUpdates(context);
-        });
+        if (context.getAttachmentIfPresent(EntitySystemState.class) != null) {
+            try (ClosableLock ignored = entityStore.beginCommit()) {
+                createNewEntities(context);
+                applyEntityUpdates(context);
+            }
+        }
     }
 
     private EntitySystemState getState(TransactionContext context) {
-        return context.getAttachment(EntitySystemState.class).orElseThrow(IllegalStateException::new);
+        EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (state == null) {
+            throw new IllegalStateException();
+        }
+        return state;
     }
 
     /**
-     * Applies any changes to entities
+     * Applies any changes to entities. The ids of entities that no longer exist are freed for reuse - this is done once all of an entity's changes are applied, as its
+     * components may be replaced by others in the same transaction.
      * @param context
      */
     private void applyEntityUpdates(TransactionContext context) {
@@ -98,18 +109,36 @@ private void applyEntityUpdates(TransactionContext context) {
                         break;
                 }
             }
-            entityState.setRevision(entityStore.getEntityRevision(entityState.getId()));
+            int revision = entityStore.getEntityRevision(entityState.getId());
+            if (revision == 0 && entityState.getRevision() != 0) {
+                entityStore.getIdAllocator().free(entityState.getId());
+            }
+            entityState.setRevision(revision);
         }
     }
 
     /**
-     * Create and save new entities.
+     * Create and save new entities. Only id generation is done under the entity creation lock - adding the components takes entity locks, which other committing
+     * transactions may hold while waiting on the creation lock.
      * @param context
      */
     private void createNewEntities(TransactionContext context) {
+        EntitySystemState state = getState(context);
+        if (state.getNewEntities().isEmpty() && state.getNewEntityBatches().isEmpty()) {
+            return;
+        }
         try (ClosableLock ignored = entityStore.lockEntityCreation()) {
             generateNewEntityIds(context);
-            applyNewEntityComponents(context);
+            for (NewEntityBatch batch : state.getNewEntityBatches()) {
+                batch.setFirstId(entityStore.createEntityIds(batch.size()));
+            }
+        }
+        applyNewEntityComponents(context);
+        for (NewEntityBatch batch : state.getNewEntityBatches()) {
+            for (List<? extends Component> column : batch.getColumns()) {
+                cleanUpEntityRefs(column);
+            }
+            entityStore.addBatch(batch.getFirstId(), batch.getColumns());
         }
     }
 
@@ -135,6 +164,28 @@ private void generateNewEntityIds(TransactionContext context) {
         }
     }
 
+    /**
+     * Replace {@link ProxyEntityRef}s in a column of components with the actual EntityRef that is proxied. The properties to check are only looked up once for the
+     * column.
+     * @param column
+     */
+    @SuppressWarnings("unchecked")
+    private void cleanUpEntityRefs(List<? extends Component> column) {
+        ComponentType<?> type = componentManager.getType(column.get(0).getType());
+        Collection<? extends PropertyAccessor> properties = type.getPropertyInfo().getPropertiesOfType(EntityRef.class);
+        if (properties.isEmpty()) {
+            return;
+        }
+        for (Component component : column) {
+            for (PropertyAccessor property : properties) {
+                Object o = property.get(component);
+                if (o instanceof ProxyEntityRef) {
+                    property.set(component, ((ProxyEntityRef) o).getActualRef());
+                }
+            }
+        }
+    }
+
     /**
      * Replace {@link ProxyEntityRef}s in a component with the actual EntityRef that is proxied.
      * @param component
@@ -34,9 +34,10 @@ public LockEntitiesInterceptor(EntityStore entityStore) {
 
     @Override
     public void handle(TransactionContext context) {
-        context.getAttachment(EntitySystemState.class).ifPresent((state) -> {
+        EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (state != null) {
             state.setLock(entityStore.lock(state.getInvolvedEntityIds()));
-        });
+        }
     }
 
 }
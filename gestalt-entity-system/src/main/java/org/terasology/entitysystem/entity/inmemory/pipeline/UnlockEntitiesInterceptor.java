@@ -27,11 +27,12 @@ public class UnlockEntitiesInterceptor implements TransactionInterceptor {
 
     @Override
     public void handle(TransactionContext context) {
-        context.getAttachment(EntitySystemState.class).ifPresent((state) -> {
+        EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (state != null) {
             if (state.getLock() != null) {
                 state.getLock().close();
             }
-        });
+        }
     }
 
 }
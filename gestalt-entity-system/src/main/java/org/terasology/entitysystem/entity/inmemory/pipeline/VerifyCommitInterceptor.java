@@ -16,17 +16,19 @@
 
 package org.terasology.entitysystem.entity.inmemory.pipeline;
 
+import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.entity.inmemory.EntityState;
 import org.terasology.entitysystem.entity.inmemory.EntityStore;
 import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
+import org.terasology.entitysystem.transaction.pipeline.UpdateAction;
 
 import java.util.ConcurrentModificationException;
 
 /**
  * This TransactionIntercetor verifies the integrity of a commit. It checks that none of the entities involved in the transaction have been altered since the transaction
- * began.
+ * began, and that no entity is being created under an id that has been retired by the deletion of its entity.
  */
 public class VerifyCommitInterceptor implements TransactionInterceptor {
 
@@ -38,21 +40,34 @@ public VerifyCommitInterceptor(EntityStore entityStore) {
 
     @Override
     public void handle(TransactionContext context) {
-        context.getAttachment(EntitySystemState.class).ifPresent((state) -> {
+        if (context.getAttachmentIfPresent(EntitySystemState.class) != null) {
             checkRevisions(context);
-        });
+        }
     }
 
     private EntitySystemState getState(TransactionContext context) {
-        return context.getAttachment(EntitySystemState.class).orElseThrow(IllegalStateException::new);
+        EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (state == null) {
+            throw new IllegalStateException();
+        }
+        return state;
     }
 
     private void checkRevisions(TransactionContext context) {
         for (EntityState entityState : getState(context).getEntityStates()) {
-            if (entityState.getRevision() != entityStore.getEntityRevision(entityState.getId())) {
-                throw new ConcurrentModificationException("Entity " + entityState.getId() + " modified outside of transaction");
+            long id = entityState.getId();
+            if (entityState.getRevision() != entityStore.getEntityRevision(id) || (entityState.getRevision() == 0 && isRecreatingRetiredEntity(entityState))) {
+                throw new ConcurrentModificationException("Entity " + id + " modified outside of transaction");
             }
         }
     }
 
+    private boolean isRecreatingRetiredEntity(EntityState entityState) {
+        for (Class<? extends Component> componentType : entityState.getInvolvedComponents()) {
+            if (entityState.getUpdateAction(componentType) == UpdateAction.ADD) {
+                return entityStore.getIdAllocator().isRetired(entityState.getId());
+            }
+        }
+        return false;
+    }
 }
@@ -17,22 +17,29 @@
 package org.terasology.entitysystem.entity.inmemory.pipeline;
 
 import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
+import org.terasology.entitysystem.entity.inmemory.NewEntityBatch;
 import org.terasology.entitysystem.entity.inmemory.NewEntityState;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
 import org.terasology.entitysystem.core.NullEntityRef;
 
 /**
- * This TransactionInterceptor changes any proxy entity refs for new entities to point to {@link NullEntityRef} instead. This cleans up after a rollback.
+ * This TransactionInterceptor changes any proxy entity refs for new entities to point to {@link NullEntityRef} instead, and
+ * discards any ids allocated to new entity batches. This cleans up after a rollback.
  */
 public class WipeNewEntityInterceptor implements TransactionInterceptor {
     @Override
     public void handle(TransactionContext context) {
-        context.getAttachment(EntitySystemState.class).ifPresent((state) -> {
+        EntitySystemState state = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (state != null) {
             for (NewEntityState entityRef : state.getNewEntities()) {
                 entityRef.setActualEntity(NullEntityRef.get());
             }
             state.getNewEntities().clear();
-        });
+            for (NewEntityBatch batch : state.getNewEntityBatches()) {
+                batch.setFirstId(0);
+            }
+            state.getNewEntityBatches().clear();
+        }
     }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an event as coalescing - when an event of this type is sent against an entity that already has an event of the same type pending, the two are combined
+ * into a single pending event rather than both being queued. If the event is a {@link MergeableEvent} the pending event is merged with the new one, otherwise the
+ * new event replaces the pending event if both have the same triggering components.
+ * <p>
+ * Events are only combined if no other event has been queued against the entity since the pending event, so the order of events against each entity is
+ * preserved. This only affects event systems that queue events, such as {@link org.terasology.entitysystem.event.impl.DelayedEventSystem}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Inherited
+public @interface Coalesce {
+}
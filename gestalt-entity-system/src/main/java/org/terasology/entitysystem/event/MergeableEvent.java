@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event;
+
+/**
+ * An event that can be merged with a later event of the same type, to be delivered as a single event. Used to combine pending events marked with
+ * {@link Coalesce}.
+ *
+ * @param <T> The type of the event
+ */
+public interface MergeableEvent<T extends MergeableEvent<T>> extends Event {
+
+    /**
+     * @param later An event of the same type sent after this one
+     * @return A single event equivalent to receiving this event followed by the later event
+     */
+    T merge(T later);
+}
@@ -54,9 +54,10 @@ public final void send(Event event, EntityRef entity, Set<Class<? extends Compon
         if (event.getClass().isAnnotationPresent(Synchronous.class) || !transactionManager.isActive()) {
             processEvent(event, entity, triggeringComponents);
         } else {
-            transactionManager.getContext().getAttachment(EventState.class).ifPresent((state) -> {
+            EventState state = transactionManager.getContext().getAttachmentIfPresent(EventState.class);
+            if (state != null) {
                 state.getPendingEvents().add(new PendingEventInfo(event, entity, triggeringComponents));
-            });
+            }
         }
     }
 
@@ -32,10 +32,11 @@ public class CommitEvents implements TransactionInterceptor {
 
     @Override
     public void handle(TransactionContext context) {
-        context.getAttachment(EventState.class).ifPresent((x) -> {
+        EventState x = context.getAttachmentIfPresent(EventState.class);
+        if (x != null) {
             for (PendingEventInfo pendingEvent : x.getPendingEvents()) {
                 eventSystem.processEvent(pendingEvent.getEvent(), pendingEvent.getEntity(), pendingEvent.getTriggeringComponents());
             }
-        });
+        }
     }
 }
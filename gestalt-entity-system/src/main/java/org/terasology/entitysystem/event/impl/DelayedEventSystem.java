@@ -16,47 +16,298 @@
 
 package org.terasology.entitysystem.event.impl;
 
+import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Queues;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.event.Coalesce;
 import org.terasology.entitysystem.event.Event;
 import org.terasology.entitysystem.event.EventResult;
+import org.terasology.entitysystem.event.MergeableEvent;
 import org.terasology.entitysystem.event.Synchronous;
 import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.exception.RollbackException;
+import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 
 import javax.annotation.concurrent.ThreadSafe;
 import java.util.ConcurrentModificationException;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.BlockingDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A basic implementation of EventSystem. {@link Synchronous} events are processed immediately, other events are only processed when processEvents is called.
+ * <p>
+ * By default each pending event is processed in its own transaction. Optionally, pending events can be processed with group commit: a group of events are each
+ * processed in their own transaction, which is suspended rather than committed, and the transactions that involve no entities in common are merged and committed
+ * together. This means locks are obtained and indexes updated once per group rather than once per event, which is much cheaper when each event only touches a
+ * few components. Events whose transaction conflicts with the group are processed again afterwards in their own transaction, as are all the events of a group
+ * that fails to commit.
+ * <p>
+ * Pending events can also be processed in parallel by providing an executor. The pending events are then split into shards by the id of the entity they target,
+ * and each shard is processed in order as a single task on the executor. This means events sent to the same entity are still processed in the order they were
+ * sent, while events sent to different entities may be processed concurrently. Transactions that fail to commit due to a concurrent modification are retried,
+ * backing off for a short, random and bounded time between attempts.
+ * <p>
+ * Events marked {@link Coalesce} are combined with an event of the same type pending against the same entity, as long as no other event has been queued against
+ * that entity since.
+ * <p>
+ * Pending events are queued in a lock-free ring buffer. What happens when it is full is determined by the {@link OverflowPolicy}. By default the ring buffer
+ * grows, so the number of pending events is unbounded.
  */
 @ThreadSafe
 public class DelayedEventSystem extends AbstractEventSystem {
     private static final Logger logger = LoggerFactory.getLogger(ImmediateEventSystem.class);
 
+    private static final int MIN_BACKOFF_NANOS = 1000;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int DEFAULT_PENDING_EVENT_CAPACITY = 4096;
+
     private final EventProcessor eventProcessor;
-    private final BlockingDeque<PendingEventInfo> pendingEvents = Queues.newLinkedBlockingDeque();
+    private final MpscRingBuffer<PendingEventInfo> pendingEvents;
+    private final Queue<PendingEventInfo> overflowEvents = new ConcurrentLinkedQueue<>();
+    private final OverflowPolicy overflowPolicy;
+    private final Lock drainLock = new ReentrantLock();
+    private final ThreadLocal<Boolean> processingThread = new ThreadLocal<>();
+    private final ConcurrentMap<Long, PendingEventInfo> coalescingEvents = Maps.newConcurrentMap();
+    private final int maxGroupSize;
+    private final ExecutorService executor;
+    private final int shards;
 
     public DelayedEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor) {
+        this(transactionManager, eventProcessor, 1);
+    }
+
+    /**
+     * @param transactionManager The transaction manager
+     * @param eventProcessor     The processor to send events through
+     * @param maxGroupSize       The maximum number of pending events to commit together. 1 disables group commit.
+     */
+    public DelayedEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor, int maxGroupSize) {
+        this(transactionManager, eventProcessor, maxGroupSize, null, 1, DEFAULT_PENDING_EVENT_CAPACITY, OverflowPolicy.GROW);
+    }
+
+    /**
+     * @param transactionManager The transaction manager
+     * @param eventProcessor     The processor to send events through
+     * @param maxGroupSize       The maximum number of pending events to commit together. 1 disables group commit.
+     * @param executor           The executor to process pending events on. processEvents waits for the events to be processed.
+     * @param shards             The number of shards to split pending events into, and so the greatest number of tasks run concurrently. This would usually be
+     *                           the number of threads of the executor.
+     */
+    public DelayedEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor, int maxGroupSize, ExecutorService executor, int shards) {
+        this(transactionManager, eventProcessor, maxGroupSize, Preconditions.checkNotNull(executor), shards, DEFAULT_PENDING_EVENT_CAPACITY, OverflowPolicy.GROW);
+    }
+
+    /**
+     * @param transactionManager   The transaction manager
+     * @param eventProcessor       The processor to send events through
+     * @param maxGroupSize         The maximum number of pending events to commit together. 1 disables group commit.
+     * @param executor             The executor to process pending events on, or null to process them on the thread calling processEvents
+     * @param shards               The number of shards to split pending events into when an executor is provided
+     * @param pendingEventCapacity The number of pending events that can be queued before the overflow policy applies. This is rounded up to a power of two.
+     * @param overflowPolicy       What to do with events sent while the pending event queue is full
+     */
+    public DelayedEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor, int maxGroupSize, ExecutorService executor, int shards,
+                              int pendingEventCapacity, OverflowPolicy overflowPolicy) {
         super(transactionManager);
+        Preconditions.checkArgument(maxGroupSize > 0, "maxGroupSize must be greater than 0");
+        Preconditions.checkArgument(shards > 0, "shards must be greater than 0");
         this.eventProcessor = eventProcessor;
+        this.maxGroupSize = maxGroupSize;
+        this.executor = executor;
+        this.shards = shards;
+        this.pendingEvents = (overflowPolicy == OverflowPolicy.GROW) ? MpscRingBuffer.unbounded(pendingEventCapacity) : new MpscRingBuffer<>(pendingEventCapacity);
+        this.overflowPolicy = Preconditions.checkNotNull(overflowPolicy);
     }
 
     @Override
     public void processEvents() throws InterruptedException {
         List<PendingEventInfo> events = Lists.newArrayListWithExpectedSize(pendingEvents.size());
-        while (!pendingEvents.isEmpty()) {
+        while (hasPendingEvents()) {
+            drainPendingEvents(events);
+            if (!coalescingEvents.isEmpty()) {
+                claimCoalescingEvents(events);
+            }
+            if (executor != null && shards > 1 && events.size() > 1) {
+                processInParallel(events);
+            } else {
+                processInOrder(events);
+            }
+            events.clear();
+        }
+    }
+
+    private boolean hasPendingEvents() {
+        return !pendingEvents.isEmpty() || !overflowEvents.isEmpty();
+    }
+
+    /**
+     * Removes the pending events, in the order they were queued. Events queued in the ring buffer are always older than any events queued separately by the same
+     * thread, as a thread only queues in the ring buffer while there are no separately queued events.
+     *
+     * @param events The list to add the pending events to
+     */
+    private void drainPendingEvents(List<PendingEventInfo> events) {
+        drainLock.lock();
+        try {
             pendingEvents.drainTo(events);
-            for (PendingEventInfo eventInfo : events) {
-                doEvent(eventInfo.getEvent(), eventInfo.getEntity(), eventInfo.triggeringComponents);
+            PendingEventInfo overflowEvent;
+            while ((overflowEvent = overflowEvents.poll()) != null) {
+                events.add(overflowEvent);
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Queues a pending event, applying the overflow policy if the ring buffer is full. An unbounded ring buffer is used for {@link OverflowPolicy#GROW}, so it is
+     * never full.
+     *
+     * @param eventInfo The event to queue
+     */
+    private void queue(PendingEventInfo eventInfo) {
+        int attempt = 0;
+        while (!tryQueue(eventInfo)) {
+            backoff(attempt++);
+        }
+    }
+
+    /**
+     * Attempts to queue a pending event without waiting, applying the overflow policy if the ring buffer is full.
+     *
+     * @param eventInfo The event to queue
+     * @return Whether the event was queued. This is only false under {@link OverflowPolicy#BLOCK}, where the caller should back off and try again.
+     */
+    private boolean tryQueue(PendingEventInfo eventInfo) {
+        if (overflowEvents.isEmpty() && pendingEvents.offer(eventInfo)) {
+            return true;
+        }
+        if (overflowPolicy == OverflowPolicy.FAIL) {
+            throw new IllegalStateException("Pending event queue is full, unable to queue " + eventInfo.getEvent());
+        }
+        if (processingThread.get() != null) {
+            overflowEvents.add(eventInfo);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Queues a pending event against an entity, or combines it with the coalescing event pending against that entity. Each attempt is made within an atomic update
+     * of the entity's entry in coalescingEvents, so no event can be queued against the entity between an event being queued and its registration as the entity's
+     * coalescing event, or between the coalescing event being unregistered and the next event being queued - either of which would allow a later event to be
+     * combined with a coalescing event that another event was queued after.
+     * <p>
+     * While the queue is full a non-coalescing event is left registered in place of the entity's coalescing event, so nothing is combined with the replaced event
+     * in the meantime. Nothing can be combined with the non-coalescing event itself, as it is not of a type marked {@link Coalesce}.
+     *
+     * @param eventInfo The event to queue
+     */
+    private void queueAgainstEntity(PendingEventInfo eventInfo) {
+        long entityId = eventInfo.getEntity().getId();
+        int attempt = 0;
+        if (eventInfo.isCoalescing()) {
+            while (coalescingEvents.compute(entityId, (id, pending) -> registerCoalescing(pending, eventInfo)) == null) {
+                backoff(attempt++);
+            }
+        } else {
+            while (coalescingEvents.compute(entityId, (id, pending) -> tryQueue(eventInfo) ? null : eventInfo) == eventInfo) {
+                backoff(attempt++);
+            }
+        }
+    }
+
+    /**
+     * @return The coalescing event to register for the entity afterwards, or null if the event could be neither combined nor queued
+     */
+    private PendingEventInfo registerCoalescing(PendingEventInfo pending, PendingEventInfo eventInfo) {
+        if (pending != null && pending.coalesce(eventInfo.getEvent(), eventInfo.getTriggeringComponents())) {
+            return pending;
+        }
+        return tryQueue(eventInfo) ? eventInfo : null;
+    }
+
+    /**
+     * Prevents further events from being combined with events that are about to be processed.
+     *
+     * @param events The events about to be processed
+     */
+    private void claimCoalescingEvents(List<PendingEventInfo> events) {
+        for (PendingEventInfo eventInfo : events) {
+            if (eventInfo.isCoalescing()) {
+                eventInfo.claim();
+                coalescingEvents.remove(eventInfo.getEntity().getId(), eventInfo);
+            }
+        }
+    }
+
+    private void processInOrder(List<PendingEventInfo> events) {
+        Boolean wasProcessing = processingThread.get();
+        processingThread.set(Boolean.TRUE);
+        try {
+            if (maxGroupSize == 1) {
+                for (PendingEventInfo eventInfo : events) {
+                    doEvent(eventInfo.getEvent(), eventInfo.getEntity(), eventInfo.getTriggeringComponents());
+                }
+            } else {
+                for (int i = 0; i < events.size(); i += maxGroupSize) {
+                    doEventGroup(events.subList(i, Math.min(i + maxGroupSize, events.size())));
+                }
+            }
+        } finally {
+            processingThread.set(wasProcessing);
+        }
+    }
+
+    /**
+     * Splits events into shards by the entity they target, and processes each shard in order on the executor. Waits for all shards to be processed, then
+     * rethrows the failure of the first shard that failed, if any.
+     *
+     * @param events The events to process
+     * @throws InterruptedException If interrupted while waiting for the shards to be processed
+     */
+    private void processInParallel(List<PendingEventInfo> events) throws InterruptedException {
+        List<List<PendingEventInfo>> shardedEvents = Lists.newArrayListWithCapacity(shards);
+        for (int i = 0; i < shards; ++i) {
+            shardedEvents.add(Lists.newArrayList());
+        }
+        for (PendingEventInfo eventInfo : events) {
+            shardedEvents.get(Math.floorMod(Long.hashCode(eventInfo.getEntity().getId()), shards)).add(eventInfo);
+        }
+        List<Callable<Void>> tasks = Lists.newArrayListWithCapacity(shards);
+        for (List<PendingEventInfo> shard : shardedEvents) {
+            if (!shard.isEmpty()) {
+                tasks.add(() -> {
+                    processInOrder(shard);
+                    return null;
+                });
+            }
+        }
+        for (Future<Void> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw Throwables.propagate(e.getCause());
             }
         }
     }
@@ -65,8 +316,10 @@ public void processEvents() throws InterruptedException {
     protected void processEvent(Event event, EntityRef entity, Set<Class<? extends Component>> triggeringComponents) {
         if (event.getClass().isAnnotationPresent(Synchronous.class)) {
             doEvent(event, entity, triggeringComponents);
+        } else if (entity.getId() != 0) {
+            queueAgainstEntity(new PendingEventInfo(event, entity, triggeringComponents, event.getClass().isAnnotationPresent(Coalesce.class)));
         } else {
-            pendingEvents.addLast(new PendingEventInfo(event, entity, triggeringComponents));
+            queue(new PendingEventInfo(event, entity, triggeringComponents, false));
         }
     }
 
@@ -76,6 +329,7 @@ private void doEvent(Event event, EntityRef entity, Set<Class<? extends Componen
         } else {
 
             boolean completed = false;
+            int attempt = 0;
             while (!completed) {
                 try {
                     getTransactionManager().begin();
@@ -85,27 +339,153 @@ private void doEvent(Event event, EntityRef entity, Set<Class<? extends Componen
                         getTransactionManager().commit();
                     }
                     completed = true;
-                } catch (ConcurrentModificationException e) {
+                } catch (ConcurrentModificationException | RollbackException e) {
+                    if (!isConcurrencyFailure(e)) {
+                        throw e;
+                    }
                     logger.debug("Concurrency failure processing event {}, retrying", event, e);
+                    backoff(attempt++);
                 }
             }
         }
     }
 
+    private static boolean isConcurrencyFailure(RuntimeException e) {
+        return e instanceof ConcurrentModificationException || e.getCause() instanceof ConcurrentModificationException;
+    }
+
+    /**
+     * Waits before retrying a transaction that failed due to a concurrent modification. The first retry is only preceded by a yield, after which the wait doubles
+     * with each attempt up to a bound. The wait is randomized so that transactions that conflicted with each other are unlikely to conflict again.
+     *
+     * @param attempt The number of retries already made
+     */
+    private static void backoff(int attempt) {
+        if (attempt == 0) {
+            Thread.yield();
+        } else {
+            long maxDelay = Math.min((long) MIN_BACKOFF_NANOS << Math.min(attempt - 1, 20), MAX_BACKOFF_NANOS);
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxDelay / 2, maxDelay + 1));
+        }
+    }
+
+    /**
+     * Processes a group of events, committing the transactions of those that do not conflict together. An event that conflicts with the group is deferred
+     * until after the group is committed, as are any later events that conflict with a deferred event, so that events involving the same entities are still
+     * processed in the order they were sent.
+     *
+     * @param events The events to process
+     */
+    private void doEventGroup(List<PendingEventInfo> events) {
+        List<PendingEventInfo> processedEvents = Lists.newArrayListWithCapacity(events.size());
+        List<PendingEventInfo> deferredEvents = Lists.newArrayList();
+        List<TransactionContext> deferredContexts = Lists.newArrayList();
+        TransactionContext group = null;
+        try {
+            for (PendingEventInfo eventInfo : events) {
+                getTransactionManager().begin();
+                EventResult result;
+                try {
+                    result = eventProcessor.send(eventInfo.getEvent(), eventInfo.getEntity(), eventInfo.getTriggeringComponents());
+                } catch (RuntimeException e) {
+                    getTransactionManager().rollback();
+                    throw e;
+                }
+                TransactionContext context = getTransactionManager().suspend();
+                if ((group != null && !group.canMerge(context)) || conflictsWithAny(deferredContexts, context)) {
+                    deferredContexts.add(context);
+                    deferredEvents.add(eventInfo);
+                    processedEvents.add(eventInfo);
+                } else if (result == EventResult.CANCEL) {
+                    getTransactionManager().rollback(context);
+                } else if (group == null) {
+                    group = context;
+                    processedEvents.add(eventInfo);
+                } else {
+                    group.merge(context);
+                    getTransactionManager().discard(context);
+                    processedEvents.add(eventInfo);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (group != null) {
+                getTransactionManager().rollback(group);
+            }
+            deferredContexts.forEach(getTransactionManager()::rollback);
+            throw e;
+        }
+        deferredContexts.forEach(getTransactionManager()::rollback);
+
+        List<PendingEventInfo> remainingEvents = deferredEvents;
+        if (group != null) {
+            try {
+                getTransactionManager().commit(group);
+            } catch (RollbackException | ConcurrentModificationException e) {
+                logger.debug("Failed to commit group of {} events, processing individually", processedEvents.size() - deferredEvents.size(), e);
+                remainingEvents = processedEvents;
+            }
+        }
+        for (PendingEventInfo eventInfo : remainingEvents) {
+            doEvent(eventInfo.getEvent(), eventInfo.getEntity(), eventInfo.getTriggeringComponents());
+        }
+    }
+
+    private static boolean conflictsWithAny(List<TransactionContext> contexts, TransactionContext context) {
+        for (TransactionContext other : contexts) {
+            if (!other.canMerge(context)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void clearPendingEvents() throws InterruptedException {
-        pendingEvents.clear();
+        drainLock.lock();
+        try {
+            pendingEvents.clear();
+            overflowEvents.clear();
+        } finally {
+            drainLock.unlock();
+        }
+        coalescingEvents.clear();
+    }
+
+    /**
+     * What to do with events sent while the pending event queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Link a larger ring buffer to hold further events, so the number of pending events is unbounded.
+         */
+        GROW,
+        /**
+         * Wait until the event can be queued, backing off between attempts. Events sent while processing pending events are queued separately instead, as waiting
+         * for the queue to be drained by the same processing would never end.
+         */
+        BLOCK,
+        /**
+         * Throw an IllegalStateException. Handlers that send events while pending events are processed will have the exception logged by the event processor.
+         */
+        FAIL
     }
 
+    /**
+     * A pending event. A coalescing event may be changed by other threads until it is claimed for processing, after which it is only read - so it is only read
+     * after claiming.
+     */
     private static class PendingEventInfo {
         private Event event;
         private EntityRef entity;
         private Set<Class<? extends Component>> triggeringComponents;
+        private final boolean coalescing;
+        private boolean claimed;
 
-        public PendingEventInfo(Event event, EntityRef entity, Set<Class<? extends Component>> triggeringComponents) {
+        public PendingEventInfo(Event event, EntityRef entity, Set<Class<? extends Component>> triggeringComponents, boolean coalescing) {
             this.event = event;
             this.entity = entity;
-            this.triggeringComponents = ImmutableSet.copyOf(triggeringComponents);
+            this.triggeringComponents = triggeringComponents.isEmpty() ? ImmutableSet.of() : ImmutableSet.copyOf(triggeringComponents);
+            this.coalescing = coalescing;
         }
 
         public EntityRef getEntity() {
@@ -119,5 +499,46 @@ public Event getEvent() {
         public Set<Class<? extends Component>> getTriggeringComponents() {
             return triggeringComponents;
         }
+
+        public boolean isCoalescing() {
+            return coalescing;
+        }
+
+        /**
+         * Combines a later event with this pending event, if it has not been claimed for processing.
+         *
+         * @param laterEvent                The later event, of the same type
+         * @param laterTriggeringComponents The triggering components of the later event
+         * @return Whether the later event was combined with this event
+         */
+        @SuppressWarnings("unchecked")
+        public synchronized boolean coalesce(Event laterEvent, Set<Class<? extends Component>> laterTriggeringComponents) {
+            if (claimed || event.getClass() != laterEvent.getClass()) {
+                return false;
+            }
+            if (event instanceof MergeableEvent) {
+                Event merged = ((MergeableEvent) event).merge((MergeableEvent) laterEvent);
+                if (merged.getClass() != event.getClass()) {
+                    // A merge that doesn't keep the event's type would deliver it as a different event, so the events are sent separately instead
+                    return false;
+                }
+                event = merged;
+                if (!triggeringComponents.containsAll(laterTriggeringComponents)) {
+                    triggeringComponents = ImmutableSet.copyOf(Sets.union(triggeringComponents, laterTriggeringComponents));
+                }
+                return true;
+            } else if (triggeringComponents.equals(laterTriggeringComponents)) {
+                event = laterEvent;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Claims this event for processing, after which no further events are combined with it.
+         */
+        public synchronized void claim() {
+            claimed = true;
+        }
     }
 }
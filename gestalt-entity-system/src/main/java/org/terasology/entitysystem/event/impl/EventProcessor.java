@@ -19,8 +19,10 @@
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.event.Event;
@@ -28,15 +30,23 @@
 import org.terasology.entitysystem.event.EventResult;
 
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The core event processing logic. When an event is sent against an entity, the EventProcessor propagates the event through an ordered list of relevant event handlers,
  * filtering out handlers that are not appropriate for the target entity based on the components it has.  All of this occurs within a provided transaction. If an event handler
  * returns EventResult.COMPLETE or EventResult.CANCEL the event processing is halted.
+ * <p>
+ * The handlers relevant to an event are determined by the type of the event, the types of component the entity has and the triggering components. These are
+ * resolved once for each combination and cached, so sending an event is a lookup followed by invoking each of the handlers found. Combinations of component types are
+ * held as {@link ComponentSignature}s, so the lookup hashes and compares a few words, and resolving a combination tests each handler's required components with
+ * bitwise operations. If a handler adds or removes components the handlers after it are resolved again for the new combination. As the processor's handlers cannot
+ * change after it is built, the cache never needs to be invalidated.
  *
  * @author Immortius
  * @see EventProcessorBuilder
@@ -44,7 +54,10 @@
 @ThreadSafe
 public class EventProcessor {
     private static final Logger logger = LoggerFactory.getLogger(EventProcessor.class);
+    private static final int MAX_DISPATCH_TABLES = 4096;
+
     private final ListMultimap<Class<? extends Event>, EventHandlerRegistration> eventHandlers;
+    private final ConcurrentMap<DispatchKey, DispatchTable> dispatchTables = Maps.newConcurrentMap();
 
     /**
      * Initialises the EventProcessor with the ordered list of EventHandlers for each event type.
@@ -87,21 +100,30 @@ public EventResult send(Event event, EntityRef entity) {
      * @return The result of the event. If any event handler returns EventResult.CANCEL then that is returned, otherwise the result will be EventResult.COMPLETE.
      */
     public EventResult send(Event event, EntityRef entity, Set<Class<? extends Component>> triggeringComponents) {
+        ComponentSignature triggeringSignature = ComponentSignature.of(triggeringComponents);
+        DispatchTable table = getDispatchTable(event.getClass(), entity.getComponentSignature(), triggeringSignature);
         EventResult result = EventResult.CONTINUE;
-        for (EventHandlerRegistration handler : eventHandlers.get(event.getClass())) {
-            if (validToInvoke(handler, entity.getComponentTypes(), triggeringComponents)) {
-                try {
-                    result = handler.invoke(event, entity);
-                    switch (result) {
-                        case COMPLETE:
-                        case CANCEL:
-                            return result;
-                        default:
-                            // Continue
-                    }
-                } catch (RuntimeException e) {
-                    logger.error("Exception thrown when processing event {}", event.getClass(), e);
+        int index = 0;
+        while (index < table.handlers.length) {
+            EventHandlerRegistration handler = table.handlers[index];
+            int position = table.positions[index];
+            index++;
+            try {
+                result = handler.invoke(event, entity);
+                switch (result) {
+                    case COMPLETE:
+                    case CANCEL:
+                        return result;
+                    default:
+                        // Continue
                 }
+            } catch (RuntimeException e) {
+                logger.error("Exception thrown when processing event {}", event.getClass(), e);
+            }
+            ComponentSignature components = entity.getComponentSignature();
+            if (!table.components.equals(components)) {
+                table = getDispatchTable(event.getClass(), components, triggeringSignature);
+                index = table.indexAfter(position);
             }
         }
 
@@ -113,22 +135,106 @@ public EventResult send(Event event, EntityRef entity, Set<Class<? extends Compo
         }
     }
 
-    private boolean validToInvoke(EventHandlerRegistration handler, Set<Class<? extends Component>> targetComponents, Set<Class<? extends Component>> triggeringComponents) {
-        for (Class<? extends Component> component : handler.getRequiredComponents()) {
-            if (!targetComponents.contains(component) && !triggeringComponents.contains(component)) {
-                return false;
+    /**
+     * Obtains the handlers to invoke for an event, resolving and caching them if this combination of event type and components has not been seen before.
+     *
+     * @param eventType            The type of the event
+     * @param components           The types of component the entity has
+     * @param triggeringComponents The components triggering the event
+     * @return The handlers to invoke
+     */
+    private DispatchTable getDispatchTable(Class<? extends Event> eventType, ComponentSignature components, ComponentSignature triggeringComponents) {
+        DispatchKey key = new DispatchKey(eventType, components, triggeringComponents);
+        DispatchTable table = dispatchTables.get(key);
+        if (table == null) {
+            table = new DispatchTable(components, eventHandlers.get(eventType), triggeringComponents);
+            if (dispatchTables.size() >= MAX_DISPATCH_TABLES) {
+                dispatchTables.clear();
+            }
+            dispatchTables.putIfAbsent(key, table);
+        }
+        return table;
+    }
+
+    /**
+     * @param handler              The handler
+     * @param availableComponents  The types of component the entity has, along with the triggering components
+     * @param triggeringComponents The components triggering the event
+     * @return Whether the handler should receive the event
+     */
+    private static boolean validToInvoke(EventHandlerRegistration handler, ComponentSignature availableComponents, ComponentSignature triggeringComponents) {
+        ComponentSignature required = handler.getRequiredComponentSignature();
+        return availableComponents.containsAll(required) && (triggeringComponents.isEmpty() || required.intersects(triggeringComponents));
+    }
+
+    /**
+     * The key of a dispatch table: an event type, the types of component of the target entity and the triggering components.
+     */
+    private static final class DispatchKey {
+        private final Class<? extends Event> eventType;
+        private final ComponentSignature components;
+        private final ComponentSignature triggeringComponents;
+        private final int hash;
+
+        DispatchKey(Class<? extends Event> eventType, ComponentSignature components, ComponentSignature triggeringComponents) {
+            this.eventType = eventType;
+            this.components = components;
+            this.triggeringComponents = triggeringComponents;
+            this.hash = 31 * (31 * eventType.hashCode() + components.hashCode()) + triggeringComponents.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof DispatchKey) {
+                DispatchKey other = (DispatchKey) obj;
+                return hash == other.hash && eventType == other.eventType && components.equals(other.components)
+                        && triggeringComponents.equals(other.triggeringComponents);
             }
+            return false;
         }
-        if (!triggeringComponents.isEmpty()) {
-            for (Class<? extends Component> component : handler.getRequiredComponents()) {
-                if (triggeringComponents.contains(component)) {
-                    return true;
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * The ordered handlers to invoke for a dispatch key, along with the position of each handler in the full list of handlers for the event type.
+     */
+    private static final class DispatchTable {
+        private final ComponentSignature components;
+        private final EventHandlerRegistration[] handlers;
+        private final int[] positions;
+
+        DispatchTable(ComponentSignature components, List<EventHandlerRegistration> allHandlers, ComponentSignature triggeringComponents) {
+            this.components = components;
+            ComponentSignature availableComponents = components.union(triggeringComponents);
+            int count = 0;
+            int[] matchedPositions = new int[allHandlers.size()];
+            for (int i = 0; i < allHandlers.size(); ++i) {
+                if (validToInvoke(allHandlers.get(i), availableComponents, triggeringComponents)) {
+                    matchedPositions[count++] = i;
                 }
             }
-        } else {
-            return true;
+            this.handlers = new EventHandlerRegistration[count];
+            this.positions = Arrays.copyOf(matchedPositions, count);
+            for (int i = 0; i < count; ++i) {
+                handlers[i] = allHandlers.get(positions[i]);
+            }
+        }
+
+        /**
+         * @param position A position in the full list of handlers for the event type
+         * @return The index of the first handler in this table that comes after that position
+         */
+        int indexAfter(int position) {
+            int index = Arrays.binarySearch(positions, position);
+            return (index >= 0) ? index + 1 : -(index + 1);
         }
-        return false;
     }
 
     /**
@@ -137,6 +243,7 @@ private boolean validToInvoke(EventHandlerRegistration handler, Set<Class<? exte
     public static class EventHandlerRegistration {
         private EventHandler receiver;
         private ImmutableList<Class<? extends Component>> components;
+        private ComponentSignature requiredSignature;
 
         /**
          * @param receiver           The event handler
@@ -145,6 +252,7 @@ public static class EventHandlerRegistration {
         public EventHandlerRegistration(EventHandler<?> receiver, Iterable<Class<? extends Component>> requiredComponents) {
             this.receiver = receiver;
             this.components = ImmutableList.copyOf(requiredComponents);
+            this.requiredSignature = ComponentSignature.of(components);
         }
 
         /**
@@ -154,6 +262,13 @@ public List<Class<? extends Component>> getRequiredComponents() {
             return components;
         }
 
+        /**
+         * @return The components required by this event handler, as a signature
+         */
+        public ComponentSignature getRequiredComponentSignature() {
+            return requiredSignature;
+        }
+
         /**
          * Invokes the event handler
          *
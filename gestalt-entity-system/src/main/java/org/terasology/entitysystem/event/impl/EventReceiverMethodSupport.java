@@ -45,6 +45,9 @@
 /**
  * Helper to discover and register all methods annotated with {@link ReceiveEvent} in an object, into an EventProcessorBuilder.
  * Also processes {@link Before} and {@link After} annotations to order the methods.
+ * <p>
+ * By default each method is called through a generated invoker (see {@link Invocation#GENERATED}), falling back to ReflectASM for methods an invoker cannot be
+ * generated for.
  */
 public final class EventReceiverMethodSupport {
 
@@ -63,6 +66,18 @@ private EventReceiverMethodSupport() {
      * @throws org.terasology.entitysystem.event.exception.InvalidEventReceiverObjectException if the eventReceiverObject is not a public class
      */
     public static void register(Object eventReceiverObject, EventProcessorBuilder builder) {
+        register(eventReceiverObject, builder, Invocation.GENERATED);
+    }
+
+    /**
+     * Scans for and registers all methods annotated with {@link ReceiveEvent} with the provided {@link EventProcessorBuilder}.
+     *
+     * @param eventReceiverObject The object to scan for methods
+     * @param builder             The EventProcessorBuilder to register the methods with as event handlers.
+     * @param invocation          How the methods should be called
+     * @throws org.terasology.entitysystem.event.exception.InvalidEventReceiverObjectException if the eventReceiverObject is not a public class
+     */
+    public static void register(Object eventReceiverObject, EventProcessorBuilder builder, Invocation invocation) {
         Class<?> handlerClass = eventReceiverObject.getClass();
         if (!Modifier.isPublic(handlerClass.getModifiers())) {
             throw new EventSystemException("Cannot register handler " + handlerClass.getName() + ", must be public");
@@ -100,13 +115,24 @@ public static void register(Object eventReceiverObject, EventProcessorBuilder bu
                 List<Class<? extends Component>> componentParams = gatherComponentParameters(types);
                 requiredComponents.addAll(componentParams);
 
-                registerEventHandler(new ByteCodeEventHandlerInfo(eventReceiverObject, method, componentParams), builder, handlerClass, globalBefore, globalAfter, method, types[0], requiredComponents);
+                registerEventHandler(createEventHandler(invocation, eventReceiverObject, method, componentParams), builder, handlerClass, globalBefore, globalAfter, method, types[0], requiredComponents);
             }
         }
     }
 
-    private static void registerEventHandler(ByteCodeEventHandlerInfo byteCodeEventHandlerInfo, EventProcessorBuilder builder, Class<?> handlerClass, Set<Class<?>> globalBefore, Set<Class<?>> globalAfter, Method method, Class<?> type, Set<Class<? extends Component>> requiredComponents) {
-        ByteCodeEventHandlerInfo handlerInfo = byteCodeEventHandlerInfo;
+    private static EventHandler<Event> createEventHandler(Invocation invocation, Object eventReceiverObject, Method method, List<Class<? extends Component>> componentParams) {
+        switch (invocation) {
+            case REFLECTION:
+                return new ReflectedEventHandlerInfo(eventReceiverObject, method, componentParams);
+            case BYTE_CODE:
+                return new ByteCodeEventHandlerInfo(eventReceiverObject, method, componentParams);
+            default:
+                EventHandler<Event> handler = GeneratedEventHandlers.create(eventReceiverObject, method, componentParams);
+                return (handler != null) ? handler : new ByteCodeEventHandlerInfo(eventReceiverObject, method, componentParams);
+        }
+    }
+
+    private static void registerEventHandler(EventHandler<Event> handlerInfo, EventProcessorBuilder builder, Class<?> handlerClass, Set<Class<?>> globalBefore, Set<Class<?>> globalAfter, Method method, Class<?> type, Set<Class<? extends Component>> requiredComponents) {
         builder.addHandler(handlerInfo, handlerClass, (Class<? extends Event>) type, requiredComponents);
         Set<Class<?>> beforeUnion = globalBefore;
         if (method.isAnnotationPresent(Before.class)) {
@@ -142,10 +168,29 @@ private static boolean methodParametersValid(Class<?>[] types) {
         return true;
     }
 
+    /**
+     * The ways a method can be called to handle an event.
+     */
+    public enum Invocation {
+        /**
+         * Call the method through reflection.
+         */
+        REFLECTION,
+        /**
+         * Call the method through a class generated by ReflectASM, which calls methods by index with an array of arguments.
+         */
+        BYTE_CODE,
+        /**
+         * Call the method through an invoker class generated for the method, which calls it directly. Falls back to BYTE_CODE for methods with more than four
+         * component parameters, or whose types are not visible to the entity system's class loader.
+         */
+        GENERATED
+    }
+
     /**
      * Event handler using reflection
      */
-    private static class ReflectedEventHandlerInfo implements EventHandler {
+    private static class ReflectedEventHandlerInfo implements EventHandler<Event> {
         private Object handler;
         private Method method;
         private ImmutableList<Class<? extends Component>> componentParams;
@@ -165,7 +210,7 @@ public EventResult onEvent(Event event, EntityRef entity) {
                 params[0] = event;
                 params[1] = entity;
                 for (int i = 0; i < componentParams.size(); ++i) {
-                    params[i + FIXED_PARAM_COUNT] = entity.getComponent(componentParams.get(i));
+                    params[i + FIXED_PARAM_COUNT] = entity.getComponent(componentParams.get(i)).orElseThrow(() -> new RuntimeException("Component unexpectedly missing"));
                 }
                 return (EventResult) method.invoke(handler, params);
             } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException ex) {
@@ -178,7 +223,7 @@ public EventResult onEvent(Event event, EntityRef entity) {
     /**
      * Event handler using byte code generation.
      */
-    private static class ByteCodeEventHandlerInfo implements EventHandler {
+    private static class ByteCodeEventHandlerInfo implements EventHandler<Event> {
         private Object handler;
         private MethodAccess methodAccess;
         private int methodIndex;
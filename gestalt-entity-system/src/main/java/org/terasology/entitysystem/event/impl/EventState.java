@@ -18,16 +18,34 @@
 
 import com.google.common.collect.Lists;
 import org.terasology.entitysystem.event.Event;
+import org.terasology.entitysystem.transaction.pipeline.MergeableAttachment;
+import org.terasology.entitysystem.transaction.pipeline.ReusableAttachment;
 
 import java.util.List;
 
 /**
- *
+ * The events pending for a transaction. This is reused by later transactions on the same thread, so is reset rather than recreated. Pending events never conflict, so
+ * when transactions are merged their events are sent in the order the transactions were merged.
  */
-public class EventState {
+public class EventState implements ReusableAttachment, MergeableAttachment<EventState> {
     private List<PendingEventInfo> pendingEvents = Lists.newArrayList();
 
     public List<PendingEventInfo> getPendingEvents() {
         return pendingEvents;
     }
+
+    @Override
+    public boolean conflictsWith(EventState other) {
+        return false;
+    }
+
+    @Override
+    public void merge(EventState other) {
+        pendingEvents.addAll(other.pendingEvents);
+    }
+
+    @Override
+    public void reset() {
+        pendingEvents.clear();
+    }
 }
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.event.Event;
+import org.terasology.entitysystem.event.EventHandler;
+import org.terasology.entitysystem.event.EventResult;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Creates event handlers that call a {@link org.terasology.entitysystem.event.ReceiveEvent} method directly. For each method a class implementing an invoker
+ * interface is generated by the {@link LambdaMetafactory}, bound to the object providing the method, so each call is a plain interface call followed by a direct call
+ * of the method - with no argument array, reflection or casting of the result. Only the components the method takes are fetched from the entity, so calling
+ * the method does not load the entity's other components.
+ * <p>
+ * Invokers are only generated for methods with at most {@link #MAX_COMPONENT_PARAMS} component parameters, and whose types are visible from this class's class
+ * loader, as the generated class is defined alongside this class.
+ */
+final class GeneratedEventHandlers {
+
+    static final int MAX_COMPONENT_PARAMS = 4;
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneratedEventHandlers.class);
+
+    private static final Class<?>[] INVOKER_TYPES = {Invoker0.class, Invoker1.class, Invoker2.class, Invoker3.class, Invoker4.class};
+
+    private GeneratedEventHandlers() {
+    }
+
+    /**
+     * @param handler         The object providing the method
+     * @param method          The method to call
+     * @param componentParams The types of the component parameters of the method
+     * @return An event handler calling the method, or null if an invoker cannot be generated for the method
+     */
+    static EventHandler<Event> create(Object handler, Method method, List<Class<? extends Component>> componentParams) {
+        if (componentParams.size() > MAX_COMPONENT_PARAMS || !isVisible(handler.getClass()) || !isVisible(method.getReturnType())
+                || !Arrays.stream(method.getParameterTypes()).allMatch(GeneratedEventHandlers::isVisible)) {
+            return null;
+        }
+        Object invoker;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle target = lookup.unreflect(method);
+            MethodType invokerMethodType = MethodType.methodType(EventResult.class, Event.class, EntityRef.class);
+            for (int i = 0; i < componentParams.size(); ++i) {
+                invokerMethodType = invokerMethodType.appendParameterTypes(Component.class);
+            }
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "invoke", MethodType.methodType(INVOKER_TYPES[componentParams.size()], handler.getClass()),
+                    invokerMethodType, target, target.type().dropParameterTypes(0, 1));
+            invoker = callSite.getTarget().invoke(handler);
+        } catch (Throwable e) {
+            logger.debug("Unable to generate invoker for {}", method, e);
+            return null;
+        }
+        switch (componentParams.size()) {
+            case 0:
+                return new Handler0((Invoker0) invoker);
+            case 1:
+                return new Handler1((Invoker1) invoker, componentParams);
+            case 2:
+                return new Handler2((Invoker2) invoker, componentParams);
+            case 3:
+                return new Handler3((Invoker3) invoker, componentParams);
+            default:
+                return new Handler4((Invoker4) invoker, componentParams);
+        }
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, GeneratedEventHandlers.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static <T extends Component> T fetch(EntityRef entity, Class<T> type) {
+        T component = entity.getComponent(type).orElse(null);
+        if (component == null) {
+            throw new RuntimeException("Component unexpectedly missing");
+        }
+        return component;
+    }
+
+    interface Invoker0 {
+        EventResult invoke(Event event, EntityRef entity);
+    }
+
+    interface Invoker1 {
+        EventResult invoke(Event event, EntityRef entity, Component first);
+    }
+
+    interface Invoker2 {
+        EventResult invoke(Event event, EntityRef entity, Component first, Component second);
+    }
+
+    interface Invoker3 {
+        EventResult invoke(Event event, EntityRef entity, Component first, Component second, Component third);
+    }
+
+    interface Invoker4 {
+        EventResult invoke(Event event, EntityRef entity, Component first, Component second, Component third, Component fourth);
+    }
+
+    private static final class Handler0 implements EventHandler<Event> {
+        private final Invoker0 invoker;
+
+        Handler0(Invoker0 invoker) {
+            this.invoker = invoker;
+        }
+
+        @Override
+        public EventResult onEvent(Event event, EntityRef entity) {
+            return invoker.invoke(event, entity);
+        }
+    }
+
+    private static final class Handler1 implements EventHandler<Event> {
+        private final Invoker1 invoker;
+        private final Class<? extends Component> first;
+
+        Handler1(Invoker1 invoker, List<Class<? extends Component>> componentParams) {
+            this.invoker = invoker;
+            this.first = componentParams.get(0);
+        }
+
+        @Override
+        public EventResult onEvent(Event event, EntityRef entity) {
+            return invoker.invoke(event, entity, fetch(entity, first));
+        }
+    }
+
+    private static final class Handler2 implements EventHandler<Event> {
+        private final Invoker2 invoker;
+        private final Class<? extends Component> first;
+        private final Class<? extends Component> second;
+
+        Handler2(Invoker2 invoker, List<Class<? extends Component>> componentParams) {
+            this.invoker = invoker;
+            this.first = componentParams.get(0);
+            this.second = componentParams.get(1);
+        }
+
+        @Override
+        public EventResult onEvent(Event event, EntityRef entity) {
+            return invoker.invoke(event, entity, fetch(entity, first), fetch(entity, second));
+        }
+    }
+
+    private static final class Handler3 implements EventHandler<Event> {
+        private final Invoker3 invoker;
+        private final Class<? extends Component> first;
+        private final Class<? extends Component> second;
+        private final Class<? extends Component> third;
+
+        Handler3(Invoker3 invoker, List<Class<? extends Component>> componentParams) {
+            this.invoker = invoker;
+            this.first = componentParams.get(0);
+            this.second = componentParams.get(1);
+            this.third = componentParams.get(2);
+        }
+
+        @Override
+        public EventResult onEvent(Event event, EntityRef entity) {
+            return invoker.invoke(event, entity, fetch(entity, first), fetch(entity, second), fetch(entity, third));
+        }
+    }
+
+    private static final class Handler4 implements EventHandler<Event> {
+        private final Invoker4 invoker;
+        private final Class<? extends Component> first;
+        private final Class<? extends Component> second;
+        private final Class<? extends Component> third;
+        private final Class<? extends Component> fourth;
+
+        Handler4(Invoker4 invoker, List<Class<? extends Component>> componentParams) {
+            this.invoker = invoker;
+            this.first = componentParams.get(0);
+            this.second = componentParams.get(1);
+            this.third = componentParams.get(2);
+            this.fourth = componentParams.get(3);
+        }
+
+        @Override
+        public EventResult onEvent(Event event, EntityRef entity) {
+            return invoker.invoke(event, entity, fetch(entity, first), fetch(entity, second), fetch(entity, third), fetch(entity, fourth));
+        }
+    }
+}
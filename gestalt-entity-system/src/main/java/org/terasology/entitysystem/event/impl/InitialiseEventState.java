@@ -26,6 +26,6 @@ public class InitialiseEventState implements TransactionInterceptor {
 
     @Override
     public void handle(TransactionContext context) {
-        context.attach(EventState.class, new EventState());
+        context.getOrAttach(EventState.class, EventState::new);
     }
 }
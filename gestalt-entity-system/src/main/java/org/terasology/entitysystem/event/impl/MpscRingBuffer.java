@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event.impl;
+
+import com.google.common.base.Preconditions;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free queue for many producer threads and a single consumer thread. Items are held in preallocated arrays of slots, so adding an item allocates nothing
+ * and takes no lock - a producer claims a slot by advancing the tail, then publishes its item into the slot. The consumer takes items from the head in order,
+ * stopping at a slot that has been claimed but not yet published.
+ * <p>
+ * A bounded buffer has a single ring of slots, and rejects items while it is full. An unbounded buffer instead closes a full ring to further items and links a new
+ * ring of twice the size after it, up to a limit. The consumer moves on to the next ring once a closed ring has been drained, so items are still taken in the order
+ * their slots were claimed.
+ * <p>
+ * {@link #offer(Object)} may be called from any thread. {@link #drainTo(Collection)} and {@link #clear()} must only be called by one thread at a time.
+ *
+ * @param <T> The type of item held
+ */
+@ThreadSafe
+public final class MpscRingBuffer<T> {
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final int MAX_GROWN_CAPACITY = 1 << 16;
+
+    private final boolean bounded;
+    private final AtomicReference<Ring<T>> producerRing;
+    private Ring<T> consumerRing;
+
+    /**
+     * Creates a bounded buffer.
+     *
+     * @param capacity The number of slots. This is rounded up to a power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        this(capacity, true);
+    }
+
+    private MpscRingBuffer(int capacity, boolean bounded) {
+        Preconditions.checkArgument(capacity > 0 && capacity <= MAX_CAPACITY, "capacity must be between 1 and 2^30");
+        this.bounded = bounded;
+        this.consumerRing = new Ring<>(capacity);
+        this.producerRing = new AtomicReference<>(consumerRing);
+    }
+
+    /**
+     * Creates an unbounded buffer.
+     *
+     * @param initialCapacity The number of slots in the first ring. This is rounded up to a power of two.
+     * @param <T>             The type of item held
+     * @return A new buffer
+     */
+    public static <T> MpscRingBuffer<T> unbounded(int initialCapacity) {
+        return new MpscRingBuffer<>(initialCapacity, false);
+    }
+
+    /**
+     * Adds an item to the tail of the queue, if there is room.
+     *
+     * @param item The item to add
+     * @return Whether the item was added. False if the queue is bounded and full.
+     */
+    public boolean offer(T item) {
+        Preconditions.checkNotNull(item);
+        while (true) {
+            Ring<T> ring = producerRing.get();
+            if (ring.offer(item)) {
+                return true;
+            }
+            if (bounded) {
+                return false;
+            }
+            Ring<T> next = ring.next;
+            if (next == null) {
+                next = ring.grow();
+            }
+            ring.close();
+            producerRing.compareAndSet(ring, next);
+        }
+    }
+
+    /**
+     * Removes all available items, adding them to the given collection in order. Items still being added by producers are left for the next drain, as are any
+     * items after them.
+     *
+     * @param target The collection to add the items to
+     * @return The number of items removed
+     */
+    public int drainTo(Collection<? super T> target) {
+        return drain(Preconditions.checkNotNull(target));
+    }
+
+    /**
+     * Removes all available items.
+     */
+    public void clear() {
+        drain(null);
+    }
+
+    private int drain(Collection<? super T> target) {
+        int count = 0;
+        while (true) {
+            Ring<T> ring = consumerRing;
+            count += ring.drainTo(target);
+            if (!ring.isClosed() || !ring.isEmpty()) {
+                return count;
+            }
+            consumerRing = ring.next;
+        }
+    }
+
+    /**
+     * @return Whether the queue is empty, including items that are still being added
+     */
+    public boolean isEmpty() {
+        for (Ring<T> ring = consumerRing; ring != null; ring = ring.next) {
+            if (!ring.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The number of items in the queue, including items that are still being added
+     */
+    public int size() {
+        long size = 0;
+        for (Ring<T> ring = consumerRing; ring != null; ring = ring.next) {
+            size += ring.size();
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return The number of items the queue can hold, or Integer.MAX_VALUE if it is unbounded
+     */
+    public int capacity() {
+        return bounded ? consumerRing.capacity : Integer.MAX_VALUE;
+    }
+
+    /**
+     * A single ring of slots. Once closed, no further slots can be claimed. The top bit of the tail marks that the ring is closed.
+     */
+    private static final class Ring<T> {
+        private static final long CLOSED = Long.MIN_VALUE;
+
+        private final AtomicReferenceArray<T> slots;
+        private final int capacity;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+        private volatile Ring<T> next;
+
+        Ring(int capacity) {
+            int rounded = Integer.highestOneBit(capacity);
+            this.capacity = (rounded == capacity) ? capacity : rounded << 1;
+            this.mask = this.capacity - 1;
+            this.slots = new AtomicReferenceArray<>(this.capacity);
+        }
+
+        boolean offer(T item) {
+            long claimed;
+            do {
+                claimed = tail.get();
+                if (claimed < 0 || claimed - head >= capacity) {
+                    return false;
+                }
+            } while (!tail.compareAndSet(claimed, claimed + 1));
+            slots.lazySet((int) claimed & mask, item);
+            return true;
+        }
+
+        /**
+         * Links a ring to follow this one, of twice the size up to a limit, unless one has already been linked.
+         *
+         * @return The ring that follows this one
+         */
+        synchronized Ring<T> grow() {
+            if (next == null) {
+                next = new Ring<>(Math.max(capacity, Math.min(capacity << 1, MAX_GROWN_CAPACITY)));
+            }
+            return next;
+        }
+
+        void close() {
+            long current;
+            do {
+                current = tail.get();
+            } while (current >= 0 && !tail.compareAndSet(current, current | CLOSED));
+        }
+
+        boolean isClosed() {
+            return tail.get() < 0;
+        }
+
+        /**
+         * @param target The collection to add the items to, or null to discard them
+         * @return The number of items removed
+         */
+        int drainTo(Collection<? super T> target) {
+            long position = head;
+            long end = tail.get() & ~CLOSED;
+            while (position < end) {
+                int index = (int) position & mask;
+                T item = slots.get(index);
+                if (item == null) {
+                    break;
+                }
+                slots.lazySet(index, null);
+                if (target != null) {
+                    target.add(item);
+                }
+                position++;
+            }
+            int count = (int) (position - head);
+            head = position;
+            return count;
+        }
+
+        boolean isEmpty() {
+            return (tail.get() & ~CLOSED) == head;
+        }
+
+        long size() {
+            return (tail.get() & ~CLOSED) - head;
+        }
+    }
+}
@@ -21,7 +21,6 @@
 import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.event.Event;
 
-import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -35,7 +34,7 @@ class PendingEventInfo {
     public PendingEventInfo(Event event, EntityRef entity, Set<Class<? extends Component>> triggeringComponents) {
         this.event = event;
         this.entity = entity;
-        this.triggeringComponents = ImmutableSet.copyOf(triggeringComponents);
+        this.triggeringComponents = triggeringComponents.isEmpty() ? ImmutableSet.of() : ImmutableSet.copyOf(triggeringComponents);
     }
 
     public Event getEvent() {
@@ -47,6 +46,6 @@ public EntityRef getEntity() {
     }
 
     public Set<Class<? extends Component>> getTriggeringComponents() {
-        return Collections.unmodifiableSet(triggeringComponents);
+        return triggeringComponents;
     }
 }
@@ -17,12 +17,12 @@
 package org.terasology.entitysystem.index;
 
 import com.google.common.base.Preconditions;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.transaction.TransactionManager;
 import org.terasology.util.Varargs;
 
-import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -39,6 +39,7 @@ public static Index createComponentIndex(TransactionManager transactionManager,
 
     public static Index createComponentIndex(TransactionManager transactionManager, EntityManager entityManager, Set<Class<? extends Component>> componentTypes) {
         Preconditions.checkArgument(componentTypes != null && !componentTypes.isEmpty());
-        return new GenericIndex(transactionManager, entityManager, (x) -> !Collections.disjoint(x, componentTypes), (x) -> x.keySet().containsAll(componentTypes));
+        ComponentSignature signature = ComponentSignature.of(componentTypes);
+        return new GenericIndex(transactionManager, entityManager, signature, (change) -> change.hasComponents(signature));
     }
 }
@@ -16,15 +16,12 @@
 
 package org.terasology.entitysystem.index;
 
-import gnu.trove.TCollections;
-import gnu.trove.set.TLongSet;
-import gnu.trove.set.hash.TLongHashSet;
+import org.terasology.entitysystem.component.ComponentSignature;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
-import org.terasology.entitysystem.entity.inmemory.EntityState;
-import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
-import org.terasology.entitysystem.entity.inmemory.NewEntityState;
+import org.terasology.entitysystem.entity.inmemory.EntityChange;
+import org.terasology.entitysystem.entity.inmemory.EntityChanges;
 import org.terasology.entitysystem.transaction.TransactionManager;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
@@ -32,95 +29,87 @@
 import org.terasology.util.collection.TypeKeyedMap;
 
 import java.util.Iterator;
-import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 /**
- *
+ * An index of the entities that satisfy a predicate over their components. The index is updated with the changes of each transaction while it is being committed,
+ * while the transaction still holds the locks (or claims) on the entities it changes. So membership changes for a given entity are applied in the order they are
+ * committed, and the index needs no lock of its own - membership is held in a {@link StripedLongSet}, so commits changing unrelated entities rarely contend.
+ * <p>
+ * The index is updated from the {@link EntityChanges} of each transaction. An index created with a signature of relevant components only visits the changes to
+ * those components, so its cost scales with the relevant changes rather than every entity involved in the transaction.
+ * <p>
+ * Iteration is weakly consistent: it reflects the membership of the index at some point after iteration began, and may or may not reflect commits made while the
+ * iterator was being created. Iterating never blocks commits for longer than it takes to copy a single stripe of the index.
  */
 public class GenericIndex implements Index {
 
     private final EntityManager entityManager;
-    private final TLongSet entities;
-    private final Predicate<Set<Class<? extends Component>>> relevantForUpdate;
-    private final Predicate<TypeKeyedMap<Component>> includeInIndex;
-
-    private ReentrantLock lock = new ReentrantLock();
+    private final StripedLongSet entities = new StripedLongSet();
+    private final ComponentSignature relevantComponents;
+    private final Predicate<EntityChange> relevantForUpdate;
+    private final Predicate<EntityChange> includeInIndex;
 
-    private TransactionInterceptor lockIndex = new TransactionInterceptor() {
+    private final Consumer<EntityChange> applyChange = new Consumer<EntityChange>() {
         @Override
-        public void handle(TransactionContext context) {
-            Optional<EntitySystemState> entityState = context.getAttachment(EntitySystemState.class);
-            if (entityState.isPresent()) {
-                for (NewEntityState state : entityState.get().getNewEntities()) {
-                    if (relevantForUpdate.test(state.getComponents().keySet())) {
-                        lock.lock();
-                        context.getOrAttach(LockInfo.class, LockInfo::new).addLocked(GenericIndex.this);
-                        return;
-                    }
-                }
-                for (EntityState state : entityState.get().getEntityStates()) {
-                    if (relevantForUpdate.test(state.getInvolvedComponents())) {
-                        lock.lock();
-                        context.getOrAttach(LockInfo.class, LockInfo::new).addLocked(GenericIndex.this);
-                        return;
-                    }
-                }
-            }
-            lock.lock();
-
-            LockInfo lockInfo = context.getOrAttach(LockInfo.class, LockInfo::new);
-            lockInfo.addLocked(this);
-        }
-    };
-    private TransactionInterceptor unlockIndex = new TransactionInterceptor() {
-        @Override
-        public void handle(TransactionContext context) {
-            Optional<LockInfo> existingLockInfo = context.getAttachment(LockInfo.class);
-            if (existingLockInfo.isPresent()) {
-                if (existingLockInfo.get().removeLocked(GenericIndex.this)) {
-                    lock.unlock();
+        public void accept(EntityChange change) {
+            if (relevantForUpdate.test(change)) {
+                if (includeInIndex.test(change)) {
+                    entities.add(change.getId());
+                } else {
+                    entities.remove(change.getId());
                 }
             }
         }
     };
+
     private TransactionInterceptor updateIndex = new TransactionInterceptor() {
         @Override
         public void handle(TransactionContext context) {
-            Optional<LockInfo> lockInfo = context.getAttachment(LockInfo.class);
-            if (lockInfo.isPresent() && lockInfo.get().isLocked(GenericIndex.this)) {
-                Optional<EntitySystemState> entityState = context.getAttachment(EntitySystemState.class);
-                if (entityState.isPresent()) {
-                    for (NewEntityState state : entityState.get().getNewEntities()) {
-                        if (relevantForUpdate.test(state.getComponents().keySet()) && includeInIndex.test(state.getComponents())) {
-                            entities.add(state.getId());
-                        }
-                    }
-                    for (EntityState state : entityState.get().getEntityStates()) {
-                        if (relevantForUpdate.test(state.getInvolvedComponents())) {
-                            if (includeInIndex.test(state.getComponents())) {
-                                entities.add(state.getId());
-                            } else {
-                                entities.remove(state.getId());
-                            }
-                        }
-                    }
-                }
+            EntityChanges changes = EntityChanges.of(context);
+            if (relevantComponents != null) {
+                changes.forEachChange(relevantComponents, applyChange);
+            } else {
+                changes.getChanges().forEach(applyChange);
             }
         }
     };
 
+    /**
+     * Creates an index that considers every change to an entity, testing whether it is relevant and whether the entity should be included against the types of
+     * component changed and all of the entity's components respectively.
+     *
+     * @param transactionManager The transaction manager
+     * @param entityManager      The entity manager
+     * @param relevantForUpdate  Whether a change to the given types of component may change the membership of an entity
+     * @param includeInIndex     Whether an entity with the given components belongs in the index
+     */
     public GenericIndex(TransactionManager transactionManager, EntityManager entityManager, Predicate<Set<Class<? extends Component>>> relevantForUpdate, Predicate<TypeKeyedMap<Component>> includeInIndex) {
+        this(transactionManager, entityManager, null, (change) -> relevantForUpdate.test(change.getChangedTypes()), (change) -> includeInIndex.test(change.getComponents()));
+    }
+
+    /**
+     * Creates an index that only considers changes to the given types of component.
+     *
+     * @param transactionManager The transaction manager
+     * @param entityManager      The entity manager
+     * @param relevantComponents The types of component whose changes may change the membership of an entity
+     * @param includeInIndex     Whether a changed entity belongs in the index
+     */
+    public GenericIndex(TransactionManager transactionManager, EntityManager entityManager, ComponentSignature relevantComponents, Predicate<EntityChange> includeInIndex) {
+        this(transactionManager, entityManager, relevantComponents, (change) -> true, includeInIndex);
+    }
+
+    private GenericIndex(TransactionManager transactionManager, EntityManager entityManager, ComponentSignature relevantComponents, Predicate<EntityChange> relevantForUpdate,
+                         Predicate<EntityChange> includeInIndex) {
         this.entityManager = entityManager;
-        this.entities = TCollections.synchronizedSet(new TLongHashSet());
+        this.relevantComponents = relevantComponents;
         this.relevantForUpdate = relevantForUpdate;
         this.includeInIndex = includeInIndex;
 
-        transactionManager.getPipeline().registerInterceptor(TransactionStage.OBTAIN_LOCKS, lockIndex);
         transactionManager.getPipeline().registerInterceptor(TransactionStage.PROCESS_COMMIT, updateIndex);
-        transactionManager.getPipeline().registerInterceptor(TransactionStage.RELEASE_LOCKS, unlockIndex);
     }
 
     @Override
@@ -130,6 +119,6 @@ public boolean contains(EntityRef entity) {
 
     @Override
     public Iterator<EntityRef> iterator() {
-        return entityManager.getEntities(entities).iterator();
+        return entityManager.getEntities(entities.copy()).iterator();
     }
 }
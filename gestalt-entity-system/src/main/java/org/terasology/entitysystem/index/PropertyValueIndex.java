@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.index;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.component.PropertyAccessor;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.entity.inmemory.EntityChange;
+import org.terasology.entitysystem.entity.inmemory.EntityChanges;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
+import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
+import org.terasology.entitysystem.transaction.pipeline.TransactionStage;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.function.Consumer;
+
+/**
+ * An index of entities by the value of a property of a component. Like {@link GenericIndex}, it is updated from the {@link EntityChanges} of each transaction while
+ * it is being committed, under the locks held on the changed entities, and only reflects changes committed after it is created.
+ * <p>
+ * The ids of the entities with each value are held in a bucket in a concurrent map, keyed by value. Changes to an entity's value move its id between buckets, each
+ * guarded by its own lock, so only commits changing entities to or from the same value contend. Values are used as map keys, so should be immutable.
+ *
+ * @param <T> The type of the component
+ * @param <V> The type of the property
+ */
+@ThreadSafe
+class PropertyValueIndex<T extends Component, V> implements ValueIndex<V> {
+
+    private final Class<T> componentType;
+    private final ComponentSignature componentSignature;
+    private final PropertyAccessor<T, V> property;
+    private final ConcurrentMap<V, Bucket> buckets;
+
+    private final Consumer<EntityChange> applyChange = new Consumer<EntityChange>() {
+        @Override
+        public void accept(EntityChange change) {
+            V before = valueOf(change.getOriginalComponent(componentType));
+            V after = valueOf(change.getComponent(componentType));
+            if (!Objects.equals(before, after)) {
+                remove(change.getId(), before);
+                add(change.getId(), after);
+            }
+        }
+    };
+
+    private TransactionInterceptor updateIndex = new TransactionInterceptor() {
+        @Override
+        public void handle(TransactionContext context) {
+            EntityChanges.of(context).forEachChange(componentSignature, applyChange);
+        }
+    };
+
+    /**
+     * @param transactionManager The transaction manager to update the index from
+     * @param componentType      The type of the component
+     * @param property           The property of the component to index
+     * @param buckets            The map to hold the buckets of entity ids in
+     */
+    PropertyValueIndex(TransactionManager transactionManager, Class<T> componentType, PropertyAccessor<T, V> property, ConcurrentMap<V, Bucket> buckets) {
+        this.componentType = componentType;
+        this.componentSignature = ComponentSignature.of(componentType);
+        this.property = property;
+        this.buckets = buckets;
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.PROCESS_COMMIT, updateIndex);
+    }
+
+    @Override
+    public TLongList findEqual(V value) {
+        TLongArrayList result = new TLongArrayList();
+        if (value != null) {
+            Bucket bucket = buckets.get(value);
+            if (bucket != null) {
+                bucket.copyTo(result);
+            }
+        }
+        return result;
+    }
+
+    private V valueOf(Component component) {
+        return (component != null) ? property.get(componentType.cast(component)) : null;
+    }
+
+    private void add(long entityId, V value) {
+        if (value == null) {
+            return;
+        }
+        while (true) {
+            Bucket bucket = buckets.get(value);
+            if (bucket == null) {
+                bucket = buckets.computeIfAbsent(value, (k) -> new Bucket());
+            }
+            synchronized (bucket) {
+                if (!bucket.discarded) {
+                    bucket.ids.add(entityId);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void remove(long entityId, V value) {
+        if (value == null) {
+            return;
+        }
+        Bucket bucket = buckets.get(value);
+        if (bucket != null) {
+            synchronized (bucket) {
+                if (bucket.ids.remove(entityId) && bucket.ids.isEmpty()) {
+                    bucket.discarded = true;
+                    buckets.remove(value, bucket);
+                }
+            }
+        }
+    }
+
+    /**
+     * The ids of the entities with a given value. Once a bucket is emptied it is discarded from the map, and any id being added to it is instead added to a new
+     * bucket.
+     */
+    static final class Bucket {
+        private final TLongHashSet ids = new TLongHashSet();
+        private boolean discarded;
+
+        synchronized void copyTo(TLongList target) {
+            target.addAll(ids);
+        }
+    }
+
+    /**
+     * A property value index whose buckets are held in a sorted map, so it can find entities by a range of values.
+     */
+    static final class Sorted<T extends Component, V extends Comparable<? super V>> extends PropertyValueIndex<T, V> implements SortedValueIndex<V> {
+
+        private final ConcurrentNavigableMap<V, Bucket> sortedBuckets;
+
+        Sorted(TransactionManager transactionManager, Class<T> componentType, PropertyAccessor<T, V> property, ConcurrentNavigableMap<V, Bucket> buckets) {
+            super(transactionManager, componentType, property, buckets);
+            this.sortedBuckets = buckets;
+        }
+
+        @Override
+        public TLongList findInRange(Range<V> range) {
+            NavigableMap<V, Bucket> subMap = sortedBuckets;
+            if (range.hasLowerBound()) {
+                subMap = subMap.tailMap(range.lowerEndpoint(), range.lowerBoundType() == BoundType.CLOSED);
+            }
+            if (range.hasUpperBound()) {
+                subMap = subMap.headMap(range.upperEndpoint(), range.upperBoundType() == BoundType.CLOSED);
+            }
+            TLongArrayList result = new TLongArrayList();
+            for (Bucket bucket : subMap.values()) {
+                bucket.copyTo(result);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.index;
+
+import com.google.common.collect.Range;
+import gnu.trove.list.TLongList;
+
+/**
+ * An index of entities by the value of a property of one of their components, which can also find the entities whose property is within a range of values.
+ *
+ * @param <V> The type of the property
+ */
+public interface SortedValueIndex<V extends Comparable<? super V>> extends ValueIndex<V> {
+
+    /**
+     * @param range The range of values to find
+     * @return The ids of the entities whose property is within the range, in order of their property. The result is a copy, and is weakly consistent with
+     * concurrent commits.
+     */
+    TLongList findInRange(Range<V> range);
+}
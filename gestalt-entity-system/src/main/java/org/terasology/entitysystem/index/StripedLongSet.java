@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.index;
+
+import com.google.common.base.Preconditions;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TLongHashSet;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A concurrent set of longs, split into stripes by hash. Each stripe is a primitive hash set with its own lock, so changes to values in different stripes do not
+ * contend with each other, and no lock is ever held for longer than a single change or the copying of a single stripe.
+ * <p>
+ * Copying the set is weakly consistent - each stripe is copied as it was at some point during the copy, but changes made to other stripes while it is being copied
+ * may or may not be included.
+ */
+@ThreadSafe
+final class StripedLongSet {
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final Stripe[] stripes;
+    private final int shift;
+
+    StripedLongSet() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes The number of stripes. Must be a power of two.
+     */
+    StripedLongSet(int stripes) {
+        Preconditions.checkArgument(stripes > 0 && Integer.bitCount(stripes) == 1, "stripes must be a power of two");
+        this.stripes = new Stripe[stripes];
+        for (int i = 0; i < stripes; ++i) {
+            this.stripes[i] = new Stripe();
+        }
+        this.shift = Integer.SIZE - Integer.numberOfTrailingZeros(stripes);
+    }
+
+    boolean contains(long value) {
+        Stripe stripe = stripeFor(value);
+        long stamp = stripe.lock.readLock();
+        try {
+            return stripe.values.contains(value);
+        } finally {
+            stripe.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return Whether the value was added, as opposed to already being present
+     */
+    boolean add(long value) {
+        Stripe stripe = stripeFor(value);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.values.add(value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return Whether the value was removed, as opposed to not being present
+     */
+    boolean remove(long value) {
+        Stripe stripe = stripeFor(value);
+        long stamp = stripe.lock.writeLock();
+        try {
+            return stripe.values.remove(value);
+        } finally {
+            stripe.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return The number of values in the set. This is only an estimate while the set is being changed.
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                size += stripe.values.size();
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return A weakly consistent copy of the values in the set
+     */
+    TLongList copy() {
+        TLongArrayList result = new TLongArrayList(size());
+        for (Stripe stripe : stripes) {
+            long stamp = stripe.lock.readLock();
+            try {
+                result.addAll(stripe.values);
+            } finally {
+                stripe.lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    private Stripe stripeFor(long value) {
+        int hash = (int) (value ^ (value >>> 32)) * 0x9E3779B9;
+        return stripes[shift == Integer.SIZE ? 0 : hash >>> shift];
+    }
+
+    private static final class Stripe {
+        private final StampedLock lock = new StampedLock();
+        private final TLongHashSet values = new TLongHashSet();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2015 MovingBlocks
+ * Copyright 2016 MovingBlocks
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -14,27 +14,22 @@
  * limitations under the License.
  */
 
-package org.terasology.entitysystem.index;
 
-import com.google.common.collect.Sets;
+package org.terasology.entitysystem.index;
 
-import java.util.Set;
+import gnu.trove.list.TLongList;
 
 /**
+ * An index of entities by the value of a property of one of their components. Entities without the component, or for which the property is null, are not
+ * included.
  *
+ * @param <V> The type of the property
  */
-public class LockInfo {
-    private Set<Object> lockedObjects = Sets.newHashSet();
-
-    public void addLocked(Object locked) {
-        this.lockedObjects.add(locked);
-    }
-
-    public boolean isLocked(Object locked) {
-        return lockedObjects.contains(locked);
-    }
+public interface ValueIndex<V> {
 
-    public boolean removeLocked(Object locked) {
-        return lockedObjects.remove(locked);
-    }
+    /**
+     * @param value The value to find
+     * @return The ids of the entities whose property is equal to the value. The result is a copy, and is weakly consistent with concurrent commits.
+     */
+    TLongList findEqual(V value);
 }
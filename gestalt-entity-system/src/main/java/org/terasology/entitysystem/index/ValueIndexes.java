@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.index;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Primitives;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.PropertyAccessor;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.transaction.TransactionManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Factory methods for indexes of entities by the value of a component property. Like component indexes, these only reflect changes committed after they are
+ * created, so should be created before entities are.
+ */
+public final class ValueIndexes {
+
+    private ValueIndexes() {
+    }
+
+    /**
+     * Creates an index that can find entities with a given value of a property.
+     *
+     * @param transactionManager The transaction manager
+     * @param componentManager   The component manager, used to obtain the property
+     * @param componentType      The type of component
+     * @param propertyName       The name of the property to index
+     * @param valueType          The type of the property
+     * @return A new index
+     */
+    public static <T extends Component, V> ValueIndex<V> createHashIndex(TransactionManager transactionManager, ComponentManager componentManager, Class<T> componentType,
+                                                                         String propertyName, Class<V> valueType) {
+        return new PropertyValueIndex<>(transactionManager, componentType, getProperty(componentManager, componentType, propertyName, valueType), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates an index that can find entities with a given value of a property, or with a value in a range.
+     *
+     * @param transactionManager The transaction manager
+     * @param componentManager   The component manager, used to obtain the property
+     * @param componentType      The type of component
+     * @param propertyName       The name of the property to index
+     * @param valueType          The type of the property
+     * @return A new index
+     */
+    public static <T extends Component, V extends Comparable<? super V>> SortedValueIndex<V> createSortedIndex(TransactionManager transactionManager, ComponentManager componentManager,
+                                                                                                             Class<T> componentType, String propertyName, Class<V> valueType) {
+        return new PropertyValueIndex.Sorted<>(transactionManager, componentType, getProperty(componentManager, componentType, propertyName, valueType), new ConcurrentSkipListMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Component, V> PropertyAccessor<T, V> getProperty(ComponentManager componentManager, Class<T> componentType, String propertyName, Class<V> valueType) {
+        PropertyAccessor<T, ?> property = componentManager.getType(componentType).getPropertyInfo().getProperty(propertyName)
+                .orElseThrow(() -> new IllegalArgumentException("No property '" + propertyName + "' in " + componentType));
+        Preconditions.checkArgument(Primitives.wrap(valueType).isAssignableFrom(Primitives.wrap(property.getPropertyClass())),
+                "Property '%s' of %s is not of type %s", propertyName, componentType, valueType);
+        return (PropertyAccessor<T, V>) property;
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.lifecycle;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityBatch;
+import org.terasology.entitysystem.core.EntityRef;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A batch of existing entities that the same component types were added to in a single transaction, so they can be covered by one {@link OnBatchAdded} event.
+ * Unlike a batch created through the entity manager, the ids of the entities need not be contiguous.
+ */
+final class AddedEntityBatch implements EntityBatch {
+    private final List<EntityRef> entities;
+    private final Set<Class<? extends Component>> componentTypes;
+
+    AddedEntityBatch(List<EntityRef> entities, Set<Class<? extends Component>> componentTypes) {
+        this.entities = ImmutableList.copyOf(entities);
+        this.componentTypes = ImmutableSet.copyOf(componentTypes);
+    }
+
+    @Override
+    public int size() {
+        return entities.size();
+    }
+
+    @Override
+    public Set<Class<? extends Component>> getComponentTypes() {
+        return componentTypes;
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return true;
+    }
+
+    @Override
+    public long getId(int index) {
+        return getEntity(index).getId();
+    }
+
+    @Override
+    public EntityRef getEntity(int index) {
+        Preconditions.checkElementIndex(index, entities.size());
+        return entities.get(index);
+    }
+}
@@ -17,15 +17,19 @@
 package org.terasology.entitysystem.lifecycle;
 
 import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityBatch;
 import org.terasology.entitysystem.event.Event;
 
 import java.util.Collection;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class LifecycleEventFactories {
     private BiFunction<Integer, Collection<Component>, Event> addedEventFactory = OnAdded::new;
     private BiFunction<Integer, Collection<Component>, Event> removedFactoryEvent = OnRemoved::new;
     private ChangedEventFactory updatedEventFactory = OnChanged::new;
+    private Function<EntityBatch, Event> batchAddedEventFactory = OnBatchAdded::new;
+    private int batchAddedThreshold = Integer.MAX_VALUE;
 
     public BiFunction<Integer, Collection<Component>, Event> getAddedEventFactory() {
         return addedEventFactory;
@@ -51,6 +55,27 @@ public void setRemovedFactoryEvent(BiFunction<Integer, Collection<Component>, Ev
         this.removedFactoryEvent = removedFactoryEvent;
     }
 
+    public Function<EntityBatch, Event> getBatchAddedEventFactory() {
+        return batchAddedEventFactory;
+    }
+
+    public void setBatchAddedEventFactory(Function<EntityBatch, Event> batchAddedEventFactory) {
+        this.batchAddedEventFactory = batchAddedEventFactory;
+    }
+
+    public int getBatchAddedThreshold() {
+        return batchAddedThreshold;
+    }
+
+    /**
+     * @param batchAddedThreshold The number of entities a transaction must add the same component types to for a single batch added event to be sent for them in
+     *                            place of an added event per entity. Defaults to Integer.MAX_VALUE, so batch added events are only sent for batches created
+     *                            through the entity manager.
+     */
+    public void setBatchAddedThreshold(int batchAddedThreshold) {
+        this.batchAddedThreshold = batchAddedThreshold;
+    }
+
     public interface ChangedEventFactory {
         Event create(int revision, Collection<Component> beforeComponents, Collection<Component> afterComponents);
     }
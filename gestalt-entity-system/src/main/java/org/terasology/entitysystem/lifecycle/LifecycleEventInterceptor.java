@@ -16,20 +16,31 @@
 
 package org.terasology.entitysystem.lifecycle;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityBatch;
 import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.entity.inmemory.EntityState;
 import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
+import org.terasology.entitysystem.entity.inmemory.NewEntityBatch;
+import org.terasology.entitysystem.event.Event;
 import org.terasology.entitysystem.event.EventSystem;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 import org.terasology.entitysystem.transaction.pipeline.TransactionInterceptor;
 
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
- * Lifecycle Event Handler sends events based on changes to entities during the transaction.
+ * Lifecycle Event Handler sends events based on changes to entities during the transaction. Each entity is sent at most one event of each kind - added, changed and
+ * removed - covering all of its components that were added, changed or removed.
+ * <p>
+ * If enabled through {@link LifecycleEventFactories#setBatchAddedThreshold(int)}, a transaction that adds the same component types to enough entities sends a
+ * single batch added event for those entities in place of the added event of each entity, as is sent for a batch created through the entity manager.
  */
 public class LifecycleEventInterceptor implements TransactionInterceptor {
     private static final LifecycleEventFactories DEFAULT_EVENT_FACTORIES = new LifecycleEventFactories();
@@ -44,55 +55,135 @@ public LifecycleEventInterceptor(EntityManager entityManager, EventSystem eventS
 
     @Override
     public void handle(TransactionContext context) {
-        LifecycleEventFactories factories = context.getAttachment(LifecycleEventFactories.class).orElse(DEFAULT_EVENT_FACTORIES);
-        context.getAttachment(EntitySystemState.class).ifPresent((entitySystemState) -> {
+        LifecycleEventFactories factories = context.getAttachmentIfPresent(LifecycleEventFactories.class);
+        if (factories == null) {
+            factories = DEFAULT_EVENT_FACTORIES;
+        }
+        EntitySystemState entitySystemState = context.getAttachmentIfPresent(EntitySystemState.class);
+        if (entitySystemState != null) {
+            for (NewEntityBatch batch : entitySystemState.getNewEntityBatches()) {
+                if (batch.isCommitted()) {
+                    eventSystem.send(factories.getBatchAddedEventFactory().apply(batch), batch.getEntity(0), batch.getComponentTypes());
+                }
+            }
+            // Events are held back while a batch added event may be sent in place of the added events
+            List<LifecycleEventInfo> heldEvents = null;
+            if (entitySystemState.getEntityStates().size() >= factories.getBatchAddedThreshold()) {
+                heldEvents = Lists.newArrayList();
+            }
             for (EntityState entityState : entitySystemState.getEntityStates()) {
-                Set<Class<? extends Component>> addedComponentTypes = Sets.newLinkedHashSet();
-                Set<Class<? extends Component>> updatedComponentTypes = Sets.newLinkedHashSet();
-                Set<Class<? extends Component>> removedComponentTypes = Sets.newLinkedHashSet();
-
+                Set<Class<? extends Component>> addedComponentTypes = null;
+                Set<Class<? extends Component>> updatedComponentTypes = null;
+                Set<Class<? extends Component>> removedComponentTypes = null;
                 for (Class<? extends Component> componentType : entityState.getInvolvedComponents()) {
                     switch (entityState.getUpdateAction(componentType)) {
-                        case ADD: {
-                            addedComponentTypes.add(componentType);
-                        }
-                        break;
-                        case UPDATE: {
-                            updatedComponentTypes.add(componentType);
-                        }
-                        break;
-                        case REMOVE: {
-                            removedComponentTypes.add(componentType);
-                        }
-                        break;
+                        case ADD:
+                            addedComponentTypes = addTo(addedComponentTypes, componentType);
+                            break;
+                        case UPDATE:
+                            updatedComponentTypes = addTo(updatedComponentTypes, componentType);
+                            break;
+                        case REMOVE:
+                            removedComponentTypes = addTo(removedComponentTypes, componentType);
+                            break;
                         default:
                     }
+                }
+                if (addedComponentTypes == null && updatedComponentTypes == null && removedComponentTypes == null) {
+                    continue;
+                }
 
-                    if (!addedComponentTypes.isEmpty()) {
-                        eventSystem.send(
-                                factories.getAddedEventFactory().apply(
-                                        entityState.getRevision(),
-                                        addedComponentTypes.stream().map((t) -> entityState.getComponent(t).get()).collect(Collectors.toList())),
-                                entityManager.getEntity(entityState.getId()),
-                                addedComponentTypes);
-                    }
-                    if (!updatedComponentTypes.isEmpty()) {
-                        eventSystem.send(factories.getUpdatedEventFactory().create(
-                                entityState.getRevision(),
-                                updatedComponentTypes.stream().map((t) -> entityState.getOriginalComponent(t).get()).collect(Collectors.toList()),
-                                updatedComponentTypes.stream().map((t) -> entityState.getComponent(t).get()).collect(Collectors.toList())),
-                                entityManager.getEntity(entityState.getId()),
-                                updatedComponentTypes);
-                    }
-                    if (!removedComponentTypes.isEmpty()) {
-                        eventSystem.send(factories.getRemovedFactoryEvent().apply(
-                                entityState.getRevision(),
-                                removedComponentTypes.stream().map((t) -> entityState.getOriginalComponent(t).get()).collect(Collectors.toList())),
-                                entityManager.getEntity(entityState.getId()),
-                                removedComponentTypes);
-                    }
+                EntityRef entity = entityManager.getEntity(entityState.getId());
+                if (addedComponentTypes != null) {
+                    Event event = factories.getAddedEventFactory().apply(entityState.getRevision(), getWorkingComponents(entityState, addedComponentTypes));
+                    send(new LifecycleEventInfo(event, entity, addedComponentTypes, true), heldEvents);
+                }
+                if (updatedComponentTypes != null) {
+                    Event event = factories.getUpdatedEventFactory().create(entityState.getRevision(),
+                            getOriginalComponents(entityState, updatedComponentTypes), getWorkingComponents(entityState, updatedComponentTypes));
+                    send(new LifecycleEventInfo(event, entity, updatedComponentTypes, false), heldEvents);
                 }
+                if (removedComponentTypes != null) {
+                    Event event = factories.getRemovedFactoryEvent().apply(entityState.getRevision(), getOriginalComponents(entityState, removedComponentTypes));
+                    send(new LifecycleEventInfo(event, entity, removedComponentTypes, false), heldEvents);
+                }
+            }
+            if (heldEvents != null) {
+                sendHeldEvents(heldEvents, factories);
             }
-        });
+        }
+    }
+
+    private void send(LifecycleEventInfo eventInfo, List<LifecycleEventInfo> heldEvents) {
+        if (heldEvents != null) {
+            heldEvents.add(eventInfo);
+        } else {
+            eventSystem.send(eventInfo.event, eventInfo.entity, eventInfo.triggeringComponents);
+        }
+    }
+
+    /**
+     * Sends a batch added event for each set of component types added to at least the threshold number of entities, followed by the remaining events in order.
+     */
+    private void sendHeldEvents(List<LifecycleEventInfo> heldEvents, LifecycleEventFactories factories) {
+        Map<Set<Class<? extends Component>>, List<LifecycleEventInfo>> addedEventsByType = Maps.newLinkedHashMap();
+        for (LifecycleEventInfo eventInfo : heldEvents) {
+            if (eventInfo.added) {
+                addedEventsByType.computeIfAbsent(eventInfo.triggeringComponents, (key) -> Lists.newArrayList()).add(eventInfo);
+            }
+        }
+        Set<LifecycleEventInfo> batchedEvents = Sets.newIdentityHashSet();
+        for (Map.Entry<Set<Class<? extends Component>>, List<LifecycleEventInfo>> entry : addedEventsByType.entrySet()) {
+            if (entry.getValue().size() >= factories.getBatchAddedThreshold()) {
+                List<EntityRef> entities = Lists.newArrayListWithCapacity(entry.getValue().size());
+                for (LifecycleEventInfo eventInfo : entry.getValue()) {
+                    entities.add(eventInfo.entity);
+                }
+                EntityBatch batch = new AddedEntityBatch(entities, entry.getKey());
+                eventSystem.send(factories.getBatchAddedEventFactory().apply(batch), batch.getEntity(0), batch.getComponentTypes());
+                batchedEvents.addAll(entry.getValue());
+            }
+        }
+        for (LifecycleEventInfo eventInfo : heldEvents) {
+            if (!batchedEvents.contains(eventInfo)) {
+                eventSystem.send(eventInfo.event, eventInfo.entity, eventInfo.triggeringComponents);
+            }
+        }
+    }
+
+    private static Set<Class<? extends Component>> addTo(Set<Class<? extends Component>> componentTypes, Class<? extends Component> componentType) {
+        Set<Class<? extends Component>> result = (componentTypes != null) ? componentTypes : Sets.newLinkedHashSet();
+        result.add(componentType);
+        return result;
+    }
+
+    private static List<Component> getWorkingComponents(EntityState entityState, Set<Class<? extends Component>> componentTypes) {
+        List<Component> result = Lists.newArrayListWithCapacity(componentTypes.size());
+        for (Class<? extends Component> componentType : componentTypes) {
+            result.add(entityState.getComponent(componentType).get());
+        }
+        return result;
+    }
+
+    private static List<Component> getOriginalComponents(EntityState entityState, Set<Class<? extends Component>> componentTypes) {
+        List<Component> result = Lists.newArrayListWithCapacity(componentTypes.size());
+        for (Class<? extends Component> componentType : componentTypes) {
+            result.add(entityState.getOriginalComponent(componentType).get());
+        }
+        return result;
+    }
+
+    private static final class LifecycleEventInfo {
+        private final Event event;
+        private final EntityRef entity;
+        private final Set<Class<? extends Component>> triggeringComponents;
+        private final boolean added;
+
+        LifecycleEventInfo(Event event, EntityRef entity, Set<Class<? extends Component>> triggeringComponents, boolean added) {
+            this.event = event;
+            this.entity = entity;
+            this.triggeringComponents = triggeringComponents;
+            this.added = added;
+        }
     }
 }
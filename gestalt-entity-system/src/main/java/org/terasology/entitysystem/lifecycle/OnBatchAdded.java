@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.lifecycle;
+
+import org.terasology.entitysystem.core.EntityBatch;
+
+/**
+ * Sent once for a batch of entities created through {@link org.terasology.entitysystem.core.EntityManager#createEntityBatch}, rather than an event per entity. The
+ * event is sent against the first entity of the batch, with the component types of the batch as the triggering components, so a handler can process the whole batch
+ * in one call.
+ * <p>
+ * If enabled through {@link LifecycleEventFactories#setBatchAddedThreshold(int)}, this is also sent in place of the added events of existing entities that a
+ * transaction added the same component types to.
+ */
+public class OnBatchAdded extends LifecycleEvent {
+    private final EntityBatch batch;
+
+    public OnBatchAdded(EntityBatch batch) {
+        super(1);
+        this.batch = batch;
+    }
+
+    /**
+     * @return The batch of entities that was added
+     */
+    public EntityBatch getBatch() {
+        return batch;
+    }
+}
@@ -17,17 +17,24 @@
 package org.terasology.entitysystem.lifecycle;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
 import org.terasology.entitysystem.core.Component;
 import org.terasology.entitysystem.event.Event;
+import org.terasology.entitysystem.event.MergeableEvent;
 import org.terasology.util.collection.TypeKeyedMap;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 
 /**
- *
+ * Sent when components of an entity are changed, with the state of the changed components before and after the change.
+ * <p>
+ * OnChanged events can be merged, so an event type extending OnChanged can be marked {@link org.terasology.entitysystem.event.Coalesce} to combine the changes to
+ * an entity made by several transactions into a single event. Such a type should override {@link #create(int, TypeKeyedMap, TypeKeyedMap)} so merged events keep
+ * its type.
  */
-public class OnChanged extends LifecycleEvent {
+public class OnChanged extends LifecycleEvent implements MergeableEvent<OnChanged> {
     private TypeKeyedMap<Component> beforeComponents;
     private TypeKeyedMap<Component> afterComponents;
 
@@ -67,4 +74,34 @@ public TypeKeyedMap<Component> getAfterComponents() {
     public <T extends Component> T getAfterComponent(Class<T> type) {
         return afterComponents.get(type);
     }
+
+    /**
+     * Merges this event with a later change of the same entity. The merged event has the revision of the later event, the before state of each component from the
+     * first event that changed it, and the after state of each component from the last event that changed it.
+     *
+     * @param later A later change of the same entity
+     * @return The merged event
+     */
+    @Override
+    public OnChanged merge(OnChanged later) {
+        Map<Class<? extends Component>, Component> mergedBefore = Maps.newLinkedHashMap(beforeComponents.getInner());
+        for (Map.Entry<Class<? extends Component>, Component> entry : later.beforeComponents.getInner().entrySet()) {
+            mergedBefore.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        Map<Class<? extends Component>, Component> mergedAfter = Maps.newLinkedHashMap(afterComponents.getInner());
+        mergedAfter.putAll(later.afterComponents.getInner());
+        return create(later.getRevision(), new TypeKeyedMap<>(mergedBefore), new TypeKeyedMap<>(mergedAfter));
+    }
+
+    /**
+     * Creates an event of this event's type, used by {@link #merge(OnChanged)} to create the merged event.
+     *
+     * @param revision         The revision of the merged event
+     * @param beforeComponents The state of the changed components before the changes
+     * @param afterComponents  The state of the changed components after the changes
+     * @return A new event with the given state
+     */
+    protected OnChanged create(int revision, TypeKeyedMap<Component> beforeComponents, TypeKeyedMap<Component> afterComponents) {
+        return new OnChanged(revision, beforeComponents, afterComponents);
+    }
 }
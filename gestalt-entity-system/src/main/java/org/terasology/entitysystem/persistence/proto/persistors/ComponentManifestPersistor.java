@@ -30,6 +30,7 @@
 import org.terasology.module.ModuleEnvironment;
 import org.terasology.naming.Name;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -51,8 +52,18 @@ public ComponentManifestPersistor(ModuleEnvironment moduleEnvironment, Component
     }
 
     public ProtoDatastore.ComponentManifestData.Builder serialize(ComponentManifest manifest) {
+        return serialize(manifest.allComponentMetadata());
+    }
+
+    /**
+     * Serializes part of a manifest, such as the metadata added to it since it was last serialized.
+     *
+     * @param componentMetadata The metadata to serialize
+     * @return The serialized metadata
+     */
+    public ProtoDatastore.ComponentManifestData.Builder serialize(List<ComponentMetadata<?>> componentMetadata) {
         ProtoDatastore.ComponentManifestData.Builder builder = ProtoDatastore.ComponentManifestData.newBuilder();
-        for (ComponentMetadata<?> metadata : manifest.allComponentMetadata()) {
+        for (ComponentMetadata<?> metadata : componentMetadata) {
             ProtoDatastore.ComponentInfo.Builder componentInfoBuilder = ProtoDatastore.ComponentInfo.newBuilder();
             componentInfoBuilder.setId(metadata.getId());
             componentInfoBuilder.setName(metadata.getName().toString());
@@ -71,6 +82,17 @@ public ProtoDatastore.ComponentManifestData.Builder serialize(ComponentManifest
 
     public ComponentManifest deserialize(ProtoDatastore.ComponentManifestData manifestData) {
         ComponentManifest manifest = new ComponentManifest(moduleEnvironment, componentManager);
+        deserialize(manifestData, manifest);
+        return manifest;
+    }
+
+    /**
+     * Deserializes component metadata into an existing manifest, such as the metadata introduced by one chunk of a streamed entity store.
+     *
+     * @param manifestData The serialized metadata
+     * @param manifest     The manifest to add the metadata to
+     */
+    public void deserialize(ProtoDatastore.ComponentManifestData manifestData, ComponentManifest manifest) {
         for (ProtoDatastore.ComponentInfo componentInfo : manifestData.getComponentsList()) {
             Map<Integer, String> fieldMappings = Maps.newLinkedHashMap();
             for (ProtoDatastore.FieldInfo fieldInfo : componentInfo.getFieldList()) {
@@ -86,7 +108,5 @@ public ComponentManifest deserialize(ProtoDatastore.ComponentManifestData manife
                 manifest.addComponentMetadata(new ComponentMetadata(componentInfo.getId(), moduleName, name, null, fieldMappings));
             }
         }
-
-        return manifest;
     }
 }
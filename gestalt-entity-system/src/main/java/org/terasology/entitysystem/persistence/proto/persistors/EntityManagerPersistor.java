@@ -16,49 +16,166 @@
 
 package org.terasology.entitysystem.persistence.proto.persistors;
 
+import com.google.common.base.Preconditions;
+import com.google.common.io.ByteStreams;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
 import org.terasology.entitysystem.component.ComponentManager;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.EntityIdAllocator;
 import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.entity.inmemory.LockStore;
 import org.terasology.entitysystem.persistence.proto.ComponentManifest;
+import org.terasology.entitysystem.persistence.proto.ComponentMetadata;
 import org.terasology.entitysystem.persistence.proto.ProtoPersistence;
 import org.terasology.entitysystem.persistence.protodata.ProtoDatastore;
 import org.terasology.entitysystem.transaction.TransactionManager;
 import org.terasology.module.ModuleEnvironment;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * Serializes and Deserializes EntityManagers.
+ * <p>
+ * EntityManagers are saved to streams and files as a sequence of length-delimited {@link ProtoDatastore.Store} chunks, so neither saving nor loading ever holds
+ * more than one chunk of entities in serialized form. Each chunk holds up to the chunk size of entities, along with the metadata of any component types first
+ * used by those entities, so a chunk can be loaded using only the chunks before it. The last chunk also holds the state of the entity id allocator. When loading,
+ * the entities of each chunk are created in a single transaction.
+ * <p>
+ * The chunks are preceded by a header identifying the format and its version. Streams without the header are loaded as a single {@link ProtoDatastore.Store},
+ * the format saved by earlier versions. The header starts with a zero byte, which cannot start a non-empty Store message as zero is not a valid field tag.
  */
 public class EntityManagerPersistor {
 
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final byte[] CHUNKED_FORMAT_MAGIC = {0, 'G', 'E', 'S'};
+    private static final int CHUNKED_FORMAT_VERSION = 1;
+
     private final ComponentManager componentManager;
     private final ModuleEnvironment moduleEnvironment;
     private final ComponentManifestPersistor componentManifestPersistor;
     private final ProtoPersistence context;
+    private final int chunkSize;
 
     public EntityManagerPersistor(ModuleEnvironment moduleEnvironment, ComponentManager componentManager, ProtoPersistence context) {
+        this(moduleEnvironment, componentManager, context, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param moduleEnvironment The module environment, used to determine the module providing each component type
+     * @param componentManager  The component manager
+     * @param context           The proto persistence context, providing type handlers
+     * @param chunkSize         The maximum number of entities per chunk when saving to a stream
+     */
+    public EntityManagerPersistor(ModuleEnvironment moduleEnvironment, ComponentManager componentManager, ProtoPersistence context, int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be > 0");
         this.moduleEnvironment = moduleEnvironment;
         this.componentManager = componentManager;
         this.context = context;
+        this.chunkSize = chunkSize;
         this.componentManifestPersistor = new ComponentManifestPersistor(moduleEnvironment, componentManager);
     }
 
     public void serialize(EntityManager entityManager, TransactionManager transactionManager, Path file) throws IOException {
-        try (OutputStream stream = Files.newOutputStream(file)) {
-            serialize(entityManager, transactionManager).writeTo(stream);
+        try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file))) {
+            serialize(entityManager, transactionManager, stream);
         }
     }
 
     public EntityManager deserialize(Path file, TransactionManager transactionManager) throws IOException {
-        try (InputStream stream = Files.newInputStream(file)) {
-            return deserialize(ProtoDatastore.Store.parseFrom(stream), transactionManager);
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+            return deserialize(stream, transactionManager);
+        }
+    }
+
+    /**
+     * Saves all entities to a stream as a sequence of chunks. The entities are saved within a single read-only transaction, so where the entity store supports
+     * snapshots the entities are saved as they were at a single point in time, without blocking commits made while saving.
+     *
+     * @param entityManager      The entity manager to save
+     * @param transactionManager The transaction manager of the entity manager
+     * @param stream             The stream to write to. It is not closed.
+     * @throws IOException If there is an error writing to the stream
+     */
+    public void serialize(EntityManager entityManager, TransactionManager transactionManager, OutputStream stream) throws IOException {
+        ComponentManifest componentManifest = new ComponentManifest(moduleEnvironment, componentManager);
+        EntityPersistor entityPersistor = new SimpleEntityPersistor(context, componentManifest);
+        stream.write(CHUNKED_FORMAT_MAGIC);
+        stream.write(CHUNKED_FORMAT_VERSION);
+        int writtenComponentMetadata = 0;
+        ProtoDatastore.Store.Builder chunk = ProtoDatastore.Store.newBuilder();
+        transactionManager.beginReadOnly();
+        try {
+            Iterator<EntityRef> i = entityManager.allEntities();
+            while (i.hasNext()) {
+                EntityRef entity = i.next();
+                if (entity.isPresent()) {
+                    chunk.addEntity(entityPersistor.serialize(entity));
+                    if (chunk.getEntityCount() == chunkSize) {
+                        writtenComponentMetadata = addNewComponentMetadata(chunk, componentManifest, writtenComponentMetadata);
+                        chunk.build().writeDelimitedTo(stream);
+                        chunk.clear();
+                    }
+                }
+            }
+        } finally {
+            transactionManager.rollback();
+        }
+        addNewComponentMetadata(chunk, componentManifest, writtenComponentMetadata);
+        addIdAllocatorState(chunk, entityManager);
+        chunk.build().writeDelimitedTo(stream);
+        stream.flush();
+    }
+
+    /**
+     * Loads an entity manager from a stream of chunks, as saved by {@link #serialize(EntityManager, TransactionManager, OutputStream)}. A stream holding a single
+     * {@link ProtoDatastore.Store}, as saved by earlier versions, is also accepted.
+     *
+     * @param stream             The stream to read from. It is not closed.
+     * @param transactionManager The transaction manager for the new entity manager
+     * @return The loaded entity manager
+     * @throws IOException If there is an error reading from the stream, it is of an unsupported format version, or it ends before the last chunk
+     */
+    public EntityManager deserialize(InputStream stream, TransactionManager transactionManager) throws IOException {
+        PushbackInputStream input = new PushbackInputStream(stream, CHUNKED_FORMAT_MAGIC.length);
+        byte[] header = new byte[CHUNKED_FORMAT_MAGIC.length];
+        int headerLength = ByteStreams.read(input, header, 0, header.length);
+        if (headerLength < header.length || !Arrays.equals(header, CHUNKED_FORMAT_MAGIC)) {
+            input.unread(header, 0, headerLength);
+            return deserialize(ProtoDatastore.Store.parseFrom(input), transactionManager);
+        }
+        int version = input.read();
+        if (version != CHUNKED_FORMAT_VERSION) {
+            throw new IOException("Unsupported entity store format version: " + version);
+        }
+        return deserializeChunks(input, transactionManager);
+    }
+
+    private EntityManager deserializeChunks(InputStream stream, TransactionManager transactionManager) throws IOException {
+        Loader loader = new Loader(transactionManager);
+        while (true) {
+            ProtoDatastore.Store chunk = ProtoDatastore.Store.parseDelimitedFrom(stream);
+            if (chunk == null) {
+                throw new IOException("Entity store ended before its last chunk");
+            }
+            loader.load(chunk);
+            if (chunk.hasNextEntityId()) {
+                return loader.getEntityManager();
+            }
         }
     }
 
@@ -68,40 +185,114 @@ public ProtoDatastore.Store serialize(EntityManager entityManager, TransactionMa
         EntityPersistor entityPersistor = new SimpleEntityPersistor(context, componentManifest);
         ProtoDatastore.Store.Builder builder = serializeEntities(entityManager, transactionManager, entityPersistor);
         builder.setComponentManifest(componentManifestPersistor.serialize(componentManifest));
-        builder.setNextEntityId(entityManager.getNextId());
+        addIdAllocatorState(builder, entityManager);
 
         return builder.build();
     }
 
     public EntityManager deserialize(ProtoDatastore.Store entityManagerData, TransactionManager transactionManager) {
-        EntityManager entityManager = new InMemoryEntityManager(componentManager, transactionManager, entityManagerData.getNextEntityId());
-
-        ComponentManifest componentManifest = componentManifestPersistor.deserialize(entityManagerData.getComponentManifest());
-        EntityPersistor entityPersistor = new SimpleEntityPersistor(context, componentManifest);
-        deserializeEntities(entityManagerData, entityManager, transactionManager, entityPersistor);
-        return entityManager;
+        Loader loader = new Loader(transactionManager);
+        loader.load(entityManagerData);
+        return loader.getEntityManager();
     }
 
+    /**
+     * Serializes all entities within a single read-only transaction, so where the entity store supports snapshots the entities are saved as they were at a single
+     * point in time, without blocking commits made while saving.
+     */
     private ProtoDatastore.Store.Builder serializeEntities(EntityManager entityManager, TransactionManager transactionManager, EntityPersistor entityPersistor) {
         ProtoDatastore.Store.Builder builder = ProtoDatastore.Store.newBuilder();
-        Iterator<EntityRef> i = entityManager.allEntities();
-        while (i.hasNext()) {
-            EntityRef entity = i.next();
-            transactionManager.begin();
-            if (entity.isPresent()) {
-                builder.addEntity(entityPersistor.serialize(entity));
+        transactionManager.beginReadOnly();
+        try {
+            Iterator<EntityRef> i = entityManager.allEntities();
+            while (i.hasNext()) {
+                EntityRef entity = i.next();
+                if (entity.isPresent()) {
+                    builder.addEntity(entityPersistor.serialize(entity));
+                }
             }
+        } finally {
             transactionManager.rollback();
         }
 
         return builder;
     }
 
-    private void deserializeEntities(ProtoDatastore.Store data, EntityManager entityManager, TransactionManager transactionManager, EntityPersistor entityPersistor) {
-        for (ProtoDatastore.EntityData entityData : data.getEntityList()) {
-            transactionManager.begin();
-            entityPersistor.deserialize(entityData, entityManager);
-            transactionManager.commit();
+    /**
+     * Adds the metadata of the component types added to the manifest since the last chunk was written.
+     *
+     * @return The number of component metadata written, including this chunk
+     */
+    private int addNewComponentMetadata(ProtoDatastore.Store.Builder chunk, ComponentManifest componentManifest, int writtenComponentMetadata) {
+        List<ComponentMetadata<?>> allMetadata = componentManifest.allComponentMetadata();
+        if (allMetadata.size() > writtenComponentMetadata) {
+            chunk.setComponentManifest(componentManifestPersistor.serialize(allMetadata.subList(writtenComponentMetadata, allMetadata.size())));
+        }
+        return allMetadata.size();
+    }
+
+    /**
+     * Adds the state of the entity id allocator. This is read after the entities are saved, so every saved entity's slot is before the next entity id.
+     */
+    private void addIdAllocatorState(ProtoDatastore.Store.Builder builder, EntityManager entityManager) {
+        builder.setNextEntityId(entityManager.getNextId());
+        TLongIterator freeIds = entityManager.getFreeIds().iterator();
+        while (freeIds.hasNext()) {
+            builder.addFreeEntityId(freeIds.next());
+        }
+    }
+
+    /**
+     * Loads an entity manager a chunk at a time. The id allocator starts empty, as entities are loaded with their saved ids, and is restored from the last chunk.
+     */
+    private class Loader {
+        private final TransactionManager transactionManager;
+        private final EntityIdAllocator idAllocator = new EntityIdAllocator(0);
+        private final ComponentTable entityStore = new ComponentTable(componentManager, idAllocator, LockStore.DEFAULT_CONCURRENCY_LEVEL);
+        private final EntityManager entityManager;
+        private final ComponentManifest componentManifest = new ComponentManifest(moduleEnvironment, componentManager);
+        private final EntityPersistor entityPersistor = new SimpleEntityPersistor(context, componentManifest);
+
+        Loader(TransactionManager transactionManager) {
+            this.transactionManager = transactionManager;
+            this.entityManager = new InMemoryEntityManager(componentManager, transactionManager, entityStore);
+        }
+
+        void load(ProtoDatastore.Store chunk) {
+            if (chunk.hasComponentManifest()) {
+                componentManifestPersistor.deserialize(chunk.getComponentManifest(), componentManifest);
+            }
+            if (chunk.getEntityCount() > 0) {
+                transactionManager.begin();
+                for (ProtoDatastore.EntityData entityData : chunk.getEntityList()) {
+                    idAllocator.markAllocated(entityData.getId());
+                    entityPersistor.deserialize(entityData, entityManager);
+                }
+                transactionManager.commit();
+            }
+            if (chunk.hasNextEntityId()) {
+                restoreIdAllocator(chunk);
+            }
+        }
+
+        /**
+         * The entities are saved from a snapshot, so an entity deleted while saving may be saved along with its freed id - such ids are not free. The freed id is
+         * of the generation after the deleted entity's.
+         */
+        private void restoreIdAllocator(ProtoDatastore.Store chunk) {
+            TLongList freeIds = new TLongArrayList(chunk.getFreeEntityIdCount());
+            for (int i = 0; i < chunk.getFreeEntityIdCount(); ++i) {
+                long freeId = chunk.getFreeEntityId(i);
+                int generation = EntityIdAllocator.generation(freeId);
+                if (generation == 0 || !entityStore.isAvailable(EntityIdAllocator.id(EntityIdAllocator.index(freeId), generation - 1))) {
+                    freeIds.add(freeId);
+                }
+            }
+            idAllocator.restore(chunk.getNextEntityId(), freeIds);
+        }
+
+        EntityManager getEntityManager() {
+            return entityManager;
         }
     }
 }
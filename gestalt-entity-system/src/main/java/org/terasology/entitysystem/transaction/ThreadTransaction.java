@@ -21,18 +21,20 @@
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
+import org.terasology.entitysystem.transaction.pipeline.TransactionContextPool;
 import org.terasology.entitysystem.transaction.pipeline.TransactionPipeline;
 
 import java.util.Deque;
 
 /**
- * Transaction handling for a single thread.
+ * Transaction handling for a single thread. Transaction contexts are pooled, so each transaction reuses the context and reusable attachments of an earlier one.
  */
 class ThreadTransaction implements Transaction {
 
     private static final Logger logger = LoggerFactory.getLogger(ThreadTransaction.class);
 
     private final Deque<TransactionContext> transactionState = Queues.newArrayDeque();
+    private final TransactionContextPool contextPool = new TransactionContextPool();
     private final TransactionPipeline pipeline;
 
     ThreadTransaction(TransactionPipeline pipeline) {
@@ -50,7 +52,15 @@ public TransactionContext getContext() {
     }
 
     public void begin() {
-        TransactionContext context = new TransactionContext();
+        begin(contextPool.acquire(false));
+    }
+
+    @Override
+    public void beginReadOnly() {
+        begin(contextPool.acquire(true));
+    }
+
+    private void begin(TransactionContext context) {
         transactionState.push(context);
         pipeline.begin(context);
     }
@@ -58,13 +68,40 @@ public void begin() {
     @SuppressWarnings("unchecked")
     public void commit() {
         Preconditions.checkState(isActive(), "No active transaction to commit");
-        TransactionContext context = transactionState.pop();
-        pipeline.commit(context);
+        commit(transactionState.pop());
     }
 
     public void rollback() {
         Preconditions.checkState(isActive(), "No active transaction to rollback");
-        TransactionContext context = transactionState.pop();
-        pipeline.rollback(context);
+        rollback(transactionState.pop());
+    }
+
+    @Override
+    public TransactionContext suspend() {
+        Preconditions.checkState(isActive(), "No active transaction to suspend");
+        return transactionState.pop();
+    }
+
+    @Override
+    public void commit(TransactionContext context) {
+        try {
+            pipeline.commit(context);
+        } finally {
+            contextPool.release(context);
+        }
+    }
+
+    @Override
+    public void rollback(TransactionContext context) {
+        try {
+            pipeline.rollback(context);
+        } finally {
+            contextPool.release(context);
+        }
+    }
+
+    @Override
+    public void discard(TransactionContext context) {
+        contextPool.release(context);
     }
 }
@@ -31,7 +31,47 @@ public interface Transaction {
 
     void begin();
 
+    /**
+     * Begins a read-only transaction. Components obtained during a read-only transaction are views over the stored components rather than copies - a copy is only made
+     * if the component is modified, and modifications are never committed. Entities cannot have components added or removed during a read-only transaction.
+     * <p>
+     * Where the entity store supports snapshots, a read-only transaction reads a consistent snapshot of the store as it was when the transaction began, unaffected by
+     * transactions committed meanwhile.
+     */
+    void beginReadOnly();
+
     void rollback();
 
     void commit();
+
+    /**
+     * Ends the current transaction without committing or rolling it back, so that it can be committed later - typically merged with other suspended transactions
+     * and committed as a group (see {@link TransactionContext#merge(TransactionContext)}). The transaction that was active before the suspended transaction began
+     * becomes active again.
+     *
+     * @return The context of the suspended transaction, which must be passed to {@link #commit(TransactionContext)} or {@link #rollback(TransactionContext)} on
+     * this thread - or merged into another transaction and then passed to {@link #discard(TransactionContext)}
+     */
+    TransactionContext suspend();
+
+    /**
+     * Commits a suspended transaction.
+     *
+     * @param context The context of the suspended transaction
+     */
+    void commit(TransactionContext context);
+
+    /**
+     * Rolls back a suspended transaction.
+     *
+     * @param context The context of the suspended transaction
+     */
+    void rollback(TransactionContext context);
+
+    /**
+     * Discards a suspended transaction that has been merged into another transaction, without committing or rolling it back.
+     *
+     * @param context The context of the suspended transaction
+     */
+    void discard(TransactionContext context);
 }
@@ -47,6 +47,11 @@ public void begin() {
         transactions.get().begin();
     }
 
+    @Override
+    public void beginReadOnly() {
+        transactions.get().beginReadOnly();
+    }
+
     @Override
     public void rollback() {
         transactions.get().rollback();
@@ -56,4 +61,24 @@ public void rollback() {
     public void commit() {
         transactions.get().commit();
     }
+
+    @Override
+    public TransactionContext suspend() {
+        return transactions.get().suspend();
+    }
+
+    @Override
+    public void commit(TransactionContext context) {
+        transactions.get().commit(context);
+    }
+
+    @Override
+    public void rollback(TransactionContext context) {
+        transactions.get().rollback(context);
+    }
+
+    @Override
+    public void discard(TransactionContext context) {
+        transactions.get().discard(context);
+    }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.transaction.exception;
+
+/**
+ * This exception is thrown if an attempt is made to create entities or add or remove components during a read-only transaction.
+ */
+public class ReadOnlyTransactionException extends EntitySystemException {
+
+    public ReadOnlyTransactionException() {
+    }
+
+    public ReadOnlyTransactionException(String message) {
+        super(message);
+    }
+
+    public ReadOnlyTransactionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public ReadOnlyTransactionException(Throwable cause) {
+        super(cause);
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.transaction.pipeline;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Assigns each type of transaction attachment a fixed slot, so that attachments can be held in an array rather than a map. A slot is assigned the first time a type
+ * is used as an attachment, and is shared by all transaction contexts.
+ */
+final class AttachmentSlots {
+
+    private static final AtomicInteger SLOT_COUNT = new AtomicInteger();
+    private static final ClassValue<Integer> SLOTS = new ClassValue<Integer>() {
+        @Override
+        protected Integer computeValue(Class<?> type) {
+            return SLOT_COUNT.getAndIncrement();
+        }
+    };
+
+    private AttachmentSlots() {
+    }
+
+    /**
+     * @param type The type of attachment
+     * @return The slot for the attachment type
+     */
+    static int slotOf(Class<?> type) {
+        return SLOTS.get(type);
+    }
+
+    /**
+     * @return The number of SLOTS assigned so far
+     */
+    static int count() {
+        return SLOT_COUNT.get();
+    }
+}
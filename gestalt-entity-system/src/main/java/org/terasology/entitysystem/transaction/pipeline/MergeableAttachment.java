@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.transaction.pipeline;
+
+/**
+ * An attachment whose state can be merged with that of another transaction, allowing independent transactions to be committed together as a group (see
+ * {@link TransactionContext#merge(TransactionContext)}). Transactions can only be merged if every attachment type held by both transactions is mergeable.
+ *
+ * @param <T> The type of the attachment
+ */
+public interface MergeableAttachment<T extends MergeableAttachment<T>> {
+
+    /**
+     * @param other An attachment of the same type from another transaction
+     * @return Whether the two transactions conflict, and so cannot be committed together
+     */
+    boolean conflictsWith(T other);
+
+    /**
+     * Merges the state of another transaction's attachment into this one. The other attachment is left unchanged, and should not be committed.
+     *
+     * @param other An attachment of the same type from another transaction, that does not conflict with this one
+     */
+    void merge(T other);
+}
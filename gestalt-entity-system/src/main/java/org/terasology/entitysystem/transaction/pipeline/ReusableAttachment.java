@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.transaction.pipeline;
+
+/**
+ * An attachment that can be reused by later transactions. When a transaction ends, its context is reused for a later transaction on the same thread - plain
+ * attachments are dropped at that point, while reusable attachments are reset and kept aside. A kept attachment is handed back by
+ * {@link TransactionContext#getOrAttach(Class, java.util.function.Supplier)} the next time one of its type is needed, instead of creating a new one.
+ * <p>
+ * Reusable attachments should avoid holding onto large structures between transactions, as they are kept for the life of the thread.
+ */
+public interface ReusableAttachment {
+
+    /**
+     * Clears all state from the attachment, returning it to the state of a newly created attachment.
+     */
+    void reset();
+}
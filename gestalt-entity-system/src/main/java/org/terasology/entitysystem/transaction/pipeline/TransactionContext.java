@@ -16,33 +16,157 @@
 
 package org.terasology.entitysystem.transaction.pipeline;
 
-import org.terasology.util.collection.TypeKeyedMap;
-
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.function.Supplier;
 
 /**
- *
+ * The state of a single transaction. Systems taking part in the transaction hold their state as attachments, keyed by type. Each attachment type has a fixed slot
+ * (see {@link AttachmentSlots}), so attachments are held in a small array and can be looked up without hashing or allocation.
+ * <p>
+ * A context may be reused for later transactions through a {@link TransactionContextPool}. When it is, attachments that are {@link ReusableAttachment}s are reset and
+ * kept aside to be provided by {@link #getOrAttach(Class, Supplier)}, while all other attachments are dropped.
  */
 public class TransactionContext {
 
-    private TypeKeyedMap<Object> attachments = new TypeKeyedMap<>();
+    private static final int MIN_ATTACHMENT_SLOTS = 8;
+
+    private boolean readOnly;
+    private Object[] attachments = new Object[Math.max(MIN_ATTACHMENT_SLOTS, AttachmentSlots.count())];
+    private Object[] spareAttachments = new Object[attachments.length];
+
+    public TransactionContext() {
+        this(false);
+    }
+
+    /**
+     * @param readOnly Whether the transaction is read-only
+     */
+    public TransactionContext(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * @return Whether this transaction is read-only. Changes made during a read-only transaction are never committed.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
 
+    /**
+     * Obtains an attachment, attaching one if there is none. If a reusable attachment of the type was kept from an earlier transaction, it is attached rather than
+     * calling the supplier.
+     *
+     * @param type     The type of the attachment
+     * @param supplier A supplier of a new attachment
+     * @return The attachment
+     */
     public <T> T getOrAttach(Class<T> type, Supplier<T> supplier) {
-        T result = attachments.get(type);
+        T result = getAttachmentIfPresent(type);
         if (result == null) {
-            result = supplier.get();
-            attachments.put(type, result);
+            int slot = AttachmentSlots.slotOf(type);
+            if (slot < spareAttachments.length && spareAttachments[slot] != null) {
+                result = type.cast(spareAttachments[slot]);
+                spareAttachments[slot] = null;
+            } else {
+                result = supplier.get();
+            }
+            attach(type, result);
         }
         return result;
     }
-    
+
     public <T> Optional<T> getAttachment(Class<T> type) {
-        return Optional.ofNullable(attachments.get(type));
+        return Optional.ofNullable(getAttachmentIfPresent(type));
+    }
+
+    /**
+     * Obtains an attachment without wrapping it in an Optional, for use on hot paths.
+     *
+     * @param type The type of the attachment
+     * @return The attachment, or null if there is no attachment of the given type
+     */
+    public <T> T getAttachmentIfPresent(Class<T> type) {
+        int slot = AttachmentSlots.slotOf(type);
+        return (slot < attachments.length) ? type.cast(attachments[slot]) : null;
     }
 
     public <T> void attach(Class<T> type, T data) {
-        attachments.put(type, data);
+        int slot = AttachmentSlots.slotOf(type);
+        if (slot >= attachments.length) {
+            attachments = Arrays.copyOf(attachments, Math.max(slot + 1, attachments.length * 2));
+        }
+        attachments[slot] = data;
+    }
+
+    /**
+     * Determines whether another transaction can be merged into this one. This requires that both transactions have the same read-only mode, and that every type of
+     * attachment held by both is a {@link MergeableAttachment} that does not conflict.
+     *
+     * @param other The context of another transaction
+     * @return Whether the other transaction can be merged into this one
+     */
+    @SuppressWarnings("unchecked")
+    public boolean canMerge(TransactionContext other) {
+        if (other == this || other.readOnly != readOnly) {
+            return false;
+        }
+        int sharedSlots = Math.min(attachments.length, other.attachments.length);
+        for (int i = 0; i < sharedSlots; ++i) {
+            Object attachment = attachments[i];
+            Object otherAttachment = other.attachments[i];
+            if (attachment != null && otherAttachment != null) {
+                if (!(attachment instanceof MergeableAttachment) || ((MergeableAttachment) attachment).conflictsWith((MergeableAttachment) otherAttachment)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Merges another transaction into this one, so that committing this transaction commits the changes of both. Attachments only held by the other transaction are
+     * moved to this one. The other context should be released without being committed or rolled back.
+     *
+     * @param other The context of another transaction, for which {@link #canMerge(TransactionContext)} is true
+     */
+    @SuppressWarnings("unchecked")
+    public void merge(TransactionContext other) {
+        if (attachments.length < other.attachments.length) {
+            attachments = Arrays.copyOf(attachments, other.attachments.length);
+        }
+        for (int i = 0; i < other.attachments.length; ++i) {
+            Object otherAttachment = other.attachments[i];
+            if (otherAttachment != null) {
+                if (attachments[i] == null) {
+                    attachments[i] = otherAttachment;
+                    other.attachments[i] = null;
+                } else {
+                    ((MergeableAttachment) attachments[i]).merge((MergeableAttachment) otherAttachment);
+                }
+            }
+        }
+    }
+
+    void setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Prepares this context for reuse by dropping its attachments, or resetting and keeping them aside if they are reusable.
+     */
+    void recycle() {
+        if (spareAttachments.length < attachments.length) {
+            spareAttachments = Arrays.copyOf(spareAttachments, attachments.length);
+        }
+        for (int i = 0; i < attachments.length; ++i) {
+            Object attachment = attachments[i];
+            if (attachment instanceof ReusableAttachment) {
+                ((ReusableAttachment) attachment).reset();
+                spareAttachments[i] = attachment;
+            }
+            attachments[i] = null;
+        }
     }
 
 }
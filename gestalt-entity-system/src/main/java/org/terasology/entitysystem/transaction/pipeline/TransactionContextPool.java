@@ -0,0 +1,71 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.transaction.pipeline;
+
+import com.google.common.collect.Queues;
+
+import java.util.Deque;
+
+/**
+ * A pool of transaction contexts for a single thread. Contexts are released back to the pool when their transaction ends, and are reused by later transactions along
+ * with any {@link ReusableAttachment}s they hold. A context is only pooled once - one per level of nested transaction in use at the same time, up to a limit.
+ * <p>
+ * Not thread safe - each thread should have its own pool.
+ */
+public class TransactionContextPool {
+    private static final int DEFAULT_MAX_SIZE = 8;
+
+    private final Deque<TransactionContext> pool = Queues.newArrayDeque();
+    private final int maxSize;
+
+    public TransactionContextPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSize The maximum number of unused contexts to keep
+     */
+    public TransactionContextPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param readOnly Whether the transaction is read-only
+     * @return A context for a new transaction, reused from the pool if available
+     */
+    public TransactionContext acquire(boolean readOnly) {
+        TransactionContext context = pool.poll();
+        if (context == null) {
+            return new TransactionContext(readOnly);
+        }
+        context.setReadOnly(readOnly);
+        return context;
+    }
+
+    /**
+     * Returns the context of an ended transaction to the pool. Its attachments are dropped, or reset if they are reusable. The context must not be used by the caller
+     * after this point.
+     *
+     * @param context The context to release
+     */
+    public void release(TransactionContext context) {
+        context.recycle();
+        if (pool.size() < maxSize) {
+            pool.push(context);
+        }
+    }
+}
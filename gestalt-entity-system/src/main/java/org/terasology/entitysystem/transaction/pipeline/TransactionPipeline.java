@@ -24,18 +24,26 @@
 import org.terasology.entitysystem.transaction.exception.PostCommitException;
 import org.terasology.entitysystem.transaction.exception.RollbackException;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
- *
+ * The sequence of stages a transaction goes through, with the interceptors registered for each stage.
+ * <p>
+ * Whenever an interceptor is registered the pipeline is compiled into an array of interceptors per stage, so processing a stage is a plain array iteration without
+ * any lookup or allocation.
  */
 public class TransactionPipeline {
 
     private static final Logger logger = LoggerFactory.getLogger(TransactionPipeline.class);
-    private ListMultimap<TransactionStage, TransactionInterceptor> handlers = ArrayListMultimap.create();
+    private static final TransactionStage[] STAGES = TransactionStage.values();
+
+    private final ListMultimap<TransactionStage, TransactionInterceptor> handlers = ArrayListMultimap.create();
+    private volatile TransactionInterceptor[][] compiledStages = compile();
 
-    public void registerInterceptor(TransactionStage stage, TransactionInterceptor interceptor) {
+    public synchronized void registerInterceptor(TransactionStage stage, TransactionInterceptor interceptor) {
         this.handlers.put(stage, interceptor);
+        this.compiledStages = compile();
     }
 
     public void begin(TransactionContext context) {
@@ -84,9 +92,18 @@ private Optional<Exception> processStageConsumeExceptions(TransactionContext con
     }
 
     private void processStage(TransactionContext context, TransactionStage stage) {
-        for (TransactionInterceptor interceptor : handlers.get(stage)) {
+        for (TransactionInterceptor interceptor : compiledStages[stage.ordinal()]) {
             interceptor.handle(context);
         }
     }
 
+    private TransactionInterceptor[][] compile() {
+        TransactionInterceptor[][] result = new TransactionInterceptor[STAGES.length][];
+        for (TransactionStage stage : STAGES) {
+            List<TransactionInterceptor> interceptors = handlers.get(stage);
+            result[stage.ordinal()] = interceptors.toArray(new TransactionInterceptor[interceptors.size()]);
+        }
+        return result;
+    }
+
 }
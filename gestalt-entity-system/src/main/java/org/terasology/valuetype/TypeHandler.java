@@ -42,6 +42,13 @@ public Type getType() {
         return type;
     }
 
+    /**
+     * @return Whether values of this type are immutable, so copying a value just returns the value
+     */
+    public boolean isImmutable() {
+        return copyFunction instanceof ImmutableCopy;
+    }
+
     public T copy(T value) {
         if (value == null) {
             return null;
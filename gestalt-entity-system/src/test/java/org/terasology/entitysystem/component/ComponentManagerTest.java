@@ -16,14 +16,30 @@
 
 package org.terasology.entitysystem.component;
 
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
 import org.junit.Test;
 import org.terasology.entitysystem.stubs.ComponentInterface;
 import org.terasology.entitysystem.stubs.EmptyComponent;
+import org.terasology.entitysystem.stubs.ListComponent;
+import org.terasology.entitysystem.stubs.PrimitiveComponent;
+import org.terasology.entitysystem.stubs.ReferenceComponent;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
 import org.terasology.valuetype.TypeLibrary;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
@@ -89,6 +105,74 @@ public void constructEmptyComponent() {
         assertNotNull(instance);
     }
 
+    @Test
+    public void viewReadsThroughToSource() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        ComponentInterface instance = library.create(ComponentInterface.class);
+        instance.setName("World");
+
+        ComponentInterface view = library.createView(instance);
+        assertEquals("World", view.getName());
+        assertEquals(ComponentInterface.class, view.getType());
+        assertFalse(((ComponentView) view).isCopied());
+        instance.setName("Blue");
+        assertEquals("Blue", view.getName());
+    }
+
+    @Test
+    public void viewCopiesOnWrite() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        ComponentInterface instance = library.create(ComponentInterface.class);
+        instance.setName("World");
+
+        ComponentInterface view = library.createView(instance);
+        view.setName("Blue");
+        assertTrue(((ComponentView) view).isCopied());
+        assertEquals("Blue", view.getName());
+        assertEquals("World", instance.getName());
+    }
+
+    @Test
+    public void viewDoesNotExposeMutableValues() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<List<String>>(new TypeToken<List<String>>() {}.getType(), Lists::newArrayList));
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        ListComponent instance = library.create(ListComponent.class);
+        instance.setItems(Lists.newArrayList("World"));
+
+        ListComponent view = library.createView(instance);
+        view.getItems().add("Blue");
+        assertTrue(((ComponentView) view).isCopied());
+        assertEquals(Lists.newArrayList("World", "Blue"), view.getItems());
+        assertEquals(Lists.newArrayList("World"), instance.getItems());
+    }
+
+    @Test
+    public void viewEqualsIsSymmetric() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        ComponentInterface instance = library.create(ComponentInterface.class);
+        instance.setName("World");
+        ComponentInterface other = library.copy(instance);
+
+        ComponentInterface view = library.createView(instance);
+        assertEquals(view, other);
+        assertEquals(other, view);
+        assertEquals(other.hashCode(), view.hashCode());
+
+        view.setName("Blue");
+        assertNotEquals(view, other);
+        assertNotEquals(other, view);
+        other.setName("Blue");
+        assertEquals(view, other);
+        assertEquals(other, view);
+    }
+
     @Test
     public void emptyComponentsSingletons() {
         TypeLibrary typeLibrary = new TypeLibrary();
@@ -97,4 +181,76 @@ public void emptyComponentsSingletons() {
         EmptyComponent instance2 = library.create(EmptyComponent.class);
         assertSame(instance, instance2);
     }
+
+    @Test
+    public void primitivePropertiesEqualsHashCodeAndCopy() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        PrimitiveComponent instance = library.create(PrimitiveComponent.class);
+        instance.setCount(3);
+        instance.setSpeed(1.5f);
+        instance.setEnabled(true);
+        instance.setName("World");
+
+        PrimitiveComponent copy = library.copy(instance);
+        assertEquals(3, copy.getCount());
+        assertEquals(1.5f, copy.getSpeed(), 0);
+        assertTrue(copy.isEnabled());
+        assertEquals(instance, copy);
+        assertEquals(instance.hashCode(), copy.hashCode());
+
+        copy.setSpeed(2f);
+        assertNotEquals(instance, copy);
+    }
+
+    @Test
+    public void arrayCodecRoundTrip() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        PrimitiveComponent instance = library.create(PrimitiveComponent.class);
+        instance.setCount(3);
+        instance.setSpeed(1.5f);
+        instance.setEnabled(true);
+        instance.setName("World");
+
+        ComponentArrayCodec<PrimitiveComponent> codec = library.getType(PrimitiveComponent.class).getArrayCodec().get();
+        Object[] arrays = codec.createArrays(4);
+        assertEquals(4, arrays.length);
+        assertTrue(Arrays.stream(arrays).anyMatch(float[].class::isInstance));
+        codec.write(instance, arrays, 2);
+        PrimitiveComponent result = codec.read(arrays, 2);
+        assertNotSame(instance, result);
+        assertEquals(instance, result);
+    }
+
+    @Test
+    public void bufferCodecRoundTrip() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        PrimitiveComponent instance = library.create(PrimitiveComponent.class);
+        instance.setCount(3);
+        instance.setSpeed(1.5f);
+        instance.setEnabled(true);
+        instance.setName("World");
+
+        ComponentBufferCodec<PrimitiveComponent> codec = library.getType(PrimitiveComponent.class).getBufferCodec().get();
+        assertEquals(Integer.BYTES + Float.BYTES + 1, codec.getSize());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(codec.getSize() * 4).order(ByteOrder.nativeOrder());
+        Object[] side = codec.createSideArrays(4);
+        assertEquals(1, side.length);
+        codec.write(instance, buffer, codec.getSize() * 2, side, 2);
+        PrimitiveComponent result = codec.read(buffer, codec.getSize() * 2, side, 2);
+        assertNotSame(instance, result);
+        assertEquals(instance, result);
+    }
+
+    @Test
+    public void noArrayCodecForMutableProperties() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        CodeGenComponentManager library = new CodeGenComponentManager(typeLibrary);
+        assertFalse(library.getType(PrimitiveComponent.class).getArrayCodec().isPresent());
+        assertFalse(library.getType(ReferenceComponent.class).getArrayCodec().isPresent());
+    }
 }
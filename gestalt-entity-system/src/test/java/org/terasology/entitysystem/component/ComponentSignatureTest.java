@@ -0,0 +1,164 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.component;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.stubs.EmptyComponent;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class ComponentSignatureTest {
+
+    @Test
+    public void idsAreStable() {
+        int id = ComponentTypeIds.idOf(SampleComponent.class);
+        assertEquals(id, ComponentTypeIds.idOf(SampleComponent.class));
+        assertEquals(SampleComponent.class, ComponentTypeIds.typeOf(id));
+        assertNotEquals(id, ComponentTypeIds.idOf(SecondComponent.class));
+    }
+
+    @Test
+    public void idOfUnloadedTypeIsReused() throws Exception {
+        WeakReference<Class<?>> unloadedType = new WeakReference<>(loadIsolated(EmptyComponent.class));
+        int id = ComponentTypeIds.idOf(unloadedType.get().asSubclass(Component.class));
+        for (int i = 0; i < 100 && unloadedType.get() != null; ++i) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(unloadedType.get());
+
+        Class<? extends Component> reloadedType = loadIsolated(EmptyComponent.class).asSubclass(Component.class);
+        assertEquals(id, ComponentTypeIds.idOf(reloadedType));
+        assertEquals(reloadedType, ComponentTypeIds.typeOf(id));
+    }
+
+    @Test
+    public void emptySignature() {
+        assertTrue(ComponentSignature.of().isEmpty());
+        assertEquals(ComponentSignature.EMPTY, ComponentSignature.of());
+        assertEquals(0, ComponentSignature.EMPTY.size());
+        assertEquals(-1, ComponentSignature.EMPTY.nextId(0));
+    }
+
+    @Test
+    public void containsTypes() {
+        ComponentSignature signature = ComponentSignature.of(SampleComponent.class, SecondComponent.class);
+        assertTrue(signature.contains(SampleComponent.class));
+        assertTrue(signature.contains(SecondComponent.class));
+        assertFalse(signature.contains(EmptyComponent.class));
+        assertEquals(2, signature.size());
+        assertEquals(ImmutableSet.of(SampleComponent.class, SecondComponent.class), signature.toSet());
+    }
+
+    @Test
+    public void containsAll() {
+        ComponentSignature both = ComponentSignature.of(SampleComponent.class, SecondComponent.class);
+        ComponentSignature sample = ComponentSignature.of(SampleComponent.class);
+        assertTrue(both.containsAll(sample));
+        assertFalse(sample.containsAll(both));
+        assertTrue(sample.containsAll(ComponentSignature.EMPTY));
+    }
+
+    @Test
+    public void intersects() {
+        ComponentSignature sample = ComponentSignature.of(SampleComponent.class);
+        assertTrue(sample.intersects(ComponentSignature.of(SampleComponent.class, SecondComponent.class)));
+        assertFalse(sample.intersects(ComponentSignature.of(SecondComponent.class)));
+        assertFalse(sample.intersects(ComponentSignature.EMPTY));
+    }
+
+    @Test
+    public void union() {
+        ComponentSignature union = ComponentSignature.of(SampleComponent.class).union(ComponentSignature.of(SecondComponent.class));
+        assertEquals(ComponentSignature.of(SampleComponent.class, SecondComponent.class), union);
+    }
+
+    @Test
+    public void equalSignaturesHaveEqualHashCodes() {
+        ComponentSignature first = ComponentSignature.of(SampleComponent.class, SecondComponent.class);
+        ComponentSignature second = new ComponentSignature.Builder().add(SecondComponent.class).add(SampleComponent.class).build();
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    public void iterateIds() {
+        ComponentSignature signature = ComponentSignature.of(SampleComponent.class, SecondComponent.class);
+        int count = 0;
+        for (int id = signature.nextId(0); id >= 0; id = signature.nextId(id + 1)) {
+            assertTrue(signature.contains(ComponentTypeIds.typeOf(id)));
+            count++;
+        }
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void withAndWithout() {
+        ComponentSignature sample = ComponentSignature.of(SampleComponent.class);
+        ComponentSignature both = sample.with(SecondComponent.class);
+        assertEquals(ComponentSignature.of(SampleComponent.class, SecondComponent.class), both);
+        assertEquals(sample, both.without(SecondComponent.class));
+        assertEquals(ComponentSignature.EMPTY, sample.without(SampleComponent.class));
+        assertEquals(sample, sample.without(SecondComponent.class));
+    }
+
+    @Test
+    public void matchesExactTypes() {
+        ComponentSignature signature = ComponentSignature.of(SampleComponent.class, SecondComponent.class);
+        assertTrue(signature.matches(ImmutableSet.of(SecondComponent.class, SampleComponent.class)));
+        assertFalse(signature.matches(ImmutableSet.of(SampleComponent.class)));
+        assertFalse(signature.matches(ImmutableSet.of(SampleComponent.class, EmptyComponent.class)));
+        assertTrue(ComponentSignature.EMPTY.matches(ImmutableSet.of()));
+    }
+
+    /**
+     * Loads a copy of a class through its own classloader, which can be unloaded once the copy is no longer referenced.
+     */
+    private static Class<?> loadIsolated(Class<?> type) throws ClassNotFoundException {
+        ClassLoader loader = new ClassLoader(ComponentSignatureTest.class.getClassLoader()) {
+            @Override
+            protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+                if (!name.equals(type.getName())) {
+                    return super.loadClass(name, resolve);
+                }
+                try (InputStream stream = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                    byte[] bytes = ByteStreams.toByteArray(stream);
+                    return defineClass(name, bytes, 0, bytes.length);
+                } catch (IOException e) {
+                    throw new ClassNotFoundException(name, e);
+                }
+            }
+        };
+        return loader.loadClass(type.getName());
+    }
+}
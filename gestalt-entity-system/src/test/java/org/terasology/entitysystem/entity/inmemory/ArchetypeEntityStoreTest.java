@@ -0,0 +1,295 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import org.junit.Test;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.StreamSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class ArchetypeEntityStoreTest {
+    private static final String TEST_NAME = "Fred";
+    private static final String TEST_NAME_2 = "Jill";
+
+    private ComponentManager componentManager;
+    private ArchetypeEntityStore entityStore;
+
+    public ArchetypeEntityStoreTest() {
+        this(ComponentStorage.OBJECTS);
+    }
+
+    protected ArchetypeEntityStoreTest(ComponentStorage storage) {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        componentManager = new CodeGenComponentManager(typeLibrary);
+        entityStore = new ArchetypeEntityStore(componentManager, 1, LockStore.DEFAULT_CONCURRENCY_LEVEL, 2, storage);
+    }
+
+    private SampleComponent sample(String name) {
+        SampleComponent component = componentManager.create(SampleComponent.class);
+        component.setName(name);
+        return component;
+    }
+
+    private SecondComponent second(String name) {
+        SecondComponent component = componentManager.create(SecondComponent.class);
+        component.setName(name);
+        return component;
+    }
+
+    @Test
+    public void addAndGetComponent() {
+        long id = entityStore.createEntityId();
+        assertTrue(entityStore.add(id, sample(TEST_NAME)));
+        assertTrue(entityStore.exists(id));
+        assertEquals(1, entityStore.getEntityRevision(id));
+        assertEquals(TEST_NAME, entityStore.get(id, SampleComponent.class).getName());
+        assertNull(entityStore.get(id, SecondComponent.class));
+    }
+
+    @Test
+    public void addDuplicateComponentFails() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        assertFalse(entityStore.add(id, sample(TEST_NAME_2)));
+        assertEquals(TEST_NAME, entityStore.get(id, SampleComponent.class).getName());
+    }
+
+    @Test
+    public void addSecondComponentMovesArchetype() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        entityStore.add(id, second(TEST_NAME_2));
+        assertEquals(2, entityStore.getEntityRevision(id));
+        assertEquals(2, entityStore.getArchetypeCount());
+        assertEquals(TEST_NAME, entityStore.get(id, SampleComponent.class).getName());
+        assertEquals(TEST_NAME_2, entityStore.get(id, SecondComponent.class).getName());
+        assertEquals(2, entityStore.getComponents(id).size());
+    }
+
+    @Test
+    public void updateComponent() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        SampleComponent component = entityStore.get(id, SampleComponent.class);
+        component.setName(TEST_NAME_2);
+        assertTrue(entityStore.update(id, component));
+        assertEquals(TEST_NAME_2, entityStore.get(id, SampleComponent.class).getName());
+        assertFalse(entityStore.update(id, second(TEST_NAME)));
+    }
+
+    @Test
+    public void removeLastComponentRemovesEntity() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        SampleComponent removed = (SampleComponent) entityStore.remove(id, SampleComponent.class);
+        assertEquals(TEST_NAME, removed.getName());
+        assertFalse(entityStore.exists(id));
+        assertEquals(0, entityStore.getEntityRevision(id));
+        assertEquals(0, entityStore.entityCount());
+    }
+
+    @Test
+    public void removeKeepsOtherEntitiesAcrossChunks() {
+        long[] ids = new long[5];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = entityStore.createEntityId();
+            entityStore.add(ids[i], sample("Entity" + i));
+        }
+        entityStore.remove(ids[1], SampleComponent.class);
+        entityStore.add(ids[0], second(TEST_NAME));
+
+        assertFalse(entityStore.exists(ids[1]));
+        for (int i : new int[]{0, 2, 3, 4}) {
+            assertEquals("Entity" + i, entityStore.get(ids[i], SampleComponent.class).getName());
+        }
+        assertEquals(4, entityStore.getComponentCount(SampleComponent.class));
+        assertEquals(1, entityStore.getComponentCount(SecondComponent.class));
+    }
+
+    @Test
+    public void concurrentAddAndRemoveKeepLocations() throws Exception {
+        int count = 10000;
+        long[] existing = new long[count];
+        for (int i = 0; i < count; ++i) {
+            existing[i] = entityStore.createEntityId();
+            entityStore.add(existing[i], sample(TEST_NAME));
+        }
+        long[] added = new long[count];
+        Thread adder = new Thread(() -> {
+            for (int i = 0; i < count; ++i) {
+                added[i] = entityStore.createEntityId();
+                entityStore.add(added[i], sample(Long.toString(added[i])));
+            }
+        });
+        adder.start();
+        for (long id : existing) {
+            entityStore.remove(id, SampleComponent.class);
+        }
+        adder.join();
+
+        for (long id : added) {
+            assertEquals(Long.toString(id), entityStore.get(id, SampleComponent.class).getName());
+        }
+    }
+
+    @Test
+    public void iterateEntitiesAndComponents() {
+        TLongSet expected = new TLongHashSet();
+        for (int i = 0; i < 5; ++i) {
+            long id = entityStore.createEntityId();
+            entityStore.add(id, sample(TEST_NAME));
+            if (i % 2 == 0) {
+                entityStore.add(id, second(TEST_NAME_2));
+            }
+            expected.add(id);
+        }
+
+        TLongSet actual = new TLongHashSet();
+        TLongIterator idIterator = entityStore.entityIdIterator();
+        while (idIterator.hasNext()) {
+            actual.add(idIterator.next());
+        }
+        assertEquals(expected, actual);
+
+        int count = 0;
+        TLongObjectIterator<SecondComponent> componentIterator = entityStore.componentIterator(SecondComponent.class);
+        while (componentIterator.hasNext()) {
+            componentIterator.advance();
+            assertTrue(expected.contains(componentIterator.key()));
+            assertEquals(TEST_NAME_2, componentIterator.value().getName());
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void queryVisitsOnlyMatchingArchetypes() {
+        TLongSet expected = new TLongHashSet();
+        for (int i = 0; i < 9; ++i) {
+            long id = entityStore.createEntityId();
+            entityStore.add(id, sample(TEST_NAME));
+            if (i % 3 != 0) {
+                entityStore.add(id, second(TEST_NAME_2));
+                expected.add(id);
+            }
+        }
+
+        TLongSet actual = new TLongHashSet();
+        Spliterator.OfLong query = entityStore.query(Sets.newHashSet(SampleComponent.class, SecondComponent.class));
+        Spliterator.OfLong prefix = query.trySplit();
+        assertNotNull(prefix);
+        prefix.forEachRemaining((long id) -> assertTrue(actual.add(id)));
+        query.forEachRemaining((long id) -> assertTrue(actual.add(id)));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void parallelQuery() {
+        TLongSet expected = new TLongHashSet();
+        for (int i = 0; i < 100; ++i) {
+            long id = entityStore.createEntityId();
+            entityStore.add(id, second(TEST_NAME_2));
+            expected.add(id);
+        }
+
+        long[] actual = StreamSupport.longStream(entityStore.query(Sets.newHashSet(SecondComponent.class)), true).toArray();
+        assertEquals(expected.size(), actual.length);
+        assertEquals(expected, new TLongHashSet(actual));
+    }
+
+    @Test
+    public void addBatch() {
+        List<SampleComponent> samples = Lists.newArrayList();
+        List<SecondComponent> seconds = Lists.newArrayList();
+        for (int i = 0; i < 5; ++i) {
+            samples.add(sample(TEST_NAME + i));
+            seconds.add(second(TEST_NAME_2));
+        }
+        long firstId = entityStore.createEntityIds(5);
+        entityStore.addBatch(firstId, Arrays.asList(samples, seconds));
+
+        assertEquals(firstId + 5, entityStore.getNextEntityId());
+        assertEquals(5, entityStore.entityCount());
+        assertEquals(1, entityStore.getArchetypeCount());
+        for (int i = 0; i < 5; ++i) {
+            assertEquals(1, entityStore.getEntityRevision(firstId + i));
+            assertEquals(TEST_NAME + i, entityStore.get(firstId + i, SampleComponent.class).getName());
+            assertEquals(TEST_NAME_2, entityStore.get(firstId + i, SecondComponent.class).getName());
+        }
+
+        entityStore.remove(firstId, SampleComponent.class);
+        entityStore.remove(firstId, SecondComponent.class);
+        assertEquals(TEST_NAME + 4, entityStore.get(firstId + 4, SampleComponent.class).getName());
+    }
+
+    @Test
+    public void getEntityState() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        entityStore.add(id, second(TEST_NAME_2));
+        EntityState state = entityStore.getEntityState(id);
+        assertEquals(2, state.getRevision());
+        assertEquals(Sets.newHashSet(SampleComponent.class, SecondComponent.class), state.getComponents().keySet());
+    }
+
+    @Test
+    public void getComponentSignature() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        entityStore.add(id, second(TEST_NAME_2));
+        assertEquals(ComponentSignature.of(SampleComponent.class, SecondComponent.class), entityStore.getComponentSignature(id));
+        entityStore.remove(id, SampleComponent.class);
+        assertEquals(ComponentSignature.of(SecondComponent.class), entityStore.getComponentSignature(id));
+        assertEquals(ComponentSignature.EMPTY, entityStore.getComponentSignature(id + 1));
+    }
+
+    @Test
+    public void clearRemovesAllEntities() {
+        long id = entityStore.createEntityId();
+        entityStore.add(id, sample(TEST_NAME));
+        entityStore.clear();
+        assertFalse(entityStore.exists(id));
+        assertEquals(0, entityStore.getComponentCount(SampleComponent.class));
+        assertEquals(1, entityStore.getNextEntityId());
+    }
+}
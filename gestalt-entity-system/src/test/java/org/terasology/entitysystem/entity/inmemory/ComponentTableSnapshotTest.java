@@ -0,0 +1,244 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+import org.junit.Test;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for snapshots of a {@link ComponentTable}.
+ */
+public class ComponentTableSnapshotTest {
+    private static final String TEST_NAME = "Fred";
+    private static final String TEST_NAME_2 = "Jill";
+
+    private ComponentManager componentManager;
+    private ComponentTable entityStore;
+
+    public ComponentTableSnapshotTest() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        componentManager = new CodeGenComponentManager(typeLibrary);
+        entityStore = new ComponentTable(componentManager, 1);
+    }
+
+    private SampleComponent sample(String name) {
+        SampleComponent component = componentManager.create(SampleComponent.class);
+        component.setName(name);
+        return component;
+    }
+
+    private SecondComponent second(String name) {
+        SecondComponent component = componentManager.create(SecondComponent.class);
+        component.setName(name);
+        return component;
+    }
+
+    private long createEntity(Component... components) {
+        try (ClosableLock ignored = entityStore.beginCommit()) {
+            long id = entityStore.createEntityId();
+            for (Component component : components) {
+                entityStore.add(id, component);
+            }
+            return id;
+        }
+    }
+
+    @Test
+    public void snapshotSeesCommittedState() {
+        long id = createEntity(sample(TEST_NAME));
+        try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+            assertTrue(snapshot.exists(id));
+            assertEquals(1, snapshot.getEntityRevision(id));
+            assertEquals(TEST_NAME, snapshot.getView(id, SampleComponent.class).getName());
+            assertNull(snapshot.getView(id, SecondComponent.class));
+        }
+    }
+
+    @Test
+    public void snapshotDoesNotSeeLaterUpdate() {
+        long id = createEntity(sample(TEST_NAME));
+        try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+            try (ClosableLock ignored = entityStore.beginCommit()) {
+                entityStore.update(id, sample(TEST_NAME_2));
+            }
+            assertEquals(TEST_NAME_2, entityStore.get(id, SampleComponent.class).getName());
+            assertEquals(TEST_NAME, snapshot.getView(id, SampleComponent.class).getName());
+            assertEquals(1, snapshot.getEntityRevision(id));
+        }
+    }
+
+    @Test
+    public void snapshotDoesNotSeeLaterAddOrRemove() {
+        long id = createEntity(sample(TEST_NAME));
+        try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+            try (ClosableLock ignored = entityStore.beginCommit()) {
+                entityStore.add(id, second(TEST_NAME_2));
+                entityStore.remove(id, SampleComponent.class);
+            }
+            assertNull(snapshot.getView(id, SecondComponent.class));
+            assertEquals(TEST_NAME, snapshot.getView(id, SampleComponent.class).getName());
+            Collection<Component> components = snapshot.getComponentViews(id);
+            assertEquals(1, components.size());
+            assertEquals(SampleComponent.class, components.iterator().next().getType());            assertEquals(ComponentSignature.of(SampleComponent.class), snapshot.getComponentSignature(id));
+            assertEquals(ComponentSignature.of(SecondComponent.class), entityStore.getComponentSignature(id));
+        }
+    }
+
+    @Test
+    public void snapshotSeesEntityDeletedLater() {
+        long id = createEntity(sample(TEST_NAME), second(TEST_NAME_2));
+        try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+            try (ClosableLock ignored = entityStore.beginCommit()) {
+                entityStore.remove(id, SampleComponent.class);
+                entityStore.remove(id, SecondComponent.class);
+            }
+            assertFalse(entityStore.exists(id));
+            assertTrue(snapshot.exists(id));
+            assertEquals(2, snapshot.getComponentViews(id).size());
+            assertEquals(new TLongHashSet(new long[]{id}), collect(snapshot.entityIdIterator()));
+        }
+    }
+
+    @Test
+    public void snapshotDoesNotSeeEntityCreatedLater() {
+        long id = createEntity(sample(TEST_NAME));
+        try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+            long newId = createEntity(sample(TEST_NAME_2));
+            long batchId = entityStore.createEntityIds(2);
+            try (ClosableLock ignored = entityStore.beginCommit()) {
+                entityStore.addBatch(batchId, Arrays.asList(Arrays.asList(sample(TEST_NAME), sample(TEST_NAME_2))));
+            }
+            assertFalse(snapshot.exists(newId));
+            assertFalse(snapshot.exists(batchId));
+            assertTrue(snapshot.getComponentViews(newId).isEmpty());
+            assertEquals(new TLongHashSet(new long[]{id}), collect(snapshot.entityIdIterator()));
+        }
+    }
+
+    @Test
+    public void snapshotsOpenedAtDifferentTimes() {
+        long id = createEntity(sample(TEST_NAME));
+        try (EntityStoreSnapshot first = entityStore.openSnapshot().get()) {
+            try (ClosableLock ignored = entityStore.beginCommit()) {
+                entityStore.update(id, sample(TEST_NAME_2));
+            }
+            try (EntityStoreSnapshot second = entityStore.openSnapshot().get()) {
+                try (ClosableLock ignored = entityStore.beginCommit()) {
+                    entityStore.update(id, sample("Third"));
+                }
+                assertEquals(TEST_NAME, first.getView(id, SampleComponent.class).getName());
+                assertEquals(TEST_NAME_2, second.getView(id, SampleComponent.class).getName());
+            }
+            assertEquals(TEST_NAME, first.getView(id, SampleComponent.class).getName());
+        }
+        try (EntityStoreSnapshot latest = entityStore.openSnapshot().get()) {
+            assertEquals("Third", latest.getView(id, SampleComponent.class).getName());
+        }
+    }
+
+    @Test
+    public void snapshotWaitsForCommitInProgress() throws Exception {
+        long id = createEntity(sample(TEST_NAME));
+        CountDownLatch snapshotOpening = new CountDownLatch(1);
+        CountDownLatch snapshotOpened = new CountDownLatch(1);
+        String[] snapshotName = new String[1];
+        Thread reader = new Thread(() -> {
+            snapshotOpening.countDown();
+            try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+                snapshotName[0] = snapshot.getView(id, SampleComponent.class).getName();
+            }
+            snapshotOpened.countDown();
+        });
+        try (ClosableLock ignored = entityStore.beginCommit()) {
+            reader.start();
+            assertTrue(snapshotOpening.await(10, TimeUnit.SECONDS));
+            assertFalse(snapshotOpened.await(50, TimeUnit.MILLISECONDS));
+            entityStore.update(id, sample(TEST_NAME_2));
+        }
+        assertTrue(snapshotOpened.await(10, TimeUnit.SECONDS));
+        assertEquals(TEST_NAME_2, snapshotName[0]);
+    }
+
+    @Test
+    public void snapshotsOpenedDuringContendedCommitsAreConsistent() throws Exception {
+        long first = createEntity(sample("0"));
+        long second = createEntity(sample("0"));
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger nextValue = new AtomicInteger();
+        List<Thread> writers = Lists.newArrayList();
+        for (int i = 0; i < 4; ++i) {
+            Thread writer = new Thread(() -> {
+                while (!done.get()) {
+                    String value = Integer.toString(nextValue.incrementAndGet());
+                    try (ClosableLock ignored = entityStore.lock(Sets.newHashSet(first, second)); ClosableLock commit = entityStore.beginCommit()) {
+                        entityStore.update(first, sample(value));
+                        entityStore.update(second, sample(value));
+                    }
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        try {
+            for (int i = 0; i < 2000; ++i) {
+                try (EntityStoreSnapshot snapshot = entityStore.openSnapshot().get()) {
+                    assertEquals(snapshot.getView(first, SampleComponent.class).getName(), snapshot.getView(second, SampleComponent.class).getName());
+                }
+            }
+        } finally {
+            done.set(true);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+
+    private TLongSet collect(TLongIterator iterator) {
+        TLongSet result = new TLongHashSet();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import com.google.common.collect.Lists;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.component.ComponentSignature;
+import org.terasology.entitysystem.core.EntityBatch;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.pipeline.TransactionStage;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class EntityChangesTest {
+
+    private TransactionManager transactionManager = new TransactionManager();
+    private EntityManager entityManager;
+    private CodeGenComponentManager componentManager;
+    private EntityChanges lastChanges;
+
+    public EntityChangesTest() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        componentManager = new CodeGenComponentManager(typeLibrary);
+        entityManager = new InMemoryEntityManager(componentManager, transactionManager);
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.PROCESS_COMMIT, (context) -> lastChanges = EntityChanges.of(context));
+    }
+
+    @Before
+    public void setup() {
+        transactionManager.begin();
+    }
+
+    @After
+    public void teardown() {
+        while (transactionManager.isActive()) {
+            transactionManager.rollback();
+        }
+    }
+
+    @Test
+    public void newEntityChange() {
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName("Test");
+        transactionManager.commit();
+
+        assertEquals(1, lastChanges.getChanges().size());
+        EntityChange change = lastChanges.getChanges().get(0);
+        assertEquals(entity.getId(), change.getId());
+        assertEquals(ComponentSignature.of(SampleComponent.class), change.getAdded());
+        assertTrue(change.getRemoved().isEmpty());
+        assertEquals("Test", change.getComponent(SampleComponent.class).getName());
+        assertNull(change.getOriginalComponent(SampleComponent.class));
+    }
+
+    @Test
+    public void updatedAndRemovedComponents() {
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName("Before");
+        entity.addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().setName("After");
+        entity.removeComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        assertEquals(1, lastChanges.getChanges().size());
+        EntityChange change = lastChanges.getChanges().get(0);
+        assertEquals(ComponentSignature.of(SampleComponent.class), change.getUpdated());
+        assertEquals(ComponentSignature.of(SecondComponent.class), change.getRemoved());
+        assertTrue(change.getAdded().isEmpty());
+        assertEquals("Before", change.getOriginalComponent(SampleComponent.class).getName());
+        assertEquals("After", change.getComponent(SampleComponent.class).getName());
+        assertNotNull(change.getOriginalComponent(SecondComponent.class));
+        assertNull(change.getComponent(SecondComponent.class));
+        assertTrue(change.hasComponents(ComponentSignature.of(SampleComponent.class)));
+        assertFalse(change.hasComponents(ComponentSignature.of(SampleComponent.class, SecondComponent.class)));
+    }
+
+    @Test
+    public void unchangedEntitiesHaveNoChange() {
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().getName();
+        transactionManager.commit();
+
+        assertTrue(lastChanges.getChanges().isEmpty());
+        assertTrue(lastChanges.getChangedComponents().isEmpty());
+    }
+
+    @Test
+    public void batchEntityChanges() {
+        List<SampleComponent> samples = Lists.newArrayList(componentManager.create(SampleComponent.class), componentManager.create(SampleComponent.class));
+        EntityBatch batch = entityManager.createEntityBatch(Collections.singletonList(samples));
+        transactionManager.commit();
+
+        assertEquals(2, lastChanges.getChanges().size());
+        assertEquals(batch.getEntity(0).getId(), lastChanges.getChanges().get(0).getId());
+        assertEquals(batch.getEntity(1).getId(), lastChanges.getChanges().get(1).getId());
+        assertEquals(ComponentSignature.of(SampleComponent.class), lastChanges.getChangedComponents());
+    }
+
+    @Test
+    public void forEachChangeOnlyVisitsRelevantChanges() {
+        EntityRef sample = entityManager.createEntity();
+        sample.addComponent(SampleComponent.class);
+        EntityRef second = entityManager.createEntity();
+        second.addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        List<Long> visited = Lists.newArrayList();
+        lastChanges.forEachChange(ComponentSignature.of(SampleComponent.class), (change) -> visited.add(change.getId()));
+        assertEquals(Collections.singletonList(sample.getId()), visited);
+    }
+
+    @Test
+    public void forEachChangeVisitsEachChangeOnce() {
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class);
+        entity.addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        List<Long> visited = Lists.newArrayList();
+        lastChanges.forEachChange(ComponentSignature.of(SampleComponent.class, SecondComponent.class), (change) -> visited.add(change.getId()));
+        assertEquals(Collections.singletonList(entity.getId()), visited);
+    }
+}
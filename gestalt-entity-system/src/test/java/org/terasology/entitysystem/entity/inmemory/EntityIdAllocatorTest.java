@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.entity.inmemory;
+
+import gnu.trove.list.array.TLongArrayList;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class EntityIdAllocatorTest {
+
+    private EntityIdAllocator allocator = new EntityIdAllocator(1);
+
+    @Test
+    public void allocateFreshIds() {
+        assertEquals(1, allocator.allocate());
+        assertEquals(2, allocator.allocate());
+        assertEquals(3, allocator.getNextIndex());
+    }
+
+    @Test
+    public void freedIdIsReusedWithNextGeneration() {
+        long id = allocator.allocate();
+        allocator.allocate();
+        allocator.free(id);
+
+        long reused = allocator.allocate();
+        assertEquals(EntityIdAllocator.index(id), EntityIdAllocator.index(reused));
+        assertEquals(1, EntityIdAllocator.generation(reused));
+        assertTrue(allocator.isRetired(id));
+        assertFalse(allocator.isRetired(reused));
+        assertEquals(3, allocator.allocate());
+    }
+
+    @Test
+    public void freeRetiredIdIgnored() {
+        long id = allocator.allocate();
+        allocator.free(id);
+        allocator.free(id);
+        assertEquals(1, allocator.getFreeIds().size());
+    }
+
+    @Test
+    public void allocateBlockUsesUnusedSlots() {
+        long id = allocator.allocate();
+        allocator.free(id);
+        assertEquals(2, allocator.allocateBlock(3));
+        assertEquals(5, allocator.getNextIndex());
+        assertEquals(1, allocator.getFreeIds().size());
+    }
+
+    @Test
+    public void restoreFromFreeIds() {
+        long id = allocator.allocate();
+        allocator.allocate();
+        allocator.free(id);
+
+        EntityIdAllocator restored = new EntityIdAllocator(allocator.getNextIndex(), allocator.getFreeIds());
+        assertTrue(restored.isRetired(id));
+        assertEquals(allocator.allocate(), restored.allocate());
+        assertEquals(allocator.allocate(), restored.allocate());
+    }
+
+    @Test
+    public void markAllocatedRetiresEarlierGenerations() {
+        EntityIdAllocator restored = new EntityIdAllocator(2, new TLongArrayList());
+        restored.markAllocated(EntityIdAllocator.id(1, 3));
+        assertTrue(restored.isRetired(EntityIdAllocator.id(1, 2)));
+        assertFalse(restored.isRetired(EntityIdAllocator.id(1, 3)));
+    }
+
+    @Test
+    public void recycledIdsSelectValidLocks() {
+        LockStore lockStore = new LockStore(16);
+        for (int generation = 0; generation < 64; ++generation) {
+            for (long index = 0; index < 64; ++index) {
+                int lock = lockStore.selectLock(EntityIdAllocator.id(index, generation * 4099));
+                assertTrue(lock >= 0 && lock < 16);
+            }
+        }
+    }
+}
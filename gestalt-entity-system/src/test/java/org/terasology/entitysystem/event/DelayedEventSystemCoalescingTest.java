@@ -0,0 +1,267 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.terasology.entitysystem.core.Component;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.event.impl.DelayedEventSystem;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.lifecycle.OnChanged;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
+import org.terasology.entitysystem.stubs.TestEvent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.pipeline.TransactionPipeline;
+import org.terasology.util.collection.TypeKeyedMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for combining pending events marked with {@link Coalesce} in the {@link DelayedEventSystem}.
+ */
+public class DelayedEventSystemCoalescingTest {
+
+    private EntityRef entity = mock(EntityRef.class);
+    private EntityRef otherEntity = mock(EntityRef.class);
+    private TransactionManager transactionManager = mock(TransactionManager.class);
+    private EventProcessor eventProcessor = mock(EventProcessor.class);
+    private EventSystem eventSystem;
+
+    public DelayedEventSystemCoalescingTest() {
+        when(transactionManager.getPipeline()).thenReturn(new TransactionPipeline());
+        when(entity.getId()).thenReturn(1L);
+        when(otherEntity.getId()).thenReturn(2L);
+        eventSystem = new DelayedEventSystem(transactionManager, eventProcessor);
+    }
+
+    @Test
+    public void pendingEventReplaced() throws Exception {
+        ReplacedEvent first = new ReplacedEvent();
+        ReplacedEvent second = new ReplacedEvent();
+
+        eventSystem.send(first, entity);
+        eventSystem.send(second, entity);
+        eventSystem.processEvents();
+
+        verify(eventProcessor, times(1)).send(any(Event.class), eq(entity), any(Set.class));
+        verify(eventProcessor).send(second, entity, Collections.emptySet());
+    }
+
+    @Test
+    public void pendingEventNotReplacedWithDifferentTriggeringComponents() throws Exception {
+        ReplacedEvent first = new ReplacedEvent();
+        ReplacedEvent second = new ReplacedEvent();
+
+        eventSystem.send(first, entity, ImmutableSet.of(SampleComponent.class));
+        eventSystem.send(second, entity, ImmutableSet.of(SecondComponent.class));
+        eventSystem.processEvents();
+
+        verify(eventProcessor).send(first, entity, ImmutableSet.of(SampleComponent.class));
+        verify(eventProcessor).send(second, entity, ImmutableSet.of(SecondComponent.class));
+    }
+
+    @Test
+    public void pendingEventMerged() throws Exception {
+        eventSystem.send(new MergedEvent("a"), entity, ImmutableSet.of(SampleComponent.class));
+        eventSystem.send(new MergedEvent("b"), entity, ImmutableSet.of(SecondComponent.class));
+        eventSystem.send(new MergedEvent("c"), entity, ImmutableSet.of(SampleComponent.class));
+        eventSystem.processEvents();
+
+        verify(eventProcessor).send(new MergedEvent("a", "b", "c"), entity, ImmutableSet.of(SampleComponent.class, SecondComponent.class));
+    }
+
+    @Test
+    public void interveningEventPreventsCoalescing() throws Exception {
+        ReplacedEvent first = new ReplacedEvent();
+        TestEvent intervening = new TestEvent("test");
+        ReplacedEvent second = new ReplacedEvent();
+
+        eventSystem.send(first, entity);
+        eventSystem.send(intervening, entity);
+        eventSystem.send(second, entity);
+        eventSystem.processEvents();
+
+        InOrder order = inOrder(eventProcessor);
+        order.verify(eventProcessor).send(first, entity, Collections.emptySet());
+        order.verify(eventProcessor).send(intervening, entity, Collections.emptySet());
+        order.verify(eventProcessor).send(second, entity, Collections.emptySet());
+    }
+
+    @Test
+    public void eventsAgainstDifferentEntitiesNotCoalesced() throws Exception {
+        ReplacedEvent first = new ReplacedEvent();
+        ReplacedEvent second = new ReplacedEvent();
+
+        eventSystem.send(first, entity);
+        eventSystem.send(second, otherEntity);
+        eventSystem.processEvents();
+
+        verify(eventProcessor).send(first, entity, Collections.emptySet());
+        verify(eventProcessor).send(second, otherEntity, Collections.emptySet());
+    }
+
+    @Test
+    public void processedEventNotCoalesced() throws Exception {
+        ReplacedEvent first = new ReplacedEvent();
+        ReplacedEvent second = new ReplacedEvent();
+
+        eventSystem.send(first, entity);
+        eventSystem.processEvents();
+        eventSystem.send(second, entity);
+        eventSystem.processEvents();
+
+        verify(eventProcessor).send(first, entity, Collections.emptySet());
+        verify(eventProcessor).send(second, entity, Collections.emptySet());
+    }
+
+    @Test
+    public void mergeChangedEvents() {
+        SampleComponent originalSample = mockComponent(SampleComponent.class);
+        SampleComponent intermediateSample = mockComponent(SampleComponent.class);
+        SampleComponent finalSample = mockComponent(SampleComponent.class);
+        SecondComponent originalSecond = mockComponent(SecondComponent.class);
+        SecondComponent finalSecond = mockComponent(SecondComponent.class);
+
+        OnChanged first = new OnChanged(2, Arrays.asList(originalSample), Arrays.asList(intermediateSample));
+        OnChanged second = new OnChanged(3, Arrays.asList(intermediateSample, originalSecond), Arrays.asList(finalSample, finalSecond));
+        OnChanged merged = first.merge(second);
+
+        assertEquals(3, merged.getRevision());
+        assertSame(originalSample, merged.getBeforeComponent(SampleComponent.class));
+        assertSame(originalSecond, merged.getBeforeComponent(SecondComponent.class));
+        assertSame(finalSample, merged.getAfterComponent(SampleComponent.class));
+        assertSame(finalSecond, merged.getAfterComponent(SecondComponent.class));
+    }
+
+    @Test
+    public void mergedChangedSubclassKeepsType() throws Exception {
+        SampleComponent originalSample = mockComponent(SampleComponent.class);
+        SampleComponent intermediateSample = mockComponent(SampleComponent.class);
+        SampleComponent finalSample = mockComponent(SampleComponent.class);
+
+        eventSystem.send(new ChangedSubclassEvent(2, Arrays.asList(originalSample), Arrays.asList(intermediateSample)), entity);
+        eventSystem.send(new ChangedSubclassEvent(3, Arrays.asList(intermediateSample), Arrays.asList(finalSample)), entity);
+        eventSystem.processEvents();
+
+        ArgumentCaptor<Event> captor = ArgumentCaptor.forClass(Event.class);
+        verify(eventProcessor, times(1)).send(captor.capture(), eq(entity), any(Set.class));
+        assertEquals(ChangedSubclassEvent.class, captor.getValue().getClass());
+        ChangedSubclassEvent merged = (ChangedSubclassEvent) captor.getValue();
+        assertEquals(3, merged.getRevision());
+        assertSame(originalSample, merged.getBeforeComponent(SampleComponent.class));
+        assertSame(finalSample, merged.getAfterComponent(SampleComponent.class));
+    }
+
+    @Test
+    public void changedSubclassWithoutFactoryNotCoalesced() throws Exception {
+        SampleComponent originalSample = mockComponent(SampleComponent.class);
+        SampleComponent finalSample = mockComponent(SampleComponent.class);
+        UnmergeableChangedEvent first = new UnmergeableChangedEvent(2, Arrays.asList(originalSample), Arrays.asList(finalSample));
+        UnmergeableChangedEvent second = new UnmergeableChangedEvent(3, Arrays.asList(finalSample), Arrays.asList(originalSample));
+
+        eventSystem.send(first, entity);
+        eventSystem.send(second, entity);
+        eventSystem.processEvents();
+
+        InOrder order = inOrder(eventProcessor);
+        order.verify(eventProcessor).send(first, entity, Collections.emptySet());
+        order.verify(eventProcessor).send(second, entity, Collections.emptySet());
+        verify(eventProcessor, times(2)).send(any(Event.class), eq(entity), any(Set.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Component> T mockComponent(Class<T> type) {
+        T component = mock(type);
+        when(component.getType()).thenReturn((Class) type);
+        return component;
+    }
+
+    @Coalesce
+    public static class ReplacedEvent implements Event {
+    }
+
+    @Coalesce
+    public static class ChangedSubclassEvent extends OnChanged {
+
+        public ChangedSubclassEvent(int revision, Collection<Component> beforeComponents, Collection<Component> afterComponents) {
+            super(revision, beforeComponents, afterComponents);
+        }
+
+        public ChangedSubclassEvent(int revision, TypeKeyedMap<Component> beforeComponents, TypeKeyedMap<Component> afterComponents) {
+            super(revision, beforeComponents, afterComponents);
+        }
+
+        @Override
+        protected OnChanged create(int revision, TypeKeyedMap<Component> beforeComponents, TypeKeyedMap<Component> afterComponents) {
+            return new ChangedSubclassEvent(revision, beforeComponents, afterComponents);
+        }
+    }
+
+    @Coalesce
+    public static class UnmergeableChangedEvent extends OnChanged {
+
+        public UnmergeableChangedEvent(int revision, Collection<Component> beforeComponents, Collection<Component> afterComponents) {
+            super(revision, beforeComponents, afterComponents);
+        }
+    }
+
+    @Coalesce
+    public static class MergedEvent implements MergeableEvent<MergedEvent> {
+        private final List<String> values;
+
+        public MergedEvent(String... values) {
+            this.values = Arrays.asList(values);
+        }
+
+        @Override
+        public MergedEvent merge(MergedEvent later) {
+            List<String> mergedValues = Lists.newArrayList(values);
+            mergedValues.addAll(later.values);
+            return new MergedEvent(mergedValues.toArray(new String[mergedValues.size()]));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof MergedEvent && values.equals(((MergedEvent) obj).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return values.hashCode();
+        }
+    }
+}
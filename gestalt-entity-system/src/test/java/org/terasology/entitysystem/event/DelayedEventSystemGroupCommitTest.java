@@ -0,0 +1,151 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.event;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.event.impl.DelayedEventSystem;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.TestEvent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.pipeline.TransactionStage;
+
+import java.util.ConcurrentModificationException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for group commit in the {@link DelayedEventSystem}.
+ */
+public class DelayedEventSystemGroupCommitTest extends DelayedEventSystemProcessingTest {
+
+    private static final String CANCEL = "cancel";
+    private static final String READ = "read";
+
+    private int commits;
+    private boolean failNextCommit;
+    private EntityRef readSource;
+
+    @Override
+    protected EventSystem createEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor) {
+        return new DelayedEventSystem(transactionManager, eventProcessor, 8);
+    }
+
+    @Before
+    public void setup() {
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.OBTAIN_LOCKS, (context) -> commits++);
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.VERIFY_COMMIT, (context) -> {
+            if (failNextCommit) {
+                failNextCommit = false;
+                throw new ConcurrentModificationException("Simulated conflict");
+            }
+        });
+    }
+
+    @Test
+    public void independentEventsCommittedTogether() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        EntityRef third = createEntity();
+        commits = 0;
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent("b"), second);
+        eventSystem.send(new TestEvent("c"), third);
+        eventSystem.processEvents();
+
+        assertEquals(1, commits);
+        assertEquals("a", getName(first));
+        assertEquals("b", getName(second));
+        assertEquals("c", getName(third));
+    }
+
+    @Test
+    public void conflictingEventCommittedSeparately() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        commits = 0;
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent("b"), first);
+        eventSystem.send(new TestEvent("c"), second);
+        eventSystem.processEvents();
+
+        assertEquals(2, commits);
+        assertEquals("ab", getName(first));
+        assertEquals("c", getName(second));
+    }
+
+    @Test
+    public void cancelledEventNotCommitted() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        commits = 0;
+
+        eventSystem.send(new TestEvent(CANCEL), first);
+        eventSystem.send(new TestEvent("b"), second);
+        eventSystem.processEvents();
+
+        assertEquals(1, commits);
+        assertEquals("", getName(first));
+        assertEquals("b", getName(second));
+    }
+
+    @Test
+    public void failedGroupCommitFallsBackToIndividualCommits() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        commits = 0;
+        failNextCommit = true;
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent("b"), second);
+        eventSystem.processEvents();
+
+        assertEquals(3, commits);
+        assertEquals("a", getName(first));
+        assertEquals("b", getName(second));
+    }
+
+    @Test
+    public void laterEventsOnDeferredEntityKeepOrder() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        readSource = first;
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent(READ), second);
+        eventSystem.send(new TestEvent("d"), second);
+        eventSystem.processEvents();
+
+        assertEquals("a", getName(first));
+        assertEquals("ad", getName(second));
+    }
+
+    @Override
+    protected EventResult appendValue(TestEvent event, EntityRef entity) {
+        if (READ.equals(event.getValue())) {
+            SampleComponent component = entity.getComponent(SampleComponent.class).get();
+            component.setName(component.getName() + readSource.getComponent(SampleComponent.class).get().getName());
+            return EventResult.CONTINUE;
+        }
+        EventResult result = super.appendValue(event, entity);
+        return CANCEL.equals(event.getValue()) ? EventResult.CANCEL : result;
+    }
+}
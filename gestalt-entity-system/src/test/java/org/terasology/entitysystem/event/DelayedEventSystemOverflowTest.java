@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.event.impl.DelayedEventSystem;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.stubs.TestEvent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.pipeline.TransactionPipeline;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the handling of a full pending event queue by the {@link DelayedEventSystem}.
+ */
+public class DelayedEventSystemOverflowTest {
+
+    private EntityRef entity = mock(EntityRef.class);
+    private TransactionManager transactionManager = mock(TransactionManager.class);
+    private EventProcessor eventProcessor = mock(EventProcessor.class);
+
+    public DelayedEventSystemOverflowTest() {
+        when(transactionManager.getPipeline()).thenReturn(new TransactionPipeline());
+        when(entity.getId()).thenReturn(1L);
+    }
+
+    private DelayedEventSystem createEventSystem(DelayedEventSystem.OverflowPolicy policy) {
+        return new DelayedEventSystem(transactionManager, eventProcessor, 1, null, 1, 2, policy);
+    }
+
+    @Test
+    public void growKeepsOverflowEventsInOrder() throws Exception {
+        DelayedEventSystem eventSystem = createEventSystem(DelayedEventSystem.OverflowPolicy.GROW);
+        TestEvent[] events = new TestEvent[5];
+        for (int i = 0; i < events.length; ++i) {
+            events[i] = new TestEvent(Integer.toString(i));
+            eventSystem.send(events[i], entity);
+        }
+        eventSystem.processEvents();
+
+        InOrder order = inOrder(eventProcessor);
+        for (TestEvent event : events) {
+            order.verify(eventProcessor).send(event, entity, Collections.emptySet());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void failThrowsWhenFull() {
+        DelayedEventSystem eventSystem = createEventSystem(DelayedEventSystem.OverflowPolicy.FAIL);
+        eventSystem.send(new TestEvent("1"), entity);
+        eventSystem.send(new TestEvent("2"), entity);
+        eventSystem.send(new TestEvent("3"), entity);
+    }
+
+    @Test
+    public void blockWaitsForEventsToBeProcessed() throws Exception {
+        DelayedEventSystem eventSystem = createEventSystem(DelayedEventSystem.OverflowPolicy.BLOCK);
+        eventSystem.send(new TestEvent("1"), entity);
+        eventSystem.send(new TestEvent("2"), entity);
+
+        AtomicBoolean sent = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            eventSystem.send(new TestEvent("3"), entity);
+            sent.set(true);
+            done.countDown();
+        });
+        producer.start();
+        assertFalse(done.await(50, TimeUnit.MILLISECONDS));
+        assertFalse(sent.get());
+
+        eventSystem.processEvents();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        eventSystem.processEvents();
+        verify(eventProcessor, times(3)).send(any(Event.class), eq(entity), any(Set.class));
+    }
+
+    @Test
+    public void blockDoesNotWaitWhenSentDuringProcessing() throws Exception {
+        DelayedEventSystem eventSystem = createEventSystem(DelayedEventSystem.OverflowPolicy.BLOCK);
+        TestEvent trigger = new TestEvent("trigger");
+        doAnswer(invocation -> {
+            for (int i = 0; i < 4; ++i) {
+                eventSystem.send(new TestEvent(Integer.toString(i)), entity);
+            }
+            return EventResult.CONTINUE;
+        }).when(eventProcessor).send(eq(trigger), eq(entity), any(Set.class));
+
+        eventSystem.send(trigger, entity);
+        eventSystem.processEvents();
+
+        verify(eventProcessor, times(5)).send(any(Event.class), eq(entity), any(Set.class));
+    }
+}
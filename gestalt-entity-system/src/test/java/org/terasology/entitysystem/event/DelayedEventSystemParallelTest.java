@@ -0,0 +1,148 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.event.impl.DelayedEventSystem;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.stubs.TestEvent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.entitysystem.transaction.exception.RollbackException;
+import org.terasology.entitysystem.transaction.pipeline.TransactionStage;
+
+import java.util.ConcurrentModificationException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for parallel processing of pending events in the {@link DelayedEventSystem}.
+ */
+public class DelayedEventSystemParallelTest extends DelayedEventSystemProcessingTest {
+
+    private static final int WORKERS = 4;
+    private static final String AWAIT = "await";
+
+    private ExecutorService executor = Executors.newFixedThreadPool(WORKERS);
+    private CyclicBarrier barrier = new CyclicBarrier(2);
+    private AtomicBoolean failNextCommit = new AtomicBoolean();
+    private AtomicBoolean breakNextCommit = new AtomicBoolean();
+    private AtomicInteger failedCommits = new AtomicInteger();
+
+    @Override
+    protected EventSystem createEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor) {
+        return new DelayedEventSystem(transactionManager, eventProcessor, 1, executor, WORKERS);
+    }
+
+    @Before
+    public void setup() {
+        transactionManager.getPipeline().registerInterceptor(TransactionStage.VERIFY_COMMIT, (context) -> {
+            if (failNextCommit.compareAndSet(true, false)) {
+                failedCommits.incrementAndGet();
+                throw new ConcurrentModificationException("Simulated conflict");
+            }
+            if (breakNextCommit.compareAndSet(true, false)) {
+                throw new IllegalStateException("Simulated failure");
+            }
+        });
+    }
+
+    @After
+    public void teardown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void eventsToSameEntityProcessedInOrder() throws Exception {
+        EntityRef[] entities = new EntityRef[WORKERS * 2];
+        for (int i = 0; i < entities.length; ++i) {
+            entities[i] = createEntity();
+        }
+
+        for (int value = 0; value < 10; ++value) {
+            for (EntityRef entity : entities) {
+                eventSystem.send(new TestEvent(Integer.toString(value)), entity);
+            }
+        }
+        eventSystem.processEvents();
+
+        for (EntityRef entity : entities) {
+            assertEquals("0123456789", getName(entity));
+        }
+    }
+
+    @Test
+    public void eventsToDifferentEntitiesProcessedConcurrently() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+
+        eventSystem.send(new TestEvent(AWAIT), first);
+        eventSystem.send(new TestEvent(AWAIT), second);
+        eventSystem.processEvents();
+
+        assertEquals(AWAIT, getName(first));
+        assertEquals(AWAIT, getName(second));
+    }
+
+    @Test
+    public void concurrencyFailureRetried() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        failNextCommit.set(true);
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent("b"), second);
+        eventSystem.processEvents();
+
+        assertEquals(1, failedCommits.get());
+        assertEquals("a", getName(first));
+        assertEquals("b", getName(second));
+    }
+
+    @Test(expected = RollbackException.class)
+    public void otherCommitFailurePropagated() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+        breakNextCommit.set(true);
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent("b"), second);
+        eventSystem.processEvents();
+    }
+
+    @Override
+    protected EventResult appendValue(TestEvent event, EntityRef entity) {
+        if (AWAIT.equals(event.getValue())) {
+            try {
+                barrier.await(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("Events were not processed concurrently", e);
+            }
+        }
+        return super.appendValue(event, entity);
+    }
+}
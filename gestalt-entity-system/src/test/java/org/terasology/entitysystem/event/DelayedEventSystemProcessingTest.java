@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.event;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.event.impl.DelayedEventSystem;
+import org.terasology.entitysystem.event.impl.EventProcessor;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.TestEvent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests processing pending events against an in-memory entity manager, for each way the {@link DelayedEventSystem} can be configured to process them. Each
+ * {@link TestEvent} appends its value to the name of the entity's SampleComponent.
+ */
+public abstract class DelayedEventSystemProcessingTest {
+
+    protected static final String FORWARD = "forward";
+    protected static final String FORWARDED = "forwarded";
+
+    protected TransactionManager transactionManager = new TransactionManager();
+    protected EntityManager entityManager;
+    protected EventSystem eventSystem;
+
+    @Before
+    public void setupEventSystem() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+        EventProcessor eventProcessor = EventProcessor.newBuilder().addHandler(this::appendValue, TestEvent.class, SampleComponent.class).build();
+        eventSystem = createEventSystem(transactionManager, eventProcessor);
+    }
+
+    protected abstract EventSystem createEventSystem(TransactionManager transactionManager, EventProcessor eventProcessor);
+
+    @Test
+    public void eventsSentDuringProcessingAreProcessed() throws Exception {
+        EntityRef first = createEntity();
+        EntityRef second = createEntity();
+
+        eventSystem.send(new TestEvent("a"), first);
+        eventSystem.send(new TestEvent(FORWARD), second);
+        eventSystem.processEvents();
+
+        assertEquals("a", getName(first));
+        assertEquals(FORWARD + FORWARDED, getName(second));
+        assertFalse(transactionManager.isActive());
+    }
+
+    /**
+     * Appends the event's value to the entity's name, sending a further event to the entity if the value is {@link #FORWARD}.
+     */
+    protected EventResult appendValue(TestEvent event, EntityRef entity) {
+        SampleComponent component = entity.getComponent(SampleComponent.class).get();
+        component.setName(component.getName() + event.getValue());
+        if (FORWARD.equals(event.getValue())) {
+            eventSystem.send(new TestEvent(FORWARDED), entity);
+        }
+        return EventResult.CONTINUE;
+    }
+
+    protected EntityRef createEntity() {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName("");
+        transactionManager.commit();
+        return entity;
+    }
+
+    protected String getName(EntityRef entity) {
+        transactionManager.begin();
+        String name = entity.getComponent(SampleComponent.class).get().getName();
+        transactionManager.commit();
+        return name;
+    }
+}
@@ -22,6 +22,8 @@
 import org.terasology.entitysystem.component.CodeGenComponentManager;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.EntityState;
+import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
 import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
 import org.terasology.entitysystem.event.impl.EventProcessor;
 import org.terasology.entitysystem.stubs.SampleComponent;
@@ -36,6 +38,8 @@
 import java.io.IOException;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -92,6 +96,25 @@ public void eventHandlerReceivesEvent() {
         verify(handler).onEvent(event, testEntity);
     }
 
+    @Test
+    public void dispatchDoesNotInvolveComponents() {
+        testEntity.addComponent(SecondComponent.class);
+        transactionManager.commit();
+        transactionManager.begin();
+        EventHandler<TestEvent> handler = mock(EventHandler.class);
+        when(handler.onEvent(event, testEntity)).thenReturn(EventResult.CONTINUE);
+        eventProcessor = EventProcessor.newBuilder().addHandler(handler, TestEvent.class, SampleComponent.class, SecondComponent.class).build();
+
+        assertEquals(EventResult.COMPLETE, eventProcessor.send(event, testEntity));
+
+        verify(handler).onEvent(event, testEntity);
+        EntitySystemState state = transactionManager.getContext().getAttachmentIfPresent(EntitySystemState.class);
+        assertFalse(state.getEntityStates().isEmpty());
+        for (EntityState entityState : state.getEntityStates()) {
+            assertTrue(entityState.getInvolvedComponents().isEmpty());
+        }
+    }
+
     @Test
     public void cancelStopsProcessingChain() {
         EventHandler<TestEvent> handler = mock(EventHandler.class);
@@ -218,6 +241,60 @@ public void handleExceptionWhenInvokingHandler() {
         verify(handlerB).onEvent(event, testEntity);
     }
 
+    @Test
+    public void handlersResolvedForEachComposition() {
+        EventHandler<TestEvent> secondHandler = mock(EventHandler.class);
+        when(secondHandler.onEvent(event, testEntity)).thenReturn(EventResult.CONTINUE);
+        eventProcessor = EventProcessor.newBuilder().addHandler(secondHandler, TestEvent.class, SecondComponent.class).build();
+
+        eventProcessor.send(event, testEntity);
+        testEntity.addComponent(SecondComponent.class);
+        eventProcessor.send(event, testEntity);
+        testEntity.removeComponent(SecondComponent.class);
+        eventProcessor.send(event, testEntity);
+
+        verify(secondHandler).onEvent(event, testEntity);
+    }
+
+    @Test
+    public void componentAddedByHandlerEnablesLaterHandlers() {
+        EventHandler<TestEvent> firstHandler = (event, entity) -> {
+            entity.addComponent(SecondComponent.class);
+            return EventResult.CONTINUE;
+        };
+        EventHandler<TestEvent> secondHandler = mock(EventHandler.class);
+        when(secondHandler.onEvent(event, testEntity)).thenReturn(EventResult.CONTINUE);
+        eventProcessor = EventProcessor.newBuilder()
+                .addHandler(firstHandler, TestEvent.class, SampleComponent.class)
+                .addHandler(secondHandler, TestEvent.class, SecondComponent.class).build();
+
+        assertEquals(EventResult.COMPLETE, eventProcessor.send(event, testEntity));
+
+        verify(secondHandler).onEvent(event, testEntity);
+    }
+
+    @Test
+    public void componentRemovedByHandlerDisablesLaterHandlers() {
+        testEntity.addComponent(SecondComponent.class);
+        EventHandler<TestEvent> firstHandler = mock(EventHandlerA.class);
+        when(firstHandler.onEvent(event, testEntity)).thenReturn(EventResult.CONTINUE);
+        EventHandler<TestEvent> removingHandler = (event, entity) -> {
+            entity.removeComponent(SecondComponent.class);
+            return EventResult.CONTINUE;
+        };
+        EventHandler<TestEvent> secondHandler = mock(EventHandlerB.class);
+        when(secondHandler.onEvent(event, testEntity)).thenReturn(EventResult.CONTINUE);
+        eventProcessor = EventProcessor.newBuilder()
+                .addHandler(firstHandler, TestEvent.class, SecondComponent.class)
+                .addHandler(removingHandler, TestEvent.class, SampleComponent.class)
+                .addHandler(secondHandler, TestEvent.class, SecondComponent.class).build();
+
+        assertEquals(EventResult.COMPLETE, eventProcessor.send(event, testEntity));
+
+        verify(firstHandler).onEvent(event, testEntity);
+        verifyNoMoreInteractions(secondHandler);
+    }
+
     private interface EventHandlerA<T extends Event> extends EventHandler<T> {
     }
 
@@ -22,6 +22,9 @@
 import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.event.impl.EventProcessorBuilder;
 import org.terasology.entitysystem.event.impl.EventReceiverMethodSupport;
+import org.terasology.entitysystem.stubs.EmptyComponent;
+import org.terasology.entitysystem.stubs.PrimitiveComponent;
+import org.terasology.entitysystem.stubs.ReferenceComponent;
 import org.terasology.entitysystem.stubs.SampleComponent;
 import org.terasology.entitysystem.stubs.SecondComponent;
 import org.terasology.entitysystem.stubs.TestEvent;
@@ -35,6 +38,7 @@
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -110,6 +114,69 @@ public void registerWithComponentArg() {
         assertEquals(comp, receiver.comp);
     }
 
+    @Test
+    public void registerWithComponentArgForEachInvocation() {
+        for (EventReceiverMethodSupport.Invocation invocation : EventReceiverMethodSupport.Invocation.values()) {
+            MixedFilteredEventReceiver receiver = new MixedFilteredEventReceiver();
+            EventProcessorBuilder builder = mock(EventProcessorBuilder.class);
+            EventReceiverMethodSupport.register(receiver, builder, invocation);
+
+            final ArgumentCaptor<EventHandler> captor = ArgumentCaptor.forClass(EventHandler.class);
+            verify(builder).addHandler(captor.capture(), eq(MixedFilteredEventReceiver.class), eq(TestEvent.class), eq(Sets.newHashSet(SampleComponent.class, SecondComponent.class)));
+
+            TestEvent event = new TestEvent("test");
+            SecondComponent comp = mock(SecondComponent.class);
+            when(entity.getComponent(SecondComponent.class)).thenReturn(Optional.of(comp));
+            assertEquals(EventResult.CONTINUE, captor.getValue().onEvent(event, entity));
+            assertEquals(event, receiver.lastEvent);
+            assertEquals(entity, receiver.lastEntity);
+            assertEquals(comp, receiver.comp);
+        }
+    }
+
+    @Test
+    public void registerWithMultipleComponentArgs() {
+        MultiComponentEventReceiver receiver = new MultiComponentEventReceiver();
+        EventProcessorBuilder builder = mock(EventProcessorBuilder.class);
+        EventReceiverMethodSupport.register(receiver, builder);
+
+        final ArgumentCaptor<EventHandler> captor = ArgumentCaptor.forClass(EventHandler.class);
+        verify(builder).addHandler(captor.capture(), eq(MultiComponentEventReceiver.class), eq(TestEvent.class), eq(Sets.newHashSet(SampleComponent.class, SecondComponent.class)));
+
+        TestEvent event = new TestEvent("test");
+        SampleComponent sample = mock(SampleComponent.class);
+        SecondComponent second = mock(SecondComponent.class);
+        when(entity.getComponent(SampleComponent.class)).thenReturn(Optional.of(sample));
+        when(entity.getComponent(SecondComponent.class)).thenReturn(Optional.of(second));
+        captor.getValue().onEvent(event, entity);
+        assertEquals(event, receiver.lastEvent);
+        assertEquals(sample, receiver.sample);
+        assertEquals(second, receiver.second);
+        verify(entity, never()).getComponents();
+    }
+
+    @Test
+    public void registerWithManyComponentArgs() {
+        ManyComponentEventReceiver receiver = new ManyComponentEventReceiver();
+        EventProcessorBuilder builder = mock(EventProcessorBuilder.class);
+        EventReceiverMethodSupport.register(receiver, builder);
+
+        final ArgumentCaptor<EventHandler> captor = ArgumentCaptor.forClass(EventHandler.class);
+        verify(builder).addHandler(captor.capture(), eq(ManyComponentEventReceiver.class), eq(TestEvent.class),
+                eq(Sets.newHashSet(SampleComponent.class, SecondComponent.class, EmptyComponent.class, PrimitiveComponent.class, ReferenceComponent.class)));
+
+        TestEvent event = new TestEvent("test");
+        ReferenceComponent reference = mock(ReferenceComponent.class);
+        when(entity.getComponent(SampleComponent.class)).thenReturn(Optional.of(mock(SampleComponent.class)));
+        when(entity.getComponent(SecondComponent.class)).thenReturn(Optional.of(mock(SecondComponent.class)));
+        when(entity.getComponent(EmptyComponent.class)).thenReturn(Optional.of(mock(EmptyComponent.class)));
+        when(entity.getComponent(PrimitiveComponent.class)).thenReturn(Optional.of(mock(PrimitiveComponent.class)));
+        when(entity.getComponent(ReferenceComponent.class)).thenReturn(Optional.of(reference));
+        captor.getValue().onEvent(event, entity);
+        assertEquals(event, receiver.lastEvent);
+        assertEquals(reference, receiver.reference);
+    }
+
     @Test
     public void orderUsingClassBeforeAnnotation() {
         GlobalBeforeEventReceiver receiver = new GlobalBeforeEventReceiver();
@@ -261,4 +328,33 @@ public EventResult onEvent(TestEvent event, EntityRef entity,  SecondComponent c
         }
     }
 
+    public static class MultiComponentEventReceiver {
+
+        public TestEvent lastEvent;
+        public SampleComponent sample;
+        public SecondComponent second;
+
+        @ReceiveEvent
+        public EventResult onEvent(TestEvent event, EntityRef entity, SampleComponent sample, SecondComponent second) {
+            this.lastEvent = event;
+            this.sample = sample;
+            this.second = second;
+            return EventResult.CONTINUE;
+        }
+    }
+
+    public static class ManyComponentEventReceiver {
+
+        public TestEvent lastEvent;
+        public ReferenceComponent reference;
+
+        @ReceiveEvent
+        public EventResult onEvent(TestEvent event, EntityRef entity, SampleComponent sample, SecondComponent second, EmptyComponent empty,
+                                   PrimitiveComponent primitive, ReferenceComponent reference) {
+            this.lastEvent = event;
+            this.reference = reference;
+            return EventResult.CONTINUE;
+        }
+    }
+
 }
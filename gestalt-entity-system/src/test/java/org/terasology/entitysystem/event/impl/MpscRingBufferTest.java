@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.event.impl;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class MpscRingBufferTest {
+
+    @Test
+    public void capacityRoundedUpToPowerOfTwo() {
+        assertEquals(1, new MpscRingBuffer<String>(1).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(5).capacity());
+        assertEquals(8, new MpscRingBuffer<String>(8).capacity());
+    }
+
+    @Test
+    public void drainInOrder() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+        assertTrue(buffer.offer("a"));
+        assertTrue(buffer.offer("b"));
+        assertTrue(buffer.offer("c"));
+        assertEquals(3, buffer.size());
+
+        List<String> result = Lists.newArrayList();
+        assertEquals(3, buffer.drainTo(result));
+        assertEquals(Lists.newArrayList("a", "b", "c"), result);
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void offerFailsWhenFull() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(2);
+        assertTrue(buffer.offer("a"));
+        assertTrue(buffer.offer("b"));
+        assertFalse(buffer.offer("c"));
+
+        buffer.drainTo(Lists.newArrayList());
+        assertTrue(buffer.offer("c"));
+    }
+
+    @Test
+    public void wrapsAround() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(4);
+        List<Integer> result = Lists.newArrayList();
+        for (int i = 0; i < 10; ++i) {
+            assertTrue(buffer.offer(i));
+            assertTrue(buffer.offer(-i));
+            buffer.drainTo(result);
+        }
+        assertEquals(20, result.size());
+        assertEquals(9, (int) result.get(18));
+        assertEquals(-9, (int) result.get(19));
+    }
+
+    @Test
+    public void clear() {
+        MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+        buffer.offer("a");
+        buffer.offer("b");
+        buffer.clear();
+
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.drainTo(Lists.newArrayList()));
+    }
+
+    @Test
+    public void unboundedGrowsWhenFull() {
+        MpscRingBuffer<Integer> buffer = MpscRingBuffer.unbounded(2);
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(buffer.offer(i));
+        }
+        assertEquals(100, buffer.size());
+
+        List<Integer> result = Lists.newArrayList();
+        assertEquals(100, buffer.drainTo(result));
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i, (int) result.get(i));
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void unboundedClear() {
+        MpscRingBuffer<Integer> buffer = MpscRingBuffer.unbounded(2);
+        for (int i = 0; i < 10; ++i) {
+            buffer.offer(i);
+        }
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+
+        buffer.offer(10);
+        List<Integer> result = Lists.newArrayList();
+        buffer.drainTo(result);
+        assertEquals(Lists.newArrayList(10), result);
+    }
+
+    @Test
+    public void concurrentProducersPreserveOrderPerProducer() throws Exception {
+        assertOrderPreservedPerProducer(new MpscRingBuffer<>(64));
+    }
+
+    @Test
+    public void concurrentProducersPreserveOrderPerProducerWhileGrowing() throws Exception {
+        assertOrderPreservedPerProducer(MpscRingBuffer.unbounded(1));
+    }
+
+    private void assertOrderPreservedPerProducer(MpscRingBuffer<int[]> buffer) throws Exception {
+        final int producers = 4;
+        final int itemsPerProducer = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> results = Lists.newArrayList();
+            for (int p = 0; p < producers; ++p) {
+                final int producer = p;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < itemsPerProducer; ++i) {
+                        while (!buffer.offer(new int[]{producer, i})) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+
+            int[] nextExpected = new int[producers];
+            List<int[]> drained = Lists.newArrayList();
+            int received = 0;
+            while (received < producers * itemsPerProducer) {
+                buffer.drainTo(drained);
+                for (int[] item : drained) {
+                    assertEquals(nextExpected[item[0]]++, item[1]);
+                }
+                received += drained.size();
+                drained.clear();
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            assertTrue(buffer.isEmpty());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -16,10 +16,13 @@
 
 package org.terasology.entitysystem.index;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityBatch;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
@@ -31,7 +34,15 @@
 import org.terasology.valuetype.TypeLibrary;
 
 import java.io.IOException;
-
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -43,12 +54,13 @@ public class ComponentIndexTest {
 
     private TransactionManager transactionManager = new TransactionManager();
     private EntityManager entityManager;
-
+    private CodeGenComponentManager componentManager;
 
     public ComponentIndexTest() {
         TypeLibrary typeLibrary = new TypeLibrary();
         typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
-        entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+        componentManager = new CodeGenComponentManager(typeLibrary);
+        entityManager = new InMemoryEntityManager(componentManager, transactionManager);
         componentIndex = ComponentIndexes.createComponentIndex(transactionManager, entityManager, SampleComponent.class);
     }
 
@@ -104,4 +116,50 @@ public void entityWithComponentAddedIsAddedToIndex() {
         transactionManager.commit();
         assertTrue(componentIndex.contains(entity));
     }
+
+    @Test
+    public void batchEntitiesWithComponentInIndex() {
+        List<SampleComponent> samples = Lists.newArrayList(componentManager.create(SampleComponent.class), componentManager.create(SampleComponent.class));
+        EntityBatch withComponent = entityManager.createEntityBatch(Collections.singletonList(samples));
+        EntityBatch withoutComponent = entityManager.createEntityBatch(Collections.singletonList(Collections.singletonList(componentManager.create(SecondComponent.class))));
+        transactionManager.commit();
+
+        assertTrue(componentIndex.contains(withComponent.getEntity(0)));
+        assertTrue(componentIndex.contains(withComponent.getEntity(1)));
+        assertFalse(componentIndex.contains(withoutComponent.getEntity(0)));
+    }
+
+    @Test
+    public void iterateIndex() {
+        EntityRef first = entityManager.createEntity();
+        first.addComponent(SampleComponent.class);
+        EntityRef second = entityManager.createEntity();
+        second.addComponent(SampleComponent.class);
+        entityManager.createEntity().addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        Set<Long> result = Sets.newHashSet();
+        componentIndex.forEach(entity -> result.add(entity.getId()));
+        assertEquals(Sets.newHashSet(first.getId(), second.getId()), result);
+    }
+
+    @Test
+    public void irrelevantCommitDoesNotBlockOtherThreads() throws Exception {
+        entityManager.createEntity().addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<EntityRef> result = executor.submit(() -> {
+                transactionManager.begin();
+                EntityRef entity = entityManager.createEntity();
+                entity.addComponent(SampleComponent.class);
+                transactionManager.commit();
+                return entity;
+            });
+            assertTrue(componentIndex.contains(result.get(5, TimeUnit.SECONDS)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.index;
+
+import com.google.common.collect.Lists;
+import gnu.trove.list.TLongList;
+import gnu.trove.set.hash.TLongHashSet;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class StripedLongSetTest {
+
+    private StripedLongSet set = new StripedLongSet(4);
+
+    @Test
+    public void addAndRemove() {
+        assertTrue(set.add(1L));
+        assertFalse(set.add(1L));
+        assertTrue(set.contains(1L));
+        assertFalse(set.contains(2L));
+
+        assertTrue(set.remove(1L));
+        assertFalse(set.remove(1L));
+        assertFalse(set.contains(1L));
+    }
+
+    @Test
+    public void copy() {
+        for (long i = 0; i < 100; ++i) {
+            set.add(i << 32 | i);
+        }
+        TLongList copy = set.copy();
+
+        assertEquals(100, set.size());
+        assertEquals(100, copy.size());
+        TLongHashSet values = new TLongHashSet(copy);
+        for (long i = 0; i < 100; ++i) {
+            assertTrue(values.contains(i << 32 | i));
+        }
+    }
+
+    @Test
+    public void singleStripe() {
+        StripedLongSet singleStripe = new StripedLongSet(1);
+        singleStripe.add(-1L);
+        singleStripe.add(Long.MAX_VALUE);
+        assertTrue(singleStripe.contains(-1L));
+        assertTrue(singleStripe.contains(Long.MAX_VALUE));
+        assertEquals(2, singleStripe.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stripesMustBePowerOfTwo() {
+        new StripedLongSet(3);
+    }
+
+    @Test
+    public void concurrentChanges() throws Exception {
+        final int threads = 4;
+        final int valuesPerThread = 10000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> results = Lists.newArrayList();
+            for (int t = 0; t < threads; ++t) {
+                final long base = (long) t * valuesPerThread;
+                results.add(executor.submit(() -> {
+                    for (long i = base; i < base + valuesPerThread; ++i) {
+                        set.add(i);
+                    }
+                    for (long i = base; i < base + valuesPerThread; i += 2) {
+                        set.remove(i);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(threads * valuesPerThread / 2, set.size());
+        for (long i = 0; i < threads * valuesPerThread; ++i) {
+            assertEquals(i % 2 == 1, set.contains(i));
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.terasology.entitysystem.index;
+
+import com.google.common.collect.Range;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityBatch;
+import org.terasology.entitysystem.core.EntityManager;
+import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
+import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
+import org.terasology.entitysystem.transaction.TransactionManager;
+import org.terasology.valuetype.ImmutableCopy;
+import org.terasology.valuetype.TypeHandler;
+import org.terasology.valuetype.TypeLibrary;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class ValueIndexTest {
+    private TransactionManager transactionManager = new TransactionManager();
+    private CodeGenComponentManager componentManager;
+    private EntityManager entityManager;
+    private SortedValueIndex<String> nameIndex;
+    private ValueIndex<String> descriptionIndex;
+
+    public ValueIndexTest() {
+        TypeLibrary typeLibrary = new TypeLibrary();
+        typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        componentManager = new CodeGenComponentManager(typeLibrary);
+        entityManager = new InMemoryEntityManager(componentManager, transactionManager);
+        nameIndex = ValueIndexes.createSortedIndex(transactionManager, componentManager, SampleComponent.class, "name", String.class);
+        descriptionIndex = ValueIndexes.createHashIndex(transactionManager, componentManager, SampleComponent.class, "description", String.class);
+    }
+
+    @Before
+    public void setup() {
+        transactionManager.begin();
+    }
+
+    @After
+    public void teardown() throws IOException {
+        while (transactionManager.isActive()) {
+            transactionManager.rollback();
+        }
+    }
+
+    private EntityRef createEntity(String name) {
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(name);
+        return entity;
+    }
+
+    private static TLongList ids(EntityRef... entities) {
+        TLongList result = new TLongArrayList();
+        for (EntityRef entity : entities) {
+            result.add(entity.getId());
+        }
+        return result;
+    }
+
+    private static TLongList sorted(TLongList ids) {
+        ids.sort();
+        return ids;
+    }
+
+    @Test
+    public void findNewEntityByValue() {
+        EntityRef entity = createEntity("a");
+        createEntity("b");
+        transactionManager.commit();
+
+        assertEquals(ids(entity), nameIndex.findEqual("a"));
+        assertTrue(nameIndex.findEqual("c").isEmpty());
+    }
+
+    @Test
+    public void nullValueNotIndexed() {
+        createEntity(null);
+        transactionManager.commit();
+
+        assertTrue(nameIndex.findInRange(Range.all()).isEmpty());
+        assertTrue(descriptionIndex.findEqual(null).isEmpty());
+    }
+
+    @Test
+    public void changedValueMovesEntity() {
+        EntityRef entity = createEntity("a");
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().setName("b");
+        transactionManager.commit();
+
+        assertTrue(nameIndex.findEqual("a").isEmpty());
+        assertEquals(ids(entity), nameIndex.findEqual("b"));
+    }
+
+    @Test
+    public void rolledBackChangeNotApplied() {
+        EntityRef entity = createEntity("a");
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().setName("b");
+        transactionManager.rollback();
+
+        assertEquals(ids(entity), nameIndex.findEqual("a"));
+        assertTrue(nameIndex.findEqual("b").isEmpty());
+    }
+
+    @Test
+    public void removedComponentRemovesEntity() {
+        EntityRef entity = createEntity("a");
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.removeComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        assertTrue(nameIndex.findEqual("a").isEmpty());
+    }
+
+    @Test
+    public void deletedEntityRemoved() {
+        EntityRef entity = createEntity("a");
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.delete();
+        transactionManager.commit();
+
+        assertTrue(nameIndex.findEqual("a").isEmpty());
+    }
+
+    @Test
+    public void findInRange() {
+        EntityRef a = createEntity("a");
+        EntityRef b = createEntity("b");
+        EntityRef c = createEntity("c");
+        EntityRef d = createEntity("d");
+        transactionManager.commit();
+
+        assertEquals(ids(b, c), nameIndex.findInRange(Range.closed("b", "c")));
+        assertEquals(ids(b, c), nameIndex.findInRange(Range.openClosed("a", "c")));
+        assertEquals(ids(a, b), nameIndex.findInRange(Range.lessThan("c")));
+        assertEquals(ids(c, d), nameIndex.findInRange(Range.atLeast("c")));
+        assertEquals(ids(a, b, c, d), nameIndex.findInRange(Range.all()));
+    }
+
+    @Test
+    public void entitiesWithSameValue() {
+        EntityRef first = createEntity("a");
+        EntityRef second = createEntity("a");
+        transactionManager.commit();
+
+        assertEquals(sorted(ids(first, second)), sorted(nameIndex.findEqual("a")));
+
+        transactionManager.begin();
+        first.getComponent(SampleComponent.class).get().setName("b");
+        transactionManager.commit();
+
+        assertEquals(ids(second), nameIndex.findEqual("a"));
+    }
+
+    @Test
+    public void batchEntitiesIndexed() {
+        SampleComponent first = componentManager.create(SampleComponent.class);
+        first.setName("a");
+        SampleComponent second = componentManager.create(SampleComponent.class);
+        second.setName("b");
+        EntityBatch batch = entityManager.createEntityBatch(Arrays.asList(
+                Collections.singletonList(componentManager.create(SecondComponent.class)),
+                Collections.singletonList(first)));
+        EntityBatch otherBatch = entityManager.createEntityBatch(Collections.singletonList(Collections.singletonList(second)));
+        transactionManager.commit();
+
+        assertEquals(ids(batch.getEntity(0)), nameIndex.findEqual("a"));
+        assertEquals(ids(otherBatch.getEntity(0)), nameIndex.findEqual("b"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownPropertyRejected() {
+        ValueIndexes.createHashIndex(transactionManager, componentManager, SampleComponent.class, "missing", String.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void wrongPropertyTypeRejected() {
+        ValueIndexes.createHashIndex(transactionManager, componentManager, SampleComponent.class, "name", Integer.class);
+    }
+}
@@ -27,19 +27,24 @@
 import org.terasology.entitysystem.entity.inmemory.CoreEntityRef;
 import org.terasology.entitysystem.entity.inmemory.EntityState;
 import org.terasology.entitysystem.entity.inmemory.EntitySystemState;
+import org.terasology.entitysystem.entity.inmemory.NewEntityBatch;
 import org.terasology.entitysystem.event.Event;
 import org.terasology.entitysystem.event.EventSystem;
 import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
 import org.terasology.entitysystem.transaction.pipeline.TransactionContext;
 import org.terasology.valuetype.TypeLibrary;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -125,4 +130,133 @@ public void sendOnChangedEventForUpdatedComponents() {
         assertEquals(originalComp, onChangedEvent.getBeforeComponent(SampleComponent.class));
         assertEquals(workingComp, onChangedEvent.getAfterComponent(SampleComponent.class));
     }
+
+    @Test
+    public void sendSingleOnBatchAddedEventForBatch() {
+        List<SampleComponent> components = Lists.newArrayList();
+        for (int i = 0; i < 3; ++i) {
+            components.add(componentManager.create(SampleComponent.class));
+        }
+        NewEntityBatch batch = new NewEntityBatch(mockEntityManager, Collections.singletonList(components));
+        batch.setFirstId(5);
+        systemState.getNewEntityBatches().add(batch);
+
+        EntityRef entityRef = new CoreEntityRef(null, 5);
+        when(mockEntityManager.getEntity(5)).thenReturn(entityRef);
+
+        LifecycleEventInterceptor lifecycleEventInterceptor = new LifecycleEventInterceptor(mockEntityManager, mockEventSystem);
+        lifecycleEventInterceptor.handle(context);
+
+        ArgumentCaptor<Event> eventCapturer = ArgumentCaptor.forClass(Event.class);
+        verify(mockEventSystem).send(eventCapturer.capture(), eq(entityRef), eq(Sets.newHashSet(SampleComponent.class)));
+
+        assertTrue(eventCapturer.getValue() instanceof OnBatchAdded);
+        OnBatchAdded onBatchAddedEvent = (OnBatchAdded) eventCapturer.getValue();
+        assertEquals(3, onBatchAddedEvent.getBatch().size());
+        assertEquals(7, onBatchAddedEvent.getBatch().getId(2));
+    }
+
+    @Test
+    public void sendSingleOnChangedEventForMultipleUpdatedComponents() {
+        SampleComponent originalSample = componentManager.create(SampleComponent.class);
+        originalSample.setName("Name");
+        SampleComponent workingSample = componentManager.create(SampleComponent.class);
+        workingSample.setName("NewName");
+        SecondComponent originalSecond = componentManager.create(SecondComponent.class);
+        originalSecond.setName("Name");
+        SecondComponent workingSecond = componentManager.create(SecondComponent.class);
+        workingSecond.setName("NewName");
+        EntityState entityState = new EntityState(1, 1, Lists.newArrayList(originalSample, originalSecond), Lists.newArrayList(workingSample, workingSecond));
+        systemState.addState(entityState);
+
+        EntityRef entityRef = new CoreEntityRef(null, 1);
+        when(mockEntityManager.getEntity(1)).thenReturn(entityRef);
+
+        LifecycleEventInterceptor lifecycleEventInterceptor = new LifecycleEventInterceptor(mockEntityManager, mockEventSystem);
+        lifecycleEventInterceptor.handle(context);
+
+        ArgumentCaptor<Event> eventCapturer = ArgumentCaptor.forClass(Event.class);
+        verify(mockEventSystem).send(eventCapturer.capture(), eq(entityRef), eq(Sets.newHashSet(SampleComponent.class, SecondComponent.class)));
+        verifyNoMoreInteractions(mockEventSystem);
+
+        OnChanged onChangedEvent = (OnChanged) eventCapturer.getValue();
+        assertEquals(workingSample, onChangedEvent.getAfterComponent(SampleComponent.class));
+        assertEquals(workingSecond, onChangedEvent.getAfterComponent(SecondComponent.class));
+    }
+
+    @Test
+    public void sendOnBatchAddedEventWhenThresholdReached() {
+        LifecycleEventFactories factories = new LifecycleEventFactories();
+        factories.setBatchAddedThreshold(2);
+        context.attach(LifecycleEventFactories.class, factories);
+        EntityRef firstEntity = addEntityWithNewComponent(1);
+        EntityRef secondEntity = addEntityWithNewComponent(2);
+
+        LifecycleEventInterceptor lifecycleEventInterceptor = new LifecycleEventInterceptor(mockEntityManager, mockEventSystem);
+        lifecycleEventInterceptor.handle(context);
+
+        ArgumentCaptor<Event> eventCapturer = ArgumentCaptor.forClass(Event.class);
+        verify(mockEventSystem).send(eventCapturer.capture(), eq(firstEntity), eq(Sets.newHashSet(SampleComponent.class)));
+        verifyNoMoreInteractions(mockEventSystem);
+
+        assertTrue(eventCapturer.getValue() instanceof OnBatchAdded);
+        OnBatchAdded onBatchAddedEvent = (OnBatchAdded) eventCapturer.getValue();
+        assertEquals(2, onBatchAddedEvent.getBatch().size());
+        assertEquals(secondEntity, onBatchAddedEvent.getBatch().getEntity(1));
+        assertEquals(2, onBatchAddedEvent.getBatch().getId(1));
+        assertEquals(Sets.newHashSet(SampleComponent.class), onBatchAddedEvent.getBatch().getComponentTypes());
+    }
+
+    @Test
+    public void sendOnAddedEventsBelowBatchThreshold() {
+        LifecycleEventFactories factories = new LifecycleEventFactories();
+        factories.setBatchAddedThreshold(3);
+        context.attach(LifecycleEventFactories.class, factories);
+        EntityRef firstEntity = addEntityWithNewComponent(1);
+        EntityRef secondEntity = addEntityWithNewComponent(2);
+        SampleComponent originalComp = componentManager.create(SampleComponent.class);
+        EntityState removedState = new EntityState(3, 1, Lists.newArrayList(originalComp), Lists.newArrayList(originalComp));
+        systemState.addState(removedState);
+        removedState.removeComponent(SampleComponent.class);
+        EntityRef thirdEntity = new CoreEntityRef(null, 3);
+        when(mockEntityManager.getEntity(3)).thenReturn(thirdEntity);
+
+        LifecycleEventInterceptor lifecycleEventInterceptor = new LifecycleEventInterceptor(mockEntityManager, mockEventSystem);
+        lifecycleEventInterceptor.handle(context);
+
+        verify(mockEventSystem).send(any(OnAdded.class), eq(firstEntity), eq(Sets.newHashSet(SampleComponent.class)));
+        verify(mockEventSystem).send(any(OnAdded.class), eq(secondEntity), eq(Sets.newHashSet(SampleComponent.class)));
+        verify(mockEventSystem).send(any(OnRemoved.class), eq(thirdEntity), eq(Sets.newHashSet(SampleComponent.class)));
+        verifyNoMoreInteractions(mockEventSystem);
+    }
+
+    @Test
+    public void sendOnAddedEventsForComponentTypesBelowBatchThreshold() {
+        LifecycleEventFactories factories = new LifecycleEventFactories();
+        factories.setBatchAddedThreshold(2);
+        context.attach(LifecycleEventFactories.class, factories);
+        EntityRef firstEntity = addEntityWithNewComponent(1);
+        EntityRef secondEntity = addEntityWithNewComponent(2);
+        EntityState thirdState = new EntityState(3, 1, Collections.emptyList(), Collections.emptyList());
+        systemState.addState(thirdState);
+        thirdState.addComponent(componentManager.create(SecondComponent.class));
+        EntityRef thirdEntity = new CoreEntityRef(null, 3);
+        when(mockEntityManager.getEntity(3)).thenReturn(thirdEntity);
+
+        LifecycleEventInterceptor lifecycleEventInterceptor = new LifecycleEventInterceptor(mockEntityManager, mockEventSystem);
+        lifecycleEventInterceptor.handle(context);
+
+        verify(mockEventSystem).send(any(OnBatchAdded.class), eq(firstEntity), eq(Sets.newHashSet(SampleComponent.class)));
+        verify(mockEventSystem).send(any(OnAdded.class), eq(thirdEntity), eq(Sets.newHashSet(SecondComponent.class)));
+        verifyNoMoreInteractions(mockEventSystem);
+    }
+
+    private EntityRef addEntityWithNewComponent(long id) {
+        EntityState entityState = new EntityState(id, 1, Collections.emptyList(), Collections.emptyList());
+        systemState.addState(entityState);
+        entityState.addComponent(componentManager.create(SampleComponent.class));
+        EntityRef entityRef = new CoreEntityRef(null, id);
+        when(mockEntityManager.getEntity(id)).thenReturn(entityRef);
+        return entityRef;
+    }
 }
@@ -16,22 +16,36 @@
 
 package org.terasology.entitysystem.persistence.proto;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.terasology.assets.test.VirtualModuleEnvironmentFactory;
 import org.terasology.entitysystem.component.CodeGenComponentManager;
 import org.terasology.entitysystem.component.ComponentManager;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
+import org.terasology.entitysystem.core.ProxyEntityRef;
+import org.terasology.entitysystem.entity.inmemory.EntityIdAllocator;
 import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
 import org.terasology.entitysystem.persistence.proto.persistors.EntityManagerPersistor;
+import org.terasology.entitysystem.persistence.protodata.ProtoDatastore;
 import org.terasology.entitysystem.stubs.SampleComponent;
+import org.terasology.entitysystem.stubs.SecondComponent;
 import org.terasology.entitysystem.transaction.TransactionManager;
 import org.terasology.module.ModuleEnvironment;
 import org.terasology.valuetype.ImmutableCopy;
 import org.terasology.valuetype.TypeHandler;
 import org.terasology.valuetype.TypeLibrary;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -42,11 +56,16 @@ public class EntityManagerPersistorTest {
 
     private static final String NAME = "Name";
     private static final String DESCRIPTION = "Description";
+    private static final int HEADER_LENGTH = 5;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     private TransactionManager initialTransactionManager;
     private TransactionManager finalTransactionManager;
     private ComponentManager componentManager;
     private EntityManagerPersistor persistor;
+    private EntityManagerPersistor chunkedPersistor;
 
 
     public EntityManagerPersistorTest() throws Exception {
@@ -62,6 +81,7 @@ public EntityManagerPersistorTest() throws Exception {
         componentManager = new CodeGenComponentManager(typeLibrary);
         ProtoPersistence context = ProtoPersistence.create();
         persistor = new EntityManagerPersistor(moduleEnvironment, componentManager, context);
+        chunkedPersistor = new EntityManagerPersistor(moduleEnvironment, componentManager, context, 2);
     }
 
     @Test
@@ -84,4 +104,180 @@ public void persistEntityManager() {
         assertEquals(NAME, newEntity.getComponent(SampleComponent.class).get().getName());
         assertEquals(DESCRIPTION, newEntity.getComponent(SampleComponent.class).get().getDescription());
     }
+
+    @Test
+    public void persistFreeIds() {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        EntityRef deletedEntity = entityManager.createEntity();
+        deletedEntity.addComponent(SampleComponent.class);
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(NAME);
+        initialTransactionManager.commit();
+        initialTransactionManager.begin();
+        deletedEntity.delete();
+        initialTransactionManager.commit();
+
+        EntityManager newEntityManager = persistor.deserialize(persistor.serialize(entityManager, initialTransactionManager), finalTransactionManager);
+        assertEquals(entityManager.getFreeIds(), newEntityManager.getFreeIds());
+        finalTransactionManager.begin();
+        assertFalse(newEntityManager.getEntity(deletedEntity.getId()).isPresent());
+        EntityRef newEntity = newEntityManager.createEntity();
+        newEntity.addComponent(SampleComponent.class);
+        finalTransactionManager.commit();
+        assertEquals((long) entityManager.getFreeIds().get(0), ((ProxyEntityRef) newEntity).getActualRef().getId());
+    }
+
+    @Test
+    public void freeIdOfSavedEntityIsNotReused() {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(NAME);
+        initialTransactionManager.commit();
+
+        // As if the entity was deleted while it was being saved
+        ProtoDatastore.Store store = persistor.serialize(entityManager, initialTransactionManager).toBuilder()
+                .addFreeEntityId(EntityIdAllocator.id(EntityIdAllocator.index(entity.getId()), EntityIdAllocator.generation(entity.getId()) + 1))
+                .build();
+        EntityManager newEntityManager = persistor.deserialize(store, finalTransactionManager);
+        assertTrue(newEntityManager.getFreeIds().isEmpty());
+        finalTransactionManager.begin();
+        assertTrue(newEntityManager.getEntity(entity.getId()).isPresent());
+        finalTransactionManager.commit();
+    }
+
+    @Test
+    public void persistEntityManagerThroughStream() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        EntityRef[] entities = new EntityRef[5];
+        for (int i = 0; i < entities.length; ++i) {
+            entities[i] = entityManager.createEntity();
+            entities[i].addComponent(SampleComponent.class).setName(NAME + i);
+        }
+        // A component type first used in a later chunk
+        entities[4].addComponent(SecondComponent.class).setName(DESCRIPTION);
+        initialTransactionManager.commit();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chunkedPersistor.serialize(entityManager, initialTransactionManager, output);
+        EntityManager newEntityManager = chunkedPersistor.deserialize(new ByteArrayInputStream(output.toByteArray()), finalTransactionManager);
+
+        assertEquals(entityManager.getNextId(), newEntityManager.getNextId());
+        finalTransactionManager.begin();
+        for (int i = 0; i < entities.length; ++i) {
+            EntityRef newEntity = newEntityManager.getEntity(entities[i].getId());
+            assertTrue(newEntity.isPresent());
+            assertEquals(NAME + i, newEntity.getComponent(SampleComponent.class).get().getName());
+        }
+        assertEquals(DESCRIPTION, newEntityManager.getEntity(entities[4].getId()).getComponent(SecondComponent.class).get().getName());
+        finalTransactionManager.commit();
+    }
+
+    @Test
+    public void persistFreeIdsThroughStream() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        EntityRef deletedEntity = entityManager.createEntity();
+        deletedEntity.addComponent(SampleComponent.class);
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(NAME);
+        initialTransactionManager.commit();
+        initialTransactionManager.begin();
+        deletedEntity.delete();
+        initialTransactionManager.commit();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chunkedPersistor.serialize(entityManager, initialTransactionManager, output);
+        EntityManager newEntityManager = chunkedPersistor.deserialize(new ByteArrayInputStream(output.toByteArray()), finalTransactionManager);
+        assertEquals(entityManager.getFreeIds(), newEntityManager.getFreeIds());
+        finalTransactionManager.begin();
+        assertFalse(newEntityManager.getEntity(deletedEntity.getId()).isPresent());
+        assertTrue(newEntityManager.getEntity(entity.getId()).isPresent());
+        finalTransactionManager.commit();
+    }
+
+    @Test
+    public void persistEmptyEntityManagerThroughStream() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chunkedPersistor.serialize(entityManager, initialTransactionManager, output);
+        EntityManager newEntityManager = chunkedPersistor.deserialize(new ByteArrayInputStream(output.toByteArray()), finalTransactionManager);
+        assertEquals(entityManager.getNextId(), newEntityManager.getNextId());
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedStreamFails() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        for (int i = 0; i < 5; ++i) {
+            entityManager.createEntity().addComponent(SampleComponent.class).setName(NAME);
+        }
+        initialTransactionManager.commit();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chunkedPersistor.serialize(entityManager, initialTransactionManager, output);
+        ByteArrayInputStream input = new ByteArrayInputStream(output.toByteArray());
+        ByteArrayOutputStream truncated = new ByteArrayOutputStream();
+        byte[] header = new byte[HEADER_LENGTH];
+        assertEquals(HEADER_LENGTH, input.read(header));
+        truncated.write(header);
+        ProtoDatastore.Store.parseDelimitedFrom(input).writeDelimitedTo(truncated);
+        chunkedPersistor.deserialize(new ByteArrayInputStream(truncated.toByteArray()), finalTransactionManager);
+    }
+
+    @Test(expected = IOException.class)
+    public void unsupportedFormatVersionFails() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        chunkedPersistor.serialize(entityManager, initialTransactionManager, output);
+        byte[] data = output.toByteArray();
+        data[HEADER_LENGTH - 1]++;
+        chunkedPersistor.deserialize(new ByteArrayInputStream(data), finalTransactionManager);
+    }
+
+    @Test
+    public void loadLegacyFile() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(NAME);
+        initialTransactionManager.commit();
+
+        Path file = temporaryFolder.newFile().toPath();
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            persistor.serialize(entityManager, initialTransactionManager).writeTo(stream);
+        }
+        EntityManager newEntityManager = persistor.deserialize(file, finalTransactionManager);
+        assertEquals(entityManager.getNextId(), newEntityManager.getNextId());
+        finalTransactionManager.begin();
+        assertEquals(NAME, newEntityManager.getEntity(entity.getId()).getComponent(SampleComponent.class).get().getName());
+        finalTransactionManager.commit();
+    }
+
+    @Test
+    public void loadEmptyLegacyFile() throws IOException {
+        Path file = temporaryFolder.newFile().toPath();
+        EntityManager newEntityManager = persistor.deserialize(file, finalTransactionManager);
+        assertFalse(newEntityManager.allEntities().hasNext());
+    }
+
+    @Test
+    public void persistEntityManagerThroughFile() throws IOException {
+        EntityManager entityManager = new InMemoryEntityManager(componentManager, initialTransactionManager);
+        initialTransactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(NAME);
+        initialTransactionManager.commit();
+
+        Path file = temporaryFolder.newFile().toPath();
+        persistor.serialize(entityManager, initialTransactionManager, file);
+        EntityManager newEntityManager = persistor.deserialize(file, finalTransactionManager);
+        finalTransactionManager.begin();
+        assertEquals(NAME, newEntityManager.getEntity(entity.getId()).getComponent(SampleComponent.class).get().getName());
+        finalTransactionManager.commit();
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.stubs;
+
+import org.terasology.entitysystem.core.Component;
+
+/**
+ *
+ */
+public interface PrimitiveComponent extends Component {
+
+    int getCount();
+
+    void setCount(int count);
+
+    float getSpeed();
+
+    void setSpeed(float speed);
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    String getName();
+
+    void setName(String name);
+}
@@ -16,18 +16,28 @@
 
 package org.terasology.entitysystem.transaction;
 
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.reflect.TypeToken;
+import gnu.trove.list.TLongList;
+import gnu.trove.list.array.TLongArrayList;
 import org.junit.Test;
 import org.mockito.internal.matchers.Null;
 import org.terasology.entitysystem.component.CodeGenComponentManager;
+import org.terasology.entitysystem.core.EntityBatch;
 import org.terasology.entitysystem.core.EntityManager;
 import org.terasology.entitysystem.core.EntityRef;
 import org.terasology.entitysystem.core.ProxyEntityRef;
 import org.terasology.entitysystem.transaction.exception.EntitySystemException;
+import org.terasology.entitysystem.transaction.exception.ReadOnlyTransactionException;
+import org.terasology.entitysystem.entity.inmemory.CommitMode;
+import org.terasology.entitysystem.entity.inmemory.ComponentTable;
+import org.terasology.entitysystem.entity.inmemory.EntityIdAllocator;
 import org.terasology.entitysystem.entity.inmemory.InMemoryEntityManager;
 import org.terasology.entitysystem.entity.inmemory.CoreEntityRef;
 import org.terasology.entitysystem.entity.inmemory.NewEntityRef;
 import org.terasology.entitysystem.core.NullEntityRef;
+import org.terasology.entitysystem.stubs.ListComponent;
 import org.terasology.entitysystem.stubs.SampleComponent;
 import org.terasology.entitysystem.stubs.SecondComponent;
 import org.terasology.entitysystem.transaction.exception.RollbackException;
@@ -35,9 +45,15 @@
 import org.terasology.valuetype.TypeHandler;
 import org.terasology.valuetype.TypeLibrary;
 
-import java.util.ConcurrentModificationException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.StreamSupport;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
@@ -51,12 +67,19 @@ public class InMemoryEntityManagerTest {
     private static final String TEST_NAME_2 = "Jill";
     private TransactionManager transactionManager;
     private EntityManager entityManager;
+    private CodeGenComponentManager componentManager;
 
     public InMemoryEntityManagerTest() {
+        this(CommitMode.LOCKING);
+    }
+
+    protected InMemoryEntityManagerTest(CommitMode commitMode) {
         TypeLibrary typeLibrary = new TypeLibrary();
         typeLibrary.addHandler(new TypeHandler<>(String.class, ImmutableCopy.create()));
+        typeLibrary.addHandler(new TypeHandler<List<String>>(new TypeToken<List<String>>() {}.getType(), Lists::newArrayList));
         transactionManager = new TransactionManager();
-        entityManager = new InMemoryEntityManager(new CodeGenComponentManager(typeLibrary), transactionManager);
+        componentManager = new CodeGenComponentManager(typeLibrary);
+        entityManager = new InMemoryEntityManager(componentManager, transactionManager, new ComponentTable(componentManager, 1), commitMode);
     }
 
     @Test
@@ -96,7 +119,7 @@ public void createEntitySwitchesToNullEntityRefOnRollback() throws Exception {
         assertEquals(NullEntityRef.get(), newEntityRef.getActualRef());
     }
 
-    @Test(expected = ConcurrentModificationException.class)
+    @Test(expected = RollbackException.class)
     public void createEntitySwitchesToNullEntityRefOnFailedCommit() throws Exception {
         transactionManager.begin();
         EntityRef initialEntity = entityManager.createEntity();
@@ -120,6 +143,66 @@ public void createEntitySwitchesToNullEntityRefOnFailedCommit() throws Exception
         }
     }
 
+    @Test
+    public void deletedEntityIdIsReusedWithNextGeneration() {
+        transactionManager.begin();
+        EntityRef deletedEntity = entityManager.createEntity();
+        deletedEntity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        deletedEntity.delete();
+        transactionManager.commit();
+
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        long newId = ((ProxyEntityRef) entity).getActualRef().getId();
+        assertEquals(EntityIdAllocator.index(deletedEntity.getId()), EntityIdAllocator.index(newId));
+        assertEquals(EntityIdAllocator.generation(deletedEntity.getId()) + 1, EntityIdAllocator.generation(newId));
+        transactionManager.begin();
+        assertFalse(deletedEntity.isPresent());
+        assertTrue(entityManager.getEntity(newId).isPresent());
+        transactionManager.commit();
+    }
+
+    @Test(expected = RollbackException.class)
+    public void deletedEntityCannotBeRecreatedOnceIdFreed() {
+        transactionManager.begin();
+        EntityRef deletedEntity = entityManager.createEntity();
+        deletedEntity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        deletedEntity.delete();
+        transactionManager.commit();
+
+        transactionManager.begin();
+        deletedEntity.addComponent(SecondComponent.class);
+        transactionManager.commit();
+    }
+
+    @Test
+    public void replacingAllComponentsKeepsEntity() {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.removeComponent(SampleComponent.class);
+        entity.addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        assertTrue(entityManager.getFreeIds().isEmpty());
+        transactionManager.begin();
+        assertTrue(entity.isPresent());
+        assertTrue(entity.getComponent(SecondComponent.class).isPresent());
+        transactionManager.commit();
+    }
+
     @Test
     public void addThenRemoveComponent() throws Exception {
         transactionManager.begin();
@@ -194,6 +277,41 @@ public void concurrentModificationTriggersException() {
         transactionManager.commit();
     }
 
+    @Test(expected = RollbackException.class)
+    public void componentLoadedAfterConcurrentModificationTriggersException() {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class);
+        entity.addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().setName(TEST_NAME);
+
+        transactionManager.begin();
+        entity.getComponent(SecondComponent.class).get().setName(TEST_NAME_2);
+        transactionManager.commit();
+
+        entity.getComponent(SecondComponent.class).get();
+        transactionManager.commit();
+    }
+
+    @Test
+    public void unchangedComponentsAreNotUpdated() {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(TEST_NAME);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        long revision = entity.getRevision();
+        assertEquals(TEST_NAME, entity.getComponent(SampleComponent.class).get().getName());
+        transactionManager.commit();
+
+        transactionManager.begin();
+        assertEquals(revision, entity.getRevision());
+    }
+
     @Test(expected = RollbackException.class)
     public void failedCommitIsRolledBack() throws Exception {
         transactionManager.begin();
@@ -245,10 +363,250 @@ public void getCompositionOfEntityAccountsForLocalModification() throws Exceptio
         assertEquals(Sets.newHashSet(SecondComponent.class), entity.getComponentTypes());
     }
 
+    @Test
+    public void readOnlyTransactionReadsComponents() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(TEST_NAME);
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        assertTrue(entity.isPresent());
+        assertEquals(TEST_NAME, entity.getComponent(SampleComponent.class).get().getName());
+        assertFalse(entity.getComponent(SecondComponent.class).isPresent());
+        assertEquals(Sets.newHashSet(SampleComponent.class), entity.getComponentTypes());
+        transactionManager.commit();
+    }
+
+    @Test
+    public void readOnlyTransactionChangesAreNotCommitted() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(TEST_NAME);
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        SampleComponent component = entity.getComponent(SampleComponent.class).get();
+        component.setName(TEST_NAME_2);
+        assertEquals(TEST_NAME_2, component.getName());
+        transactionManager.commit();
+
+        transactionManager.begin();
+        assertEquals(TEST_NAME, entity.getComponent(SampleComponent.class).get().getName());
+    }
+
+    @Test
+    public void rollbackRevertsChangesToCollections() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(ListComponent.class).setItems(Lists.newArrayList(TEST_NAME));
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(ListComponent.class).get().getItems().add(TEST_NAME_2);
+        transactionManager.rollback();
+
+        transactionManager.begin();
+        assertEquals(Lists.newArrayList(TEST_NAME), entity.getComponent(ListComponent.class).get().getItems());
+        transactionManager.commit();
+    }
+
+    @Test
+    public void changesToCollectionsAreCommitted() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(ListComponent.class).setItems(Lists.newArrayList(TEST_NAME));
+        transactionManager.commit();
+
+        transactionManager.begin();
+        long revision = entity.getRevision();
+        entity.getComponent(ListComponent.class).get().getItems().add(TEST_NAME_2);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        assertEquals(Lists.newArrayList(TEST_NAME, TEST_NAME_2), entity.getComponent(ListComponent.class).get().getItems());
+        assertEquals(revision + 1, entity.getRevision());
+        transactionManager.commit();
+    }
+
+    @Test
+    public void readOnlyTransactionCannotModifyStoredCollections() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(ListComponent.class).setItems(Lists.newArrayList(TEST_NAME));
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        entity.getComponent(ListComponent.class).get().getItems().add(TEST_NAME_2);
+        transactionManager.commit();
+
+        transactionManager.begin();
+        assertEquals(Lists.newArrayList(TEST_NAME), entity.getComponent(ListComponent.class).get().getItems());
+        transactionManager.commit();
+    }
+
+    @Test
+    public void readOnlyTransactionSeesLaterCommits() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(TEST_NAME);
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        transactionManager.commit();
+
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().setName(TEST_NAME_2);
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        assertEquals(TEST_NAME_2, entity.getComponent(SampleComponent.class).get().getName());
+        transactionManager.commit();
+    }
+
+    @Test
+    public void readOnlyTransactionReadsSnapshot() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class).setName(TEST_NAME);
+        EntityRef deletedEntity = entityManager.createEntity();
+        deletedEntity.addComponent(SampleComponent.class).setName(TEST_NAME_2);
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        transactionManager.begin();
+        entity.getComponent(SampleComponent.class).get().setName(TEST_NAME_2);
+        entity.addComponent(SecondComponent.class);
+        deletedEntity.delete();
+        EntityRef createdEntity = entityManager.createEntity();
+        createdEntity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        assertEquals(TEST_NAME, entity.getComponent(SampleComponent.class).get().getName());
+        assertEquals(Sets.newHashSet(SampleComponent.class), entity.getComponentTypes());
+        assertTrue(deletedEntity.isPresent());
+        assertFalse(createdEntity.isPresent());
+        assertEquals(Sets.newHashSet(entity.getId(), deletedEntity.getId()), Sets.newHashSet(Lists.transform(Lists.newArrayList(entityManager.allEntities()), EntityRef::getId)));
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        assertEquals(TEST_NAME_2, entity.getComponent(SampleComponent.class).get().getName());
+        assertFalse(deletedEntity.isPresent());
+        transactionManager.commit();
+    }
+
+    @Test(expected = ReadOnlyTransactionException.class)
+    public void readOnlyTransactionCannotAddComponents() throws Exception {
+        transactionManager.begin();
+        EntityRef entity = entityManager.createEntity();
+        entity.addComponent(SampleComponent.class);
+        transactionManager.commit();
+
+        transactionManager.beginReadOnly();
+        entity.addComponent(SecondComponent.class);
+    }
+
+    @Test(expected = ReadOnlyTransactionException.class)
+    public void readOnlyTransactionCannotCreateEntities() throws Exception {
+        transactionManager.beginReadOnly();
+        entityManager.createEntity();
+    }
+
     @Test
     public void transactionInactiveIfNotStarted() {
         assertFalse(transactionManager.isActive());
     }
 
+    @Test
+    public void queryEntitiesWithComponents() {
+        transactionManager.begin();
+        EntityRef both = entityManager.createEntity();
+        both.addComponent(SampleComponent.class);
+        both.addComponent(SecondComponent.class);
+        EntityRef sampleOnly = entityManager.createEntity();
+        sampleOnly.addComponent(SampleComponent.class);
+        EntityRef secondOnly = entityManager.createEntity();
+        secondOnly.addComponent(SecondComponent.class);
+        transactionManager.commit();
+
+        long[] result = StreamSupport.longStream(entityManager.query(Sets.newHashSet(SampleComponent.class, SecondComponent.class)), false).toArray();
+        assertArrayEquals(new long[]{both.getId()}, result);
+
+        result = StreamSupport.longStream(entityManager.query(Sets.newHashSet(SampleComponent.class)), true).sorted().toArray();
+        assertArrayEquals(new long[]{both.getId(), sampleOnly.getId()}, result);
+    }
 
+    @Test
+    public void queryEntitiesWithComponentsInParallel() {
+        List<EntityRef> matchingEntities = Lists.newArrayList();
+        transactionManager.begin();
+        for (int i = 0; i < 100; ++i) {
+            EntityRef entity = entityManager.createEntity();
+            entity.addComponent(SampleComponent.class);
+            if (i % 3 == 0) {
+                entity.addComponent(SecondComponent.class);
+                matchingEntities.add(entity);
+            }
+        }
+        transactionManager.commit();
+        TLongList expected = new TLongArrayList();
+        for (EntityRef entity : matchingEntities) {
+            expected.add(entity.getId());
+        }
+
+        Spliterator.OfLong query = entityManager.query(Sets.newHashSet(SampleComponent.class, SecondComponent.class));
+        assertEquals(0, query.characteristics() & Spliterator.IMMUTABLE);
+        Spliterator.OfLong prefix = query.trySplit();
+        TLongList result = new TLongArrayList();
+        prefix.forEachRemaining((LongConsumer) result::add);
+        query.forEachRemaining((LongConsumer) result::add);
+        result.sort();
+        expected.sort();
+        assertEquals(expected, result);
+    }
+
+    @Test
+    public void createEntityBatch() {
+        List<SampleComponent> samples = Lists.newArrayList();
+        List<SecondComponent> seconds = Lists.newArrayList();
+        for (int i = 0; i < 10; ++i) {
+            SampleComponent sample = componentManager.create(SampleComponent.class);
+            sample.setName(TEST_NAME + i);
+            samples.add(sample);
+            seconds.add(componentManager.create(SecondComponent.class));
+        }
+
+        transactionManager.begin();
+        EntityBatch batch = entityManager.createEntityBatch(Arrays.asList(samples, seconds));
+        assertFalse(batch.isCommitted());
+        transactionManager.commit();
+
+        assertTrue(batch.isCommitted());
+        transactionManager.begin();
+        for (int i = 0; i < batch.size(); ++i) {
+            assertEquals(batch.getId(0) + i, batch.getId(i));
+            EntityRef entity = batch.getEntity(i);
+            assertEquals(TEST_NAME + i, entity.getComponent(SampleComponent.class).get().getName());
+            assertTrue(entity.getComponent(SecondComponent.class).isPresent());
+        }
+        transactionManager.commit();
+    }
+
+    @Test
+    public void createEntityBatchDiscardedOnRollback() {
+        transactionManager.begin();
+        EntityBatch batch = entityManager.createEntityBatch(Collections.singletonList(Collections.singletonList(componentManager.create(SampleComponent.class))));
+        transactionManager.rollback();
+
+        assertFalse(batch.isCommitted());
+        assertFalse(entityManager.allEntities().hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void createEntityBatchWithMismatchedColumnsFails() {
+        transactionManager.begin();
+        entityManager.createEntityBatch(Arrays.asList(
+                Lists.newArrayList(componentManager.create(SampleComponent.class)),
+                Lists.newArrayList(componentManager.create(SecondComponent.class), componentManager.create(SecondComponent.class))));
+    }
 }
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2016 MovingBlocks
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.terasology.entitysystem.transaction.pipeline;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *
+ */
+public class TransactionPipelineTest {
+
+    private TransactionPipeline pipeline = new TransactionPipeline();
+
+    @Test
+    public void stagesRunInOrder() {
+        List<TransactionStage> stages = Lists.newArrayList();
+        for (TransactionStage stage : TransactionStage.values()) {
+            pipeline.registerInterceptor(stage, (context) -> stages.add(stage));
+        }
+        TransactionContext context = new TransactionContext();
+        pipeline.begin(context);
+        pipeline.commit(context);
+        assertEquals(Lists.newArrayList(TransactionStage.PRE_TRANSACTION, TransactionStage.PRE_COMMIT, TransactionStage.OBTAIN_LOCKS, TransactionStage.VERIFY_COMMIT,
+                TransactionStage.PROCESS_COMMIT, TransactionStage.RELEASE_LOCKS, TransactionStage.UPDATE_INDEXES, TransactionStage.POST_COMMIT,
+                TransactionStage.POST_TRANSACTION), stages);
+    }
+
+    @Test
+    public void interceptorRegisteredAfterUseIsCalled() {
+        List<String> calls = Lists.newArrayList();
+        pipeline.registerInterceptor(TransactionStage.PRE_TRANSACTION, (context) -> calls.add("first"));
+        pipeline.begin(new TransactionContext());
+        pipeline.registerInterceptor(TransactionStage.PRE_TRANSACTION, (context) -> calls.add("second"));
+        pipeline.begin(new TransactionContext());
+        assertEquals(Lists.newArrayList("first", "first", "second"), calls);
+    }
+
+    @Test
+    public void attachments() {
+        TransactionContext context = new TransactionContext();
+        assertFalse(context.getAttachment(String.class).isPresent());
+        assertNull(context.getAttachmentIfPresent(String.class));
+        context.attach(String.class, "Test");
+        assertEquals("Test", context.getAttachment(String.class).get());
+        assertEquals("Test", context.getAttachmentIfPresent(String.class));
+        Integer attachment = context.getOrAttach(Integer.class, () -> 3);
+        assertSame(attachment, context.getOrAttach(Integer.class, () -> 4));
+    }
+
+    @Test
+    public void attachmentsOfManyTypes() {
+        Object[] values = {true, (byte) 1, 'c', (short) 2, 3, 4L, 5f, 6.0, "Seven", new StringBuilder("Eight"), new Object(), Lists.newArrayList()};
+        TransactionContext context = new TransactionContext();
+        for (Object value : values) {
+            attach(context, value);
+        }
+        for (Object value : values) {
+            assertSame(value, context.getAttachmentIfPresent(value.getClass()));
+        }
+    }
+
+    @Test
+    public void pooledContextResetsReusableAttachments() {
+        TransactionContextPool pool = new TransactionContextPool();
+        TransactionContext context = pool.acquire(false);
+        CountingAttachment attachment = context.getOrAttach(CountingAttachment.class, CountingAttachment::new);
+        attachment.count = 3;
+        context.attach(String.class, "Test");
+        pool.release(context);
+
+        TransactionContext reusedContext = pool.acquire(true);
+        assertSame(context, reusedContext);
+        assertTrue(reusedContext.isReadOnly());
+        assertNull(reusedContext.getAttachmentIfPresent(String.class));
+        assertNull(reusedContext.getAttachmentIfPresent(CountingAttachment.class));
+        CountingAttachment reusedAttachment = reusedContext.getOrAttach(CountingAttachment.class, CountingAttachment::new);
+        assertSame(attachment, reusedAttachment);
+        assertEquals(0, reusedAttachment.count);
+    }
+
+    @Test
+    public void pooledContextsAreNotShared() {
+        TransactionContextPool pool = new TransactionContextPool();
+        TransactionContext outer = pool.acquire(false);
+        TransactionContext inner = pool.acquire(false);
+        assertNotSame(outer, inner);
+    }
+
+    @Test
+    public void mergeContexts() {
+        TransactionContext context = new TransactionContext();
+        context.attach(SummingAttachment.class, new SummingAttachment(1));
+        TransactionContext other = new TransactionContext();
+        other.attach(SummingAttachment.class, new SummingAttachment(2));
+        other.attach(String.class, "Test");
+
+        assertTrue(context.canMerge(other));
+        context.merge(other);
+        assertEquals(3, context.getAttachmentIfPresent(SummingAttachment.class).total);
+        assertEquals("Test", context.getAttachmentIfPresent(String.class));
+    }
+
+    @Test
+    public void cannotMergeContextsWithConflictingAttachments() {
+        TransactionContext context = new TransactionContext();
+        context.attach(SummingAttachment.class, new SummingAttachment(-1));
+        TransactionContext other = new TransactionContext();
+        other.attach(SummingAttachment.class, new SummingAttachment(2));
+        assertFalse(context.canMerge(other));
+    }
+
+    @Test
+    public void cannotMergeContextsSharingUnmergeableAttachment() {
+        TransactionContext context = new TransactionContext();
+        context.attach(String.class, "First");
+        TransactionContext other = new TransactionContext();
+        other.attach(String.class, "Second");
+        assertFalse(context.canMerge(other));
+    }
+
+    @Test
+    public void cannotMergeReadOnlyContextWithWritableContext() {
+        assertFalse(new TransactionContext(false).canMerge(new TransactionContext(true)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void attach(TransactionContext context, T value) {
+        context.attach((Class<T>) value.getClass(), value);
+    }
+
+    public static class CountingAttachment implements ReusableAttachment {
+        private int count;
+
+        @Override
+        public void reset() {
+            count = 0;
+        }
+    }
+
+    /**
+     * Conflicts if either total is negative.
+     */
+    public static class SummingAttachment implements MergeableAttachment<SummingAttachment> {
+        private int total;
+
+        public SummingAttachment(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public boolean conflictsWith(SummingAttachment other) {
+            return total < 0 || other.total < 0;
+        }
+
+        @Override
+        public void merge(SummingAttachment other) {
+            total += other.total;
+        }
+    }
+}